@@ -60,6 +60,7 @@ import com.intel.missioncontrol.linkbox.LinkBoxConnectionService;
 import com.intel.missioncontrol.livevideo.ILiveVideoService;
 import com.intel.missioncontrol.livevideo.LiveVideoService;
 import com.intel.missioncontrol.map.elevation.ElevationModelFactoryEGM;
+import com.intel.missioncontrol.map.elevation.IEgmModel;
 import com.intel.missioncontrol.map.worldwind.WWDispatcher;
 import com.intel.missioncontrol.mission.IMissionInfoManager;
 import com.intel.missioncontrol.mission.IMissionManager;
@@ -236,9 +237,12 @@ public class Bootstrapper extends javafx.application.Application {
     public static final String MAILSLOT_NAME = UUID.randomUUID().toString().replaceAll("-", "");
     private static final String KEY_EXIFTOOL_PATH = "exiftool.path";
     private static final long START_TIME = System.currentTimeMillis();
+    private static final long START_NANOS = System.nanoTime();
+    private static final String STARTUP_TIMING_REPORT = "startup-timing.jsonl";
     private static final Logger LOGGER = LoggerFactory.getLogger(Bootstrapper.class);
     private final InterProcessHandler interProcessHandler = new InterProcessHandler();
     private Injector injector; // dont init here, otherwise the ProxySetup happens too late
+    private IPathProvider pathProvider;
     private Throwable startupException;
     private MailslotClient mailslotClient;
     private IApplicationContext applicationContext;
@@ -538,20 +542,6 @@ public class Bootstrapper extends javafx.application.Application {
                 new File(versionProvider.getInstallDir().getAbsoluteFile(), "exiftool.exe").getAbsolutePath());
         }
 
-        Dispatcher background = Dispatcher.background();
-        background.run(
-            () -> {
-                // if later on application run exiftool is launched, this sometimes takes up to 30 sec on some
-                // machines,
-                // so better get it ready early
-                long time = System.currentTimeMillis();
-                ExifTool.instance.ensureDaemonIsRunning();
-                Debug.getLog()
-                    .log(
-                        Level.INFO,
-                        "Launching exiftool in background DONE. took=" + (System.currentTimeMillis() - time) + " ms");
-            });
-
         FlightplanFactory.setFactory(new FlightplanFactoryBase());
 
         ResourceBundle bundle = ResourceBundle.getBundle("com/intel/missioncontrol/IntelMissionControl");
@@ -562,49 +552,69 @@ public class Bootstrapper extends javafx.application.Application {
         injector.getInstance(IApplicationContext.class).addClosingListener(Application::closeAppForce);
     }
 
+    private void initializeExifTool() {
+        // if later on application run exiftool is launched, this sometimes takes up to 30 sec on some
+        // machines,
+        // so better get it ready early
+        long time = System.currentTimeMillis();
+        ExifTool.instance.ensureDaemonIsRunning();
+        Debug.getLog()
+            .log(Level.INFO, "Launching exiftool in background DONE. took=" + (System.currentTimeMillis() - time) + " ms");
+    }
+
     @Override
     public void init() {
         try {
-            initLoggerBridge();
-            LOGGER.warn("IMC starting up!");
-
             mailslotClient = new MailslotClient(MAILSLOT_NAME);
 
-            checkPrerequisites();
-            initializeBootstrapAgent();
-            initializeEnvironment();
-
-            // as it is stated in the method description " * <p><b>Must be called early in the Application lifecycle,
-            // before network clients are crated!</b>"
-            // so before airspaces, worldwind etc (everything that might init networking)
-            ProxyManager.install();
-            IPathProvider pathProvider = new PathProvider();
-
-            initializeWorldWindConfiguration(pathProvider);
-            initializeInjector(pathProvider);
-            initializeGlobals(pathProvider);
-            initializeRecentMissions();
-            // this has to be called before flightplan templates --- because it has to initialize
-            // networkStatusProvider before it might be called
-            // in the templates initialization
-            WWFactory.configWW(injector.getInstance(ExpertSettings.class));
-
-            Dispatcher background = Dispatcher.background();
-            background.run(
-                () -> {
-
-                    // warming up available templates
-
-                    // TODO: what's this?
-                    // templateService.getFlightPlanTemplates();
-
-                    elevationModelUpdateHelper =
-                        injector.getInstance(
-                            IElevationModelUpdateHelper
-                                .class); // DON'T REMOVE THIS REFERENCE IS NEEDED TO MAKE SURE WE GET AN
-                    // INSTANCE OF
+            StartupGraph startupGraph = new StartupGraph(START_NANOS);
+            startupGraph
+                .step(
+                    "loggerBridge",
+                    () -> {
+                        initLoggerBridge();
+                        LOGGER.warn("IMC starting up!");
+                    })
+                // the steps up to the injector set process wide state (system properties, native libraries, the
+                // proxy selector) that the later steps rely on, so they keep running one after the other
+                .step("prerequisites", this::checkPrerequisites, "loggerBridge")
+                .step("bootstrapAgent", this::initializeBootstrapAgent, "prerequisites")
+                .step("environment", this::initializeEnvironment, "bootstrapAgent")
+                // as it is stated in the method description " * <p><b>Must be called early in the Application
+                // lifecycle, before network clients are crated!</b>"
+                // so before airspaces, worldwind etc (everything that might init networking)
+                .step("proxy", ProxyManager::install, "environment")
+                .step("pathProvider", () -> pathProvider = new PathProvider(), "proxy")
+                .step("worldWindConfiguration", () -> initializeWorldWindConfiguration(pathProvider), "pathProvider")
+                .step("injector", () -> initializeInjector(pathProvider), "worldWindConfiguration")
+                .step("globals", () -> initializeGlobals(pathProvider), "injector")
+                .step("recentMissions", this::initializeRecentMissions, "globals")
+                // this has to be called before flightplan templates --- because it has to initialize
+                // networkStatusProvider before it might be called
+                // in the templates initialization
+                .step(
+                    "worldWind", () -> WWFactory.configWW(injector.getInstance(ExpertSettings.class)), "recentMissions")
+                // the services below are singletons that are created on first use, so we create them while the
+                // splash screen is up, and anyone who needs them earlier blocks until they are ready
+                .backgroundStep("exifTool", this::initializeExifTool, "globals")
+                .backgroundStep("egm96", () -> injector.getInstance(IEgmModel.class), "injector")
+                .backgroundStep(
+                    "hardwareDescriptions", () -> injector.getInstance(IHardwareConfigurationManager.class), "globals")
+                .backgroundStep(
+                    "elevationModelUpdateHelper",
+                    // DON'T REMOVE THIS REFERENCE IS NEEDED TO MAKE SURE WE GET AN INSTANCE OF
                     // THIS HELPER TO FIRE UP FLIGHTPLAN RECOMPUTATIONS
-                });
+                    () -> elevationModelUpdateHelper = injector.getInstance(IElevationModelUpdateHelper.class),
+                    "worldWind");
+
+            try {
+                startupGraph.run();
+            } finally {
+                if (pathProvider != null) {
+                    startupGraph.writeReportWhenDone(
+                        pathProvider.getProfilingDirectory().resolve(STARTUP_TIMING_REPORT));
+                }
+            }
         } catch (Throwable ex) {
             startupException = ex;
         }
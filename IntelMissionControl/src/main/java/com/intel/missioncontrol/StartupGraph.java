@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the application's startup steps on worker threads. A step starts as soon as the steps it depends on have
+ * completed. The foreground steps of the application each depend on the previous one, so they still run one after the
+ * other in their declaration order; only the background steps (warming up services that are needed later) run in
+ * parallel with them. {@link #run()} only waits for foreground steps, background steps may still be running when it
+ * returns.
+ *
+ * <p>Once all steps have finished, a timing breakdown of the launch is appended as one JSON line to a report file, so
+ * startup regressions can be tracked across builds.
+ */
+final class StartupGraph {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupGraph.class);
+
+    interface Action {
+        void run() throws Exception;
+    }
+
+    private static class Step {
+        final String name;
+        final Action action;
+        final String[] dependencies;
+        final boolean background;
+        CompletableFuture<Void> future;
+        volatile long startNanos;
+        volatile long endNanos;
+        volatile String threadName;
+        volatile Throwable error;
+
+        Step(String name, Action action, String[] dependencies, boolean background) {
+            this.name = name;
+            this.action = action;
+            this.dependencies = dependencies;
+            this.background = background;
+        }
+    }
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+    private final long originNanos;
+    private final ExecutorService executor;
+    private CompletableFuture<Void> allSteps;
+
+    /**
+     * @param originNanos the {@link System#nanoTime()} the reported step times are relative to, usually the time the
+     *     process started
+     */
+    StartupGraph(long originNanos) {
+        this.originNanos = originNanos;
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor =
+            Executors.newCachedThreadPool(
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Startup-" + threadCount.incrementAndGet());
+                    thread.setContextClassLoader(contextClassLoader);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    StartupGraph step(String name, Action action, String... dependencies) {
+        return addStep(new Step(name, action, dependencies, false));
+    }
+
+    StartupGraph backgroundStep(String name, Action action, String... dependencies) {
+        return addStep(new Step(name, action, dependencies, true));
+    }
+
+    private StartupGraph addStep(Step step) {
+        if (steps.containsKey(step.name)) {
+            throw new IllegalArgumentException("Duplicate startup step: " + step.name);
+        }
+
+        for (String dependency : step.dependencies) {
+            // requiring dependencies to be declared first also rules out cycles
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException(
+                    "Startup step " + step.name + " depends on undeclared step " + dependency);
+            }
+        }
+
+        steps.put(step.name, step);
+        return this;
+    }
+
+    /**
+     * Starts all steps and waits for the foreground steps to complete. If a step fails, the steps depending on it are
+     * skipped and the failure is rethrown.
+     */
+    void run() throws Exception {
+        for (Step step : steps.values()) {
+            CompletableFuture<?>[] dependencies =
+                Arrays.stream(step.dependencies).map(name -> steps.get(name).future).toArray(CompletableFuture[]::new);
+            step.future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> execute(step), executor);
+        }
+
+        allSteps =
+            CompletableFuture.allOf(steps.values().stream().map(s -> s.future).toArray(CompletableFuture[]::new));
+        allSteps.whenComplete((result, throwable) -> executor.shutdown());
+
+        for (Step step : steps.values()) {
+            if (step.background) {
+                continue;
+            }
+
+            try {
+                step.future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+
+                if (cause instanceof Exception) {
+                    throw (Exception)cause;
+                }
+
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    private void execute(Step step) {
+        step.threadName = Thread.currentThread().getName();
+        step.startNanos = System.nanoTime();
+        try {
+            step.action.run();
+        } catch (Exception e) {
+            step.error = e;
+            if (step.background) {
+                LOGGER.warn("Startup step " + step.name + " failed", e);
+            }
+
+            throw new CompletionException(e);
+        } finally {
+            step.endNanos = System.nanoTime();
+            LOGGER.debug(
+                "Startup step {} took {} ms on {}",
+                step.name,
+                (step.endNanos - step.startNanos) / 1000000,
+                step.threadName);
+        }
+    }
+
+    /** Appends the timing breakdown to the given file once all steps, including background steps, have finished. */
+    void writeReportWhenDone(Path reportFile) {
+        allSteps.whenComplete((result, throwable) -> writeReport(reportFile));
+    }
+
+    private void writeReport(Path reportFile) {
+        List<Map<String, Object>> stepReports = new ArrayList<>();
+        long endNanos = originNanos;
+        for (Step step : steps.values()) {
+            Map<String, Object> stepReport = new LinkedHashMap<>();
+            stepReport.put("name", step.name);
+            stepReport.put("background", step.background);
+            stepReport.put("dependencies", step.dependencies);
+            stepReport.put("thread", step.threadName);
+            if (step.startNanos != 0) {
+                stepReport.put("startMs", (step.startNanos - originNanos) / 1e6);
+                stepReport.put("durationMs", (step.endNanos - step.startNanos) / 1e6);
+                endNanos = Math.max(endNanos, step.endNanos);
+            }
+
+            if (step.error != null) {
+                stepReport.put("error", step.error.toString());
+            }
+
+            stepReports.add(stepReport);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("totalMs", (endNanos - originNanos) / 1e6);
+        report.put("steps", stepReports);
+
+        Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+        try (Writer writer =
+            Files.newBufferedWriter(
+                reportFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(gson.toJson(report));
+            writer.write('\n');
+        } catch (IOException e) {
+            LOGGER.warn("Could not write startup timing report " + reportFile, e);
+        }
+    }
+
+}
@@ -56,6 +56,8 @@ public class AirMap {
 
     public static final String AIRMAP_SEARCH_URL = "https://api.airmap.com/airspace/v2/search";
 
+    private static final int HTTP_NOT_MODIFIED = 304;
+
     private AirMap() {
     }
 
@@ -217,6 +219,81 @@ public class AirMap {
         return future;
     }
 
+    /** Result of a conditional airspace search, see {@link #searchAirspaceConditional}. */
+    public static final class ConditionalSearchResult {
+        private final Collection<AirSpaceObject> airspaces;
+        private final String etag;
+        private final boolean notModified;
+
+        ConditionalSearchResult(Collection<AirSpaceObject> airspaces, String etag, boolean notModified) {
+            this.airspaces = airspaces;
+            this.etag = etag;
+            this.notModified = notModified;
+        }
+
+        /** the airspaces of the response, or null if the server answered "304 Not Modified" */
+        public Collection<AirSpaceObject> getAirspaces() {
+            return airspaces;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public boolean isNotModified() {
+            return notModified;
+        }
+    }
+
+    /**
+     * Same as {@link #searchAirspace}, but revalidates against a previously received ETag. If the server reports the
+     * data as unchanged, the result is flagged as not modified and carries no airspaces.
+     */
+    public static AirMapResponseFuture<ConditionalSearchResult> searchAirspaceConditional(
+            List<Coordinate> geometry, List<MappingService.AirMapAirspaceType> types, String etag) {
+        Map<String, String> params = getParamsForSearch(0, types, null, true, 0, 0,
+                AirMapGeometryFormat.GeoJSON, null);
+        params.put("geometry", "POLYGON(" + makeGeoString(geometry) + ")");
+
+        Map<String, String> headers = new HashMap<>();
+        if (etag != null) {
+            headers.put("If-None-Match", etag);
+        }
+
+        final AirMapResponseFuture<ConditionalSearchResult> future = new AirMapResponseFuture<>();
+        final Callback callback = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try (ResponseBody responseBody = response.body()) {
+                    if (response.code() == HTTP_NOT_MODIFIED) {
+                        future.complete(new ConditionalSearchResult(null, etag, true));
+                    } else if (response.isSuccessful()) {
+                        AirMapResponse<Collection<AirSpaceObject>> t;
+                        try {
+                            t = decodeAirmapResponse(responseBody, airmapResponseType.getType());
+                        } catch (Exception e) {
+                            future.completeExceptionally(e);
+                            return;
+                        }
+
+                        future.complete(new ConditionalSearchResult(t.getData(), response.header("ETag"), false));
+                    } else {
+                        future.completeExceptionally(new IOException("AirMap Request failed: " + response.code() + " "
+                                + response.message()));
+                    }
+                }
+            }
+        };
+
+        future.call = getClient().get(AIRMAP_SEARCH_URL, params, headers, callback);
+        return future;
+    }
+
     public static Call searchAirspace2(List<Coordinate> geometry, List<MappingService.AirMapAirspaceType> types,
                                        List<MappingService.AirMapAirspaceType> ignoredTypes,
                                        boolean full, Date date, Callback callback) /*throws AirMapException*/ {
@@ -0,0 +1,379 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.airmap.data;
+
+import gov.nasa.worldwind.geom.LatLon;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary form of {@link AirSpaceObject} and its subclasses, used to persist parsed AirMap tiles so they don't
+ * need to be re-downloaded and re-parsed from GeoJSON on every start.
+ *
+ * <p>Coordinates are stored as raw doubles, so decoding yields the exact same values as the original JSON parse.
+ */
+public final class AirSpaceObjectCodec {
+
+    private static final byte OBJECT_PLAIN = 0;
+    private static final byte OBJECT_BASE = 1;
+    private static final byte OBJECT_AIRPORT = 2;
+    private static final byte OBJECT_CONTROLLED = 3;
+
+    private static final byte GEOMETRY_NULL = 0;
+    private static final byte GEOMETRY_POINT = 1;
+    private static final byte GEOMETRY_LINE_STRING = 2;
+    private static final byte GEOMETRY_POLYGON = 3;
+    private static final byte GEOMETRY_MULTI_POLYGON = 4;
+    private static final byte GEOMETRY_FEATURE = 5;
+
+    private AirSpaceObjectCodec() {}
+
+    public static void writeAll(DataOutput out, Collection<AirSpaceObject> airspaces) throws IOException {
+        out.writeInt(airspaces.size());
+        for (AirSpaceObject airspace : airspaces) {
+            write(out, airspace);
+        }
+    }
+
+    public static List<AirSpaceObject> readAll(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<AirSpaceObject> airspaces = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            airspaces.add(read(in));
+        }
+
+        return airspaces;
+    }
+
+    public static void write(DataOutput out, AirSpaceObject airspace) throws IOException {
+        if (airspace instanceof AirportAirspaceObject) {
+            out.writeByte(OBJECT_AIRPORT);
+        } else if (airspace instanceof ControlledAirspaceObject) {
+            out.writeByte(OBJECT_CONTROLLED);
+        } else if (airspace instanceof AirSpaceBase) {
+            out.writeByte(OBJECT_BASE);
+        } else {
+            out.writeByte(OBJECT_PLAIN);
+        }
+
+        writeUuid(out, airspace.id);
+        writeString(out, airspace.name);
+        writeString(out, airspace.type);
+        writeString(out, airspace.country);
+        writeString(out, airspace.state);
+        writeString(out, airspace.city);
+        out.writeDouble(airspace.latitude);
+        out.writeDouble(airspace.longitude);
+        out.writeDouble(airspace.min_circle_radius);
+        out.writeLong(airspace.last_updated != null ? airspace.last_updated.getTime() : Long.MIN_VALUE);
+        writeGeometry(out, airspace.geometry);
+
+        if (!(airspace instanceof AirSpaceBase)) {
+            return;
+        }
+
+        Map<String, AirSpaceBase.Related> related = ((AirSpaceBase)airspace).relatedGeometry;
+        out.writeInt(related != null ? related.size() : -1);
+        if (related != null) {
+            for (Map.Entry<String, AirSpaceBase.Related> entry : related.entrySet()) {
+                writeString(out, entry.getKey());
+                AirSpaceBase.Related value = entry.getValue();
+                out.writeBoolean(value != null);
+                if (value != null) {
+                    writeUuid(out, value.id);
+                    writeGeometry(out, value.geometry);
+                }
+            }
+        }
+
+        if (airspace instanceof AirportAirspaceObject) {
+            List<AirportAirspaceObject.Rules> rules = ((AirportAirspaceObject)airspace).rules;
+            out.writeInt(rules != null ? rules.size() : -1);
+            if (rules != null) {
+                for (AirportAirspaceObject.Rules rule : rules) {
+                    writeString(out, rule.name);
+                    writeGeometry(out, rule.geometry);
+                    out.writeDouble(rule.min_circle_radius);
+                }
+            }
+        } else if (airspace instanceof ControlledAirspaceObject) {
+            ControlledAirspaceObject.Properties properties = ((ControlledAirspaceObject)airspace).properties;
+            out.writeBoolean(properties != null);
+            if (properties != null) {
+                writeString(out, properties.url);
+                writeString(out, properties.airport_id);
+                writeString(out, properties.airport_name);
+                writeString(out, properties.airspace_class);
+                writeString(out, properties.airspace_classification);
+                out.writeBoolean(properties.authorization);
+                out.writeDouble(properties.ceiling);
+            }
+        }
+    }
+
+    public static AirSpaceObject read(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        AirSpaceObject airspace;
+        switch (kind) {
+        case OBJECT_PLAIN:
+            airspace = new AirSpaceObject();
+            break;
+        case OBJECT_BASE:
+            airspace = new AirSpaceBase();
+            break;
+        case OBJECT_AIRPORT:
+            airspace = new AirportAirspaceObject();
+            break;
+        case OBJECT_CONTROLLED:
+            airspace = new ControlledAirspaceObject();
+            break;
+        default:
+            throw new IOException("Unknown airspace object kind: " + kind);
+        }
+
+        airspace.id = readUuid(in);
+        airspace.name = readString(in);
+        airspace.type = readString(in);
+        airspace.country = readString(in);
+        airspace.state = readString(in);
+        airspace.city = readString(in);
+        airspace.latitude = in.readDouble();
+        airspace.longitude = in.readDouble();
+        airspace.min_circle_radius = in.readDouble();
+        long lastUpdated = in.readLong();
+        airspace.last_updated = lastUpdated != Long.MIN_VALUE ? new Date(lastUpdated) : null;
+        airspace.geometry = (GeoJson.GeometryExtended)readGeometry(in);
+
+        if (!(airspace instanceof AirSpaceBase)) {
+            return airspace;
+        }
+
+        int relatedCount = in.readInt();
+        if (relatedCount >= 0) {
+            Map<String, AirSpaceBase.Related> related = new HashMap<>();
+            for (int i = 0; i < relatedCount; i++) {
+                String key = readString(in);
+                AirSpaceBase.Related value = null;
+                if (in.readBoolean()) {
+                    value = new AirSpaceBase.Related();
+                    value.id = readUuid(in);
+                    value.geometry = readGeometry(in);
+                }
+
+                related.put(key, value);
+            }
+
+            ((AirSpaceBase)airspace).relatedGeometry = related;
+        }
+
+        if (airspace instanceof AirportAirspaceObject) {
+            int ruleCount = in.readInt();
+            if (ruleCount >= 0) {
+                List<AirportAirspaceObject.Rules> rules = new ArrayList<>(ruleCount);
+                for (int i = 0; i < ruleCount; i++) {
+                    AirportAirspaceObject.Rules rule = new AirportAirspaceObject.Rules();
+                    rule.name = readString(in);
+                    rule.geometry = readGeometry(in);
+                    rule.min_circle_radius = in.readDouble();
+                    rules.add(rule);
+                }
+
+                ((AirportAirspaceObject)airspace).rules = rules;
+            }
+        } else if (airspace instanceof ControlledAirspaceObject) {
+            if (in.readBoolean()) {
+                ControlledAirspaceObject.Properties properties = new ControlledAirspaceObject.Properties();
+                properties.url = readString(in);
+                properties.airport_id = readString(in);
+                properties.airport_name = readString(in);
+                properties.airspace_class = readString(in);
+                properties.airspace_classification = readString(in);
+                properties.authorization = in.readBoolean();
+                properties.ceiling = in.readDouble();
+                ((ControlledAirspaceObject)airspace).properties = properties;
+            }
+        }
+
+        return airspace;
+    }
+
+    private static void writeGeometry(DataOutput out, GeoJson.Geometry geometry) throws IOException {
+        if (geometry instanceof GeoJson.PointGeom) {
+            out.writeByte(GEOMETRY_POINT);
+            writeLatLon(out, ((GeoJson.PointGeom)geometry).coordinates);
+        } else if (geometry instanceof GeoJson.LineStringGeom) {
+            out.writeByte(GEOMETRY_LINE_STRING);
+            writeRing(out, ((GeoJson.LineStringGeom)geometry).coordinates);
+        } else if (geometry instanceof GeoJson.PolygonGeom) {
+            out.writeByte(GEOMETRY_POLYGON);
+            writeRings(out, ((GeoJson.PolygonGeom)geometry).coordinates);
+        } else if (geometry instanceof GeoJson.MultiPolygonGeom) {
+            out.writeByte(GEOMETRY_MULTI_POLYGON);
+            List<List<List<LatLon>>> polygons = ((GeoJson.MultiPolygonGeom)geometry).coordinates;
+            out.writeInt(polygons != null ? polygons.size() : -1);
+            if (polygons != null) {
+                for (List<List<LatLon>> polygon : polygons) {
+                    writeRings(out, polygon);
+                }
+            }
+        } else if (geometry instanceof GeoJson.Feature) {
+            out.writeByte(GEOMETRY_FEATURE);
+            writeGeometry(out, ((GeoJson.Feature)geometry).geometry);
+        } else {
+            out.writeByte(GEOMETRY_NULL);
+        }
+    }
+
+    private static GeoJson.Geometry readGeometry(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+        case GEOMETRY_NULL:
+            return null;
+        case GEOMETRY_POINT:
+            {
+                GeoJson.PointGeom point = new GeoJson.PointGeom();
+                point.coordinates = readLatLon(in);
+                return point;
+            }
+        case GEOMETRY_LINE_STRING:
+            {
+                GeoJson.LineStringGeom lineString = new GeoJson.LineStringGeom();
+                lineString.coordinates = readRing(in);
+                return lineString;
+            }
+        case GEOMETRY_POLYGON:
+            {
+                GeoJson.PolygonGeom polygon = new GeoJson.PolygonGeom();
+                polygon.coordinates = readRings(in);
+                return polygon;
+            }
+        case GEOMETRY_MULTI_POLYGON:
+            {
+                GeoJson.MultiPolygonGeom multiPolygon = new GeoJson.MultiPolygonGeom();
+                int count = in.readInt();
+                if (count >= 0) {
+                    multiPolygon.coordinates = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        multiPolygon.coordinates.add(readRings(in));
+                    }
+                }
+
+                return multiPolygon;
+            }
+        case GEOMETRY_FEATURE:
+            {
+                GeoJson.Feature feature = new GeoJson.Feature();
+                feature.geometry = readGeometry(in);
+                return feature;
+            }
+        default:
+            throw new IOException("Unknown geometry kind: " + kind);
+        }
+    }
+
+    private static void writeRings(DataOutput out, List<List<LatLon>> rings) throws IOException {
+        out.writeInt(rings != null ? rings.size() : -1);
+        if (rings != null) {
+            for (List<LatLon> ring : rings) {
+                writeRing(out, ring);
+            }
+        }
+    }
+
+    private static List<List<LatLon>> readRings(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+
+        List<List<LatLon>> rings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rings.add(readRing(in));
+        }
+
+        return rings;
+    }
+
+    private static void writeRing(DataOutput out, List<LatLon> ring) throws IOException {
+        out.writeInt(ring != null ? ring.size() : -1);
+        if (ring != null) {
+            for (LatLon latLon : ring) {
+                writeLatLon(out, latLon);
+            }
+        }
+    }
+
+    private static List<LatLon> readRing(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+
+        List<LatLon> ring = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ring.add(readLatLon(in));
+        }
+
+        return ring;
+    }
+
+    private static void writeLatLon(DataOutput out, LatLon latLon) throws IOException {
+        out.writeBoolean(latLon != null);
+        if (latLon != null) {
+            out.writeDouble(latLon.latitude.degrees);
+            out.writeDouble(latLon.longitude.degrees);
+        }
+    }
+
+    private static LatLon readLatLon(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        double lat = in.readDouble();
+        double lon = in.readDouble();
+        return LatLon.fromDegrees(lat, lon);
+    }
+
+    private static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        long msb = in.readLong();
+        long lsb = in.readLong();
+        return new UUID(msb, lsb);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
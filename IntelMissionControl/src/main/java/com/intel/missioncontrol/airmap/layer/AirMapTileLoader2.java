@@ -228,7 +228,7 @@ public class AirMapTileLoader2 implements TiledRenderableLayer.TileRenderableMan
     }
 
     /**
-     * loads tile data from network (or cache), but doesn't create drawable
+     * loads tile data from the persistent tile store or network, but doesn't create drawable
      *
      * @throws Exception
      */
@@ -240,7 +240,7 @@ public class AirMapTileLoader2 implements TiledRenderableLayer.TileRenderableMan
 
         tileData.status = Status.Loading;
         tileData.dataLoad =
-            AirMap.searchAirspace(toCoordinates(tileData.tile.getSector()), AIRMAP_SEARCH_TYPES, null, true, null)
+            searchAirspace(tileData.tile)
                 .exceptionally(
                     throwable -> {
                         if (logWarnFuture != null) {
@@ -285,6 +285,18 @@ public class AirMapTileLoader2 implements TiledRenderableLayer.TileRenderableMan
         return tileData;
     }
 
+    /** loads through the persistent tile store if there is one, which falls back to the network */
+    private static CompletableFuture<Collection<AirSpaceObject>> searchAirspace(Tile tile) {
+        List<AirMap.Coordinate> coordinates = toCoordinates(tile.getSector());
+        AirMapTileStore tileStore = AirMapTileStore.getInstance();
+        if (tileStore == null) {
+            return AirMap.searchAirspace(coordinates, AIRMAP_SEARCH_TYPES, null, true, null);
+        }
+
+        String key = tile.getLevelNumber() + "_" + tile.getRow() + "_" + tile.getColumn();
+        return tileStore.load(key, coordinates, AIRMAP_SEARCH_TYPES);
+    }
+
     /** will return null on cache miss */
     public TileData getCachedTileData(Tile tile) {
         return tileCache.getIfPresent(tile);
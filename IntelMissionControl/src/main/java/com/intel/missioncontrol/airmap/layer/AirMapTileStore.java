@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.airmap.layer;
+
+import com.airmap.airmapsdk.networking.services.MappingService;
+import com.intel.missioncontrol.airmap.AirMap;
+import com.intel.missioncontrol.airmap.data.AirSpaceObject;
+import com.intel.missioncontrol.airmap.data.AirSpaceObjectCodec;
+import com.intel.missioncontrol.utils.CacheFiles;
+import gov.nasa.worldwind.WorldWind;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent store for parsed AirMap tiles, sitting between {@link AirMapTileLoader2}'s in-memory cache and the
+ * network.
+ *
+ * <p>Each tile is kept in its own file holding the fetch time, the server's ETag and the tile's airspaces in the
+ * compact form of {@link AirSpaceObjectCodec}. Tiles younger than {@link #TIME_TO_LIVE_MILLIS} are served from disk
+ * without touching the network, older ones are revalidated with If-None-Match. If the network is unavailable, stale
+ * tiles are served as long as they are younger than {@link #MAX_STALE_MILLIS}. Concurrent requests for the same tile
+ * share one load.
+ */
+public class AirMapTileStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AirMapTileStore.class);
+
+    /** matches the max-age that {@link com.intel.missioncontrol.airmap.network.AirMapClient2} forces on responses */
+    static final long TIME_TO_LIVE_MILLIS = TimeUnit.HOURS.toMillis(10);
+
+    static final long MAX_STALE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private static final int MAGIC = 0x414D5443; // "AMTC"
+    private static final int VERSION = 1;
+    private static final int FETCH_TIME_OFFSET = 8;
+    private static final String FILE_EXTENSION = ".tile";
+
+    private static AirMapTileStore instance;
+
+    private final File directory;
+    private final BooleanSupplier offline;
+    private final ExecutorService ioExecutor =
+        Executors.newFixedThreadPool(
+            2,
+            runnable -> {
+                Thread thread = new Thread(runnable, "AirMap tile store");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final ConcurrentHashMap<String, CompletableFuture<Collection<AirSpaceObject>>> pendingLoads =
+        new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final long fetchTime;
+        final String etag;
+        final List<AirSpaceObject> airspaces;
+
+        Entry(long fetchTime, String etag, List<AirSpaceObject> airspaces) {
+            this.fetchTime = fetchTime;
+            this.etag = etag;
+            this.airspaces = airspaces;
+        }
+
+        boolean isFresh(long now) {
+            return now - fetchTime < TIME_TO_LIVE_MILLIS;
+        }
+
+        boolean isUsableWhenOffline(long now) {
+            return now - fetchTime < MAX_STALE_MILLIS;
+        }
+    }
+
+    AirMapTileStore(File directory, BooleanSupplier offline) {
+        this.directory = directory;
+        this.offline = offline;
+    }
+
+    /**
+     * Sets up the store used by all {@link AirMapTileLoader2} instances.
+     *
+     * @param directory where tiles are persisted
+     * @param offline whether only persisted data may be used, in addition to {@link WorldWind#isOfflineMode()}
+     */
+    public static synchronized void init(File directory, BooleanSupplier offline) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOG.warn("Could not create AirMap tile cache directory {}", directory);
+        }
+
+        instance = new AirMapTileStore(directory, offline);
+    }
+
+    /** returns null if {@link #init} wasn't called, in which case tiles are always fetched from the network */
+    public static synchronized AirMapTileStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads the airspaces of a tile. The returned future completes with null if we are offline and there is no usable
+     * persisted data, which is the same result a forced-cache miss of {@link AirMap#searchAirspace} yields.
+     *
+     * @param key unique key of the tile, must be usable as a file name
+     */
+    public CompletableFuture<Collection<AirSpaceObject>> load(
+            String key, List<AirMap.Coordinate> coordinates, List<MappingService.AirMapAirspaceType> types) {
+        // the same tile requested with other airspace types is a different load
+        String loadKey = key + '|' + types;
+        CompletableFuture<Collection<AirSpaceObject>> future = new CompletableFuture<>();
+        CompletableFuture<Collection<AirSpaceObject>> pending = pendingLoads.putIfAbsent(loadKey, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        future.whenComplete((airspaces, throwable) -> pendingLoads.remove(loadKey, future));
+        ioExecutor.execute(() -> loadImpl(key, coordinates, types, future));
+        return future;
+    }
+
+    private void loadImpl(
+            String key,
+            List<AirMap.Coordinate> coordinates,
+            List<MappingService.AirMapAirspaceType> types,
+            CompletableFuture<Collection<AirSpaceObject>> future) {
+        final File file = getFile(key, types);
+        final Entry entry = readEntry(file);
+        final long now = System.currentTimeMillis();
+
+        if (entry != null && entry.isFresh(now)) {
+            future.complete(entry.airspaces);
+            return;
+        }
+
+        if (offline.getAsBoolean() || WorldWind.isOfflineMode()) {
+            future.complete(entry != null && entry.isUsableWhenOffline(now) ? entry.airspaces : null);
+            return;
+        }
+
+        AirMap.searchAirspaceConditional(coordinates, types, entry != null ? entry.etag : null)
+            .whenCompleteAsync(
+                (result, throwable) -> {
+                    if (throwable != null) {
+                        if (entry != null && entry.isUsableWhenOffline(now)) {
+                            LOG.debug("AirMap tile revalidation failed, using stale tile " + key, throwable);
+                            future.complete(entry.airspaces);
+                        } else {
+                            future.completeExceptionally(throwable);
+                        }
+                    } else if (result.isNotModified() && entry != null) {
+                        touchEntry(file);
+                        future.complete(entry.airspaces);
+                    } else {
+                        Collection<AirSpaceObject> airspaces =
+                            result.getAirspaces() != null ? result.getAirspaces() : Collections.emptyList();
+                        writeEntry(file, result.getEtag(), airspaces);
+                        future.complete(airspaces);
+                    }
+                },
+                ioExecutor);
+    }
+
+    private File getFile(String key, List<MappingService.AirMapAirspaceType> types) {
+        // different type selections produce different tile contents
+        String typesHash = Integer.toHexString(types.hashCode());
+        return new File(directory, key + "_" + typesHash + FILE_EXTENSION);
+    }
+
+    private Entry readEntry(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+
+            long fetchTime = in.readLong();
+            String etag = in.readBoolean() ? in.readUTF() : null;
+            return new Entry(fetchTime, etag, AirSpaceObjectCodec.readAll(in));
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Discarding unreadable AirMap tile cache file " + file, e);
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+
+            return null;
+        }
+    }
+
+    private void writeEntry(File file, String etag, Collection<AirSpaceObject> airspaces) {
+        try {
+            CacheFiles.write(
+                file.toPath(),
+                out -> {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeLong(System.currentTimeMillis());
+                    out.writeBoolean(etag != null);
+                    if (etag != null) {
+                        out.writeUTF(etag);
+                    }
+
+                    AirSpaceObjectCodec.writeAll(out, airspaces);
+                });
+        } catch (IOException e) {
+            LOG.warn("Could not persist AirMap tile " + file, e);
+        }
+    }
+
+    /** renews the fetch time of a revalidated tile without rewriting its content */
+    private void touchEntry(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(FETCH_TIME_OFFSET);
+            raf.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            LOG.warn("Could not update AirMap tile " + file, e);
+        }
+    }
+
+}
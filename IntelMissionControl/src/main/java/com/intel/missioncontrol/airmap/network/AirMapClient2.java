@@ -10,6 +10,7 @@ import com.intel.missioncontrol.airmap.TextUtils;
 import com.intel.missioncontrol.networking.OkHttpUtil;
 import java.io.IOException;
 import java.net.ProxySelector;
+import java.util.Collections;
 import java.util.Map;
 import java.util.function.Function;
 import okhttp3.Cache;
@@ -123,7 +124,23 @@ public class AirMapClient2 {
      * @param callback An OkHttp Callback
      */
     public Call get(String url, Map<String, String> params, Callback callback) {
+        return get(url, params, Collections.emptyMap(), callback);
+    }
+
+    /**
+     * Make a GET call with params and additional request headers
+     *
+     * @param url The full url to GET
+     * @param params The params to add to the request
+     * @param headers The headers to add to the request, e.g. If-None-Match for conditional requests
+     * @param callback An OkHttp Callback
+     */
+    public Call get(String url, Map<String, String> params, Map<String, String> headers, Callback callback) {
         Request.Builder requestBuilder = new Request.Builder().url(urlBodyFromMap(url, params)).get().tag(url);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            requestBuilder.header(header.getKey(), header.getValue());
+        }
+
         Request request = interceptor.apply(requestBuilder).build();
         Call call = client.newCall(request);
         call.enqueue(callback);
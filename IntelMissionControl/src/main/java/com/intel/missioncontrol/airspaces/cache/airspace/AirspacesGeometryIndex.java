@@ -6,40 +6,158 @@
 
 package com.intel.missioncontrol.airspaces.cache.airspace;
 
-import com.github.davidmoten.rtree.Entry;
-import com.github.davidmoten.rtree.RTree;
-import com.github.davidmoten.rtree.geometry.Geometries;
-import com.github.davidmoten.rtree.geometry.Rectangle;
+import com.intel.missioncontrol.geometry.StrTree;
 import eu.mavinci.airspace.IAirspace;
 
 import gov.nasa.worldwind.geom.Sector;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+/**
+ * Spatial index of airspaces by their bounding boxes.
+ *
+ * <p>The bulk of the airspaces is kept in a {@link StrTree} that is packed in one go. Later additions and removals are
+ * collected as a delta next to the tree, which queries scan linearly, and the tree is only packed again once the delta
+ * grows beyond a fraction of the tree. Searches work on an immutable snapshot and never block.
+ */
 public class AirspacesGeometryIndex {
-    private RTree<IAirspace, Rectangle> index = RTree.create();
+
+    private static final int MIN_DELTA_BEFORE_REBUILD = 64;
+    private static final int REBUILD_FRACTION = 8;
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY =
+            new Snapshot(StrTree.empty(), Collections.emptyList(), Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        final StrTree<IAirspace> tree;
+        final List<IAirspace> added;
+        final Set<IAirspace> removed;
+
+        Snapshot(StrTree<IAirspace> tree, List<IAirspace> added, Set<IAirspace> removed) {
+            this.tree = tree;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    private final Set<IAirspace> airspaces = Collections.newSetFromMap(new IdentityHashMap<>());
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
     public void add(IAirspace airspace) {
-        index = index.add(airspace, toIndexGeometry(airspace.getBoundingBox()));
+        update(Collections.singletonList(airspace), Collections.emptyList());
+    }
+
+    public void addAll(Collection<? extends IAirspace> airspaces) {
+        update(airspaces, Collections.emptyList());
+    }
+
+    public void removeAll(Collection<? extends IAirspace> airspaces) {
+        update(Collections.emptyList(), airspaces);
+    }
+
+    /**
+     * Applies a batch of changes, e.g. when tiles arrive or expire, and publishes them to searches at once. Removals
+     * are applied before additions.
+     */
+    public synchronized void update(Collection<? extends IAirspace> added, Collection<? extends IAirspace> removed) {
+        Snapshot current = snapshot;
+        List<IAirspace> newAdded = new ArrayList<>(current.added);
+        Set<IAirspace> newRemoved = Collections.newSetFromMap(new IdentityHashMap<>());
+        newRemoved.addAll(current.removed);
+
+        for (IAirspace airspace : removed) {
+            if (airspaces.remove(airspace) && !removeByIdentity(newAdded, airspace)) {
+                newRemoved.add(airspace);
+            }
+        }
+
+        for (IAirspace airspace : added) {
+            if (airspaces.add(airspace)) {
+                if (!newRemoved.remove(airspace)) {
+                    newAdded.add(airspace);
+                }
+            }
+        }
+
+        int delta = newAdded.size() + newRemoved.size();
+        if (delta > Math.max(MIN_DELTA_BEFORE_REBUILD, current.tree.size() / REBUILD_FRACTION)
+                || current.tree.size() == 0 && newRemoved.isEmpty()) {
+            snapshot =
+                new Snapshot(
+                    StrTree.build(new ArrayList<>(airspaces), AirspacesGeometryIndex::toIndexGeometry),
+                    Collections.emptyList(),
+                    Collections.emptySet());
+        } else {
+            snapshot = new Snapshot(current.tree, newAdded, newRemoved);
+        }
+    }
+
+    public synchronized void clear() {
+        airspaces.clear();
+        snapshot = Snapshot.EMPTY;
+    }
+
+    public synchronized int size() {
+        return airspaces.size();
     }
 
-    private Rectangle toIndexGeometry(Sector boundingBox) {
+    @SafeVarargs
+    public final List<IAirspace> search(Sector searchBoundingBox, Consumer<IAirspace>... actions) {
+        Snapshot snapshot = this.snapshot;
+        double[] box = toIndexGeometry(searchBoundingBox);
+        List<IAirspace> result = new ArrayList<>();
+        snapshot.tree.search(
+            box[0],
+            box[1],
+            box[2],
+            box[3],
+            airspace -> {
+                if (snapshot.removed.isEmpty() || !snapshot.removed.contains(airspace)) {
+                    result.add(airspace);
+                }
+            });
+
+        for (IAirspace airspace : snapshot.added) {
+            double[] bounds = toIndexGeometry(airspace.getBoundingBox());
+            if (bounds[0] <= box[2] && bounds[1] <= box[3] && bounds[2] >= box[0] && bounds[3] >= box[1]) {
+                result.add(airspace);
+            }
+        }
+
+        for (IAirspace airspace : result) {
+            invokeActions(airspace, actions);
+        }
+
+        return result;
+    }
+
+    private static double[] toIndexGeometry(IAirspace airspace) {
+        return toIndexGeometry(airspace.getBoundingBox());
+    }
+
+    private static double[] toIndexGeometry(Sector boundingBox) {
         double minLat = boundingBox.getMinLatitude().getDegrees();
         double minLon = boundingBox.getMinLongitude().getDegrees();
         double maxLat = boundingBox.getMaxLatitude().getDegrees();
         double maxLon = boundingBox.getMaxLongitude().getDegrees();
-        return Geometries.rectangleGeographic(minLon, minLat, maxLon, maxLat);
+        return new double[] {minLon, minLat, maxLon, maxLat};
     }
 
-    @SafeVarargs
-    public final List<IAirspace> search(Sector searchBoundingBox, Consumer<IAirspace>... actions) {
-        return index.search(toIndexGeometry(searchBoundingBox))
-            .map(Entry::value)
-            .doOnNext(a -> invokeActions(a, actions))
-            .toList()
-            .toBlocking()
-            .single();
+    private static boolean removeByIdentity(List<IAirspace> list, IAirspace airspace) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == airspace) {
+                list.remove(i);
+                return true;
+            }
+        }
+
+        return false;
     }
 
     private void invokeActions(IAirspace a, Consumer<IAirspace>[] consumers) {
@@ -8,6 +8,7 @@ package com.intel.missioncontrol.airspaces.services;
 
 import com.intel.missioncontrol.airmap.AirMap;
 import com.intel.missioncontrol.airmap.AirMap2Source;
+import com.intel.missioncontrol.airmap.layer.AirMapTileStore;
 import com.intel.missioncontrol.airmap.network.AirMapConfig2;
 import com.intel.missioncontrol.airspace.LayerConfigurator;
 import com.intel.missioncontrol.airspaces.sources.AirspaceSource;
@@ -31,6 +32,7 @@ import org.slf4j.LoggerFactory;
 public class Airmap2AirspaceService implements LocationAwareAirspaceService, SourceAwareAirspaceService {
     private static final Logger LOG = LoggerFactory.getLogger(Airmap2AirspaceService.class);
     private static final String AIRMAP2_CACHE_DIR = "airmap2-cache";
+    private static final String AIRMAP2_TILE_CACHE_DIR = "airmap2-tiles";
 
     private AirMap2Source source;
 
@@ -108,6 +110,11 @@ public class Airmap2AirspaceService implements LocationAwareAirspaceService, Sou
         LOG.info("Using cache directory: {}", cacheDir);
 
         AirMap.init(config);
+
+        // parsed tiles are kept next to the http cache, so they are available right after startup and when offline
+        File tileCacheDir =
+            new File(pathProvider.getCacheDirectory().toFile().getAbsolutePath(), AIRMAP2_TILE_CACHE_DIR);
+        AirMapTileStore.init(tileCacheDir, forceCache::get);
     }
 
     @Override
@@ -18,6 +18,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class OpenAirAirspacesSource implements AirspaceSource {
@@ -30,7 +31,8 @@ public class OpenAirAirspacesSource implements AirspaceSource {
         this.airspacesFolder = airspacesFolder;
         this.geometryIndex = geometryIndex;
 
-        getAirspacesFilesStream().flatMap(this::toStreamOfAirspaces).forEach(geometryIndex::add);
+        geometryIndex.addAll(
+            getAirspacesFilesStream().flatMap(this::toStreamOfAirspaces).collect(Collectors.toList()));
     }
 
     @Override
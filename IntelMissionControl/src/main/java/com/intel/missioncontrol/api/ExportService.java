@@ -22,6 +22,8 @@ import com.intel.insight.datastructures.ProcessSettings;
 import com.intel.insight.datastructures.Survey;
 import com.intel.missioncontrol.IApplicationContext;
 import com.intel.missioncontrol.StaticInjector;
+import com.intel.missioncontrol.api.export.ExifToolBatchWriter;
+import com.intel.missioncontrol.api.export.ExportPipeline;
 import com.intel.missioncontrol.hardware.IGenericCameraConfiguration;
 import com.intel.missioncontrol.hardware.IGenericCameraDescription;
 import com.intel.missioncontrol.hardware.IHardwareConfiguration;
@@ -120,6 +122,7 @@ import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.asyncfx.concurrent.Dispatcher;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -189,8 +192,6 @@ public class ExportService implements IExportService {
         out.print(
             "valid number filename gps_timestamp(sec_since_1970) gps_lon(deg) gps_lat(deg) altitiude(mOVERwgs84) yaw(deg) pitch(deg) roll(deg) gyro_yaw(deg/s) gyro_pitch(deg/s) gyro_roll(deg/s) altitude_GPS(geoid)(m) altitude_ellipsoid(m) groundspeed(m/s) lineNumber isCrossline isMainDirection folder cellNumber gpsHeading exif_timestamp(sec_since_1970) omega(deg) phi(deg) kappa(deg) gps_timestamp_float(float_sec_since_1970) GPS_Quality_Indicator_int GPS_Quality_Indicator_name X_WKT Y_WKT Z_WKT isOrthogonalLine lineNumber refinementID\r\n");
 
-        int i = 0;
-
         final IHardwareConfiguration hardwareConfig = matching.getHardwareConfiguration();
         final List<MapLayerMatch> matches =
             Matching.sortMatches(matching, AMapLayerMatching.comparatorMatchesLineOrder);
@@ -208,102 +209,122 @@ public class ExportService implements IExportService {
             Debug.getLog().log(Level.WARNING, "problems to transform coordinates in Matching-CVS export to SRS " + srs);
         }
 
-        for (MapLayerMatch match : matches) {
-            CPhotoLogLine line = match.getPhotoLogLine();
-            Position p = ps.get(i);
-            File imgFile = match.getResourceFile();
-            PhotoFile photo = match.getCurPhotoFile();
-            OrientationData o = CameraHelper.getCorrectedOrientation(line, hardwareConfig);
-            OrientationData oRates = CameraHelper.getCorrectedRotationRates(line, hardwareConfig);
-            Matrix m = CameraHelper.getCorrectedStateTransform(line, hardwareConfig).getTranspose();
-            double[] ret = MathHelper.transformationToOmegaPhiKappa(m);
-
-            long timestampExif = (long)photo.getExif().timestamp;
-            if (timestampExif == -1) {
-                try {
-                    photo.getExif().timestamp = timestampExif = (long)(new ExifInfos(imgFile).timestamp);
-                } catch (IOException e) {
-                    Debug.getLog().log(Level.WARNING, "could not extract exif timestamp", e);
-                }
-            }
-
-            SRStransformCacheEntry v = null;
-            try {
-                Expect.notNull(vs, "vs");
-                v = vs.get(i);
-            } catch (Exception e1) {
-            }
-
-            out.print(
-                (match.isExportPassFilter() ? "1 " : "0 ")
-                    + (i + 1)
-                    + " "
-                    + imgFile.getName()
-                    + " "
-                    + (long)(line.getTimestamp())
-                    + " "
-                    + p.longitude.degrees
-                    + " "
-                    + p.latitude.degrees
-                    + " "
-                    + p.elevation
-                    + " "
-                    + o.yaw
-                    + " "
-                    + o.pitch
-                    + " "
-                    + (o.roll * -1)
-                    + " "
-                    + oRates.yaw
-                    + " "
-                    + oRates.pitch
-                    + " "
-                    + (oRates.roll * -1)
-                    + " "
-                    + p.elevation
-                    + " "
-                    + (line.gps_ellipsoid_cm / 100.)
-                    + " "
-                    + (line.groundSpeed_cms / 100.)
-                    + " "
-                    + line.getLineNumberPure()
-                    + " "
-                    + (!line.isOnMainLine() ? "1 " : "0 ")
-                    + (line.isForwardLine() ? "1 " : "0 ")
-                    + FileHelper.getRelativePath(imgFile.getParentFile(), target, FileHelper.pathSeperatorExport)
-                    + " "
-                    + line.getCellNumber()
-                    + " "
-                    + line.heading
-                    + " "
-                    + timestampExif
-                    + " "
-                    + ret[0]
-                    + " "
-                    + ret[1]
-                    + " "
-                    + ret[2]
-                    + " "
-                    + line.getTimestamp()
-                    + " "
-                    + (line.fixType == null ? "-1 null" : line.fixType.ordinal() + " " + line.fixType)
-                    + " "
-                    + (v == null ? "0 0 0" : (v.x + " " + v.y + " " + v.z))
-                    + (line.isOrthogonalLine() ? "1 " : "0 ")
-                    + " "
-                    + (line.lineNumber)
-                    + " "
-                    + line.getRefinementID()
-                    + "\r\n");
-            i++;
+        // the lines are computed in parallel and written in order, without holding the whole file in memory
+        List<SRStransformCacheEntry> transformed = vs;
+        List<Integer> indices = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            indices.add(i);
         }
 
-        out.close();
+        try {
+            ExportPipeline.run(
+                indices,
+                index -> {
+                    SRStransformCacheEntry v =
+                        transformed != null && index < transformed.size() ? transformed.get(index) : null;
+                    return createCsvLine(index, matches.get(index), ps.get(index), v, target, hardwareConfig);
+                },
+                (index, csvLine) -> out.print(csvLine),
+                null,
+                () -> false);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("could not export matching as CSV", e);
+        } finally {
+            out.close();
+        }
 
         final File fInterest = new File(target.getParentFile(), "exported_RegionOfInteres.txt");
         writeMatchingMetaFile(fInterest, matching);
     }
 
+    private static String createCsvLine(
+            int i,
+            MapLayerMatch match,
+            Position p,
+            @Nullable SRStransformCacheEntry v,
+            File target,
+            IHardwareConfiguration hardwareConfig) {
+        CPhotoLogLine line = match.getPhotoLogLine();
+        File imgFile = match.getResourceFile();
+        PhotoFile photo = match.getCurPhotoFile();
+        OrientationData o = CameraHelper.getCorrectedOrientation(line, hardwareConfig);
+        OrientationData oRates = CameraHelper.getCorrectedRotationRates(line, hardwareConfig);
+        Matrix m = CameraHelper.getCorrectedStateTransform(line, hardwareConfig).getTranspose();
+        double[] ret = MathHelper.transformationToOmegaPhiKappa(m);
+
+        long timestampExif = (long)photo.getExif().timestamp;
+        if (timestampExif == -1) {
+            try {
+                photo.getExif().timestamp = timestampExif = (long)(new ExifInfos(imgFile).timestamp);
+            } catch (IOException e) {
+                Debug.getLog().log(Level.WARNING, "could not extract exif timestamp", e);
+            }
+        }
+
+        return (match.isExportPassFilter() ? "1 " : "0 ")
+            + (i + 1)
+            + " "
+            + imgFile.getName()
+            + " "
+            + (long)(line.getTimestamp())
+            + " "
+            + p.longitude.degrees
+            + " "
+            + p.latitude.degrees
+            + " "
+            + p.elevation
+            + " "
+            + o.yaw
+            + " "
+            + o.pitch
+            + " "
+            + (o.roll * -1)
+            + " "
+            + oRates.yaw
+            + " "
+            + oRates.pitch
+            + " "
+            + (oRates.roll * -1)
+            + " "
+            + p.elevation
+            + " "
+            + (line.gps_ellipsoid_cm / 100.)
+            + " "
+            + (line.groundSpeed_cms / 100.)
+            + " "
+            + line.getLineNumberPure()
+            + " "
+            + (!line.isOnMainLine() ? "1 " : "0 ")
+            + (line.isForwardLine() ? "1 " : "0 ")
+            + FileHelper.getRelativePath(imgFile.getParentFile(), target, FileHelper.pathSeperatorExport)
+            + " "
+            + line.getCellNumber()
+            + " "
+            + line.heading
+            + " "
+            + timestampExif
+            + " "
+            + ret[0]
+            + " "
+            + ret[1]
+            + " "
+            + ret[2]
+            + " "
+            + line.getTimestamp()
+            + " "
+            + (line.fixType == null ? "-1 null" : line.fixType.ordinal() + " " + line.fixType)
+            + " "
+            + (v == null ? "0 0 0" : (v.x + " " + v.y + " " + v.z))
+            + (line.isOrthogonalLine() ? "1 " : "0 ")
+            + " "
+            + (line.lineNumber)
+            + " "
+            + line.getRefinementID()
+            + "\r\n";
+    }
+
     public boolean isNotExportedAsPix4d(Matching matching) {
         return !getPix4dFile(matching).exists();
     }
@@ -2227,28 +2248,40 @@ public class ExportService implements IExportService {
             throws Exception {
         final IHardwareConfiguration hardwareConfiguration = matching.getHardwareConfiguration();
 
-        List<IMapLayer> pictures = matching.getPictures();
-        IBackgroundTaskManager.ProgressStageFirer firer =
-            new IBackgroundTaskManager.ProgressStageFirer(pictures.size());
-        final AtomicInteger counter = new AtomicInteger(0);
-        for (IMapLayer layer : pictures) {
-            if (cancelIndicator.getAsBoolean()) {
-                return;
-            }
-
+        List<PhotoFile> photos = new ArrayList<>();
+        for (IMapLayer layer : matching.getPictures()) {
             MapLayerMatch picture = (MapLayerMatch)layer;
             for (PhotoFile pf : picture.getResourceCube()) {
-                if (cancelIndicator.getAsBoolean()) {
-                    return;
-                }
-
                 if (pf.getMatch().isExportPassFilter()) {
-                    pf.writeMetadata(hardwareConfiguration);
+                    photos.add(pf);
                 }
             }
+        }
 
-            firer.setCurrentStage(counter.getAndAdd(1));
-            callback.accept(firer);
+        // the tags are computed in parallel, and written by one ExifTool run per batch of images
+        IBackgroundTaskManager.ProgressStageFirer firer = new IBackgroundTaskManager.ProgressStageFirer(photos.size());
+        try (ExifToolBatchWriter writer = new ExifToolBatchWriter()) {
+            boolean completed =
+                ExportPipeline.run(
+                    photos,
+                    pf -> pf.createMetadata(hardwareConfiguration),
+                    (pf, tags) -> writer.write(pf.getFile(), tags),
+                    (done, total) -> {
+                        firer.setCurrentStage(done);
+                        callback.accept(firer);
+                    },
+                    cancelIndicator);
+            if (!completed) {
+                writer.discard();
+            }
+
+            writer.flush();
+            if (writer.getFailedCount() > 0) {
+                LOG.warn(
+                    "EXIF data of {} of {} images could not be written",
+                    writer.getFailedCount(),
+                    writer.getFailedCount() + writer.getUpdatedCount());
+            }
         }
     }
 
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.api.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thebuzzmedia.exiftool.ExifTool.Tag;
+
+/**
+ * Writes EXIF tags of many images with few ExifTool processes. The tags of each image become one command in an
+ * argument file, separated by {@code -execute}, and every batch of images is written by a single {@code exiftool -@}
+ * run, instead of one round trip per image.
+ */
+public class ExifToolBatchWriter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExifToolBatchWriter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 250;
+
+    private static final String KEY_EXIFTOOL_PATH = "exiftool.path";
+    private static final Pattern UPDATED_PATTERN = Pattern.compile("(\\d+) image files? updated");
+
+    private final String exifToolPath;
+    private final int batchSize;
+    private final List<String> arguments = new ArrayList<>();
+    private int batchImageCount;
+    private int updatedCount;
+    private int failedCount;
+
+    public ExifToolBatchWriter() {
+        this(System.getProperty(KEY_EXIFTOOL_PATH, "exiftool"), DEFAULT_BATCH_SIZE);
+    }
+
+    public ExifToolBatchWriter(String exifToolPath, int batchSize) {
+        this.exifToolPath = exifToolPath;
+        this.batchSize = batchSize;
+    }
+
+    /** Queues the tags of an image; a full batch is written right away. Empty values delete the tag. */
+    public void write(File image, Map<Tag, String> tags) throws IOException {
+        List<String> command = new ArrayList<>(tags.size() + 2);
+        for (Map.Entry<Tag, String> entry : tags.entrySet()) {
+            command.add("-" + entry.getKey().getName() + "=" + entry.getValue());
+        }
+
+        command.add(image.getAbsolutePath());
+        write(command);
+    }
+
+    /** Queues the arguments of one ExifTool command; a full batch is written right away. */
+    public void write(List<String> command) throws IOException {
+        for (String argument : command) {
+            arguments.add(toArgFileLine(argument));
+        }
+
+        arguments.add("-execute");
+        if (++batchImageCount >= batchSize) {
+            flush();
+        }
+    }
+
+    /** Runs ExifTool on the queued commands. */
+    public void flush() throws IOException {
+        if (batchImageCount == 0) {
+            return;
+        }
+
+        Path argFile = Files.createTempFile("exiftool", ".args");
+        Path outFile = Files.createTempFile("exiftool", ".out");
+        Path errFile = Files.createTempFile("exiftool", ".err");
+        int imageCount = batchImageCount;
+        try {
+            Files.write(argFile, arguments, StandardCharsets.UTF_8);
+            arguments.clear();
+            batchImageCount = 0;
+
+            Process process =
+                new ProcessBuilder(
+                        exifToolPath,
+                        "-@",
+                        argFile.toString(),
+                        "-common_args",
+                        "-charset",
+                        "filename=utf8",
+                        "-overwrite_original")
+                    .redirectOutput(outFile.toFile())
+                    .redirectError(errFile.toFile())
+                    .start();
+
+            int exitCode;
+            try {
+                exitCode = process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while writing EXIF data", e);
+            }
+
+            int updated = 0;
+            Matcher matcher = UPDATED_PATTERN.matcher(Files.readString(outFile, StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                updated += Integer.parseInt(matcher.group(1));
+            }
+
+            updatedCount += updated;
+            failedCount += imageCount - updated;
+            if (updated < imageCount) {
+                String errors = Files.readString(errFile, StandardCharsets.UTF_8).trim();
+                if (updated == 0 && exitCode != 0) {
+                    throw new IOException("ExifTool failed with exit code " + exitCode + ": " + errors);
+                }
+
+                LOG.warn("ExifTool updated {} of {} images: {}", updated, imageCount, errors);
+            }
+        } finally {
+            Files.deleteIfExists(argFile);
+            Files.deleteIfExists(outFile);
+            Files.deleteIfExists(errFile);
+        }
+    }
+
+    /** Drops the queued commands without writing them, e.g. after the export was cancelled. */
+    public void discard() {
+        arguments.clear();
+        batchImageCount = 0;
+    }
+
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Argument files hold one argument per line, so arguments with line breaks are written as C strings, which
+     * ExifTool unescapes.
+     */
+    static String toArgFileLine(String argument) {
+        if (argument.indexOf('\n') < 0 && argument.indexOf('\r') < 0) {
+            return argument;
+        }
+
+        return "#[CSTR]"
+            + argument.replace("\\", "\\\\").replace("\t", "\\t").replace("\r", "\\r").replace("\n", "\\n");
+    }
+
+}
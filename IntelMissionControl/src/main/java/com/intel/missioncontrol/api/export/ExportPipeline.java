@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.api.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.asyncfx.concurrent.FutureExecutorService;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Computes the records of an export in parallel on the background threads and streams them to a writer in the order
+ * of the input.
+ *
+ * <p>Only a bounded number of records is computed ahead of the writer, so memory use doesn't grow with the size of
+ * the dataset. The cancel indicator is checked before each record is written. Exceptions of the computation or the
+ * writer abort the export and are rethrown.
+ */
+public final class ExportPipeline {
+
+    public interface Computation<T, R> {
+        R compute(T item) throws Exception;
+    }
+
+    public interface RecordWriter<T, R> {
+        void write(T item, R record) throws Exception;
+    }
+
+    public interface ProgressListener {
+        void progress(int done, int total);
+    }
+
+    private static final int PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    static final int RECORDS_AHEAD = 4 * PARALLELISM;
+
+    private ExportPipeline() {}
+
+    /**
+     * Runs the export.
+     *
+     * @return false if the export was cancelled before all records were written
+     */
+    public static <T, R> boolean run(
+            List<T> items,
+            Computation<? super T, ? extends R> computation,
+            RecordWriter<? super T, ? super R> writer,
+            @Nullable ProgressListener progressListener,
+            BooleanSupplier cancelIndicator)
+            throws Exception {
+        List<CompletableFuture<R>> records = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            records.add(new CompletableFuture<>());
+        }
+
+        // one task per allowed thread, each taking the next item as long as it is not too far ahead of the writer
+        Semaphore recordsAhead = new Semaphore(RECORDS_AHEAD);
+        AtomicInteger nextItem = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(PARALLELISM, items.size()); i++) {
+                workers.add(
+                    FutureExecutorService.getInstance()
+                        .submit(
+                            () -> {
+                                while (true) {
+                                    recordsAhead.acquire();
+                                    int index = nextItem.getAndIncrement();
+                                    if (index >= items.size()) {
+                                        return null;
+                                    }
+
+                                    try {
+                                        records.get(index).complete(computation.compute(items.get(index)));
+                                    } catch (Throwable e) {
+                                        records.get(index).completeExceptionally(e);
+                                    }
+                                }
+                            }));
+            }
+
+            for (int written = 0; written < items.size(); written++) {
+                if (cancelIndicator.getAsBoolean()) {
+                    return false;
+                }
+
+                R record;
+                try {
+                    record = records.get(written).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception)e.getCause();
+                    }
+
+                    throw e;
+                }
+
+                records.set(written, null);
+                recordsAhead.release();
+                writer.write(items.get(written), record);
+                if (progressListener != null) {
+                    progressListener.progress(written + 1, items.size());
+                }
+            }
+
+            return true;
+        } finally {
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+        }
+    }
+
+}
@@ -24,6 +24,7 @@ import javafx.geometry.Pos;
 import javafx.scene.Parent;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Tooltip;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
@@ -122,6 +123,10 @@ public class PerformanceMonitorView extends DialogView<PerformanceMonitorViewMod
                     frameDataLabel.setText(stringBuilder.toString());
                 });
 
+        Tooltip metricsTooltip = new Tooltip();
+        metricsTooltip.textProperty().bind(viewModel.metricsSummaryProperty());
+        frameRateLabel.setTooltip(metricsTooltip);
+
         drawCallsLabel.setText(Integer.toString(viewModel.drawCallsProperty().get()));
         frameRateLabel.setText(decimalFormat.format(viewModel.frameRateProperty().get()) + " fps");
         eventHandlerTimeoutsLabel.setText(Integer.toString(viewModel.eventHandlerTimeoutsProperty().get()));
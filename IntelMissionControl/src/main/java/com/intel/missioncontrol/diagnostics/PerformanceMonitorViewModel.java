@@ -11,6 +11,8 @@ import com.intel.missioncontrol.ui.dialogs.DialogViewModel;
 import com.logicstyle.samplr.Request;
 import eu.mavinci.core.desktop.main.debug.IProfilingListener;
 import eu.mavinci.core.desktop.main.debug.IProfilingManager;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsSnapshot;
 import java.util.ArrayList;
 import java.util.List;
 import javafx.beans.InvalidationListener;
@@ -24,11 +26,14 @@ import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.ReadOnlyIntegerProperty;
 import javafx.beans.property.ReadOnlyListProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleListProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
 import javafx.util.Pair;
 import org.asyncfx.concurrent.Dispatcher;
@@ -46,6 +51,7 @@ public class PerformanceMonitorViewModel extends DialogViewModel<Void, Void> {
         new SimpleListProperty<>(FXCollections.observableArrayList());
     private final ObjectProperty<StatisticsInfo> totalStats = new SimpleObjectProperty<>(new StatisticsInfo());
     private final ObjectProperty<StatisticsInfo> lastSegmentStats = new SimpleObjectProperty<>(new StatisticsInfo());
+    private final StringProperty metricsSummary = new SimpleStringProperty("");
 
     private final IntegerProperty selectedBarIndex =
         new SimpleIntegerProperty(-1) {
@@ -105,6 +111,10 @@ public class PerformanceMonitorViewModel extends DialogViewModel<Void, Void> {
         return lastSegmentStats;
     }
 
+    public ReadOnlyStringProperty metricsSummaryProperty() {
+        return metricsSummary;
+    }
+
     public IntegerProperty selectedBarIndexProperty() {
         return selectedBarIndex;
     }
@@ -154,9 +164,31 @@ public class PerformanceMonitorViewModel extends DialogViewModel<Void, Void> {
         if (updateCounter % UPDATE_INTERVAL == 0) {
             updateCounter = 1;
             frames.setAll(profiler.getFrames());
+            updateMetricsSummary();
         } else {
             ++updateCounter;
         }
     }
 
+    private void updateMetricsSummary() {
+        StringBuilder stringBuilder = new StringBuilder();
+        MetricsSnapshot snapshot = MetricsRegistry.getDefault().snapshot();
+        for (var histogram : snapshot.getHistograms().values()) {
+            stringBuilder.append(
+                String.format(
+                    "%s: n=%d p50=%.1fms p99=%.1fms max=%.1fms\n",
+                    histogram.getName(),
+                    histogram.getCount(),
+                    histogram.getValueAtPercentile(50) / 1e6,
+                    histogram.getValueAtPercentile(99) / 1e6,
+                    histogram.getMaxNanos() / 1e6));
+        }
+
+        for (var counter : snapshot.getCounters().entrySet()) {
+            stringBuilder.append(counter.getKey()).append(": ").append(counter.getValue()).append("\n");
+        }
+
+        metricsSummary.set(stringBuilder.toString());
+    }
+
 }
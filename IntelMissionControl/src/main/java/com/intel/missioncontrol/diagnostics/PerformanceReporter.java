@@ -17,12 +17,15 @@ import com.sun.jna.Pointer;
 import com.sun.jna.platform.win32.Kernel32;
 import com.sun.jna.platform.win32.WinNT;
 import com.sun.jna.ptr.IntByReference;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsSnapshot;
 import java.util.List;
 import org.asyncfx.AsyncFX;
 
 public class PerformanceReporter {
 
     private static final String MAILSLOT_NAME = "imc-perfmon-2019-4-3";
+    private static final int METRICS_INTERVAL = 10;
     private static final WorldWindProfiler worldWindProfiler =
         WorldWindProfiler.getProfilers().stream().findFirst().orElseThrow();
     private static PerformanceReporter INSTANCE;
@@ -52,6 +55,7 @@ public class PerformanceReporter {
     }
 
     private void run() {
+        int iteration = 0;
         while (running) {
             ByteArrayDataOutput buffer = ByteStreams.newDataOutput();
 
@@ -89,16 +93,18 @@ public class PerformanceReporter {
                     buffer.writeInt(frame.getAdditionalData().size());
 
                     for (var additionalData : frame.getAdditionalData()) {
-                        write7BitEncodedInt(buffer, additionalData.getKey().length());
-                        buffer.writeChars(additionalData.getKey());
-                        write7BitEncodedInt(buffer, additionalData.getValue().length());
-                        buffer.writeChars(additionalData.getValue());
+                        writeString(buffer, additionalData.getKey());
+                        writeString(buffer, additionalData.getValue());
                     }
                 }
             }
 
             sendMessage(buffer.toByteArray());
 
+            if (++iteration % METRICS_INTERVAL == 0) {
+                sendMessage(getMetricsMessage());
+            }
+
             try {
                 Thread.sleep(150);
             } catch (InterruptedException ignored) {
@@ -106,6 +112,46 @@ public class PerformanceReporter {
         }
     }
 
+    /**
+     * Metrics are sent as a message of their own, so readers that don't know MetricsData can drop it without
+     * affecting the other records.
+     */
+    private byte[] getMetricsMessage() {
+        MetricsSnapshot snapshot = MetricsRegistry.getDefault().snapshot();
+        ByteArrayDataOutput buffer = ByteStreams.newDataOutput();
+
+        // Corresponds to MetricsData in Perfmon
+        buffer.writeInt(4); // MetricsData.Id
+        buffer.writeInt(snapshot.getCounters().size());
+        for (var counter : snapshot.getCounters().entrySet()) {
+            writeString(buffer, counter.getKey());
+            buffer.writeLong(counter.getValue());
+        }
+
+        buffer.writeInt(snapshot.getGauges().size());
+        for (var gauge : snapshot.getGauges().entrySet()) {
+            writeString(buffer, gauge.getKey());
+            buffer.writeDouble(gauge.getValue());
+        }
+
+        buffer.writeInt(snapshot.getHistograms().size());
+        for (var histogram : snapshot.getHistograms().values()) {
+            writeString(buffer, histogram.getName());
+            buffer.writeLong(histogram.getCount());
+            buffer.writeLong(histogram.getValueAtPercentile(50));
+            buffer.writeLong(histogram.getValueAtPercentile(90));
+            buffer.writeLong(histogram.getValueAtPercentile(99));
+            buffer.writeLong(histogram.getMaxNanos());
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private void writeString(ByteArrayDataOutput output, String value) {
+        write7BitEncodedInt(output, value.length());
+        output.writeChars(value);
+    }
+
     private void write7BitEncodedInt(ByteArrayDataOutput output, int value) {
         long v = Integer.toUnsignedLong(value);
         while (v >= 0x80) {
@@ -6,6 +6,9 @@
 
 package com.intel.missioncontrol.diagnostics;
 
+import eu.mavinci.desktop.main.debug.profiling.metrics.Counter;
+import eu.mavinci.desktop.main.debug.profiling.metrics.LatencyHistogram;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
 import gov.nasa.worldwind.WorldWindow;
 import gov.nasa.worldwind.event.RenderingEvent;
 import gov.nasa.worldwind.event.RenderingListener;
@@ -22,6 +25,11 @@ import org.asyncfx.collections.RingQueue;
 public class WorldWindProfiler implements RenderingListener {
 
     private static final List<WeakReference<WorldWindProfiler>> profilers = new ArrayList<>();
+    private static final Counter frameCounter = MetricsRegistry.getDefault().counter("worldwind.frames");
+    private static final LatencyHistogram frameHistogram =
+        MetricsRegistry.getDefault().histogram("worldwind.frameDuration");
+    private static final LatencyHistogram renderHistogram =
+        MetricsRegistry.getDefault().histogram("worldwind.renderDuration");
 
     private final ObservableList<FrameInfo> frames = new ObservableQueue<>(new RingQueue<>(200));
     private final List<FrameInfo> lastFrames = new ArrayList<>();
@@ -67,6 +75,9 @@ public class WorldWindProfiler implements RenderingListener {
                 FrameInfo frameInfo = frameInfoBuilder.getFrameInfo();
                 frames.add(frameInfo);
                 lastFrames.add(frameInfo);
+                frameCounter.increment();
+                frameHistogram.record(frameInfo.getFrameDurationNanos());
+                renderHistogram.record(frameInfo.getRenderDurationNanos());
             }
 
             frameInfoBuilder.startRendering();
@@ -298,7 +298,8 @@ public class CommandProtocolSender extends PayloadSender {
     private Future<Void> sendCommandAsync(CommandLong commandLong) {
         // Send command, and retry if temporarily rejected.
         RetryScheduler<MavResult> retryScheduler =
-            new RetryScheduler<>(retriesWhenTemporarilyRejected, cancellationSource, delayWhenTemporarilyRejected);
+            new RetryScheduler<>(
+                retriesWhenTemporarilyRejected, cancellationSource, delayWhenTemporarilyRejected, counters);
         return retryScheduler
             .runWithRetriesAsync(
                 repetition -> sendCommandAndExpectAckAsync(commandLong),
@@ -33,6 +33,15 @@ public class ContinuousPayloadReceivedDelegate implements IPayloadReceivedDelega
             Runnable onTimeoutFnc,
             Duration timeout,
             CancellationSource externalCancellationSource) {
+        this(payloadReceivedFnc, onTimeoutFnc, timeout, externalCancellationSource, null);
+    }
+
+    ContinuousPayloadReceivedDelegate(
+            Function<ReceivedPayload<?>, Boolean> payloadReceivedFnc,
+            Runnable onTimeoutFnc,
+            Duration timeout,
+            CancellationSource externalCancellationSource,
+            ProtocolCounters counters) {
         this.payloadReceivedFnc = payloadReceivedFnc;
         cancellationSource = new CancellationSource();
 
@@ -45,6 +54,10 @@ public class ContinuousPayloadReceivedDelegate implements IPayloadReceivedDelega
         refreshableTimeout =
             new RefreshableTimeout(
                 () -> {
+                    if (counters != null) {
+                        counters.countTimeout();
+                    }
+
                     try {
                         if (onTimeoutFnc == null) {
                             return;
@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import com.intel.missioncontrol.drone.SpecialDuration;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import org.asyncfx.concurrent.Dispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel for the timeouts and retries of the MAVLink protocols. Protocol timeouts are started, refreshed
+ * and cancelled far more often than they expire, e.g. a telemetry timeout is refreshed on every received message. A
+ * {@link Timeout} is therefore a reusable handle: starting, refreshing and cancelling it is O(1) and allocates nothing,
+ * unlike scheduling a new delayed task on the background dispatcher for every refresh.
+ *
+ * <p>The wheel has a fixed number of buckets, each covering one tick. A timeout is linked into the bucket of its
+ * deadline tick; timeouts further away than one revolution stay in their bucket until the wheel has come around often
+ * enough. Deadlines are rounded up to the next tick, so a timeout fires up to one tick late, but never early.
+ *
+ * <p>The wheel is advanced by a single daemon thread. Expired tasks are handed to an executor, so slow tasks don't
+ * delay the wheel.
+ */
+final class MavlinkTimer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MavlinkTimer.class);
+
+    private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    // longer delays never expire, see SpecialDuration.INDEFINITE
+    private static final long MAX_DELAY_NANOS = TimeUnit.DAYS.toNanos(365 * 100);
+
+    private static final int IDLE = 0;
+    private static final int PENDING = 1;
+    private static final int EXPIRED = 2;
+
+    private static final MavlinkTimer DEFAULT = createDefault();
+
+    /** A reusable timeout. All methods are thread safe. */
+    final class Timeout {
+        private final Consumer<Timeout> task;
+        private final Runnable fire = this::fire;
+        private int state = IDLE;
+        private int bucket = -1;
+        private long deadlineTick;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(Consumer<Timeout> task) {
+            this.task = task;
+        }
+
+        /**
+         * Starts the timeout, or restarts it if it is already pending. The task runs once after the given delay, unless
+         * the timeout is cancelled or restarted before. A delay of zero runs the task right away on the executor.
+         */
+        void start(Duration delay) {
+            long delayNanos;
+            try {
+                delayNanos = SpecialDuration.isIndefinite(delay) ? Long.MAX_VALUE : delay.toNanos();
+            } catch (ArithmeticException e) {
+                delayNanos = Long.MAX_VALUE;
+            }
+
+            start(delayNanos);
+        }
+
+        void start(long delayNanos) {
+            boolean runNow = false;
+            synchronized (lock) {
+                unlink(this);
+                if (delayNanos <= 0) {
+                    state = EXPIRED;
+                    runNow = true;
+                } else {
+                    state = PENDING;
+                    pendingCount++;
+                    if (delayNanos < MAX_DELAY_NANOS) {
+                        long deadlineNanos = clock.getAsLong() + delayNanos - startNanos;
+                        deadlineTick = Math.max(currentTick + 1, (deadlineNanos + tickNanos - 1) / tickNanos);
+                        link(this);
+                    }
+                }
+            }
+
+            if (runNow) {
+                executor.execute(fire);
+            }
+        }
+
+        /**
+         * Cancels the timeout. Returns true if the task was prevented from running, false if the timeout was not
+         * started or the task already ran or is running.
+         */
+        boolean cancel() {
+            synchronized (lock) {
+                if (state == IDLE) {
+                    return false;
+                }
+
+                unlink(this);
+                state = IDLE;
+                return true;
+            }
+        }
+
+        boolean isPending() {
+            synchronized (lock) {
+                return state != IDLE;
+            }
+        }
+
+        private void fire() {
+            synchronized (lock) {
+                // the timeout might have been cancelled or restarted after it was handed to the executor
+                if (state != EXPIRED) {
+                    return;
+                }
+
+                state = IDLE;
+            }
+
+            try {
+                task.accept(this);
+            } catch (RuntimeException e) {
+                LOGGER.error("Error in mavlink timeout task", e);
+            }
+        }
+    }
+
+    private final Object lock = new Object();
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Executor executor;
+    private final LongSupplier clock;
+    private final long startNanos;
+    private final List<Timeout> expired = new ArrayList<>();
+    private long currentTick;
+    private int pendingCount;
+
+    /**
+     * Creates a timer that is advanced by calling {@link #advance()}.
+     *
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     * @param executor runs the expired tasks
+     * @param clock the current time in nanoseconds, like {@link System#nanoTime()}
+     */
+    MavlinkTimer(Duration tick, int wheelSize, Executor executor, LongSupplier clock) {
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = tick.toNanos();
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.executor = executor;
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+    }
+
+    static MavlinkTimer getDefault() {
+        return DEFAULT;
+    }
+
+    private static MavlinkTimer createDefault() {
+        MavlinkTimer timer =
+            new MavlinkTimer(
+                Duration.ofNanos(DEFAULT_TICK_NANOS),
+                DEFAULT_WHEEL_SIZE,
+                runnable -> Dispatcher.background().runLater(runnable),
+                System::nanoTime);
+        MetricsRegistry.getDefault().gauge("mavlink.timer.pending", timer::getPendingCount);
+
+        Thread thread = new Thread(timer::runWheel, "mavlink-timer");
+        thread.setDaemon(true);
+        thread.start();
+        return timer;
+    }
+
+    /** Creates a timeout that runs the given task when it expires. The task may restart the timeout it is given. */
+    Timeout newTimeout(Consumer<Timeout> task) {
+        return new Timeout(task);
+    }
+
+    /** The number of started timeouts that did not expire and were not cancelled yet. */
+    int getPendingCount() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    /** Expires all timeouts whose deadline has passed. Must only be called from one thread at a time. */
+    void advance() {
+        long tick = (clock.getAsLong() - startNanos) / tickNanos;
+        synchronized (lock) {
+            if (tick - currentTick > buckets.length) {
+                // the wheel fell behind by more than one revolution, visit every bucket once
+                currentTick = tick;
+                for (int i = 0; i < buckets.length; i++) {
+                    expireBucket(i);
+                }
+            } else {
+                while (currentTick < tick) {
+                    currentTick++;
+                    expireBucket((int)(currentTick & mask));
+                }
+            }
+        }
+
+        for (int i = 0; i < expired.size(); i++) {
+            executor.execute(expired.get(i).fire);
+        }
+
+        expired.clear();
+    }
+
+    private void runWheel() {
+        while (true) {
+            long nextTickNanos;
+            synchronized (lock) {
+                nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            }
+
+            long waitNanos = nextTickNanos - clock.getAsLong();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+
+            try {
+                advance();
+            } catch (RuntimeException e) {
+                LOGGER.error("Error advancing mavlink timer", e);
+            }
+        }
+    }
+
+    private void expireBucket(int bucket) {
+        Timeout timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.deadlineTick <= currentTick) {
+                unlink(timeout);
+                timeout.state = EXPIRED;
+                expired.add(timeout);
+            }
+
+            timeout = next;
+        }
+    }
+
+    private void link(Timeout timeout) {
+        int bucket = (int)(timeout.deadlineTick & mask);
+        Timeout head = buckets[bucket];
+        timeout.bucket = bucket;
+        timeout.previous = null;
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.state == PENDING) {
+            pendingCount--;
+        }
+
+        if (timeout.bucket < 0) {
+            return;
+        }
+
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+
+        timeout.bucket = -1;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+
+}
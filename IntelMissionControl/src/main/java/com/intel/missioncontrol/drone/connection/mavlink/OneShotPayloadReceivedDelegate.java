@@ -11,7 +11,6 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import org.asyncfx.concurrent.CancellationSource;
-import org.asyncfx.concurrent.Dispatcher;
 import org.asyncfx.concurrent.Future;
 import org.asyncfx.concurrent.FutureCompletionSource;
 
@@ -21,62 +20,50 @@ import org.asyncfx.concurrent.FutureCompletionSource;
  */
 public class OneShotPayloadReceivedDelegate<TRes> implements IPayloadReceivedDelegate {
     private final Function<ReceivedPayload<?>, TRes> payloadReceivedFnc;
-    private CancellationSource cancellationSource;
-    private AtomicBoolean isExternallyCanceled;
-    private FutureCompletionSource<TRes> fcs;
-    private Exception resultException;
-    private TRes result;
+    private final MavlinkTimer.Timeout timeout;
+    private final AtomicBoolean isExternallyCanceled;
+    private final FutureCompletionSource<TRes> fcs;
 
     OneShotPayloadReceivedDelegate(
             Function<ReceivedPayload<?>, TRes> payloadReceivedFnc,
             Duration timeout,
             CancellationSource externalCancellationSource) {
+        this(payloadReceivedFnc, timeout, externalCancellationSource, null);
+    }
+
+    OneShotPayloadReceivedDelegate(
+            Function<ReceivedPayload<?>, TRes> payloadReceivedFnc,
+            Duration timeout,
+            CancellationSource externalCancellationSource,
+            ProtocolCounters counters) {
         this.payloadReceivedFnc = payloadReceivedFnc;
         isExternallyCanceled = new AtomicBoolean(false);
-        cancellationSource = new CancellationSource();
-        resultException = null;
+        fcs = new FutureCompletionSource<>();
+
+        // timeout timer:
+        this.timeout =
+            MavlinkTimer.getDefault()
+                .newTimeout(
+                    t -> {
+                        if (counters != null) {
+                            counters.countTimeout();
+                        }
+
+                        fcs.setException(new TimeoutException());
+                    });
+        this.timeout.start(timeout);
 
         if (externalCancellationSource != null) {
             externalCancellationSource.addListener(
                 mayInterruptIfRunning -> {
                     if (externalCancellationSource.isCancellationRequested()) {
                         isExternallyCanceled.set(true);
-                        cancellationSource.cancel();
-                    }
-                });
-        }
-
-        fcs = new FutureCompletionSource<>();
-
-        // timeout timer:
-        Dispatcher.background()
-            .runLaterAsync(() -> {}, timeout, cancellationSource)
-            .whenDone(
-                (f) -> {
-                    if (f.isSuccess()) {
-                        // timeout:
-                        fcs.setException(new TimeoutException());
-                    } else if (f.isCancelled()) {
-                        if (resultException != null) {
-                            // canceled because of exception in delegate handler.
-                            var cause = resultException.getCause();
-                            if (cause != null) {
-                                fcs.setException(cause);
-                            } else {
-                                fcs.setException(resultException);
-                            }
-                        } else if (isExternallyCanceled.get()) {
-                            // externally canceled
+                        if (this.timeout.cancel()) {
                             fcs.setCancelled();
-                        } else {
-                            // timeout itself was canceled, indicating payload was received successfully:
-                            fcs.setResult(result);
                         }
-                    } else if (f.isFailed()) {
-                        //noinspection ConstantConditions
-                        fcs.setException(f.getException().getCause());
                     }
                 });
+        }
     }
 
     public Future<TRes> getResultFuture() {
@@ -85,25 +72,43 @@ public class OneShotPayloadReceivedDelegate<TRes> implements IPayloadReceivedDel
 
     @Override
     public boolean invoke(ReceivedPayload<?> receivedPayload) {
-        boolean remove;
-
-        if (payloadReceivedFnc == null || isExternallyCanceled.get()) {
-            remove = true;
-        } else {
-            try {
-                result = payloadReceivedFnc.apply(receivedPayload);
-                remove = (result != null);
-            } catch (Exception e) {
-                remove = true;
-                resultException = e;
+        if (isExternallyCanceled.get()) {
+            if (timeout.cancel()) {
+                fcs.setCancelled();
+            }
+
+            return true;
+        }
+
+        if (payloadReceivedFnc == null) {
+            if (timeout.cancel()) {
+                fcs.setResult(null);
             }
+
+            return true;
+        }
+
+        TRes result;
+        try {
+            result = payloadReceivedFnc.apply(receivedPayload);
+        } catch (Exception e) {
+            // the timeout decides whether the exception or the timeout is reported
+            if (timeout.cancel()) {
+                Throwable cause = e.getCause();
+                fcs.setException(cause != null ? cause : e);
+            }
+
+            return true;
+        }
+
+        if (result == null) {
+            return false;
         }
 
-        if (remove && cancellationSource != null) {
-            // cancel timeout
-            cancellationSource.cancel();
+        if (timeout.cancel()) {
+            fcs.setResult(result);
         }
 
-        return remove;
+        return true;
     }
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import com.intel.missioncontrol.utils.CacheFiles;
+import io.dronefleet.mavlink.common.AutopilotVersion;
+import io.dronefleet.mavlink.common.MavParamType;
+import io.dronefleet.mavlink.common.ParamValue;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the last parameter list of every vehicle in a directory, one file per vehicle. A vehicle is identified by a key
+ * that has to be unique across vehicles, see {@link #getVehicleKey(AutopilotVersion)}.
+ */
+public class ParameterCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParameterCache.class);
+
+    private static final int CACHE_MAGIC = 0x50415241;
+    private static final int CACHE_VERSION = 1;
+
+    private final Path directory;
+
+    public ParameterCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a key for the vehicle with the given version information, or null if the autopilot does not report a
+     * unique id.
+     */
+    public static @Nullable String getVehicleKey(AutopilotVersion autopilotVersion) {
+        BigInteger uid = autopilotVersion.uid();
+        if (uid != null && uid.signum() != 0) {
+            return "uid-" + uid.toString(16);
+        }
+
+        byte[] uid2 = autopilotVersion.uid2();
+        if (uid2 != null) {
+            StringBuilder key = new StringBuilder("uid2-");
+            boolean hasId = false;
+            for (byte b : uid2) {
+                key.append(String.format("%02x", b));
+                hasId |= b != 0;
+            }
+
+            if (hasId) {
+                return key.toString();
+            }
+        }
+
+        return null;
+    }
+
+    /** Returns the stored parameters of the given vehicle, or null if there are none or they can't be read. */
+    public @Nullable ParameterSnapshot load(String vehicleKey) {
+        Path file = getFile(vehicleKey);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || !in.readUTF().equals(vehicleKey)) {
+                return null;
+            }
+
+            Integer hash = in.readBoolean() ? in.readInt() : null;
+            int count = in.readInt();
+            List<Parameter> parameters = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                MavParamType type = MavParamType.valueOf(in.readUTF());
+                float value = Float.intBitsToFloat(in.readInt());
+                parameters.add(
+                    new Parameter(
+                        ParamValue.builder()
+                            .paramId(id)
+                            .paramType(type)
+                            .paramValue(value)
+                            .paramIndex(i)
+                            .paramCount(count)
+                            .build()));
+            }
+
+            return new ParameterSnapshot(parameters, hash);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("cant read parameter cache " + file, e);
+            return null;
+        }
+    }
+
+    /** Stores the parameters of the given vehicle, replacing earlier ones. */
+    public void store(String vehicleKey, ParameterSnapshot snapshot) throws IOException {
+        CacheFiles.write(
+            getFile(vehicleKey),
+            out -> {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeUTF(vehicleKey);
+                Integer hash = snapshot.getHash();
+                out.writeBoolean(hash != null);
+                if (hash != null) {
+                    out.writeInt(hash);
+                }
+
+                List<Parameter> parameters = snapshot.getParameters();
+                out.writeInt(parameters.size());
+                for (Parameter parameter : parameters) {
+                    out.writeUTF(parameter.getId());
+                    out.writeUTF(parameter.getType().name());
+                    out.writeInt(Float.floatToRawIntBits(parameter.getRawFloatValue()));
+                }
+            });
+    }
+
+    private Path getFile(String vehicleKey) {
+        return CacheFiles.resolve(directory, vehicleKey, ".params");
+    }
+
+}
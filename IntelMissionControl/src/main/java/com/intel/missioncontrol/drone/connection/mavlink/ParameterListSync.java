@@ -0,0 +1,454 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import io.dronefleet.mavlink.common.ParamValue;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads the complete parameter list of a vehicle. The vehicle is asked once to stream all parameters
+ * (PARAM_REQUEST_LIST); the received indices are tracked in a bitmap. When the stream stalls, only the missing indices
+ * are requested one by one (PARAM_REQUEST_READ). The number of reads in flight starts small, doubles with every window
+ * that is answered completely and is halved when reads time out, so a lossy link is not flooded with requests.
+ *
+ * <p>PX4 reports a CRC32 over all non-volatile parameters as the _HASH_CHECK parameter. If a snapshot from an earlier
+ * connection is given, the vehicle is asked for this hash first, and the snapshot is used as is when the hash is
+ * unchanged.
+ *
+ * <p>This class only keeps the protocol state. It is driven by {@link #onParamValue} for every received PARAM_VALUE
+ * and by {@link #onTick} in short intervals; requests are sent through a {@link Link}. All methods are synchronized.
+ */
+final class ParameterListSync {
+
+    static final String HASH_PARAM_ID = "_HASH_CHECK";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParameterListSync.class);
+
+    private static final long MIN_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long MIN_READ_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int HASH_ATTEMPTS = 2;
+    private static final int MIN_WINDOW = 4;
+    private static final int INITIAL_WINDOW = 8;
+    private static final int MAX_WINDOW = 64;
+
+    /** Sends requests to the vehicle. */
+    interface Link {
+        void requestList();
+
+        void requestRead(int paramIndex);
+
+        void requestRead(String paramId);
+    }
+
+    private enum State {
+        CHECKING_HASH,
+        STREAMING,
+        FILLING,
+        FETCHING_HASH,
+        DONE,
+        FAILED
+    }
+
+    private final Link link;
+    private final @Nullable ParameterSnapshot snapshot;
+    private final boolean needsHash;
+    private final int maxAttempts;
+    private final long responseTimeoutNanos;
+
+    private State state;
+    private boolean fromSnapshot;
+    private @Nullable Integer vehicleHash;
+    private int hashAttempts;
+    private long deadlineNanos;
+
+    private int count = -1;
+    private ParamValue[] values;
+    private BitSet received;
+    private int receivedCount;
+
+    private int listAttempts;
+    private long listRequestNanos;
+    private long lastValueNanos;
+    private double meanGapNanos;
+
+    private BitSet reading;
+    private long[] readSentNanos;
+    private int[] readAttempts;
+    private int readingCount;
+    private int readCursor;
+    private int window = INITIAL_WINDOW;
+    private int answeredInWindow;
+    private long windowDecreaseNanos;
+    private double smoothedRttNanos;
+
+    private int listRequestCount;
+    private int readRequestCount;
+
+    /**
+     * @param snapshot the parameters from an earlier connection to the same vehicle, or null
+     * @param needsHash whether the vehicle hash should be fetched for a new snapshot after the download
+     * @param maxAttempts the maximum number of requests for the list and for each single parameter
+     * @param responseTimeoutNanos how long to wait for the first response to a request
+     */
+    ParameterListSync(
+            Link link,
+            @Nullable ParameterSnapshot snapshot,
+            boolean needsHash,
+            int maxAttempts,
+            long responseTimeoutNanos) {
+        this.link = link;
+        this.snapshot = snapshot != null && snapshot.getHash() != null ? snapshot : null;
+        this.needsHash = needsHash;
+        this.maxAttempts = maxAttempts;
+        this.responseTimeoutNanos = responseTimeoutNanos;
+        this.smoothedRttNanos = responseTimeoutNanos / 4.0;
+    }
+
+    synchronized void start(long nowNanos) {
+        if (state != null) {
+            throw new IllegalStateException("already started");
+        }
+
+        if (snapshot != null) {
+            state = State.CHECKING_HASH;
+            requestHash(nowNanos);
+        } else {
+            startStreaming(nowNanos);
+        }
+    }
+
+    synchronized void onParamValue(ParamValue value, long nowNanos) {
+        if (state == null || state == State.DONE || state == State.FAILED) {
+            return;
+        }
+
+        if (HASH_PARAM_ID.equals(value.paramId())) {
+            onHash(Float.floatToRawIntBits(value.paramValue()), nowNanos);
+            return;
+        }
+
+        int index = value.paramIndex();
+        int paramCount = value.paramCount();
+        if (state == State.CHECKING_HASH || paramCount <= 0 || index < 0 || index >= paramCount) {
+            // not part of the list, e.g. the answer to a parameter change
+            return;
+        }
+
+        if (count != paramCount) {
+            if (count >= 0) {
+                LOGGER.info("Parameter count changed from " + count + " to " + paramCount + ", restarting download");
+            }
+
+            reset(paramCount);
+            if (state == State.FILLING || state == State.FETCHING_HASH) {
+                startStreaming(nowNanos);
+            }
+        }
+
+        if (receivedCount > 0) {
+            double gap = nowNanos - lastValueNanos;
+            meanGapNanos = meanGapNanos == 0 ? gap : 0.875 * meanGapNanos + 0.125 * gap;
+        }
+
+        lastValueNanos = nowNanos;
+
+        if (reading.get(index)) {
+            reading.clear(index);
+            readingCount--;
+            smoothedRttNanos = 0.875 * smoothedRttNanos + 0.125 * (nowNanos - readSentNanos[index]);
+            if (++answeredInWindow >= window) {
+                window = Math.min(MAX_WINDOW, 2 * window);
+                answeredInWindow = 0;
+            }
+        }
+
+        values[index] = value;
+        if (!received.get(index)) {
+            received.set(index);
+            receivedCount++;
+        }
+
+        if (receivedCount == count && state != State.FETCHING_HASH) {
+            onListComplete(nowNanos);
+        }
+    }
+
+    synchronized void onTick(long nowNanos) {
+        if (state == null) {
+            return;
+        }
+
+        switch (state) {
+        case CHECKING_HASH:
+            if (nowNanos >= deadlineNanos) {
+                if (++hashAttempts < HASH_ATTEMPTS) {
+                    requestHash(nowNanos);
+                } else {
+                    // most likely an autopilot without parameter hash
+                    startStreaming(nowNanos);
+                }
+            }
+
+            break;
+        case STREAMING:
+            if (count < 0) {
+                if (nowNanos - listRequestNanos >= responseTimeoutNanos) {
+                    if (listAttempts >= maxAttempts) {
+                        state = State.FAILED;
+                    } else {
+                        requestList(nowNanos);
+                    }
+                }
+            } else if (nowNanos - lastValueNanos >= getIdleTimeoutNanos()) {
+                state = State.FILLING;
+                fill(nowNanos);
+            }
+
+            break;
+        case FILLING:
+            fill(nowNanos);
+            break;
+        case FETCHING_HASH:
+            if (nowNanos >= deadlineNanos) {
+                finish();
+            }
+
+            break;
+        default:
+            break;
+        }
+    }
+
+    synchronized boolean isDone() {
+        return state == State.DONE;
+    }
+
+    synchronized boolean isFailed() {
+        return state == State.FAILED;
+    }
+
+    /** Whether the parameters were taken from the snapshot because the vehicle hash did not change. */
+    synchronized boolean isFromSnapshot() {
+        return fromSnapshot;
+    }
+
+    synchronized @Nullable Integer getVehicleHash() {
+        return vehicleHash;
+    }
+
+    synchronized List<Parameter> getParameters() {
+        if (fromSnapshot) {
+            return snapshot.getParameters();
+        }
+
+        List<Parameter> parameters = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            parameters.add(new Parameter(values[i]));
+        }
+
+        return parameters;
+    }
+
+    synchronized TimeoutException getFailure() {
+        return new TimeoutException(
+            "Parameter list incomplete, received " + receivedCount + " of " + Math.max(count, 0) + " parameters");
+    }
+
+    synchronized int getListRequestCount() {
+        return listRequestCount;
+    }
+
+    synchronized int getReadRequestCount() {
+        return readRequestCount;
+    }
+
+    /**
+     * Computes the parameter hash like PX4 does: a CRC32 without initial and final inversion over the id and the value
+     * bytes of every parameter in index order. PX4 leaves volatile parameters out, so the hash of a complete list may
+     * differ from the one reported by the vehicle.
+     */
+    static int computeHash(List<Parameter> parameters) {
+        int crc = 0;
+        for (Parameter parameter : parameters) {
+            String id = parameter.getId();
+            for (int i = 0; i < id.length(); i++) {
+                crc = updateCrc(crc, id.charAt(i));
+            }
+
+            int bits = Float.floatToRawIntBits(parameter.getRawFloatValue());
+            int size = getValueSize(parameter);
+            for (int i = 0; i < size; i++) {
+                crc = updateCrc(crc, bits >>> (8 * i));
+            }
+        }
+
+        return crc;
+    }
+
+    private static int getValueSize(Parameter parameter) {
+        switch (parameter.getType()) {
+        case MAV_PARAM_TYPE_INT8:
+        case MAV_PARAM_TYPE_UINT8:
+            return 1;
+        case MAV_PARAM_TYPE_INT16:
+        case MAV_PARAM_TYPE_UINT16:
+            return 2;
+        default:
+            return 4;
+        }
+    }
+
+    private static int updateCrc(int crc, int b) {
+        crc ^= b & 0xFF;
+        for (int k = 0; k < 8; k++) {
+            crc = (crc >>> 1) ^ (0xEDB88320 & -(crc & 1));
+        }
+
+        return crc;
+    }
+
+    private void onHash(int hash, long nowNanos) {
+        vehicleHash = hash;
+        if (state == State.CHECKING_HASH) {
+            if (snapshot.getHash() == hash) {
+                fromSnapshot = true;
+                state = State.DONE;
+            } else {
+                startStreaming(nowNanos);
+            }
+        } else if (state == State.FETCHING_HASH) {
+            finish();
+        }
+    }
+
+    private void onListComplete(long nowNanos) {
+        if (vehicleHash == null && needsHash) {
+            state = State.FETCHING_HASH;
+            deadlineNanos = nowNanos + Math.max(MIN_READ_TIMEOUT_NANOS, (long)(3 * smoothedRttNanos));
+            link.requestRead(HASH_PARAM_ID);
+            readRequestCount++;
+        } else {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (vehicleHash != null) {
+            int hash = computeHash(getParameters());
+            if (hash != vehicleHash) {
+                LOGGER.debug(
+                    "Parameter hash "
+                        + Integer.toHexString(hash)
+                        + " differs from vehicle hash "
+                        + Integer.toHexString(vehicleHash)
+                        + ", the vehicle might have volatile parameters");
+            }
+        }
+
+        state = State.DONE;
+    }
+
+    private void requestHash(long nowNanos) {
+        deadlineNanos = nowNanos + responseTimeoutNanos;
+        link.requestRead(HASH_PARAM_ID);
+        readRequestCount++;
+    }
+
+    private void startStreaming(long nowNanos) {
+        state = State.STREAMING;
+        lastValueNanos = nowNanos;
+        requestList(nowNanos);
+    }
+
+    private void requestList(long nowNanos) {
+        listAttempts++;
+        listRequestNanos = nowNanos;
+        link.requestList();
+        listRequestCount++;
+    }
+
+    private void reset(int paramCount) {
+        count = paramCount;
+        values = new ParamValue[paramCount];
+        received = new BitSet(paramCount);
+        receivedCount = 0;
+        reading = new BitSet(paramCount);
+        readSentNanos = new long[paramCount];
+        readAttempts = new int[paramCount];
+        readingCount = 0;
+        readCursor = 0;
+    }
+
+    private long getIdleTimeoutNanos() {
+        // the stream is considered stalled after several times the usual gap between two parameters
+        return Math.min(responseTimeoutNanos, Math.max(MIN_IDLE_NANOS, (long)(8 * meanGapNanos)));
+    }
+
+    private void fill(long nowNanos) {
+        long readTimeoutNanos =
+            Math.min(responseTimeoutNanos, Math.max(MIN_READ_TIMEOUT_NANOS, (long)(3 * smoothedRttNanos)));
+        boolean lost = false;
+        for (int i = reading.nextSetBit(0); i >= 0; i = reading.nextSetBit(i + 1)) {
+            if (nowNanos - readSentNanos[i] >= readTimeoutNanos) {
+                reading.clear(i);
+                readingCount--;
+                lost = true;
+            }
+        }
+
+        // losses within one timeout are most likely caused by the same congestion, so the window is halved only once
+        if (lost && nowNanos - windowDecreaseNanos >= readTimeoutNanos) {
+            window = Math.max(MIN_WINDOW, window / 2);
+            answeredInWindow = 0;
+            windowDecreaseNanos = nowNanos;
+        }
+
+        while (readingCount < window) {
+            int index = nextMissingIndex();
+            if (index < 0) {
+                break;
+            }
+
+            if (++readAttempts[index] > maxAttempts) {
+                state = State.FAILED;
+                return;
+            }
+
+            reading.set(index);
+            readingCount++;
+            readSentNanos[index] = nowNanos;
+            link.requestRead(index);
+            readRequestCount++;
+        }
+    }
+
+    private int nextMissingIndex() {
+        for (int pass = 0; pass < 2; pass++) {
+            int index = received.nextClearBit(readCursor);
+            while (index < count && reading.get(index)) {
+                index = received.nextClearBit(index + 1);
+            }
+
+            if (index < count) {
+                readCursor = index + 1;
+                return index;
+            }
+
+            readCursor = 0;
+        }
+
+        return -1;
+    }
+
+}
@@ -6,27 +6,34 @@
 
 package com.intel.missioncontrol.drone.connection.mavlink;
 
+import com.intel.missioncontrol.drone.SpecialDuration;
 import io.dronefleet.mavlink.common.ParamAck;
 import io.dronefleet.mavlink.common.ParamExtAck;
 import io.dronefleet.mavlink.common.ParamExtRequestRead;
 import io.dronefleet.mavlink.common.ParamExtSet;
 import io.dronefleet.mavlink.common.ParamExtValue;
+import io.dronefleet.mavlink.common.ParamRequestList;
 import io.dronefleet.mavlink.common.ParamRequestRead;
 import io.dronefleet.mavlink.common.ParamSet;
 import io.dronefleet.mavlink.common.ParamValue;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import org.asyncfx.concurrent.CancellationSource;
+import org.asyncfx.concurrent.Dispatcher;
 import org.asyncfx.concurrent.Future;
 import org.asyncfx.concurrent.FutureCompletionSource;
 import org.asyncfx.concurrent.Futures;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class ParameterProtocolSender extends PayloadSender {
     private static final Logger LOGGER = LoggerFactory.getLogger(ParameterProtocolSender.class);
+    private static final Duration PARAMS_LIST_TICK = Duration.ofMillis(20);
 
     public ParameterProtocolSender(
             MavlinkEndpoint recipient, MavlinkHandler handler, CancellationSource cancellationSource) {
@@ -46,34 +53,106 @@ public class ParameterProtocolSender extends PayloadSender {
         return requestMultipleItemsSimultaneouslyAsync(paramIds.size(), i -> requestParamByIdAsync(paramIds.get(i)));
     }
 
-    /** Request all params by index. */
+    /** Request all params. */
     public Future<List<Parameter>> requestParamsListAsync() {
-        // Using mavlink PARAM_REQUEST_LIST would be more efficient.
+        return requestParamsListAsync(null, null);
+    }
+
+    /**
+     * Request all params. The vehicle streams its parameter list once, and only the parameters lost on the way are
+     * requested again. If a cache and a vehicle key are given and the vehicle reports a parameter hash, the cached list
+     * is used as long as the hash did not change, and a new list is stored in the cache.
+     */
+    public Future<List<Parameter>> requestParamsListAsync(
+            @Nullable ParameterCache cache, @Nullable String vehicleKey) {
+        boolean useCache = cache != null && vehicleKey != null;
+        ParameterSnapshot snapshot = useCache ? cache.load(vehicleKey) : null;
+
+        CancellationSource cs = new CancellationSource();
+        cancellationSource.addListener(cs::cancel);
 
         FutureCompletionSource<List<Parameter>> fcs = new FutureCompletionSource<>(cancellationSource);
+        fcs.getFuture().whenDone(f -> cs.cancel());
+
+        ParameterListSync sync =
+            new ParameterListSync(
+                new ParameterListSync.Link() {
+                    @Override
+                    public void requestList() {
+                        sendMavlinkPacketWithPayloadAsync(
+                            ParamRequestList.builder()
+                                .targetSystem(targetEndpoint.getSystemId())
+                                .targetComponent(targetEndpoint.getComponentId())
+                                .build());
+                    }
 
-        requestParamByIndexAsync(0)
-            .whenSucceeded(
-                param -> {
-                    int paramCount = param.getParamCount();
+                    @Override
+                    public void requestRead(int paramIndex) {
+                        sendMavlinkPacketWithPayloadAsync(createParamRequestRead(null, paramIndex));
+                    }
 
-                    requestMultipleItemsSimultaneouslyAsync(paramCount, this::requestParamByIndexAsync)
-                        .whenSucceeded(fcs::setResult)
-                        .whenFailed(e -> fcs.setException(e.getCause()));
-                })
-            .whenFailed(fcs::setException);
+                    @Override
+                    public void requestRead(String paramId) {
+                        sendMavlinkPacketWithPayloadAsync(createParamRequestRead(paramId, -1));
+                    }
+                },
+                snapshot,
+                useCache,
+                PayloadSender.defaultRepetitions,
+                PayloadSender.defaultResponseTimeoutPerRepetition.toNanos());
 
+        Function<ReceivedPayload<?>, ParamValue> receiverFnc =
+            PayloadReceiver.createPayloadTypeReceiverFnc(
+                ParamValue.class, v -> true, targetEndpoint.getSystemId(), targetEndpoint.getComponentId());
+
+        handler.addPayloadReceivedDelegate(
+            new ContinuousPayloadReceivedDelegate(
+                receivedPayload -> {
+                    ParamValue paramValue = receiverFnc.apply(receivedPayload);
+                    if (paramValue == null) {
+                        return false;
+                    }
+
+                    sync.onParamValue(paramValue, System.nanoTime());
+                    return true;
+                },
+                null,
+                SpecialDuration.INDEFINITE,
+                cs));
+
+        Dispatcher.background()
+            .runLaterAsync(
+                () -> {
+                    if (fcs.getFuture().isDone()) {
+                        return;
+                    }
+
+                    sync.onTick(System.nanoTime());
+                    if (sync.isDone()) {
+                        List<Parameter> parameters = sync.getParameters();
+                        if (useCache && !sync.isFromSnapshot()) {
+                            try {
+                                cache.store(vehicleKey, new ParameterSnapshot(parameters, sync.getVehicleHash()));
+                            } catch (IOException e) {
+                                LOGGER.warn("Error storing parameter cache", e);
+                            }
+                        }
+
+                        fcs.setResult(parameters);
+                    } else if (sync.isFailed()) {
+                        fcs.setException(sync.getFailure());
+                    }
+                },
+                Duration.ZERO,
+                PARAMS_LIST_TICK,
+                cs);
+
+        sync.start(System.nanoTime());
         return fcs.getFuture();
     }
 
     private Future<Parameter> requestParamImplAsync(String paramId, int paramIndex) {
-        ParamRequestRead payloadToSend =
-            ParamRequestRead.builder()
-                .paramIndex(paramIndex)
-                .paramId(paramId)
-                .targetSystem(targetEndpoint.getSystemId())
-                .targetComponent(targetEndpoint.getComponentId())
-                .build();
+        ParamRequestRead payloadToSend = createParamRequestRead(paramId, paramIndex);
 
         Function<ReceivedPayload<?>, Parameter> receiverFnc =
             PayloadReceiver.createPayloadTypeReceiverFnc(
@@ -92,6 +171,15 @@ public class ParameterProtocolSender extends PayloadSender {
             PayloadSender.defaultResponseTimeoutPerRepetition);
     }
 
+    private ParamRequestRead createParamRequestRead(String paramId, int paramIndex) {
+        return ParamRequestRead.builder()
+            .paramIndex(paramIndex)
+            .paramId(paramId)
+            .targetSystem(targetEndpoint.getSystemId())
+            .targetComponent(targetEndpoint.getComponentId())
+            .build();
+    }
+
     // Set mavlink param with known type
     public Future<Void> setParamAsync(Parameter parameter) {
         ParamSet payloadToSend =
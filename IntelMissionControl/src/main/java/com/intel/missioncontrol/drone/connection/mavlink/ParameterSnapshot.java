@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** The complete parameter list of a vehicle, together with the parameter hash the vehicle reported for it. */
+public final class ParameterSnapshot {
+
+    private final List<Parameter> parameters;
+    private final @Nullable Integer hash;
+
+    public ParameterSnapshot(List<Parameter> parameters, @Nullable Integer hash) {
+        this.parameters = Collections.unmodifiableList(parameters);
+        this.hash = hash;
+    }
+
+    /** The parameters in index order. */
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    /** The _HASH_CHECK value of the vehicle, or null if the vehicle did not report one. */
+    public @Nullable Integer getHash() {
+        return hash;
+    }
+
+}
@@ -21,6 +21,7 @@ class PayloadReceiver {
 
     protected final MavlinkEndpoint targetEndpoint;
     protected final MavlinkHandler handler;
+    final ProtocolCounters counters = ProtocolCounters.of(getClass());
 
     PayloadReceiver(MavlinkEndpoint targetEndpoint, MavlinkHandler handler) {
         this.targetEndpoint = targetEndpoint;
@@ -82,7 +83,8 @@ class PayloadReceiver {
                 },
                 onTimeoutFnc,
                 timeout,
-                cancellationSource);
+                cancellationSource,
+                counters);
         handler.addPayloadReceivedDelegate(payloadReceivedDelegate);
 
         return payloadReceivedDelegate.getResultFuture();
@@ -21,7 +21,6 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.asyncfx.concurrent.CancellationSource;
-import org.asyncfx.concurrent.Dispatcher;
 import org.asyncfx.concurrent.Future;
 import org.asyncfx.concurrent.FutureCompletionSource;
 import org.asyncfx.concurrent.Futures;
@@ -38,6 +37,7 @@ class PayloadSender {
     final int componentId = 250;
     final MavlinkEndpoint targetEndpoint;
     final MavlinkHandler handler;
+    final ProtocolCounters counters = ProtocolCounters.of(getClass());
     protected final CancellationSource cancellationSource;
     private final MavlinkPayloadSerializer serializer = new ReflectionPayloadSerializer();
     private int sequence = 0;
@@ -78,7 +78,7 @@ class PayloadSender {
         // prepare receiver delegate
         OneShotPayloadReceivedDelegate<TRes> payloadReceivedDelegate =
             new OneShotPayloadReceivedDelegate<>(
-                receiverFnc, responseTimeoutPerRepetition.multipliedBy(repetitions), cs);
+                receiverFnc, responseTimeoutPerRepetition.multipliedBy(repetitions), cs, counters);
 
         // Start receiver:
         handler.addPayloadReceivedDelegate(payloadReceivedDelegate);
@@ -88,19 +88,29 @@ class PayloadSender {
 
         // Send command (repeatedly):
         AtomicInteger repetition = new AtomicInteger();
-        Dispatcher.background()
-            .runLaterAsync(
-                () -> {
-                    int rep = repetition.getAndIncrement();
-                    if (rep >= repetitions) {
-                        cs.cancel();
-                    }
-
-                    sendMavlinkPacketWithPayloadAsync(payloadForRepetitionFnc.apply(rep));
-                },
-                Duration.ZERO,
-                responseTimeoutPerRepetition,
-                cs);
+        MavlinkTimer.Timeout repeatTimeout =
+            MavlinkTimer.getDefault()
+                .newTimeout(
+                    t -> {
+                        if (cs.isCancellationRequested()) {
+                            return;
+                        }
+
+                        int rep = repetition.getAndIncrement();
+                        if (rep >= repetitions) {
+                            cs.cancel();
+                        } else {
+                            t.start(responseTimeoutPerRepetition);
+                        }
+
+                        if (rep > 0) {
+                            counters.countRetry();
+                        }
+
+                        sendMavlinkPacketWithPayloadAsync(payloadForRepetitionFnc.apply(rep));
+                    });
+        repeatTimeout.start(Duration.ZERO);
+        cs.addListener(mayInterruptIfRunning -> repeatTimeout.cancel());
 
         return payloadReceivedFuture;
     }
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import eu.mavinci.desktop.main.debug.profiling.metrics.Counter;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timeout and retry counts of one MAVLink protocol, published in the {@link MetricsRegistry} as {@code
+ * mavlink.<protocol>.timeouts} and {@code mavlink.<protocol>.retries}. The protocol name is derived from the sender or
+ * receiver class, so e.g. MissionProtocolSender and MissionProtocolReceiver share the counters of "missionProtocol".
+ */
+final class ProtocolCounters {
+
+    private static final ConcurrentHashMap<Class<?>, ProtocolCounters> byClass = new ConcurrentHashMap<>();
+
+    private final String protocol;
+    private final Counter timeouts;
+    private final Counter retries;
+
+    private ProtocolCounters(String protocol, MetricsRegistry registry) {
+        this.protocol = protocol;
+        this.timeouts = registry.counter("mavlink." + protocol + ".timeouts");
+        this.retries = registry.counter("mavlink." + protocol + ".retries");
+    }
+
+    static ProtocolCounters of(Class<?> senderOrReceiverClass) {
+        ProtocolCounters counters = byClass.get(senderOrReceiverClass);
+        return counters != null
+            ? counters
+            : byClass.computeIfAbsent(
+                senderOrReceiverClass, c -> new ProtocolCounters(getProtocol(c), MetricsRegistry.getDefault()));
+    }
+
+    static String getProtocol(Class<?> senderOrReceiverClass) {
+        // nested senders and receivers belong to the protocol of their enclosing class
+        String name = senderOrReceiverClass.getName();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        int nested = name.indexOf('$');
+        if (nested >= 0) {
+            name = name.substring(0, nested);
+        }
+
+        for (String suffix : new String[] {"Sender", "Receiver"}) {
+            if (name.endsWith(suffix) && name.length() > suffix.length()) {
+                name = name.substring(0, name.length() - suffix.length());
+                break;
+            }
+        }
+
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    String getProtocol() {
+        return protocol;
+    }
+
+    void countTimeout() {
+        timeouts.increment();
+    }
+
+    void countRetry() {
+        retries.increment();
+    }
+
+    long getTimeouts() {
+        return timeouts.get();
+    }
+
+    long getRetries() {
+        return retries.get();
+    }
+
+}
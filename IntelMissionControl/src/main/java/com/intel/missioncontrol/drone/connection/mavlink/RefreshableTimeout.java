@@ -8,29 +8,28 @@ package com.intel.missioncontrol.drone.connection.mavlink;
 
 import java.time.Duration;
 import org.asyncfx.concurrent.CancellationSource;
-import org.asyncfx.concurrent.Dispatcher;
 
+/**
+ * Runs a callback when it was not refreshed for a given time. Refreshing only moves a {@link MavlinkTimer.Timeout}, so
+ * it is cheap enough to be done for every received message.
+ */
 class RefreshableTimeout {
 
-    private Duration timeout;
-    private Runnable onTimeout;
-    private CancellationSource cancellationSource;
-    private CancellationSource externalCancellationSource;
-    private final Object lock = new Object();
+    private final Duration timeout;
+    private final MavlinkTimer.Timeout timerTimeout;
+    private final CancellationSource externalCancellationSource;
 
     RefreshableTimeout(Runnable onTimeout, Duration timeout, CancellationSource externalCancellationSource) {
+        this(onTimeout, timeout, externalCancellationSource, MavlinkTimer.getDefault());
+    }
+
+    RefreshableTimeout(
+            Runnable onTimeout, Duration timeout, CancellationSource externalCancellationSource, MavlinkTimer timer) {
         this.timeout = timeout;
-        this.onTimeout = onTimeout;
+        this.timerTimeout = timer.newTimeout(t -> onTimeout.run());
         this.externalCancellationSource = externalCancellationSource;
         if (externalCancellationSource != null) {
-            externalCancellationSource.addListener(
-                mayInterruptIfRunning -> {
-                    synchronized (lock) {
-                        if (cancellationSource != null) {
-                            cancellationSource.cancel();
-                        }
-                    }
-                });
+            externalCancellationSource.addListener(mayInterruptIfRunning -> timerTimeout.cancel());
         }
     }
 
@@ -39,15 +38,11 @@ class RefreshableTimeout {
             return;
         }
 
-        synchronized (lock) {
-            if (cancellationSource != null) {
-                // refresh item: cancel old timer
-                cancellationSource.cancel();
-            }
-
-            cancellationSource = new CancellationSource();
+        timerTimeout.start(timeout);
 
-            Dispatcher.background().runLaterAsync(onTimeout, timeout, cancellationSource);
+        // cancelled while restarting
+        if (externalCancellationSource != null && externalCancellationSource.isCancellationRequested()) {
+            timerTimeout.cancel();
         }
     }
 
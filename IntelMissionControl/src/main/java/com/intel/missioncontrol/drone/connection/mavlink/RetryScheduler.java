@@ -10,7 +10,6 @@ import java.time.Duration;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import org.asyncfx.concurrent.CancellationSource;
-import org.asyncfx.concurrent.Dispatcher;
 import org.asyncfx.concurrent.Future;
 import org.asyncfx.concurrent.FutureCompletionSource;
 
@@ -18,13 +17,24 @@ class RetryScheduler<TRes> {
     private final int repetitions;
     private final CancellationSource externalCancellationSource;
     private final Duration timeout;
+    private final ProtocolCounters counters;
     private FutureCompletionSource<TRes> futureCompletionSource;
-    private CancellationSource cancellationSource;
+    private MavlinkTimer.Timeout retryTimeout;
+    private volatile int repetition;
 
     RetryScheduler(int repetitions, CancellationSource externalCancellationSource, Duration timeout) {
+        this(repetitions, externalCancellationSource, timeout, null);
+    }
+
+    RetryScheduler(
+            int repetitions,
+            CancellationSource externalCancellationSource,
+            Duration timeout,
+            ProtocolCounters counters) {
         this.repetitions = repetitions;
         this.externalCancellationSource = externalCancellationSource;
         this.timeout = timeout;
+        this.counters = counters;
     }
 
     /**
@@ -44,9 +54,11 @@ class RetryScheduler<TRes> {
 
         futureCompletionSource = new FutureCompletionSource<>(externalCancellationSource);
 
+        retryTimeout =
+            MavlinkTimer.getDefault().newTimeout(t -> runWithRetriesImpl(fncAsync, shouldRetry, repetition + 1));
+
         // Cancel retry scheduler when done
-        cancellationSource = new CancellationSource();
-        futureCompletionSource.getFuture().whenDone(tRes -> cancellationSource.cancel());
+        futureCompletionSource.getFuture().whenDone(tRes -> retryTimeout.cancel());
 
         runWithRetriesImpl(fncAsync, shouldRetry, 0);
 
@@ -55,7 +67,12 @@ class RetryScheduler<TRes> {
 
     private void runWithRetriesImpl(
             Function<Integer, Future<TRes>> fncAsync, Function<TRes, Boolean> shouldRetry, int repetition) {
+        this.repetition = repetition;
         if (repetition >= repetitions) {
+            if (counters != null) {
+                counters.countTimeout();
+            }
+
             futureCompletionSource.setException(new TimeoutException("Max number of repetitions exceeded"));
             return;
         }
@@ -69,11 +86,11 @@ class RetryScheduler<TRes> {
                                 futureCompletionSource.setResult(tRes);
                             } else {
                                 // Retry required
-                                Dispatcher dispatcher = Dispatcher.background();
-                                dispatcher.runLaterAsync(
-                                    c -> runWithRetriesImpl(fncAsync, shouldRetry, repetition + 1),
-                                    timeout,
-                                    cancellationSource);
+                                if (counters != null) {
+                                    counters.countRetry();
+                                }
+
+                                retryTimeout.start(timeout);
                             }
                         } catch (Exception e) {
                             futureCompletionSource.setException(e);
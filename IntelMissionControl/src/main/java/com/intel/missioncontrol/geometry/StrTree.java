@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Immutable R-tree packed with Sort-Tile-Recursive bulk loading. Each level is stored as flat arrays, so building the
+ * tree allocates a few arrays per level instead of a node object per entry, and the nodes are close to full.
+ *
+ * <p>Bounds are given as {minX, minY, maxX, maxY}, and boxes that touch each other intersect. Searches don't allocate,
+ * so a caller that passes the same consumer to every search can run them on hot paths.
+ */
+public final class StrTree<T> {
+
+    public static final int NODE_CAPACITY = 16;
+
+    private static final StrTree<?> EMPTY = new StrTree<>(new Object[0], new double[][] {new double[0]}, null, null);
+
+    private final Object[] values;
+
+    // per level, the bounds of the nodes; level 0 holds the entries themselves
+    private final double[][] bounds;
+
+    // per level above 0, the index of the first child of each node in the level below and the number of children
+    private final int[][] firstChild;
+    private final int[][] childCount;
+
+    private StrTree(Object[] values, double[][] bounds, int[][] firstChild, int[][] childCount) {
+        this.values = values;
+        this.bounds = bounds;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> StrTree<T> empty() {
+        return (StrTree<T>)EMPTY;
+    }
+
+    public static <T> StrTree<T> build(List<? extends T> items, Function<? super T, double[]> boundsOf) {
+        int count = items.size();
+        if (count == 0) {
+            return empty();
+        }
+
+        Object[] entryValues = new Object[count];
+        double[] entryBounds = new double[4 * count];
+        for (int i = 0; i < count; i++) {
+            T item = items.get(i);
+            entryValues[i] = item;
+            System.arraycopy(boundsOf.apply(item), 0, entryBounds, 4 * i, 4);
+        }
+
+        int levelCount = 1;
+        for (int size = count; size > NODE_CAPACITY; size = (size + NODE_CAPACITY - 1) / NODE_CAPACITY) {
+            levelCount++;
+        }
+
+        double[][] bounds = new double[levelCount][];
+        int[][] firstChild = new int[levelCount][];
+        int[][] childCount = new int[levelCount][];
+
+        // sort the entries into tiles, then build each level from the tiled nodes of the level below
+        int[] order = tileOrder(entryBounds, count);
+        Object[] values = new Object[count];
+        bounds[0] = new double[4 * count];
+        for (int i = 0; i < count; i++) {
+            values[i] = entryValues[order[i]];
+            System.arraycopy(entryBounds, 4 * order[i], bounds[0], 4 * i, 4);
+        }
+
+        for (int level = 1; level < levelCount; level++) {
+            double[] below = bounds[level - 1];
+            int belowCount = below.length / 4;
+            int nodeCount = (belowCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] nodeBounds = new double[4 * nodeCount];
+            int[] nodeFirst = new int[nodeCount];
+            int[] nodeChildren = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                int first = node * NODE_CAPACITY;
+                int end = Math.min(belowCount, first + NODE_CAPACITY);
+                nodeFirst[node] = first;
+                nodeChildren[node] = end - first;
+                nodeBounds[4 * node] = Double.POSITIVE_INFINITY;
+                nodeBounds[4 * node + 1] = Double.POSITIVE_INFINITY;
+                nodeBounds[4 * node + 2] = Double.NEGATIVE_INFINITY;
+                nodeBounds[4 * node + 3] = Double.NEGATIVE_INFINITY;
+                for (int child = first; child < end; child++) {
+                    nodeBounds[4 * node] = Math.min(nodeBounds[4 * node], below[4 * child]);
+                    nodeBounds[4 * node + 1] = Math.min(nodeBounds[4 * node + 1], below[4 * child + 1]);
+                    nodeBounds[4 * node + 2] = Math.max(nodeBounds[4 * node + 2], below[4 * child + 2]);
+                    nodeBounds[4 * node + 3] = Math.max(nodeBounds[4 * node + 3], below[4 * child + 3]);
+                }
+            }
+
+            if (level < levelCount - 1) {
+                // tile the nodes as well; their children stay contiguous, only the references move
+                int[] nodeOrder = tileOrder(nodeBounds, nodeCount);
+                double[] sortedBounds = new double[nodeBounds.length];
+                int[] sortedFirst = new int[nodeCount];
+                int[] sortedChildren = new int[nodeCount];
+                for (int i = 0; i < nodeCount; i++) {
+                    System.arraycopy(nodeBounds, 4 * nodeOrder[i], sortedBounds, 4 * i, 4);
+                    sortedFirst[i] = nodeFirst[nodeOrder[i]];
+                    sortedChildren[i] = nodeChildren[nodeOrder[i]];
+                }
+
+                nodeBounds = sortedBounds;
+                nodeFirst = sortedFirst;
+                nodeChildren = sortedChildren;
+            }
+
+            bounds[level] = nodeBounds;
+            firstChild[level] = nodeFirst;
+            childCount[level] = nodeChildren;
+        }
+
+        return new StrTree<>(values, bounds, firstChild, childCount);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public int getHeight() {
+        return bounds.length;
+    }
+
+    /** Passes every entry whose bounds intersect the given box to the consumer. */
+    public void search(double minX, double minY, double maxX, double maxY, Consumer<? super T> consumer) {
+        int top = bounds.length - 1;
+        search(top, 0, bounds[top].length / 4, minX, minY, maxX, maxY, consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void search(
+            int level,
+            int first,
+            int end,
+            double minX,
+            double minY,
+            double maxX,
+            double maxY,
+            Consumer<? super T> consumer) {
+        double[] levelBounds = bounds[level];
+        for (int index = first; index < end; index++) {
+            if (levelBounds[4 * index] > maxX
+                    || levelBounds[4 * index + 1] > maxY
+                    || levelBounds[4 * index + 2] < minX
+                    || levelBounds[4 * index + 3] < minY) {
+                continue;
+            }
+
+            if (level == 0) {
+                consumer.accept((T)values[index]);
+            } else {
+                int child = firstChild[level][index];
+                search(level - 1, child, child + childCount[level][index], minX, minY, maxX, maxY, consumer);
+            }
+        }
+    }
+
+    /**
+     * Returns the STR order of the boxes: sorted into vertical slices by the x coordinate of their centers, and each
+     * slice sorted by the y coordinate, so that every run of {@link #NODE_CAPACITY} boxes forms a compact tile.
+     */
+    private static int[] tileOrder(double[] boxes, int count) {
+        int nodeCount = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int sliceCount = (int)Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * NODE_CAPACITY;
+
+        long[] keys = new long[count];
+        int[] order = new int[count];
+        sortByCenter(boxes, 0, count, 0, keys, order, null);
+        int[] orderByX = order.clone();
+        for (int start = 0; start < count; start += sliceSize) {
+            sortByCenter(boxes, start, Math.min(count, start + sliceSize), 1, keys, order, orderByX);
+        }
+
+        return order;
+    }
+
+    /**
+     * Sorts the range of the order by the center of the boxes along one axis. The centers are packed into the upper
+     * bits of a long with the index in the lower bits, so the sort needs no boxing.
+     */
+    private static void sortByCenter(
+            double[] boxes, int start, int end, int axis, long[] keys, int[] order, int[] previousOrder) {
+        for (int i = start; i < end; i++) {
+            int box = previousOrder != null ? previousOrder[i] : i;
+            double center = (boxes[4 * box + axis] + boxes[4 * box + 2 + axis]) / 2;
+            keys[i] = (sortableBits((float)center) << 32) | box;
+        }
+
+        Arrays.sort(keys, start, end);
+        for (int i = start; i < end; i++) {
+            order[i] = (int)keys[i];
+        }
+    }
+
+    /** Maps a float to an unsigned order preserving int, stored in the lower 32 bits of a signed long. */
+    private static long sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        bits ^= (bits >> 31) | Integer.MIN_VALUE;
+        return (bits & 0xffffffffL) - 0x80000000L;
+    }
+
+}
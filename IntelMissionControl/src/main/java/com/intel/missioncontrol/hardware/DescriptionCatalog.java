@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.hardware;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the description files in one directory. For every file it stores the description id and the fields
+ * needed to filter descriptions (airplane type and compatible ids), so descriptions can be looked up without
+ * deserializing all of them.
+ *
+ * <p>The index is persisted next to the other caches and is only rebuilt for files whose size or modification time
+ * changed since it was written.
+ */
+class DescriptionCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DescriptionCatalog.class);
+    private static final String DESCRIPTION_FILE_EXT = ".json";
+    private static final int VERSION = 1;
+
+    static class Entry {
+        String fileName;
+        long size;
+        long lastModified;
+        String id;
+        @Nullable String airplaneType;
+        List<String> compatibleIds = new ArrayList<>();
+    }
+
+    private static class IndexFile {
+        int version;
+        List<Entry> entries;
+    }
+
+    private final Path directory;
+    private final Map<String, Entry> entriesById = new LinkedHashMap<>();
+
+    private DescriptionCatalog(Path directory, List<Entry> entries) {
+        this.directory = directory;
+        for (Entry entry : entries) {
+            Entry existing = entriesById.putIfAbsent(entry.id, entry);
+            if (existing != null) {
+                LOGGER.warn(
+                    "Duplicate description id " + entry.id + " in " + entry.fileName + ", using " + existing.fileName);
+            }
+        }
+    }
+
+    /**
+     * Opens the catalog of the given directory.
+     *
+     * @param compatibleIdsKey the JSON key holding the ids of compatible child descriptions, or null
+     * @param indexFile where the index is persisted, or null to always build it from the description files
+     */
+    static DescriptionCatalog open(Path directory, @Nullable String compatibleIdsKey, @Nullable Path indexFile) {
+        List<Path> files;
+        try (var stream = Files.list(directory)) {
+            files =
+                stream.filter(
+                        f -> Files.isRegularFile(f) && f.toString().toLowerCase().endsWith(DESCRIPTION_FILE_EXT))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            files = new ArrayList<>();
+        }
+
+        Map<String, Entry> previous = indexFile != null ? readIndex(indexFile) : Collections.emptyMap();
+        List<Entry> entries = new ArrayList<>(files.size());
+        boolean changed = previous.size() != files.size();
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            long size;
+            long lastModified;
+            try {
+                size = Files.size(file);
+                lastModified = Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                LOGGER.error(e.getMessage() + " [" + file + "]");
+                continue;
+            }
+
+            Entry entry = previous.get(fileName);
+            if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+                changed = true;
+                entry = scan(file, compatibleIdsKey);
+                if (entry == null) {
+                    continue;
+                }
+
+                entry.fileName = fileName;
+                entry.size = size;
+                entry.lastModified = lastModified;
+            }
+
+            entries.add(entry);
+        }
+
+        if (changed && indexFile != null) {
+            writeIndex(indexFile, entries);
+        }
+
+        return new DescriptionCatalog(directory, entries);
+    }
+
+    /** Reads only the indexed fields of a description file. */
+    private static @Nullable Entry scan(Path file, @Nullable String compatibleIdsKey) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject json = new JsonParser().parse(reader).getAsJsonObject();
+            Entry entry = new Entry();
+            entry.id = new JsonHelper(json).getString("id");
+            JsonElement airplaneType = json.get("airplaneType");
+            entry.airplaneType = airplaneType != null ? airplaneType.getAsString() : null;
+            JsonArray compatibleIds = compatibleIdsKey != null ? json.getAsJsonArray(compatibleIdsKey) : null;
+            if (compatibleIds != null) {
+                for (JsonElement element : compatibleIds) {
+                    entry.compatibleIds.add(element.getAsString());
+                }
+            }
+
+            return entry;
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage() + " [" + file + "]");
+            return null;
+        }
+    }
+
+    private static Map<String, Entry> readIndex(Path indexFile) {
+        if (!Files.isRegularFile(indexFile)) {
+            return Collections.emptyMap();
+        }
+
+        try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            IndexFile index = new Gson().fromJson(reader, IndexFile.class);
+            if (index == null || index.version != VERSION || index.entries == null) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, Entry> entries = new HashMap<>();
+            for (Entry entry : index.entries) {
+                if (entry.compatibleIds == null) {
+                    entry.compatibleIds = new ArrayList<>();
+                }
+
+                entries.put(entry.fileName, entry);
+            }
+
+            return entries;
+        } catch (Exception e) {
+            LOGGER.warn("Ignoring unreadable description index " + indexFile, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private static void writeIndex(Path indexFile, List<Entry> entries) {
+        IndexFile index = new IndexFile();
+        index.version = VERSION;
+        index.entries = entries;
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                new Gson().toJson(index, writer);
+            }
+
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write description index " + indexFile, e);
+        }
+    }
+
+    /** Returns the ids of all descriptions, in file name order. */
+    List<String> getIds() {
+        return new ArrayList<>(entriesById.keySet());
+    }
+
+    @Nullable Entry getEntry(String id) {
+        return entriesById.get(id);
+    }
+
+    @Nullable String findIdByAirplaneType(String airplaneType) {
+        for (Entry entry : entriesById.values()) {
+            if (airplaneType.equals(entry.airplaneType)) {
+                return entry.id;
+            }
+        }
+
+        return null;
+    }
+
+    /** Returns the ids of all descriptions that list the given id as compatible. */
+    List<String> findIdsCompatibleWith(String id) {
+        List<String> ids = new ArrayList<>();
+        for (Entry entry : entriesById.values()) {
+            if (entry.compatibleIds.contains(id)) {
+                ids.add(entry.id);
+            }
+        }
+
+        return ids;
+    }
+
+    Path getFile(Entry entry) {
+        return directory.resolve(entry.fileName);
+    }
+
+}
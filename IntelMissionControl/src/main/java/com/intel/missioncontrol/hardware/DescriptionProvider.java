@@ -12,8 +12,8 @@ import com.google.inject.Inject;
 import com.intel.missioncontrol.IFileExtractor;
 import com.intel.missioncontrol.common.IPathProvider;
 import com.intel.missioncontrol.helper.Expect;
+import eu.mavinci.core.plane.AirplaneType;
 import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -22,19 +22,24 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import org.checkerframework.checker.initialization.qual.UnderInitialization;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class DescriptionProvider implements IDescriptionProvider {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DescriptionProvider.class);
-    private static final String DESCRIPTION_FILE_EXT = ".json";
 
-    private final List<PlatformDescription> platformDescriptions = new ArrayList<>();
-    private final List<GenericCameraDescription> camerasDescriptions = new ArrayList<>();
-    private final List<LensDescription> lensDescriptions = new ArrayList<>();
+    private static final String INDEX_DIRECTORY = "hardware-descriptions";
+
+    private final Map<String, PlatformDescription> platformDescriptions = new ConcurrentHashMap<>();
+    private final Map<String, GenericCameraDescription> cameraDescriptions = new ConcurrentHashMap<>();
+    private final Map<String, LensDescription> lensDescriptions = new ConcurrentHashMap<>();
+    private final Set<Path> unreadableFiles = ConcurrentHashMap.newKeySet();
 
     private static final Gson gson =
         new GsonBuilder()
@@ -51,61 +56,139 @@ public class DescriptionProvider implements IDescriptionProvider {
             .setPrettyPrinting()
             .create();
 
+    private final DescriptionCatalog platformCatalog;
+    private final DescriptionCatalog cameraCatalog;
+    private final DescriptionCatalog lensCatalog;
+
     @Inject
     public DescriptionProvider(IPathProvider pathProvider, IFileExtractor fileExtractor) {
         // the dependency to file extractor makes sure that files got extracted before (as long as its not mocked by
         // dependency injector with a proxy class
+        Path cacheDirectory = pathProvider.getCacheDirectory();
+        Path indexDirectory = cacheDirectory != null ? cacheDirectory.resolve(INDEX_DIRECTORY) : null;
 
-        platformDescriptions.clear();
-        camerasDescriptions.clear();
-        lensDescriptions.clear();
-
-        fillDescriptions(
-            pathProvider.getPlatformDescriptionsDirectory(), platformDescriptions, PlatformDescription.class);
-        fillDescriptions(
-            pathProvider.getCameraDescriptionsDirectory(), camerasDescriptions, GenericCameraDescription.class);
-        fillDescriptions(pathProvider.getLensDescriptionsDirectory(), lensDescriptions, LensDescription.class);
+        platformCatalog =
+            openCatalog(
+                pathProvider.getPlatformDescriptionsDirectory(), "compatibleCameraIds", indexDirectory, "platforms");
+        cameraCatalog =
+            openCatalog(
+                pathProvider.getCameraDescriptionsDirectory(), "compatibleLensesIds", indexDirectory, "cameras");
+        lensCatalog = openCatalog(pathProvider.getLensDescriptionsDirectory(), null, indexDirectory, "lenses");
     }
 
-    private <T> void fillDescriptions(
-            @UnderInitialization DescriptionProvider this, final Path dir, List<T> descriptions, Class<T> cls) {
+    private static DescriptionCatalog openCatalog(
+            Path dir, @Nullable String compatibleIdsKey, @Nullable Path indexDirectory, String name) {
         Expect.notNull(dir, "dir");
-        Expect.notNull(descriptions, "descriptions");
         Expect.isTrue(Files.isDirectory(dir), "dir", String.format("%s is not a directory", dir));
 
-        List<Path> files;
-        try (var stream = Files.walk(dir, 1)) {
-            files =
-                stream.skip(1)
-                    .filter(f -> Files.isRegularFile(f) && f.toString().toLowerCase().endsWith(DESCRIPTION_FILE_EXT))
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            files = new ArrayList<>();
+        return DescriptionCatalog.open(
+            dir, compatibleIdsKey, indexDirectory != null ? indexDirectory.resolve(name + ".index.json") : null);
+    }
+
+    /**
+     * Deserializes a description the first time it is requested. All later requests share the same instance, so
+     * descriptions must not be modified by their users.
+     */
+    private <T> @Nullable T getDescription(
+            DescriptionCatalog catalog, Map<String, T> cache, @Nullable String id, Class<T> cls) {
+        if (id == null) {
+            return null;
         }
 
-        for (Path file : files) {
-            try (InputStream stream = new FileInputStream(file.toFile());
-                Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
-                final T description = gson.fromJson(reader, cls);
-                descriptions.add(description);
-            } catch (Exception e) {
+        T description = cache.get(id);
+        if (description != null) {
+            return description;
+        }
+
+        DescriptionCatalog.Entry entry = catalog.getEntry(id);
+        if (entry == null) {
+            return null;
+        }
+
+        Path file = catalog.getFile(entry);
+        if (unreadableFiles.contains(file)) {
+            return null;
+        }
+
+        try (InputStream stream = new FileInputStream(file.toFile());
+            Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            description = gson.fromJson(reader, cls);
+        } catch (Exception e) {
+            // the file is only reported once, all lookups of its id return null from now on
+            if (unreadableFiles.add(file)) {
                 LOGGER.error(e.getMessage() + " [" + file + "]");
             }
+
+            return null;
+        }
+
+        T existing = cache.putIfAbsent(id, description);
+        return existing != null ? existing : description;
+    }
+
+    private static <T> List<T> getAllDescriptions(DescriptionCatalog catalog, Function<String, T> lookup) {
+        List<T> descriptions = new ArrayList<>();
+        for (String id : catalog.getIds()) {
+            T description = lookup.apply(id);
+            if (description != null) {
+                descriptions.add(description);
+            }
         }
+
+        return descriptions;
     }
 
     @Override
     public List<IPlatformDescription> getPlatformDescriptions() {
-        return new ArrayList<>(platformDescriptions);
+        return getAllDescriptions(platformCatalog, this::getPlatformDescription);
     }
 
     @Override
     public List<IGenericCameraDescription> getCameraDescriptions() {
-        return new ArrayList<>(camerasDescriptions);
+        return getAllDescriptions(cameraCatalog, this::getCameraDescription);
     }
 
     @Override
     public List<ILensDescription> getLensDescriptions() {
-        return new ArrayList<>(lensDescriptions);
+        return getAllDescriptions(lensCatalog, this::getLensDescription);
+    }
+
+    @Override
+    public @Nullable IPlatformDescription getPlatformDescription(String id) {
+        return getDescription(platformCatalog, platformDescriptions, id, PlatformDescription.class);
+    }
+
+    @Override
+    public @Nullable IPlatformDescription getPlatformDescription(AirplaneType airplaneType) {
+        return getDescription(
+            platformCatalog,
+            platformDescriptions,
+            platformCatalog.findIdByAirplaneType(airplaneType.name()),
+            PlatformDescription.class);
+    }
+
+    @Override
+    public @Nullable IGenericCameraDescription getCameraDescription(String id) {
+        return getDescription(cameraCatalog, cameraDescriptions, id, GenericCameraDescription.class);
+    }
+
+    @Override
+    public @Nullable ILensDescription getLensDescription(String id) {
+        return getDescription(lensCatalog, lensDescriptions, id, LensDescription.class);
+    }
+
+    @Override
+    public List<String> getCameraIds() {
+        return cameraCatalog.getIds();
+    }
+
+    @Override
+    public List<String> getLensIds() {
+        return lensCatalog.getIds();
+    }
+
+    @Override
+    public List<String> getPlatformIdsCompatibleWithCamera(String cameraId) {
+        return platformCatalog.findIdsCompatibleWith(cameraId);
     }
 }
@@ -10,10 +10,13 @@ import com.google.inject.Inject;
 import eu.mavinci.core.licence.ILicenceManager;
 import eu.mavinci.core.licence.Licence;
 import eu.mavinci.core.plane.AirplaneType;
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class HardwareConfigurationManager implements IHardwareConfigurationManager {
@@ -30,29 +33,31 @@ public class HardwareConfigurationManager implements IHardwareConfigurationManag
     private static final String DEFAULT_GRAYHAWK_LENS_ID = "GrayHawk-imx183-16mm";
     private static final String DEFAULT_GRAYHAWK_PLATFORM = "GrayHawk";
 
-    private final List<IPlatformDescription> platformDescriptions = new ArrayList<>();
-    private final List<IGenericCameraDescription> cameraDescriptions = new ArrayList<>();
-    private final List<ILensDescription> lensDescriptions = new ArrayList<>();
-
+    private final IDescriptionProvider descriptionProvider;
     private final ILicenceManager licenceManager;
 
     @Inject
-    public HardwareConfigurationManager(IDescriptionProvider pathProvider, ILicenceManager licenceManager) {
-        platformDescriptions.clear();
-        platformDescriptions.addAll(pathProvider.getPlatformDescriptions());
-        cameraDescriptions.clear();
-        cameraDescriptions.addAll(pathProvider.getCameraDescriptions());
-        lensDescriptions.clear();
-        lensDescriptions.addAll(pathProvider.getLensDescriptions());
+    public HardwareConfigurationManager(IDescriptionProvider descriptionProvider, ILicenceManager licenceManager) {
+        this.descriptionProvider = descriptionProvider;
         this.licenceManager = licenceManager;
     }
 
-    private <T, V> T findDescriptionInList(List<T> descriptions, Function<T, V> attributeExtractor, V attribute) {
-        return descriptions
-            .stream()
-            .filter(description -> Objects.equals(attributeExtractor.apply(description), attribute))
-            .findFirst()
-            .orElseThrow(() -> new DescriptionNotFoundException("attribute:" + attribute));
+    private static <T, V> T requireDescription(@Nullable T description, V attribute) {
+        if (description == null) {
+            throw new DescriptionNotFoundException("attribute:" + attribute);
+        }
+
+        return description;
+    }
+
+    private <T> T[] resolveIds(List<String> ids, Function<String, T> lookup, IntFunction<T[]> arrayFactory) {
+        return ids.stream().map(lookup).filter(Objects::nonNull).toArray(arrayFactory);
+    }
+
+    /** keeps the order of the description files, which is the order the descriptions are offered in */
+    private static List<String> inCatalogOrder(List<String> catalogIds, List<String> ids) {
+        Set<String> selected = new HashSet<>(ids);
+        return catalogIds.stream().filter(selected::contains).collect(Collectors.toList());
     }
 
     @Override
@@ -109,36 +114,36 @@ public class HardwareConfigurationManager implements IHardwareConfigurationManag
 
     @Override
     public IGenericCameraDescription[] getCameras() {
-        return cameraDescriptions.toArray(new IGenericCameraDescription[0]);
+        return descriptionProvider.getCameraDescriptions().toArray(new IGenericCameraDescription[0]);
     }
 
     @Override
     public ILensDescription[] getLenses() {
-        return lensDescriptions.toArray(new ILensDescription[0]);
+        return descriptionProvider.getLensDescriptions().toArray(new ILensDescription[0]);
     }
 
     @Override
     public IPlatformDescription[] getPlatforms() {
-        return platformDescriptions.toArray(new IPlatformDescription[0]);
+        return descriptionProvider.getPlatformDescriptions().toArray(new IPlatformDescription[0]);
     }
 
     public IPlatformDescription getPlatformDescription(AirplaneType airplaneType) throws DescriptionNotFoundException {
-        return findDescriptionInList(platformDescriptions, IPlatformDescription::getAirplaneType, airplaneType);
+        return requireDescription(descriptionProvider.getPlatformDescription(airplaneType), airplaneType);
     }
 
     @Override
     public IPlatformDescription getPlatformDescription(String platformId) throws DescriptionNotFoundException {
-        return findDescriptionInList(platformDescriptions, IPlatformDescription::getId, platformId);
+        return requireDescription(descriptionProvider.getPlatformDescription(platformId), platformId);
     }
 
     @Override
     public IGenericCameraDescription getCameraDescription(String id) {
-        return findDescriptionInList(cameraDescriptions, IGenericCameraDescription::getId, id);
+        return requireDescription(descriptionProvider.getCameraDescription(id), id);
     }
 
     @Override
     public ILensDescription getLensDescription(String id) {
-        return findDescriptionInList(lensDescriptions, ILensDescription::getId, id);
+        return requireDescription(descriptionProvider.getLensDescription(id), id);
     }
 
     public IPlatformDescription[] getCompatiblePlatforms(@Nullable IGenericCameraDescription camera) {
@@ -146,10 +151,10 @@ public class HardwareConfigurationManager implements IHardwareConfigurationManag
             return new IPlatformDescription[0];
         }
 
-        return platformDescriptions
-            .stream()
-            .filter(platform -> platform.getCompatibleCameraIds().contains(camera.getId()))
-            .toArray(IPlatformDescription[]::new);
+        return resolveIds(
+            descriptionProvider.getPlatformIdsCompatibleWithCamera(camera.getId()),
+            descriptionProvider::getPlatformDescription,
+            IPlatformDescription[]::new);
     }
 
     @Override
@@ -158,10 +163,10 @@ public class HardwareConfigurationManager implements IHardwareConfigurationManag
             return new IGenericCameraDescription[0];
         }
 
-        return cameraDescriptions
-            .stream()
-            .filter(camera -> platform.getCompatibleCameraIds().contains(camera.getId()))
-            .toArray(IGenericCameraDescription[]::new);
+        return resolveIds(
+            inCatalogOrder(descriptionProvider.getCameraIds(), platform.getCompatibleCameraIds()),
+            descriptionProvider::getCameraDescription,
+            IGenericCameraDescription[]::new);
     }
 
     public IGenericCameraDescription getFirstCompatibleCameraOrDefault(@Nullable IPlatformDescription platform) {
@@ -211,10 +216,10 @@ public class HardwareConfigurationManager implements IHardwareConfigurationManag
             return new ILensDescription[0];
         }
 
-        return lensDescriptions
-            .stream()
-            .filter(lens -> camera.getCompatibleLensIds().contains(lens.getId()))
-            .toArray(ILensDescription[]::new);
+        return resolveIds(
+            inCatalogOrder(descriptionProvider.getLensIds(), camera.getCompatibleLensIds()),
+            descriptionProvider::getLensDescription,
+            ILensDescription[]::new);
     }
 
 }
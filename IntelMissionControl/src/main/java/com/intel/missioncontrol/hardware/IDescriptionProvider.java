@@ -6,7 +6,9 @@
 
 package com.intel.missioncontrol.hardware;
 
+import eu.mavinci.core.plane.AirplaneType;
 import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public interface IDescriptionProvider {
 
@@ -16,4 +18,25 @@ public interface IDescriptionProvider {
 
     List<ILensDescription> getLensDescriptions();
 
+    @Nullable
+    IPlatformDescription getPlatformDescription(String id);
+
+    @Nullable
+    IPlatformDescription getPlatformDescription(AirplaneType airplaneType);
+
+    @Nullable
+    IGenericCameraDescription getCameraDescription(String id);
+
+    @Nullable
+    ILensDescription getLensDescription(String id);
+
+    /** Returns the ids of all cameras in the order of {@link #getCameraDescriptions()}, without loading them. */
+    List<String> getCameraIds();
+
+    /** Returns the ids of all lenses in the order of {@link #getLensDescriptions()}, without loading them. */
+    List<String> getLensIds();
+
+    /** Returns the ids of all platforms listing the camera as compatible, without loading other descriptions. */
+    List<String> getPlatformIdsCompatibleWithCamera(String cameraId);
+
 }
@@ -333,6 +333,7 @@ public class LiveVideoService implements ILiveVideoService {
                             getSettings.getHeight(),
                             getSettings.getFormat()
                     );
+                    stream.frameDecoded();
                 }
             }
         }
@@ -10,16 +10,30 @@ import com.intel.missioncontrol.drone.IVideoStream;
 import com.intel.missioncontrol.ui.livevideo.IUILiveVideoStream;
 import com.sun.jna.Memory;
 import com.sun.jna.Pointer;
-import java.nio.ByteBuffer;
+import eu.mavinci.desktop.main.debug.profiling.metrics.Counter;
+import eu.mavinci.desktop.main.debug.profiling.metrics.LatencyHistogram;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javafx.application.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A live video stream decoded by {@link LiveVideoService}. Decoded frames are exchanged with the UI through a
+ * {@link TripleBuffer} of preallocated frames: the decoder never waits for the UI, the UI always shows the latest
+ * frame, and frames the UI didn't get to in time are dropped. At most one frame hand-off is queued on the FX thread at
+ * any time, regardless of the frame rate and the number of listeners.
+ */
 public class LiveVideoStream implements IUILiveVideoStream {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LiveVideoStream.class);
+    private static final Counter droppedFramesCounter =
+        MetricsRegistry.getDefault().counter("liveVideo.droppedFrames");
+    private static final LatencyHistogram frameLatencyHistogram =
+        MetricsRegistry.getDefault().histogram("liveVideo.frameLatency");
 
     private final Set<IUILiveVideoStreamListener> handlerList = new HashSet<>();
     private String description;
@@ -36,7 +50,11 @@ public class LiveVideoStream implements IUILiveVideoStream {
     private long lastNewDataTimestamp = 0;
     private long lastActivateTimestamp = 0;
 
-    private ImageFrame lastFrame = null;
+    private volatile ImageFrame lastFrame = null;
+    private volatile ImageFrame.Event lastEvent = null;
+    private final AtomicBoolean frameDeliveryPending = new AtomicBoolean();
+    private final AtomicLong decodedFrameCount = new AtomicLong();
+    private final AtomicLong droppedFrameCount = new AtomicLong();
 
     private final IVideoStream videoStream;
 
@@ -69,21 +87,35 @@ public class LiveVideoStream implements IUILiveVideoStream {
         }
     }
 
+    /** A preallocated frame the decoder writes into. */
+    static class FrameBuffer {
+        final Memory memory;
+        final ImageFrame frame;
+        long decodedNanos;
+
+        FrameBuffer(int width, int height) {
+            memory = new Memory(width * height * 4).align(4);
+            frame =
+                new ImageFrame(memory.getByteBuffer(0, width * height * 4), width, height, ImageFrame.Event.NEW_DATA);
+        }
+    }
+
     public class GetSettings {
-        private Memory buffer;
+        private final TripleBuffer<FrameBuffer> frames;
         private int width;
         private int height;
         private int format;
 
         GetSettings(int width, int height) {
-            this.buffer = new Memory(width * height * 4).align(4);
+            this.frames = new TripleBuffer<>(() -> new FrameBuffer(width, height));
             this.width = width;
             this.height = height;
             this.format = MinAvProtobuf.PixelFormat.BGRA_VALUE;
         }
 
+        /** Returns the memory the next frame is decoded into. */
         public Memory getMemory() {
-            return buffer;
+            return frames.getBackBuffer().memory;
         }
 
         public int getWidth() {
@@ -97,13 +129,9 @@ public class LiveVideoStream implements IUILiveVideoStream {
         public int getFormat() {
             return format;
         }
-
-        private ByteBuffer getByteBuffer() {
-            return buffer.getByteBuffer(0, width * height * 4);
-        }
     }
 
-    private GetSettings getSettings = null;
+    private volatile GetSettings getSettings = null;
 
     public void setDescription(String description) {
         this.description = description;
@@ -228,9 +256,27 @@ public class LiveVideoStream implements IUILiveVideoStream {
     }
 
     public void setActive(Boolean active) {
+        if (this.active && !active) {
+            LOGGER.info(
+                "MinAv: {} decoded {} frames, dropped {}",
+                description,
+                decodedFrameCount.get(),
+                droppedFrameCount.get());
+        }
+
         this.active = active;
     }
 
+    /** Returns the number of frames decoded since the stream was created. */
+    public long getDecodedFrameCount() {
+        return decodedFrameCount.get();
+    }
+
+    /** Returns the number of decoded frames that were replaced by a newer frame before the UI could show them. */
+    public long getDroppedFrameCount() {
+        return droppedFrameCount.get();
+    }
+
     boolean stateUpdate(MinAvProtobuf.StateDescription desc) {
         LOGGER.info(
             "MinAv: received state update: "
@@ -247,10 +293,11 @@ public class LiveVideoStream implements IUILiveVideoStream {
         return false;
     }
 
-    private void updateHandlers() {
+    private void updateHandlers(ImageFrame frame) {
+        lastFrame = frame;
         synchronized (handlerList) {
             for (IUILiveVideoStreamListener handler : handlerList) {
-                Platform.runLater(() -> handler.updateFrame(lastFrame));
+                handler.updateFrame(frame);
             }
         }
     }
@@ -260,23 +307,46 @@ public class LiveVideoStream implements IUILiveVideoStream {
     }
 
     boolean newData() {
-        ByteBuffer pixelBuffer = getSettings.getByteBuffer();
-        lastFrame =
-            new ImageFrame(pixelBuffer, getSettings.getWidth(), getSettings.getHeight(), ImageFrame.Event.NEW_DATA);
         lastNewDataTimestamp = System.currentTimeMillis();
-        updateHandlers();
-
         return true;
     }
 
+    /** Called on the decoder thread after a frame was decoded into {@link GetSettings#getMemory()}. */
+    void frameDecoded() {
+        TripleBuffer<FrameBuffer> frames = getSettings.frames;
+        frames.getBackBuffer().decodedNanos = System.nanoTime();
+        decodedFrameCount.incrementAndGet();
+        lastEvent = ImageFrame.Event.NEW_DATA;
+        if (frames.publish()) {
+            droppedFrameCount.incrementAndGet();
+            droppedFramesCounter.increment();
+        }
+
+        if (frameDeliveryPending.compareAndSet(false, true)) {
+            Platform.runLater(this::deliverFrame);
+        }
+    }
+
+    private void deliverFrame() {
+        // clear the flag first, so a frame published while the handlers run gets its own hand-off
+        frameDeliveryPending.set(false);
+        GetSettings settings = getSettings;
+        FrameBuffer frameBuffer = settings != null ? settings.frames.acquire() : null;
+        if (frameBuffer == null) {
+            return;
+        }
+
+        updateHandlers(frameBuffer.frame);
+        frameLatencyHistogram.recordSince(frameBuffer.decodedNanos);
+    }
+
     private void notifyImageFrameEvent(ImageFrame.Event event) {
         // we'll only notify if event changes
-        if (lastFrame != null && lastFrame.event == event) return;
-
-        if (lastFrame == null) lastFrame = new ImageFrame(null, 0, 0, event);
-        else lastFrame.event = event;
+        if (lastEvent == event) return;
 
-        updateHandlers();
+        lastEvent = event;
+        ImageFrame frame = new ImageFrame(null, 0, 0, event);
+        Platform.runLater(() -> updateHandlers(frame));
     }
 
     @Override
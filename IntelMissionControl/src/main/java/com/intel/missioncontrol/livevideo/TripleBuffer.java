@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.livevideo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free exchange of preallocated buffers between one producer thread and one consumer thread, with latest-frame-
+ * wins semantics.
+ *
+ * <p>The producer fills the back buffer and publishes it, the consumer acquires the most recently published buffer as
+ * its front buffer. A third buffer sits in between, so neither side ever waits for the other or touches a buffer the
+ * other side is using. If the producer publishes again before the consumer acquired the previous buffer, the previous
+ * buffer is dropped and reused.
+ */
+public final class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH = 0b100;
+
+    private final Object[] buffers = new Object[3];
+
+    // index of the buffer between producer and consumer, plus a flag whether it was published but not yet acquired
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private int back = 0;
+    private int front = 2;
+
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = factory.get();
+        }
+    }
+
+    /** Returns the buffer the producer may write into. Must only be called by the producer. */
+    public T getBackBuffer() {
+        return get(back);
+    }
+
+    /**
+     * Makes the back buffer available to the consumer and returns a new back buffer. Must only be called by the
+     * producer.
+     *
+     * @return true if the previously published buffer was never acquired and got dropped
+     */
+    public boolean publish() {
+        int previous = middle.getAndSet(back | FRESH);
+        back = previous & INDEX_MASK;
+        publishedCount.incrementAndGet();
+        if ((previous & FRESH) != 0) {
+            droppedCount.incrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Acquires the most recently published buffer, which stays valid until the next successful call. Must only be
+     * called by the consumer.
+     *
+     * @return the new front buffer, or null if nothing was published since the last call
+     */
+    public T acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+
+        int previous = middle.getAndSet(front);
+        front = previous & INDEX_MASK;
+        acquiredCount.incrementAndGet();
+        return get(front);
+    }
+
+    /** Returns the buffer last acquired by the consumer. Must only be called by the consumer. */
+    public T getFrontBuffer() {
+        return get(front);
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getAcquiredCount() {
+        return acquiredCount.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int index) {
+        return (T)buffers[index];
+    }
+
+}
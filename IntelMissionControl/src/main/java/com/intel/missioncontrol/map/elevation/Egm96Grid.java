@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.elevation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The EGM96 geoid as a raster of 0.25 degree posts holding the offset in centimeters, stored as 16 bit big endian
+ * values starting at 90N/0E. The file is memory-mapped if it is available on disk, otherwise it is read once into a
+ * direct buffer.
+ *
+ * <p>The interpolation replicates {@link gov.nasa.worldwind.util.EGM96#getOffset} operation by operation, so both
+ * yield bit-identical results, but works on primitive degrees and doesn't allocate.
+ */
+public final class Egm96Grid {
+
+    static final int NUM_ROWS = 721;
+    static final int NUM_COLS = 1440;
+    static final double INTERVAL = 0.25;
+
+    private static final int SIZE_BYTES = NUM_ROWS * NUM_COLS * Short.BYTES;
+
+    private final ShortBuffer posts;
+
+    private Egm96Grid(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < SIZE_BYTES) {
+            throw new IOException("EGM96 grid too small: " + buffer.capacity() + " bytes");
+        }
+
+        this.posts = buffer.order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+    }
+
+    /**
+     * Loads the grid from a file, or from a classpath resource if there is no such file.
+     *
+     * @param path file path or resource name, e.g. config/EGM96.dat
+     */
+    public static Egm96Grid load(String path) throws IOException {
+        File file = new File(path);
+        if (file.isFile()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                return new Egm96Grid(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        ClassLoader classLoader = Egm96Grid.class.getClassLoader();
+        try (InputStream in = classLoader.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IOException("EGM96 grid not found: " + path);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SIZE_BYTES);
+            byte[] chunk = new byte[64 * 1024];
+            while (buffer.hasRemaining()) {
+                int read = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+                if (read < 0) {
+                    break;
+                }
+
+                buffer.put(chunk, 0, read);
+            }
+
+            if (buffer.hasRemaining()) {
+                throw new IOException("EGM96 grid truncated: " + buffer.position() + " bytes");
+            }
+
+            buffer.flip();
+            return new Egm96Grid(buffer);
+        }
+    }
+
+    /** Returns the geoid offset in meters at the given position. */
+    public double getOffset(double latitudeDegrees, double longitudeDegrees) {
+        double lat = latitudeDegrees;
+        double lon = longitudeDegrees >= 0 ? longitudeDegrees : longitudeDegrees + 360;
+
+        int topRow = (int)((90 - lat) / INTERVAL);
+        if (lat <= -90) {
+            topRow = NUM_ROWS - 2;
+        }
+
+        int bottomRow = topRow + 1;
+
+        // the grid doesn't repeat the column at 0 longitude, so wrap around for the last interval before 360
+        int leftCol = (int)(lon / INTERVAL);
+        int rightCol = leftCol + 1;
+        if (lon >= 360 - INTERVAL) {
+            leftCol = NUM_COLS - 1;
+            rightCol = 0;
+        }
+
+        double ulOffset = posts.get(topRow * NUM_COLS + leftCol);
+        double llOffset = posts.get(bottomRow * NUM_COLS + leftCol);
+        double lrOffset = posts.get(bottomRow * NUM_COLS + rightCol);
+        double urOffset = posts.get(topRow * NUM_COLS + rightCol);
+
+        double u = (lon - leftCol * INTERVAL) / INTERVAL;
+        double v = ((90 - topRow * INTERVAL) - lat) / INTERVAL;
+
+        double pll = (1.0 - u) * v;
+        double plr = u * v;
+        double pur = u * (1.0 - v);
+        double pul = (1.0 - u) * (1.0 - v);
+
+        double offset = pll * llOffset + plr * lrOffset + pur * urOffset + pul * ulOffset;
+
+        return offset / 100d; // centimeters to meters
+    }
+
+    /**
+     * Computes the geoid offsets of many positions at once.
+     *
+     * @param offsets receives the offset in meters of each position, must be at least as long as the input arrays
+     */
+    public void getOffsets(double[] latitudesDegrees, double[] longitudesDegrees, double[] offsets) {
+        if (latitudesDegrees.length != longitudesDegrees.length) {
+            throw new IllegalArgumentException("latitude and longitude arrays differ in length");
+        }
+
+        if (offsets.length < latitudesDegrees.length) {
+            throw new IllegalArgumentException("offsets array too short");
+        }
+
+        for (int i = 0; i < latitudesDegrees.length; i++) {
+            offsets[i] = getOffset(latitudesDegrees[i], longitudesDegrees[i]);
+        }
+    }
+
+}
@@ -7,15 +7,14 @@
 package com.intel.missioncontrol.map.elevation;
 
 import gov.nasa.worldwind.geom.LatLon;
-import gov.nasa.worldwind.util.EGM96;
 
 public class EgmModel implements IEgmModel {
 
-    private final EGM96 egm96;
+    private final Egm96Grid grid;
 
     public EgmModel() {
         try {
-            egm96 = new EGM96("config/EGM96.dat");
+            grid = Egm96Grid.load("config/EGM96.dat");
         } catch (Exception e1) {
             throw new RuntimeException("could not load EGM96 geoID", e1);
         }
@@ -23,6 +22,16 @@ public class EgmModel implements IEgmModel {
 
     @Override
     public double getEGM96Offset(LatLon latLon) {
-        return egm96 == null ? 0 : egm96.getOffset(latLon.latitude, latLon.longitude);
+        return grid.getOffset(latLon.latitude.degrees, latLon.longitude.degrees);
+    }
+
+    @Override
+    public double getEGM96Offset(double latitudeDegrees, double longitudeDegrees) {
+        return grid.getOffset(latitudeDegrees, longitudeDegrees);
+    }
+
+    @Override
+    public void getEGM96Offsets(double[] latitudesDegrees, double[] longitudesDegrees, double[] offsets) {
+        grid.getOffsets(latitudesDegrees, longitudesDegrees, offsets);
     }
 }
@@ -7,7 +7,6 @@
 package com.intel.missioncontrol.map.elevation;
 
 import gov.nasa.worldwind.geom.Angle;
-import gov.nasa.worldwind.geom.LatLon;
 import gov.nasa.worldwind.geom.Sector;
 import gov.nasa.worldwind.globes.ElevationModel;
 
@@ -26,7 +25,7 @@ public class ElevationModelShiftWrapperEGM extends AElevationModelWrapper {
             return slaveAlt;
         }
 
-        return egm.getEGM96Offset(new LatLon(latitude, longitude)) + slaveAlt;
+        return egm.getEGM96Offset(latitude.degrees, longitude.degrees) + slaveAlt;
     }
 
     @Override
@@ -11,4 +11,9 @@ import gov.nasa.worldwind.geom.LatLon;
 public interface IEgmModel {
 
     double getEGM96Offset(LatLon latLon);
+
+    double getEGM96Offset(double latitudeDegrees, double longitudeDegrees);
+
+    /** Fills offsets with the geoid offset of each position given by the latitude and longitude arrays. */
+    void getEGM96Offsets(double[] latitudesDegrees, double[] longitudesDegrees, double[] offsets);
 }
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.kml;
+
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.layers.AbstractLayer;
+import gov.nasa.worldwind.layers.Layer;
+import gov.nasa.worldwind.render.DrawContext;
+import java.awt.Point;
+
+/**
+ * Placeholder for a layer that is still being imported in the background. It draws nothing until the imported layer is
+ * handed over, and draws that layer afterwards. Opacity and picking set on the placeholder are passed on.
+ */
+final class DeferredLayer extends AbstractLayer {
+
+    private volatile Layer delegate;
+    private boolean disposed;
+
+    synchronized void setDelegate(Layer delegate) {
+        // the placeholder may have been removed while the import was running
+        if (disposed) {
+            delegate.dispose();
+            return;
+        }
+
+        delegate.setOpacity(getOpacity());
+        delegate.setPickEnabled(isPickEnabled());
+        this.delegate = delegate;
+        firePropertyChange(AVKey.LAYER, null, this);
+    }
+
+    @Override
+    public void setOpacity(double opacity) {
+        super.setOpacity(opacity);
+        Layer delegate = this.delegate;
+        if (delegate != null) {
+            delegate.setOpacity(opacity);
+        }
+    }
+
+    @Override
+    public void setPickEnabled(boolean pickable) {
+        super.setPickEnabled(pickable);
+        Layer delegate = this.delegate;
+        if (delegate != null) {
+            delegate.setPickEnabled(pickable);
+        }
+    }
+
+    @Override
+    protected void doPreRender(DrawContext dc) {
+        Layer delegate = this.delegate;
+        if (delegate != null) {
+            delegate.preRender(dc);
+        }
+    }
+
+    @Override
+    protected void doRender(DrawContext dc) {
+        Layer delegate = this.delegate;
+        if (delegate != null) {
+            delegate.render(dc);
+        }
+    }
+
+    @Override
+    protected void doPick(DrawContext dc, Point point) {
+        Layer delegate = this.delegate;
+        if (delegate != null) {
+            delegate.pick(dc, point);
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        disposed = true;
+        Layer delegate = this.delegate;
+        if (delegate != null) {
+            delegate.dispose();
+        }
+
+        super.dispose();
+    }
+
+}
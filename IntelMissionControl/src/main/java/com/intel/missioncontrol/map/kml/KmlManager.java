@@ -8,21 +8,20 @@ package com.intel.missioncontrol.map.kml;
 
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import com.intel.missioncontrol.common.IPathProvider;
 import com.intel.missioncontrol.map.ILayer;
 import com.intel.missioncontrol.map.LayerName;
 import com.intel.missioncontrol.map.worldwind.KmlLayerWrapper;
 import com.intel.missioncontrol.modules.MapModule;
 import com.intel.missioncontrol.settings.ISettingsManager;
+import com.intel.missioncontrol.settings.KmlSettings;
 import com.intel.missioncontrol.settings.KmlsSettings;
-import gov.nasa.worldwind.formats.shapefile.Shapefile;
-import gov.nasa.worldwind.geom.Sector;
 import gov.nasa.worldwind.layers.Layer;
 import gov.nasa.worldwind.layers.RenderableLayer;
 import gov.nasa.worldwind.ogc.kml.KMLRoot;
 import gov.nasa.worldwind.ogc.kml.impl.KMLController;
 import gov.nasa.worldwind.util.Logging;
 import gov.nasa.worldwindx.examples.util.OpenStreetMapShapefileLoader;
-import gov.nasa.worldwindx.examples.util.ShapefileLoader;
 import java.io.File;
 import org.asyncfx.beans.property.PropertyHelper;
 import org.asyncfx.beans.property.PropertyMetadata;
@@ -36,6 +35,7 @@ import org.slf4j.LoggerFactory;
 public class KmlManager implements IKmlManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KmlManager.class);
+    private static final String SHAPE_CACHE_DIR = "shapes";
 
     private final SimpleAsyncListProperty<ILayer> layers =
         new SimpleAsyncListProperty<>(
@@ -44,59 +44,30 @@ public class KmlManager implements IKmlManager {
                 .initialValue(FXAsyncCollections.observableArrayList())
                 .create());
 
+    private final ShapefileImporter shapefileImporter;
+
     @Inject
-    public KmlManager(ISettingsManager settingsManager, @Named(MapModule.DISPATCHER) Dispatcher dispatcher) {
+    public KmlManager(
+            ISettingsManager settingsManager,
+            IPathProvider pathProvider,
+            @Named(MapModule.DISPATCHER) Dispatcher dispatcher) {
+        shapefileImporter = new ShapefileImporter(pathProvider.getCacheDirectory().resolve(SHAPE_CACHE_DIR));
         layers.overrideMetadata(
             new PropertyMetadata.Builder<AsyncObservableList<ILayer>>().dispatcher(dispatcher).create());
 
         layers.bindContent(
             settingsManager.getSection(KmlsSettings.class).kmlsProperty(),
             kmlSettings -> {
-                Layer layer = null;
                 String resource = kmlSettings.resourceProperty().get();
                 if (resource == null) {
                     return null;
                 }
 
-                try {
-                    switch (kmlSettings.typeProperty().get()) {
-                    case KML:
-                        layer = new RenderableLayer();
-                        RenderableLayer rRayer = (RenderableLayer)layer;
-                        KMLRoot kmlRoot = KMLRoot.create(resource);
-
-                        if (kmlRoot == null) {
-                            String message =
-                                Logging.getMessage("generic.UnrecognizedSourceTypeOrUnavailableSource", resource);
-                            throw new IllegalArgumentException(message);
-                        }
-
-                        kmlRoot.parse();
-                        KMLController kmlController = new KMLController(kmlRoot);
-                        rRayer.addRenderable(kmlController);
-                        break;
-
-                    case SHP:
-                        if (OpenStreetMapShapefileLoader.isOSMPlacesSource(resource)) {
-                            layer = OpenStreetMapShapefileLoader.makeLayerFromOSMPlacesSource(resource);
-                        } else {
-                            try (Shapefile shp = new Shapefile(resource)) {
-                                ShapefileLoader loader = new ShapefileLoader();
-                                layer = loader.createLayerFromShapefile(shp);
-
-                                // TODO MAPDEVELOP make this sector avaliable for flyTo actions
-                                Sector sector = Sector.fromDegrees(shp.getBoundingRectangle());
-                            }
-                        }
-
-                        break;
-                    }
-                } catch (Exception e) {
-                    LOGGER.error("cant load KML/SHP: " + kmlSettings, e);
-
-                    // just provide an empty layer as return
-                    layer = new RenderableLayer();
-                }
+                // the layer shows up right away and gets its content when the import is done
+                DeferredLayer layer = new DeferredLayer();
+                Dispatcher.background()
+                    .getLaterAsync(() -> importLayer(kmlSettings, resource))
+                    .whenSucceeded(layer::setDelegate);
 
                 ILayer wwLayerWrapper = new KmlLayerWrapper(layer, dispatcher, kmlSettings);
                 wwLayerWrapper.enabledProperty().bindBidirectional(kmlSettings.enabledProperty());
@@ -105,6 +76,38 @@ public class KmlManager implements IKmlManager {
             });
     }
 
+    private Layer importLayer(KmlSettings kmlSettings, String resource) {
+        try {
+            switch (kmlSettings.typeProperty().get()) {
+            case KML:
+                RenderableLayer layer = new RenderableLayer();
+                KMLRoot kmlRoot = KMLRoot.create(resource);
+
+                if (kmlRoot == null) {
+                    String message = Logging.getMessage("generic.UnrecognizedSourceTypeOrUnavailableSource", resource);
+                    throw new IllegalArgumentException(message);
+                }
+
+                kmlRoot.parse();
+                KMLController kmlController = new KMLController(kmlRoot);
+                layer.addRenderable(kmlController);
+                return layer;
+
+            case SHP:
+                if (OpenStreetMapShapefileLoader.isOSMPlacesSource(resource)) {
+                    return OpenStreetMapShapefileLoader.makeLayerFromOSMPlacesSource(resource);
+                }
+
+                return shapefileImporter.createLayer(new File(resource));
+            }
+        } catch (Exception e) {
+            LOGGER.error("cant load KML/SHP: " + kmlSettings, e);
+        }
+
+        // just provide an empty layer as return
+        return new RenderableLayer();
+    }
+
     @Override
     public AsyncObservableList<ILayer> imageryLayersProperty() {
         return layers;
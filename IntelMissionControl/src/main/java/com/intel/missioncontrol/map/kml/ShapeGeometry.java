@@ -0,0 +1,411 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.kml;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The geometry of an imported shapefile in several levels of detail, stored in a few int arrays per level.
+ *
+ * <p>Level 0 holds all points, every further level is simplified with the Douglas-Peucker algorithm using a ten times
+ * larger tolerance. Coordinates are fixed point longitude and latitude in units of 1e-7 degrees, which is about one
+ * centimeter. The geometry is written to the import cache as varint encoded deltas, so it takes a fraction of the size
+ * of the shapefile.
+ */
+final class ShapeGeometry {
+
+    enum Type {
+        POINT,
+        POLYLINE,
+        POLYGON
+    }
+
+    /** The simplification tolerance of every level in degrees. */
+    static final double[] LEVEL_TOLERANCES = {0, 1e-5, 1e-4, 1e-3};
+
+    /** The eye altitude in meters at which a tolerance of one degree is about the size of a pixel. */
+    private static final double ALTITUDE_PER_DEGREE_OF_TOLERANCE = 1e8;
+
+    private static final double UNITS_PER_DEGREE = 1e7;
+
+    /** The parts of the records of one level of detail. */
+    static final class Level {
+        /** Index of the first part of every record, followed by the total number of parts. */
+        final int[] recordStarts;
+
+        /** Index of the first point of every part, followed by the total number of points. */
+        final int[] partStarts;
+
+        /** Longitude and latitude of every point in units of 1e-7 degrees. */
+        final int[] coordinates;
+
+        Level(int[] recordStarts, int[] partStarts, int[] coordinates) {
+            this.recordStarts = recordStarts;
+            this.partStarts = partStarts;
+            this.coordinates = coordinates;
+        }
+
+        int getRecordCount() {
+            return recordStarts.length - 1;
+        }
+
+        int getPartCount() {
+            return partStarts.length - 1;
+        }
+
+        int getPointCount() {
+            return coordinates.length / 2;
+        }
+
+        double getLongitude(int point) {
+            return coordinates[2 * point] / UNITS_PER_DEGREE;
+        }
+
+        double getLatitude(int point) {
+            return coordinates[2 * point + 1] / UNITS_PER_DEGREE;
+        }
+
+        /** Twice the signed area of a ring in square degrees, negative for the clockwise outer rings of shapefiles. */
+        double getSignedArea(int part) {
+            double area = 0;
+            for (int i = partStarts[part]; i < partStarts[part + 1] - 1; i++) {
+                area +=
+                    (double)coordinates[2 * i] * coordinates[2 * i + 3]
+                        - (double)coordinates[2 * i + 2] * coordinates[2 * i + 1];
+            }
+
+            return area / (UNITS_PER_DEGREE * UNITS_PER_DEGREE);
+        }
+    }
+
+    /** Collects the records of a shapefile in full detail. */
+    static final class Builder {
+
+        private final Type type;
+        private int[] recordStarts = new int[16];
+        private int[] partStarts = new int[16];
+        private double[] coordinates = new double[256];
+        private int recordCount;
+        private int partCount;
+        private int pointCount;
+
+        Builder(Type type) {
+            this.type = type;
+        }
+
+        void beginRecord() {
+            recordStarts = ensureCapacity(recordStarts, recordCount + 1);
+            recordStarts[recordCount++] = partCount;
+        }
+
+        /** Adds a part to the current record, the coordinates are longitude and latitude in degrees. */
+        void addPart(double[] lonLat, int count) {
+            partStarts = ensureCapacity(partStarts, partCount + 1);
+            partStarts[partCount++] = pointCount;
+            if (coordinates.length < 2 * (pointCount + count)) {
+                coordinates = Arrays.copyOf(coordinates, Math.max(2 * coordinates.length, 2 * (pointCount + count)));
+            }
+
+            System.arraycopy(lonLat, 0, coordinates, 2 * pointCount, 2 * count);
+            pointCount += count;
+        }
+
+        ShapeGeometry build() {
+            Level[] levels = new Level[type == Type.POINT ? 1 : LEVEL_TOLERANCES.length];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = buildLevel(LEVEL_TOLERANCES[i]);
+            }
+
+            return new ShapeGeometry(type, levels);
+        }
+
+        private Level buildLevel(double tolerance) {
+            int[] levelRecordStarts = new int[recordCount + 1];
+            int[] levelPartStarts = new int[partCount + 1];
+            int[] levelCoordinates = new int[2 * pointCount];
+            boolean[] keep = new boolean[pointCount];
+            int levelPartCount = 0;
+            int levelPointCount = 0;
+            for (int record = 0; record < recordCount; record++) {
+                levelRecordStarts[record] = levelPartCount;
+                int recordEnd = record + 1 < recordCount ? recordStarts[record + 1] : partCount;
+                for (int part = recordStarts[record]; part < recordEnd; part++) {
+                    int first = partStarts[part];
+                    int last = (part + 1 < partCount ? partStarts[part + 1] : pointCount) - 1;
+                    if (last < first) {
+                        continue;
+                    }
+
+                    if (type == Type.POINT) {
+                        Arrays.fill(keep, first, last + 1, true);
+                    } else {
+                        Arrays.fill(keep, first, last + 1, false);
+                        simplify(coordinates, first, last, tolerance, keep);
+                    }
+
+                    int partStart = levelPointCount;
+                    int previousX = 0;
+                    int previousY = 0;
+                    for (int i = first; i <= last; i++) {
+                        if (!keep[i]) {
+                            continue;
+                        }
+
+                        int x = (int)Math.round(coordinates[2 * i] * UNITS_PER_DEGREE);
+                        int y = (int)Math.round(coordinates[2 * i + 1] * UNITS_PER_DEGREE);
+                        if (levelPointCount > partStart && x == previousX && y == previousY && type != Type.POINT) {
+                            continue;
+                        }
+
+                        levelCoordinates[2 * levelPointCount] = x;
+                        levelCoordinates[2 * levelPointCount + 1] = y;
+                        levelPointCount++;
+                        previousX = x;
+                        previousY = y;
+                    }
+
+                    // rings and lines that collapsed below the tolerance can't be seen at this level
+                    int minPoints = type == Type.POLYGON ? 4 : type == Type.POLYLINE ? 2 : 1;
+                    if (tolerance > 0 && levelPointCount - partStart < minPoints) {
+                        levelPointCount = partStart;
+                        continue;
+                    }
+
+                    levelPartStarts[levelPartCount++] = partStart;
+                }
+            }
+
+            levelRecordStarts[recordCount] = levelPartCount;
+            levelPartStarts[levelPartCount] = levelPointCount;
+            return new Level(
+                levelRecordStarts,
+                Arrays.copyOf(levelPartStarts, levelPartCount + 1),
+                Arrays.copyOf(levelCoordinates, 2 * levelPointCount));
+        }
+
+        private static int[] ensureCapacity(int[] array, int size) {
+            return array.length >= size ? array : Arrays.copyOf(array, Math.max(2 * array.length, size));
+        }
+
+    }
+
+    private final Type type;
+    private final Level[] levels;
+
+    private ShapeGeometry(Type type, Level[] levels) {
+        this.type = type;
+        this.levels = levels;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    int getLevelCount() {
+        return levels.length;
+    }
+
+    Level getLevel(int level) {
+        return levels[level];
+    }
+
+    /** The coarsest level whose tolerance stays below about a pixel when looking down from the given altitude. */
+    int getLevelForAltitude(double altitude) {
+        int level = 0;
+        while (level + 1 < levels.length
+                && LEVEL_TOLERANCES[level + 1] * ALTITUDE_PER_DEGREE_OF_TOLERANCE <= altitude) {
+            level++;
+        }
+
+        return level;
+    }
+
+    /**
+     * Marks the points of a line, or of a ring whose first and last point are the same, that are kept by the
+     * Douglas-Peucker simplification with the given tolerance in degrees. The first and last point are always kept.
+     * Longitudes are scaled by the cosine of the latitude, so the tolerance is about the same in both directions.
+     */
+    static void simplify(double[] lonLat, int first, int last, double tolerance, boolean[] keep) {
+        keep[first] = true;
+        keep[last] = true;
+        if (last - first < 2) {
+            return;
+        }
+
+        double lonScale = Math.cos(Math.toRadians(lonLat[2 * first + 1]));
+        double tolerance2 = tolerance * tolerance;
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = first;
+        stack[stackSize++] = last;
+        while (stackSize > 0) {
+            int end = stack[--stackSize];
+            int start = stack[--stackSize];
+            double ax = lonLat[2 * start] * lonScale;
+            double ay = lonLat[2 * start + 1];
+            double dx = lonLat[2 * end] * lonScale - ax;
+            double dy = lonLat[2 * end + 1] - ay;
+            double length2 = dx * dx + dy * dy;
+
+            int farthest = -1;
+            double farthestDistance2 = tolerance2;
+            for (int i = start + 1; i < end; i++) {
+                double px = lonLat[2 * i] * lonScale - ax;
+                double py = lonLat[2 * i + 1] - ay;
+                double t = length2 > 0 ? Math.max(0, Math.min(1, (px * dx + py * dy) / length2)) : 0;
+                double ex = px - t * dx;
+                double ey = py - t * dy;
+                double distance2 = ex * ex + ey * ey;
+                if (distance2 > farthestDistance2) {
+                    farthest = i;
+                    farthestDistance2 = distance2;
+                }
+            }
+
+            if (farthest < 0) {
+                continue;
+            }
+
+            keep[farthest] = true;
+            if (stackSize + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+
+            if (farthest - start >= 2) {
+                stack[stackSize++] = start;
+                stack[stackSize++] = farthest;
+            }
+
+            if (end - farthest >= 2) {
+                stack[stackSize++] = farthest;
+                stack[stackSize++] = end;
+            }
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeByte(levels.length);
+        for (Level level : levels) {
+            VarIntEncoder encoder =
+                new VarIntEncoder(level.getRecordCount() + level.getPartCount() + level.coordinates.length);
+            encoder.put(level.getRecordCount());
+            encoder.put(level.getPartCount());
+            encoder.put(level.getPointCount());
+            for (int record = 0; record < level.getRecordCount(); record++) {
+                encoder.put(level.recordStarts[record + 1] - level.recordStarts[record]);
+            }
+
+            for (int part = 0; part < level.getPartCount(); part++) {
+                encoder.put(level.partStarts[part + 1] - level.partStarts[part]);
+            }
+
+            int x = 0;
+            int y = 0;
+            for (int point = 0; point < level.getPointCount(); point++) {
+                encoder.put(zigZag(level.coordinates[2 * point] - x));
+                encoder.put(zigZag(level.coordinates[2 * point + 1] - y));
+                x = level.coordinates[2 * point];
+                y = level.coordinates[2 * point + 1];
+            }
+
+            // every level is a block of known length, so it can be read in one go and decoded from memory
+            out.writeInt(encoder.size);
+            out.write(encoder.bytes, 0, encoder.size);
+        }
+    }
+
+    static ShapeGeometry read(DataInputStream in) throws IOException {
+        Type type = Type.values()[in.readUnsignedByte()];
+        Level[] levels = new Level[in.readUnsignedByte()];
+        for (int i = 0; i < levels.length; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            VarIntDecoder decoder = new VarIntDecoder(bytes);
+            int[] recordStarts = new int[decoder.get() + 1];
+            int[] partStarts = new int[decoder.get() + 1];
+            int[] coordinates = new int[2 * decoder.get()];
+            for (int record = 1; record < recordStarts.length; record++) {
+                recordStarts[record] = recordStarts[record - 1] + decoder.get();
+            }
+
+            for (int part = 1; part < partStarts.length; part++) {
+                partStarts[part] = partStarts[part - 1] + decoder.get();
+            }
+
+            int x = 0;
+            int y = 0;
+            for (int point = 0; point < coordinates.length / 2; point++) {
+                x += unZigZag(decoder.get());
+                y += unZigZag(decoder.get());
+                coordinates[2 * point] = x;
+                coordinates[2 * point + 1] = y;
+            }
+
+            levels[i] = new Level(recordStarts, partStarts, coordinates);
+        }
+
+        return new ShapeGeometry(type, levels);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Writes ints with 7 bits per byte, the high bit marks that another byte follows. */
+    private static final class VarIntEncoder {
+        byte[] bytes;
+        int size;
+
+        VarIntEncoder(int expectedCount) {
+            bytes = new byte[Math.max(16, 2 * expectedCount)];
+        }
+
+        void put(int value) {
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+            }
+
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            bytes[size++] = (byte)value;
+        }
+    }
+
+    private static final class VarIntDecoder {
+        final byte[] bytes;
+        int position;
+
+        VarIntDecoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int get() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35 && position < bytes.length; shift += 7) {
+                int b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+
+            throw new IOException("Malformed varint in shape cache");
+        }
+    }
+
+}
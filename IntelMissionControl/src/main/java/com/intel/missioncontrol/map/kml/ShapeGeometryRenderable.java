@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.kml;
+
+import gov.nasa.worldwind.WorldWind;
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.render.PointPlacemark;
+import gov.nasa.worldwind.render.PointPlacemarkAttributes;
+import gov.nasa.worldwind.render.PreRenderable;
+import gov.nasa.worldwind.render.Renderable;
+import gov.nasa.worldwind.render.ShapeAttributes;
+import gov.nasa.worldwind.render.SurfacePolygon;
+import gov.nasa.worldwind.render.SurfacePolyline;
+import gov.nasa.worldwindx.examples.util.RandomShapeAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Renders the level of detail of a {@link ShapeGeometry} that fits the current eye altitude. The shapes of a level are
+ * created the first time it is drawn, so levels that are never shown don't cost any memory.
+ *
+ * <p>Like the WorldWind shapefile loader, every shapefile is drawn with the next attributes of a shared palette.
+ */
+final class ShapeGeometryRenderable implements Renderable, PreRenderable {
+
+    private static final RandomShapeAttributes randomAttributes = new RandomShapeAttributes();
+
+    private final ShapeGeometry geometry;
+    private final ShapeAttributes attributes;
+    private final PointPlacemarkAttributes pointAttributes;
+    private final List<List<Renderable>> levels;
+    private List<Renderable> currentLevel = Collections.emptyList();
+
+    ShapeGeometryRenderable(ShapeGeometry geometry) {
+        this.geometry = geometry;
+        this.levels = new ArrayList<>(Collections.nCopies(geometry.getLevelCount(), null));
+        synchronized (randomAttributes) {
+            var next = randomAttributes.nextAttributes();
+            attributes = next.asShapeAttributes();
+            pointAttributes = next.asPointAttributes();
+        }
+    }
+
+    private List<Renderable> createShapes(ShapeGeometry.Level level) {
+        List<Renderable> shapes = new ArrayList<>();
+        for (int record = 0; record < level.getRecordCount(); record++) {
+            SurfacePolygon polygon = null;
+            for (int part = level.recordStarts[record]; part < level.recordStarts[record + 1]; part++) {
+                switch (geometry.getType()) {
+                case POINT:
+                    for (int point = level.partStarts[part]; point < level.partStarts[part + 1]; point++) {
+                        PointPlacemark placemark =
+                            new PointPlacemark(
+                                Position.fromDegrees(level.getLatitude(point), level.getLongitude(point), 0));
+                        placemark.setAltitudeMode(WorldWind.CLAMP_TO_GROUND);
+                        placemark.setAttributes(pointAttributes);
+                        shapes.add(placemark);
+                    }
+
+                    break;
+                case POLYLINE:
+                    shapes.add(new SurfacePolyline(attributes, getLocations(level, part)));
+                    break;
+                case POLYGON:
+                    // outer rings are clockwise, the counterclockwise holes follow the ring they belong to
+                    if (polygon == null || level.getSignedArea(part) <= 0) {
+                        polygon = new SurfacePolygon(attributes, getLocations(level, part));
+                        shapes.add(polygon);
+                    } else {
+                        polygon.addInnerBoundary(getLocations(level, part));
+                    }
+
+                    break;
+                }
+            }
+        }
+
+        return shapes;
+    }
+
+    private static List<LatLon> getLocations(ShapeGeometry.Level level, int part) {
+        List<LatLon> locations = new ArrayList<>(level.partStarts[part + 1] - level.partStarts[part]);
+        for (int point = level.partStarts[part]; point < level.partStarts[part + 1]; point++) {
+            locations.add(LatLon.fromDegrees(level.getLatitude(point), level.getLongitude(point)));
+        }
+
+        return locations;
+    }
+
+    @Override
+    public void preRender(DrawContext dc) {
+        int level = geometry.getLevelForAltitude(dc.getView().getEyePosition().getElevation());
+        if (levels.get(level) == null) {
+            levels.set(level, createShapes(geometry.getLevel(level)));
+        }
+
+        currentLevel = levels.get(level);
+        for (Renderable shape : currentLevel) {
+            if (shape instanceof PreRenderable) {
+                ((PreRenderable)shape).preRender(dc);
+            }
+        }
+    }
+
+    @Override
+    public void render(DrawContext dc) {
+        for (Renderable shape : currentLevel) {
+            shape.render(dc);
+        }
+    }
+
+}
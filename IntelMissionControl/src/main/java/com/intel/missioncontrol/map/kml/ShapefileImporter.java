@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.kml;
+
+import com.intel.missioncontrol.utils.CacheFiles;
+import gov.nasa.worldwind.formats.shapefile.Shapefile;
+import gov.nasa.worldwind.formats.shapefile.ShapefileRecord;
+import gov.nasa.worldwind.layers.RenderableLayer;
+import gov.nasa.worldwind.util.VecBuffer;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports shapefiles into a {@link ShapeGeometry} and keeps the result in a cache directory, so a shapefile is parsed
+ * and simplified only once. A cache file is named after the path of the shapefile and is only used while the size and
+ * the modification time of the shapefile are the same as when it was written.
+ */
+final class ShapefileImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShapefileImporter.class);
+
+    private static final int CACHE_MAGIC = 0x53485043;
+    private static final int CACHE_VERSION = 1;
+
+    private final Path cacheDirectory;
+
+    ShapefileImporter(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    RenderableLayer createLayer(File shapefile) throws IOException {
+        RenderableLayer layer = new RenderableLayer();
+        layer.addRenderable(new ShapeGeometryRenderable(importShapefile(shapefile)));
+        return layer;
+    }
+
+    ShapeGeometry importShapefile(File shapefile) throws IOException {
+        File cacheFile = getCacheFile(shapefile);
+        ShapeGeometry geometry = readCache(cacheFile, shapefile);
+        if (geometry != null) {
+            return geometry;
+        }
+
+        geometry = parse(shapefile);
+        try {
+            writeCache(cacheFile, shapefile, geometry);
+        } catch (IOException e) {
+            LOGGER.warn("cant write shape cache " + cacheFile, e);
+        }
+
+        return geometry;
+    }
+
+    static ShapeGeometry parse(File file) {
+        try (Shapefile shapefile = new Shapefile(file)) {
+            ShapeGeometry.Builder builder = new ShapeGeometry.Builder(getType(shapefile.getShapeType()));
+            double[] point = new double[2];
+            double[] lonLat = new double[256];
+            while (shapefile.hasNext()) {
+                ShapefileRecord record = shapefile.nextRecord();
+                if (record == null || record.isNullRecord()) {
+                    continue;
+                }
+
+                builder.beginRecord();
+                for (int part = 0; part < record.getNumberOfParts(); part++) {
+                    VecBuffer buffer = record.getPointBuffer(part);
+                    int size = buffer.getSize();
+                    if (lonLat.length < 2 * size) {
+                        lonLat = new double[2 * size];
+                    }
+
+                    for (int i = 0; i < size; i++) {
+                        buffer.get(i, point);
+                        lonLat[2 * i] = point[0];
+                        lonLat[2 * i + 1] = point[1];
+                    }
+
+                    builder.addPart(lonLat, size);
+                }
+            }
+
+            return builder.build();
+        }
+    }
+
+    private static ShapeGeometry.Type getType(String shapeType) {
+        if (Shapefile.isPolygonType(shapeType)) {
+            return ShapeGeometry.Type.POLYGON;
+        }
+
+        if (Shapefile.isPolylineType(shapeType)) {
+            return ShapeGeometry.Type.POLYLINE;
+        }
+
+        if (Shapefile.isPointType(shapeType) || Shapefile.isMultiPointType(shapeType)) {
+            return ShapeGeometry.Type.POINT;
+        }
+
+        throw new IllegalArgumentException("Unsupported shape type " + shapeType);
+    }
+
+    private File getCacheFile(File shapefile) {
+        return CacheFiles.resolve(cacheDirectory, shapefile.getAbsolutePath(), ".shapes").toFile();
+    }
+
+    private static @Nullable ShapeGeometry readCache(File cacheFile, File shapefile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in =
+            new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if (in.readInt() != CACHE_MAGIC
+                    || in.readInt() != CACHE_VERSION
+                    || in.readLong() != shapefile.length()
+                    || in.readLong() != shapefile.lastModified()) {
+                return null;
+            }
+
+            return ShapeGeometry.read(in);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("cant read shape cache " + cacheFile, e);
+            return null;
+        }
+    }
+
+    private static void writeCache(File cacheFile, File shapefile, ShapeGeometry geometry) throws IOException {
+        CacheFiles.write(
+            cacheFile.toPath(),
+            out -> {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeLong(shapefile.length());
+                out.writeLong(shapefile.lastModified());
+                geometry.write(out);
+            });
+    }
+
+}
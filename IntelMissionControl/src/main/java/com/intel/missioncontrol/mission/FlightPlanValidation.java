@@ -7,84 +7,81 @@
 package com.intel.missioncontrol.mission;
 
 import com.intel.missioncontrol.StaticInjector;
-import com.intel.missioncontrol.hardware.IPayloadConfiguration;
-import com.intel.missioncontrol.hardware.IPayloadMountConfiguration;
+import com.intel.missioncontrol.hardware.IPayloadDescription;
 import com.intel.missioncontrol.hardware.IPlatformDescription;
 import com.intel.missioncontrol.map.worldwind.IWWGlobes;
 import com.intel.missioncontrol.measure.Unit;
 import eu.mavinci.flightplan.Flightplan;
+import gov.nasa.worldwind.geom.Position;
 import gov.nasa.worldwind.geom.Vec4;
 import gov.nasa.worldwind.globes.Globe;
-import javafx.beans.property.ListProperty;
-import org.asyncfx.concurrent.Dispatcher;
+import java.util.BitSet;
+import java.util.List;
 
 public class FlightPlanValidation {
     private static final Globe globe = StaticInjector.getInstance(IWWGlobes.class).getDefaultGlobe();
 
-    public static boolean validateGimbalPitch(FlightPlan flightplan) {
-        Flightplan fp = flightplan.getLegacyFlightplan();
-
-        boolean ok = true;
+    /**
+     * Returns the indices of the waypoints whose pitch angle is out of the pitch range of any of the given payloads.
+     * Only reads its arguments, so it can be called from any thread.
+     */
+    public static BitSet findGimbalPitchViolations(
+            List<IPayloadDescription> payloadDescriptions, double[] waypointPitches) {
+        BitSet violations = new BitSet(waypointPitches.length);
 
         // Check pitch angle range for all payload mounts
-        for (IPayloadMountConfiguration payloadMountConfig : fp.getHardwareConfiguration().getPayloadMounts()) {
-            for (IPayloadConfiguration payloadConfig : payloadMountConfig.getPayloads()) {
-                var payloadDescription = payloadConfig.getDescription();
-
-                // TODO: clean up hardware description so roll/pitch/yaw angles are consistently defined. Use whole
-                // kinematic chain.
-                double minPitch = payloadDescription.getMinPitch().convertTo(Unit.DEGREE).getValue().doubleValue();
-                double maxPitch = payloadDescription.getMaxPitch().convertTo(Unit.DEGREE).getValue().doubleValue();
-
-                for (WayPoint wp : flightplan.waypointsProperty()) {
-                    double wpPitch = wp.pitchProperty().get().convertTo(Unit.DEGREE).getValue().doubleValue();
-                    if (wpPitch < minPitch || wpPitch > maxPitch) {
-                        Dispatcher.platform().runLater(() -> wp.airspaceWarningProperty().setValue(true));
-                        ok = false;
-                    }
+        for (IPayloadDescription payloadDescription : payloadDescriptions) {
+            // TODO: clean up hardware description so roll/pitch/yaw angles are consistently defined. Use whole
+            // kinematic chain.
+            double minPitch = payloadDescription.getMinPitch().convertTo(Unit.DEGREE).getValue().doubleValue();
+            double maxPitch = payloadDescription.getMaxPitch().convertTo(Unit.DEGREE).getValue().doubleValue();
+
+            for (int i = 0; i < waypointPitches.length; i++) {
+                if (waypointPitches[i] < minPitch || waypointPitches[i] > maxPitch) {
+                    violations.set(i);
                 }
             }
         }
 
-        return ok;
+        return violations;
     }
 
-    public static boolean validateWaypointSeparation(FlightPlan flightplan) {
-        Flightplan fp = flightplan.getLegacyFlightplan();
-
-        boolean ok = true;
-
-        IPlatformDescription platformDesc = fp.getHardwareConfiguration().getPlatformDescription();
+    /**
+     * Returns the indices of the waypoints that are closer to or further away from their predecessor than the platform
+     * allows. The first waypoint is compared to the second one. Only reads its arguments, so it can be called from any
+     * thread.
+     */
+    public static BitSet findWaypointSeparationViolations(
+            IPlatformDescription platformDesc, List<Position> waypointPositions) {
+        BitSet violations = new BitSet(waypointPositions.size());
 
         double minWpSeparation = platformDesc.getMinWaypointSeparation().convertTo(Unit.METER).getValue().doubleValue();
         double maxWpSeparation = platformDesc.getMaxWaypointSeparation().convertTo(Unit.METER).getValue().doubleValue();
 
         if (minWpSeparation == 0 && maxWpSeparation == 0) {
-            return true;
+            return violations;
         }
 
         Vec4 v;
-        ListProperty<WayPoint> wps = flightplan.waypointsProperty();
         // in order to add warning to the first waypoint as well
         Vec4 vPrevious =
-            wps.size() > 1 ? globe.computePointFromPosition(wps.get(1).getLegacyWaypoint().getPosition()) : null;
+            waypointPositions.size() > 1 ? globe.computePointFromPosition(waypointPositions.get(1)) : null;
 
-        for (WayPoint wp : flightplan.waypointsProperty()) {
-            v = globe.computePointFromPosition(wp.getLegacyWaypoint().getPosition());
+        for (int i = 0; i < waypointPositions.size(); i++) {
+            v = globe.computePointFromPosition(waypointPositions.get(i));
             if (vPrevious != null) {
                 double distance = vPrevious.distanceTo3(v);
 
                 if ((minWpSeparation > 0 && distance < minWpSeparation)
                         || (maxWpSeparation > 0 && distance > maxWpSeparation)) {
-                    Dispatcher.platform().runLater(() -> wp.airspaceWarningProperty().setValue(true));
-                    ok = false;
+                    violations.set(i);
                 }
             }
 
             vPrevious = v;
         }
 
-        return ok;
+        return violations;
     }
 
     public static boolean validateNumberOfWaypoints(FlightPlan flightplan) {
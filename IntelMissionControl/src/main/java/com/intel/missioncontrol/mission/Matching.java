@@ -55,9 +55,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
@@ -962,30 +960,7 @@ public class Matching implements ISaveable {
     }
 
     public static List<MapLayerMatch> sortMatches(Matching matching, Comparator<MapLayerMatch> imageOrder) {
-        Collection<Matching> matchings = new ArrayList<>();
-        matchings.add(matching);
-        return sortMatches(matchings, imageOrder);
-    }
-
-    private static List<MapLayerMatch> sortMatches(
-            Collection<Matching> matchings, Comparator<MapLayerMatch> imageOrder) {
-        return matchings
-            .stream()
-            .flatMap(matching -> matching.legacyMatching.getPictures().stream())
-            .filter(MapLayerMatch.class::isInstance)
-            .map(MapLayerMatch.class::cast)
-            .sorted(
-                (first, second) -> {
-                    try {
-                        return imageOrder.compare(first, second);
-                    } catch (Throwable err) {
-                        AMapLayerMatching.comparisonContractViolationFound = true;
-                        Debug.getLog().log(Level.SEVERE, "could not sort matches", err);
-                    }
-
-                    return 0;
-                })
-            .collect(Collectors.toList());
+        return AMapLayerMatching.sortMatches(matching.legacyMatching, imageOrder);
     }
 
     public boolean assureNonRaw() {
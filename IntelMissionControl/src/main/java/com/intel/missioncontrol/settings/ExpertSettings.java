@@ -47,6 +47,11 @@ public class ExpertSettings implements ISettings {
     // AerialPinholeImageLayer
     private final IntegerProperty maxTextureSize = new SimpleIntegerProperty(this, "MaxTextureSize", 4 * 1024);
 
+    // BufferedImageCache, 0 means an eighth of the maximum heap
+    private final IntegerProperty imageCacheSizeMb = new SimpleIntegerProperty(this, "imageCacheSizeMb", 0);
+    private final AsyncBooleanProperty imageCacheOnDisk =
+        new SimpleAsyncBooleanProperty(this, new PropertyMetadata.Builder<Boolean>().initialValue(true).create());
+
     // ContourLinesLayer
     private final IntegerProperty contourLinesMaxVisLines =
         new SimpleIntegerProperty(this, "contourLinesMaxVisLines", 50);
@@ -144,6 +149,14 @@ public class ExpertSettings implements ISettings {
         return maxTextureSize.get();
     }
 
+    public int getImageCacheSizeMb() {
+        return imageCacheSizeMb.get();
+    }
+
+    public boolean getImageCacheOnDisk() {
+        return imageCacheOnDisk.get();
+    }
+
     public boolean getUseExifLevelArmProcessing() {
         return useExifLevelArmProcessing.get();
     }
@@ -521,13 +521,10 @@ public class CreateDatasetTask extends IBackgroundTaskManager.BackgroundTask {
 
                 try {
                     int baseSourcePathStringLen = getPhotosResult.picFolder.getAbsolutePath().length() + 1;
-                    index = 0;
                     final List<File> images = getPhotosResult.fotos;
+                    final List<ImageCopyEngine.CopyJob> copyJobs = new ArrayList<>(images.size());
 
                     for (File f : images) {
-                        updateProgressMessage(
-                            CreateDatasetSubTasks.COPY_IMAGES, index, images.size(), f.getName(), index, images.size());
-                        index++;
                         if (isCancelled()) {
                             return;
                         }
@@ -578,17 +575,24 @@ public class CreateDatasetTask extends IBackgroundTaskManager.BackgroundTask {
                         }
 
                         if (this.copyImages) {
-                            if (targetFile.exists() && f.length() == targetFile.length()) {
-                                // dont overwrite existing file -> speed up
-                                continue;
-                            }
-
-                            FileHelper.copyFile(f, targetFile);
-                        } else {
-                            targetFile = f;
+                            copyJobs.add(new ImageCopyEngine.CopyJob(f, targetFile));
                         }
                     }
 
+                    new ImageCopyEngine(
+                            targetFolder,
+                            this::isCancelled,
+                            (source, filesDone, filesTotal, megabytesPerSecond) ->
+                                updateProgressMessage(
+                                    CreateDatasetSubTasks.COPY_IMAGES,
+                                    filesDone,
+                                    filesTotal,
+                                    String.format("%s (%.1f MB/s)", source.getName(), megabytesPerSecond),
+                                    filesDone,
+                                    filesTotal))
+                        .copyAll(copyJobs);
+                } catch (InterruptedByUserException e) {
+                    return;
                 } catch (Exception e1) {
                     exception = new TaggingException("could not move images", "copying images into project failed", e1);
                     return;
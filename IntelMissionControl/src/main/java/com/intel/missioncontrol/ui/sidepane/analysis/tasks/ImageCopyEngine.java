@@ -0,0 +1,415 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.ui.sidepane.analysis.tasks;
+
+import eu.mavinci.desktop.helper.InterruptedByUserException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies the images of a dataset import into the project folder.
+ *
+ * <p>Files are copied by a small worker pool whose size depends on the source and target devices. Every file is first
+ * written to a staging file next to its target and then atomically renamed, so a target file is either complete or
+ * absent. If source and target are on the same file store the kernel copies the data ({@link
+ * FileChannel#transferTo}). Otherwise, e.g. when importing from an SD card, the data is streamed through a direct
+ * buffer while a CRC32C of the source stream is computed, which is then verified against the staging file.
+ *
+ * <p>Completed files are recorded in an append-only journal in the target folder. If an import is interrupted, the
+ * next run skips the files listed in the journal and only copies the remaining ones. The journal is removed once all
+ * files have been copied.
+ */
+public class ImageCopyEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageCopyEngine.class);
+
+    public static final String JOURNAL_FILENAME = ".import-journal";
+
+    private static final String STAGING_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long TRANSFER_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+
+    public interface ProgressListener {
+        void progress(File source, int filesDone, int filesTotal, double megabytesPerSecond);
+    }
+
+    public static class CopyJob {
+        final File source;
+        final File target;
+
+        public CopyJob(File source, File target) {
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    private final File targetFolder;
+    private final BooleanSupplier isCancelled;
+    private final ProgressListener progressListener;
+    private final AtomicInteger filesDone = new AtomicInteger();
+    private final AtomicLong bytesCopied = new AtomicLong();
+    private final AtomicLong lastProgressNanos = new AtomicLong();
+    /** target file name to file length of the files completed by an interrupted import */
+    private Map<String, Long> journal;
+    private Writer journalWriter;
+    private long startNanos;
+
+    public ImageCopyEngine(File targetFolder, BooleanSupplier isCancelled, ProgressListener progressListener) {
+        this.targetFolder = targetFolder;
+        this.isCancelled = isCancelled;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Copies all jobs into the target folder. Files that already exist in the target folder with the same size are
+     * skipped, unless an interrupted import left a journal, in which case only journaled files are skipped.
+     *
+     * @throws InterruptedByUserException if the copy was cancelled, already copied files are kept for resuming
+     */
+    public void copyAll(List<CopyJob> jobs) throws IOException, InterruptedByUserException {
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        File journalFile = new File(targetFolder, JOURNAL_FILENAME);
+        boolean resuming = journalFile.exists();
+        journal = resuming ? readJournal(journalFile) : new HashMap<>();
+        journalWriter =
+            Files.newBufferedWriter(
+                journalFile.toPath(),
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+
+        List<CopyJob> pending = new ArrayList<>(jobs.size());
+        for (CopyJob job : jobs) {
+            if (isAlreadyCopied(job, resuming)) {
+                filesDone.incrementAndGet();
+            } else {
+                pending.add(job);
+            }
+        }
+
+        if (resuming) {
+            LOGGER.info(
+                "Resuming interrupted image import into {}: {} of {} files already copied",
+                targetFolder,
+                jobs.size() - pending.size(),
+                jobs.size());
+        }
+
+        int parallelism = getParallelism(pending.isEmpty() ? null : pending.get(0).source, targetFolder);
+        ExecutorService executor =
+            Executors.newFixedThreadPool(
+                parallelism,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Image copy");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        startNanos = System.nanoTime();
+        boolean completed = false;
+        try {
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (CopyJob job : pending) {
+                futures.add(
+                    executor.submit(
+                        () -> {
+                            copy(job, jobs.size());
+                            return null;
+                        }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof InterruptedByUserException) {
+                        throw (InterruptedByUserException)e.getCause();
+                    }
+
+                    throw new IOException("copying images into project failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedByUserException();
+                }
+            }
+
+            completed = true;
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+            journalWriter.close();
+            if (completed && !journalFile.delete()) {
+                LOGGER.warn("Could not delete import journal " + journalFile);
+            }
+        }
+
+        // intermediate progress is throttled, so the last files may not have been reported yet
+        long now = System.nanoTime();
+        progressListener.progress(
+            jobs.get(jobs.size() - 1).source, filesDone.get(), jobs.size(), getMegabytesPerSecond(now));
+
+        double seconds = (now - startNanos) / 1e9;
+        LOGGER.info(
+            "Copied {} images ({} MB) in {} s",
+            pending.size(),
+            bytesCopied.get() / (1024 * 1024),
+            String.format(Locale.ENGLISH, "%.1f", seconds));
+    }
+
+    /** workers must not write to the journal anymore once it gets closed */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warn("Image copy workers did not terminate");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isAlreadyCopied(CopyJob job, boolean resuming) {
+        if (!job.target.exists()) {
+            return false;
+        }
+
+        long length = job.source.length();
+        if (resuming) {
+            Long journaledLength = journal.get(job.target.getName());
+            return journaledLength != null && journaledLength == length && job.target.length() == length;
+        }
+
+        // dont overwrite existing file -> speed up
+        return job.target.length() == length;
+    }
+
+    private void copy(CopyJob job, int filesTotal) throws IOException, InterruptedByUserException {
+        if (isCancelled.getAsBoolean()) {
+            throw new InterruptedByUserException();
+        }
+
+        if (!job.source.exists()) {
+            throw new FileNotFoundException(job.source.getAbsolutePath());
+        }
+
+        Path source = job.source.toPath();
+        Path target = job.target.toPath();
+        Path staging = target.resolveSibling(target.getFileName() + STAGING_SUFFIX);
+        long crc;
+
+        try {
+            if (isSameFileStore(source, target.getParent())) {
+                transfer(source, staging);
+                crc = 0;
+            } else {
+                crc = copyWithChecksum(source, staging);
+            }
+
+            Files.setLastModifiedTime(staging, Files.getLastModifiedTime(source));
+            moveIntoPlace(staging, target);
+        } catch (IOException | InterruptedByUserException | RuntimeException e) {
+            Files.deleteIfExists(staging);
+            throw e;
+        }
+
+        long length = Files.size(target);
+        synchronized (this) {
+            journalWriter.write(job.target.getName() + '\t' + length + '\t' + Long.toHexString(crc) + '\n');
+            journalWriter.flush();
+        }
+
+        int done = filesDone.incrementAndGet();
+        long now = System.nanoTime();
+        long last = lastProgressNanos.get();
+        if (now - last >= PROGRESS_INTERVAL_NANOS && lastProgressNanos.compareAndSet(last, now)) {
+            progressListener.progress(job.source, done, filesTotal, getMegabytesPerSecond(now));
+        }
+    }
+
+    private double getMegabytesPerSecond(long now) {
+        return bytesCopied.get() / (1024.0 * 1024.0) / Math.max((now - startNanos) / 1e9, 1e-3);
+    }
+
+    private void transfer(Path source, Path staging) throws IOException, InterruptedByUserException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+            FileChannel out =
+                FileChannel.open(
+                    staging,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                if (isCancelled.getAsBoolean()) {
+                    throw new InterruptedByUserException();
+                }
+
+                long transferred = in.transferTo(position, Math.min(TRANSFER_CHUNK_SIZE, size - position), out);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of file " + source);
+                }
+
+                position += transferred;
+                bytesCopied.addAndGet(transferred);
+            }
+        }
+    }
+
+    private long copyWithChecksum(Path source, Path staging) throws IOException, InterruptedByUserException {
+        CRC32C sourceCrc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long written = 0;
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+            FileChannel out =
+                FileChannel.open(
+                    staging,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            while (in.read(buffer) >= 0) {
+                if (isCancelled.getAsBoolean()) {
+                    throw new InterruptedByUserException();
+                }
+
+                buffer.flip();
+                sourceCrc.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer);
+                }
+
+                buffer.clear();
+            }
+
+            bytesCopied.addAndGet(written);
+            if (written != size) {
+                throw new IOException("Size mismatch copying " + source + ": " + written + " of " + size + " bytes");
+            }
+        }
+
+        long stagingCrc = checksum(staging, buffer);
+        if (stagingCrc != sourceCrc.getValue()) {
+            throw new IOException("Checksum mismatch copying " + source + " -> " + staging);
+        }
+
+        return stagingCrc;
+    }
+
+    /** the staging file was just written, so this is served from the page cache and doesn't touch the source device */
+    private static long checksum(Path file, ByteBuffer buffer) throws IOException {
+        CRC32C crc = new CRC32C();
+        buffer.clear();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return crc.getValue();
+    }
+
+    private static void moveIntoPlace(Path staging, Path target) throws IOException {
+        try {
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(staging, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isSameFileStore(Path source, Path targetFolder) {
+        try {
+            return Files.getFileStore(source).equals(Files.getFileStore(targetFolder));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Flash cards and USB card readers don't gain anything from deep queues, while local disks and SSDs are usually
+     * limited by per-file latency rather than by bandwidth, and benefit from more files in flight.
+     */
+    static int getParallelism(File source, File targetFolder) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (source == null) {
+            return 1;
+        }
+
+        try {
+            FileStore sourceStore = Files.getFileStore(source.toPath());
+            if (sourceStore.equals(Files.getFileStore(targetFolder.toPath()))) {
+                return Math.max(1, Math.min(4, cores));
+            }
+
+            String type = sourceStore.type().toLowerCase(Locale.ENGLISH);
+            if (type.contains("fat") || type.contains("msdos")) {
+                return 2;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not determine file store of " + source, e);
+            return 2;
+        }
+
+        return Math.max(2, Math.min(8, cores));
+    }
+
+    private static Map<String, Long> readJournal(File journalFile) throws IOException {
+        Map<String, Long> entries = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 3) {
+                    // last line may be incomplete if the import was killed while writing it
+                    continue;
+                }
+
+                try {
+                    entries.put(parts[0], Long.parseLong(parts[1]));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Skipping corrupt import journal line: " + line);
+                }
+            }
+        }
+
+        return entries;
+    }
+
+}
@@ -45,23 +45,29 @@ public class ElevationModelConsistencyValidator extends OnFlightplanRecomputedVa
         setOkMessage(languageHelper.getString(className + ".okMessage"));
     }
 
+    private enum Consistency {
+        UNKNOWN,
+        CONSISTENT,
+        INCONSISTENT
+    }
+
     @Override
-    protected boolean onInvalidated(FlightPlan flightplan) {
-        FPsim.SimResultData simResult = flightplan.getLegacyFlightplan().getFPsim().getSimResult();
+    protected Consistency compute(FlightplanValidationSnapshot snapshot) {
+        FPsim.SimResultData simResult = snapshot.getSimResult();
         if (simResult == null) {
-            return false;
+            return Consistency.UNKNOWN;
         }
 
         if (simResult.simDistances.isEmpty()) {
-            return true;
+            return Consistency.CONSISTENT;
         }
 
         CompoundElevationModel.ElevationModelRerence takeOffElevationModelReference =
             new CompoundElevationModel.ElevationModelRerence();
         CompoundElevationModel.ElevationModelRerence refPointElevationModelReference =
             new CompoundElevationModel.ElevationModelRerence();
-        Position takeOffPosition = flightplan.takeoffPositionProperty().get();
-        Position refPointPosition = flightplan.refPointPositionProperty().get();
+        Position takeOffPosition = snapshot.getTakeoffPosition();
+        Position refPointPosition = snapshot.getRefPointPosition();
         IElevationModel elevationModel = StaticInjector.getInstance(IElevationModel.class);
         try {
             elevationModel.getElevation(
@@ -72,29 +78,35 @@ public class ElevationModelConsistencyValidator extends OnFlightplanRecomputedVa
             if (takeOffElevationModelReference.elevationModel == null
                     || refPointElevationModelReference.elevationModel == null) {
                 LOGGER.error("Not possible to find the elevation model");
-                return false;
+                return Consistency.UNKNOWN;
             }
 
             if (takeOffElevationModelReference.elevationModel != refPointElevationModelReference.elevationModel) {
-                addWarning(
-                    languageHelper.getString(className + ".moreThenOnceSource"), ValidationMessageCategory.NORMAL);
-                return true;
+                return Consistency.INCONSISTENT;
             }
 
         } catch (ElevationModelRequestException e) {
             LOGGER.info("Not possible to find the elevation model", e);
-            return false;
+            return Consistency.UNKNOWN;
         }
 
         for (FPsim.SimDistance simPoint : simResult.simDistances) {
             if (simPoint.elevationSource.get() != takeOffElevationModelReference.elevationModel) {
-                addWarning(
-                    languageHelper.getString(className + ".moreThenOnceSource"), ValidationMessageCategory.NORMAL);
-                return true;
+                return Consistency.INCONSISTENT;
             }
         }
 
-        return true;
+        return Consistency.CONSISTENT;
+    }
+
+    @Override
+    protected boolean onInvalidated(FlightPlan flightplan) {
+        Consistency consistency = getComputedResult(flightplan);
+        if (consistency == Consistency.INCONSISTENT) {
+            addWarning(languageHelper.getString(className + ".moreThenOnceSource"), ValidationMessageCategory.NORMAL);
+        }
+
+        return consistency != Consistency.UNKNOWN;
     }
 
 }
@@ -10,6 +10,7 @@ import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.intel.missioncontrol.mission.FlightPlan;
 import com.intel.missioncontrol.ui.validation.ValidationAggregator;
+import com.intel.missioncontrol.ui.validation.ValidatorBase;
 
 public class FlightplanValidationAggregator extends ValidationAggregator<FlightPlan> {
 
@@ -17,6 +18,8 @@ public class FlightplanValidationAggregator extends ValidationAggregator<FlightP
         FlightplanValidationAggregator create(FlightPlan flightPlan);
     }
 
+    private final FlightplanValidationScheduler validationScheduler;
+
     @Inject
     public FlightplanValidationAggregator(
             AirspaceDistanceValidator.Factory airspaceDistanceValidatorFactory,
@@ -55,6 +58,16 @@ public class FlightplanValidationAggregator extends ValidationAggregator<FlightP
             gimbalPitchValidatorFactory.create(flightPlan),
             waypointSeparationValidatorFactory.create(flightPlan),
             numberOfWaypointsValidatorFactory.create(flightPlan));
+
+        validationScheduler = new FlightplanValidationScheduler(flightPlan);
+        for (ValidatorBase<FlightPlan> validator : getValidators()) {
+            FlightplanValidatorBase flightplanValidator = (FlightplanValidatorBase)validator;
+            validationScheduler.add(
+                flightplanValidator.getTrigger(),
+                validator.getClass().getSimpleName(),
+                flightplanValidator::computeScheduled,
+                flightplanValidator::applyScheduled);
+        }
     }
 
 }
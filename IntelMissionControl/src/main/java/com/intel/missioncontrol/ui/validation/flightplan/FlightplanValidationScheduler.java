@@ -0,0 +1,323 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.ui.validation.flightplan;
+
+import com.intel.missioncontrol.mission.FlightPlan;
+import eu.mavinci.core.flightplan.CFlightplan;
+import eu.mavinci.core.flightplan.IFlightplanChangeListener;
+import eu.mavinci.core.flightplan.IFlightplanRelatedObject;
+import eu.mavinci.desktop.helper.IRecomputeListener;
+import eu.mavinci.desktop.main.debug.profiling.metrics.Counter;
+import eu.mavinci.desktop.main.debug.profiling.metrics.LatencyHistogram;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.asyncfx.concurrent.Dispatcher;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the validators of a flight plan when the flight plan changes or was recomputed. Editing a flight plan, e.g.
+ * dragging a waypoint, fires a burst of change events; instead of validating on every event, the scheduler waits until
+ * the flight plan was quiet for {@link #QUIET_PERIOD}, but at most {@link #MAX_DELAY} after the first event, and then
+ * validates once:
+ *
+ * <ol>
+ *   <li>a {@link FlightplanValidationSnapshot} of the flight plan is captured on the JavaFX thread,
+ *   <li>the background part of all affected validators is computed in parallel on the background dispatcher,
+ *   <li>the results are applied to the validation statuses in a single runnable on the JavaFX thread.
+ * </ol>
+ *
+ * Events that arrive while a validation is running are collected and validated afterwards. The time every validator
+ * spends in each phase is recorded in the {@link MetricsRegistry} as {@code validation.flightplan.<validator>.compute}
+ * and {@code validation.flightplan.<validator>.apply}, the time from the first event of a burst until its results are
+ * shown as {@code validation.flightplan.latency}.
+ */
+final class FlightplanValidationScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightplanValidationScheduler.class);
+
+    static final Duration QUIET_PERIOD = Duration.ofMillis(100);
+    static final Duration MAX_DELAY = Duration.ofMillis(500);
+
+    /** The flight plan events that a validator is interested in. */
+    enum Trigger {
+        FLIGHTPLAN_CHANGED,
+        FLIGHTPLAN_RECOMPUTED
+    }
+
+    private static class Validation {
+        final Trigger trigger;
+        final Function<FlightplanValidationSnapshot, Object> compute;
+        final Consumer<Object> apply;
+        final LatencyHistogram computeLatency;
+        final LatencyHistogram applyLatency;
+
+        Validation(
+                Trigger trigger,
+                String name,
+                Function<FlightplanValidationSnapshot, Object> compute,
+                Consumer<Object> apply,
+                MetricsRegistry metrics) {
+            this.trigger = trigger;
+            this.compute = compute;
+            this.apply = apply;
+            this.computeLatency = metrics.histogram("validation.flightplan." + name + ".compute");
+            this.applyLatency = metrics.histogram("validation.flightplan." + name + ".apply");
+        }
+    }
+
+    // the legacy flight plan only keeps weak references to its listeners
+    private final IFlightplanChangeListener flightplanChangeListener =
+        new IFlightplanChangeListener() {
+            @Override
+            public void flightplanStructureChanged(IFlightplanRelatedObject fp) {
+                requestValidation(Trigger.FLIGHTPLAN_CHANGED);
+            }
+
+            @Override
+            public void flightplanValuesChanged(IFlightplanRelatedObject fpObj) {
+                requestValidation(Trigger.FLIGHTPLAN_CHANGED);
+            }
+
+            @Override
+            public void flightplanElementRemoved(CFlightplan fp, int i, IFlightplanRelatedObject statement) {}
+
+            @Override
+            public void flightplanElementAdded(CFlightplan fp, IFlightplanRelatedObject statement) {}
+        };
+
+    private final IRecomputeListener recomputeListener =
+        (recomputer, anotherRecomputeIsWaiting, runNo) -> {
+            // the next recompute will replace the result right away
+            if (!anotherRecomputeIsWaiting) {
+                requestValidation(Trigger.FLIGHTPLAN_RECOMPUTED);
+            }
+        };
+
+    private final Object lock = new Object();
+    private final List<Validation> validations = new ArrayList<>();
+    private final Supplier<FlightplanValidationSnapshot> snapshotSupplier;
+    private final Executor backgroundExecutor;
+    private final Executor platformExecutor;
+    private final BiConsumer<Runnable, Duration> delayedExecutor;
+    private final LongSupplier clock;
+    private final MetricsRegistry metrics;
+    private final Counter requestCount;
+    private final Counter validationCount;
+    private final LatencyHistogram latency;
+    private final Set<Trigger> pendingTriggers = EnumSet.noneOf(Trigger.class);
+    private long firstRequestNanos;
+    private long lastRequestNanos;
+    private boolean scheduled;
+    private boolean running;
+
+    /** Creates a scheduler that validates the given flight plan whenever it changes or was recomputed. */
+    FlightplanValidationScheduler(FlightPlan flightplan) {
+        this(
+            () -> FlightplanValidationSnapshot.capture(flightplan),
+            runnable -> Dispatcher.background().runLater(runnable),
+            runnable -> Dispatcher.platform().runLater(runnable),
+            (runnable, delay) -> Dispatcher.background().runLater(runnable, delay),
+            System::nanoTime,
+            MetricsRegistry.getDefault());
+        flightplan.getLegacyFlightplan().addFPChangeListener(flightplanChangeListener);
+        flightplan.getLegacyFlightplan().getFPcoverage().addRecomputeListener(recomputeListener);
+    }
+
+    /**
+     * Creates a scheduler that validates when {@link #requestValidation} is called.
+     *
+     * @param snapshotSupplier captures the flight plan, called on the platform executor
+     * @param backgroundExecutor computes the background parts of the validators
+     * @param platformExecutor captures the snapshot and applies the results, i.e. the JavaFX thread
+     * @param delayedExecutor runs a task after a delay
+     * @param clock the current time in nanoseconds, like {@link System#nanoTime()}
+     */
+    FlightplanValidationScheduler(
+            Supplier<FlightplanValidationSnapshot> snapshotSupplier,
+            Executor backgroundExecutor,
+            Executor platformExecutor,
+            BiConsumer<Runnable, Duration> delayedExecutor,
+            LongSupplier clock,
+            MetricsRegistry metrics) {
+        this.snapshotSupplier = snapshotSupplier;
+        this.backgroundExecutor = backgroundExecutor;
+        this.platformExecutor = platformExecutor;
+        this.delayedExecutor = delayedExecutor;
+        this.clock = clock;
+        this.metrics = metrics;
+        this.requestCount = metrics.counter("validation.flightplan.requests");
+        this.validationCount = metrics.counter("validation.flightplan.validations");
+        this.latency = metrics.histogram("validation.flightplan.latency");
+    }
+
+    /**
+     * Adds a validator.
+     *
+     * @param trigger the events that the validator is run for
+     * @param name the name of the validator in the metrics
+     * @param compute computes the background part of the validator, called on the background executor
+     * @param apply applies the result of compute, called on the platform executor
+     */
+    void add(
+            Trigger trigger,
+            String name,
+            Function<FlightplanValidationSnapshot, Object> compute,
+            Consumer<Object> apply) {
+        synchronized (lock) {
+            validations.add(new Validation(trigger, name, compute, apply, metrics));
+        }
+    }
+
+    /** Schedules a validation of all validators with the given trigger. Can be called from any thread. */
+    void requestValidation(Trigger trigger) {
+        requestCount.increment();
+        long now = clock.getAsLong();
+        synchronized (lock) {
+            if (pendingTriggers.isEmpty()) {
+                firstRequestNanos = now;
+            }
+
+            pendingTriggers.add(trigger);
+            lastRequestNanos = now;
+            if (scheduled || running) {
+                return;
+            }
+
+            scheduled = true;
+        }
+
+        delayedExecutor.accept(this::onDelayElapsed, QUIET_PERIOD);
+    }
+
+    private void onDelayElapsed() {
+        long waitNanos;
+        Set<Trigger> triggers = null;
+        long startNanos = 0;
+        synchronized (lock) {
+            long now = clock.getAsLong();
+            waitNanos =
+                Math.min(
+                    lastRequestNanos + QUIET_PERIOD.toNanos() - now, firstRequestNanos + MAX_DELAY.toNanos() - now);
+            if (waitNanos <= 0) {
+                triggers = EnumSet.copyOf(pendingTriggers);
+                startNanos = firstRequestNanos;
+                pendingTriggers.clear();
+                scheduled = false;
+                running = true;
+            }
+        }
+
+        if (triggers == null) {
+            // still busy, wait for the flight plan to become quiet
+            delayedExecutor.accept(this::onDelayElapsed, Duration.ofNanos(waitNanos));
+            return;
+        }
+
+        Set<Trigger> validationTriggers = triggers;
+        long validationStartNanos = startNanos;
+        platformExecutor.execute(() -> startValidation(validationTriggers, validationStartNanos));
+    }
+
+    private void startValidation(Set<Trigger> triggers, long startNanos) {
+        List<Validation> batch = new ArrayList<>();
+        synchronized (lock) {
+            for (Validation validation : validations) {
+                if (triggers.contains(validation.trigger)) {
+                    batch.add(validation);
+                }
+            }
+        }
+
+        if (batch.isEmpty()) {
+            onValidationFinished();
+            return;
+        }
+
+        FlightplanValidationSnapshot snapshot;
+        try {
+            snapshot = snapshotSupplier.get();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot capture flight plan for validation", e);
+            onValidationFinished();
+            return;
+        }
+
+        validationCount.increment();
+        Object[] results = new Object[batch.size()];
+        AtomicInteger remaining = new AtomicInteger(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            int index = i;
+            backgroundExecutor.execute(
+                () -> {
+                    try {
+                        results[index] = compute(batch.get(index), snapshot);
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            platformExecutor.execute(() -> applyResults(batch, results, startNanos));
+                        }
+                    }
+                });
+        }
+    }
+
+    private @Nullable Object compute(Validation validation, FlightplanValidationSnapshot snapshot) {
+        long startNanos = clock.getAsLong();
+        try {
+            return validation.compute.apply(snapshot);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot compute flight plan validation", e);
+            return null;
+        } finally {
+            validation.computeLatency.record(clock.getAsLong() - startNanos);
+        }
+    }
+
+    private void applyResults(List<Validation> batch, Object[] results, long startNanos) {
+        for (int i = 0; i < batch.size(); i++) {
+            Validation validation = batch.get(i);
+            long applyStartNanos = clock.getAsLong();
+            try {
+                validation.apply.accept(results[i]);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Cannot apply flight plan validation", e);
+            } finally {
+                validation.applyLatency.record(clock.getAsLong() - applyStartNanos);
+            }
+        }
+
+        latency.record(clock.getAsLong() - startNanos);
+        onValidationFinished();
+    }
+
+    private void onValidationFinished() {
+        synchronized (lock) {
+            running = false;
+            if (pendingTriggers.isEmpty()) {
+                return;
+            }
+
+            scheduled = true;
+        }
+
+        // the flight plan changed while validating, onDelayElapsed waits for the rest of the quiet period
+        delayedExecutor.accept(this::onDelayElapsed, Duration.ZERO);
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.ui.validation.flightplan;
+
+import com.intel.missioncontrol.hardware.IHardwareConfiguration;
+import com.intel.missioncontrol.hardware.IPayloadConfiguration;
+import com.intel.missioncontrol.hardware.IPayloadDescription;
+import com.intel.missioncontrol.hardware.IPayloadMountConfiguration;
+import com.intel.missioncontrol.hardware.IPlatformDescription;
+import com.intel.missioncontrol.measure.Unit;
+import com.intel.missioncontrol.mission.FlightPlan;
+import com.intel.missioncontrol.mission.WayPoint;
+import eu.mavinci.flightplan.Flightplan;
+import eu.mavinci.flightplan.computation.FPsim;
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.geom.Sector;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The state of a flight plan that the background part of the flight plan validators works on. It is captured on the
+ * JavaFX thread, where the flight plan's properties live, and is not changed afterwards, so the validators can read it
+ * from any thread while the user keeps editing the flight plan.
+ */
+final class FlightplanValidationSnapshot {
+
+    private final FPsim.@Nullable SimResultData simResult;
+    private final IPlatformDescription platformDescription;
+    private final List<IPayloadDescription> payloadDescriptions;
+    private final List<WayPoint> waypoints;
+    private final List<Position> waypointPositions;
+    private final double[] waypointPitches;
+    private final @Nullable Sector sector;
+    private final @Nullable Sector picAreaSector;
+    private final @Nullable Position takeoffPosition;
+    private final @Nullable Position refPointPosition;
+
+    FlightplanValidationSnapshot(
+            FPsim.@Nullable SimResultData simResult,
+            IPlatformDescription platformDescription,
+            List<IPayloadDescription> payloadDescriptions,
+            List<WayPoint> waypoints,
+            List<Position> waypointPositions,
+            double[] waypointPitches,
+            @Nullable Sector sector,
+            @Nullable Sector picAreaSector,
+            @Nullable Position takeoffPosition,
+            @Nullable Position refPointPosition) {
+        this.simResult = simResult;
+        this.platformDescription = platformDescription;
+        this.payloadDescriptions = Collections.unmodifiableList(payloadDescriptions);
+        this.waypoints = Collections.unmodifiableList(waypoints);
+        this.waypointPositions = Collections.unmodifiableList(waypointPositions);
+        this.waypointPitches = waypointPitches;
+        this.sector = sector;
+        this.picAreaSector = picAreaSector;
+        this.takeoffPosition = takeoffPosition;
+        this.refPointPosition = refPointPosition;
+    }
+
+    /** Captures the current state of the flight plan. Must be called on the JavaFX thread. */
+    static FlightplanValidationSnapshot capture(FlightPlan flightplan) {
+        Flightplan legacyFlightplan = flightplan.getLegacyFlightplan();
+        IHardwareConfiguration hardwareConfiguration = legacyFlightplan.getHardwareConfiguration();
+
+        List<IPayloadDescription> payloadDescriptions = new ArrayList<>();
+        for (IPayloadMountConfiguration payloadMountConfig : hardwareConfiguration.getPayloadMounts()) {
+            for (IPayloadConfiguration payloadConfig : payloadMountConfig.getPayloads()) {
+                payloadDescriptions.add(payloadConfig.getDescription());
+            }
+        }
+
+        List<WayPoint> waypoints = flightplan.waypointsProperty();
+        List<Position> waypointPositions = new ArrayList<>(waypoints.size());
+        double[] waypointPitches = new double[waypoints.size()];
+        for (int i = 0; i < waypointPitches.length; i++) {
+            WayPoint wp = waypoints.get(i);
+            waypointPositions.add(wp.getLegacyWaypoint().getPosition());
+            waypointPitches[i] = wp.pitchProperty().get().convertTo(Unit.DEGREE).getValue().doubleValue();
+        }
+
+        return new FlightplanValidationSnapshot(
+            legacyFlightplan.getFPsim().getSimResult(),
+            hardwareConfiguration.getPlatformDescription(),
+            payloadDescriptions,
+            new ArrayList<>(waypoints),
+            waypointPositions,
+            waypointPitches,
+            flightplan.getSector(),
+            legacyFlightplan.getPicAreaSector(),
+            flightplan.takeoffPositionProperty().get(),
+            flightplan.refPointPositionProperty().get());
+    }
+
+    /** The result of the last flight simulation, or null if the flight plan was not simulated yet. */
+    FPsim.@Nullable SimResultData getSimResult() {
+        return simResult;
+    }
+
+    IPlatformDescription getPlatformDescription() {
+        return platformDescription;
+    }
+
+    List<IPayloadDescription> getPayloadDescriptions() {
+        return payloadDescriptions;
+    }
+
+    /**
+     * The waypoints with the given indices in the snapshot. Results are reported on these objects rather than on the
+     * flight plan's current waypoints, which may have been inserted or removed while the validators were running.
+     */
+    List<WayPoint> getWaypoints(BitSet indices) {
+        List<WayPoint> result = new ArrayList<>(indices.cardinality());
+        for (int i = indices.nextSetBit(0); i >= 0 && i < waypoints.size(); i = indices.nextSetBit(i + 1)) {
+            result.add(waypoints.get(i));
+        }
+
+        return result;
+    }
+
+    List<Position> getWaypointPositions() {
+        return waypointPositions;
+    }
+
+    /** The pitch angles of the waypoints in degrees. */
+    double[] getWaypointPitches() {
+        return waypointPitches.clone();
+    }
+
+    @Nullable Sector getSector() {
+        return sector;
+    }
+
+    @Nullable Sector getPicAreaSector() {
+        return picAreaSector;
+    }
+
+    @Nullable Position getTakeoffPosition() {
+        return takeoffPosition;
+    }
+
+    @Nullable Position getRefPointPosition() {
+        return refPointPosition;
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.ui.validation.flightplan;
+
+import com.intel.missioncontrol.measure.property.IQuantityStyleProvider;
+import com.intel.missioncontrol.mission.FlightPlan;
+import com.intel.missioncontrol.ui.validation.ValidatorBase;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Base class of the flight plan validators. The validators are run by the {@link FlightplanValidationScheduler} of
+ * their {@link FlightplanValidationAggregator}. A validator can split off the expensive part of its validation into
+ * {@link #compute}, which runs on a background thread, and apply its result in {@link #onInvalidated}.
+ */
+abstract class FlightplanValidatorBase extends ValidatorBase<FlightPlan> {
+
+    private static class Computation {
+        final @Nullable Object result;
+        final @Nullable RuntimeException exception;
+
+        Computation(@Nullable Object result, @Nullable RuntimeException exception) {
+            this.result = result;
+            this.exception = exception;
+        }
+    }
+
+    private final FlightplanValidationScheduler.Trigger trigger;
+    private @Nullable Computation computation;
+
+    FlightplanValidatorBase(
+            FlightPlan flightplan,
+            IQuantityStyleProvider quantityStyleProvider,
+            FlightplanValidationScheduler.Trigger trigger) {
+        super(flightplan, quantityStyleProvider);
+        this.trigger = trigger;
+    }
+
+    /**
+     * Computes the part of the validation that doesn't need the JavaFX thread. This is called on a background thread,
+     * in parallel with the other validators of the flight plan, so it must only read the snapshot and thread safe
+     * services. The result can be retrieved in {@link #onInvalidated} with {@link #getComputedResult}.
+     */
+    protected @Nullable Object compute(FlightplanValidationSnapshot snapshot) {
+        return null;
+    }
+
+    /**
+     * Returns the result of {@link #compute} for the current validation. If the validation was not started by the
+     * scheduler, e.g. when the validator is initialized, the result is computed on the calling thread.
+     */
+    @SuppressWarnings("unchecked")
+    protected final <R> R getComputedResult(FlightPlan flightplan) {
+        Computation computation = this.computation;
+        if (computation == null) {
+            return (R)compute(FlightplanValidationSnapshot.capture(flightplan));
+        }
+
+        if (computation.exception != null) {
+            throw computation.exception;
+        }
+
+        return (R)computation.result;
+    }
+
+    FlightplanValidationScheduler.Trigger getTrigger() {
+        return trigger;
+    }
+
+    /** Called by the scheduler on a background thread. */
+    Object computeScheduled(FlightplanValidationSnapshot snapshot) {
+        try {
+            return new Computation(compute(snapshot), null);
+        } catch (RuntimeException e) {
+            // rethrown by getComputedResult, so the failure is reported like any other failing validation
+            return new Computation(null, e);
+        }
+    }
+
+    /** Called by the scheduler on the JavaFX thread with the result of {@link #computeScheduled}. */
+    void applyScheduled(Object computation) {
+        this.computation = (Computation)computation;
+        try {
+            invalidate();
+        } finally {
+            this.computation = null;
+        }
+    }
+
+}
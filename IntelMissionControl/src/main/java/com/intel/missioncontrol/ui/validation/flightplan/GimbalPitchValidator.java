@@ -12,7 +12,10 @@ import com.intel.missioncontrol.helper.ILanguageHelper;
 import com.intel.missioncontrol.measure.property.IQuantityStyleProvider;
 import com.intel.missioncontrol.mission.FlightPlan;
 import com.intel.missioncontrol.mission.FlightPlanValidation;
+import com.intel.missioncontrol.mission.WayPoint;
 import com.intel.missioncontrol.ui.validation.ValidationMessageCategory;
+import java.util.BitSet;
+import java.util.List;
 
 /** Check if gimbal pitch values are within limits */
 public class GimbalPitchValidator extends OnFlightplanRecomputedValidator {
@@ -34,10 +37,22 @@ public class GimbalPitchValidator extends OnFlightplanRecomputedValidator {
         setOkMessage(languageHelper.getString(className + ".okMessage"));
     }
 
+    @Override
+    protected List<WayPoint> compute(FlightplanValidationSnapshot snapshot) {
+        BitSet violations =
+            FlightPlanValidation.findGimbalPitchViolations(
+                snapshot.getPayloadDescriptions(), snapshot.getWaypointPitches());
+        return snapshot.getWaypoints(violations);
+    }
+
     @Override
     protected boolean onInvalidated(FlightPlan flightplan) {
-        boolean checkOk = FlightPlanValidation.validateGimbalPitch(flightplan);
-        if (!checkOk) {
+        List<WayPoint> violations = getComputedResult(flightplan);
+        if (!violations.isEmpty()) {
+            for (WayPoint waypoint : violations) {
+                waypoint.airspaceWarningProperty().setValue(true);
+            }
+
             addWarning(languageHelper.getString(className + ".outOfRange"), ValidationMessageCategory.NOTICE);
         }
 
@@ -15,6 +15,7 @@ import com.intel.missioncontrol.mission.FlightPlan;
 import com.intel.missioncontrol.ui.validation.ValidationMessageCategory;
 import eu.mavinci.geo.Country;
 import eu.mavinci.geo.ICountryDetector;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** check A-08: flight is within restricted country */
 public class RestrictedCountryValidator extends OnFlightplanChangedValidator {
@@ -38,11 +39,22 @@ public class RestrictedCountryValidator extends OnFlightplanChangedValidator {
         this.countryDetector = countryDetector;
     }
 
+    @Override
+    protected @Nullable Country compute(FlightplanValidationSnapshot snapshot) {
+        // silent, since this runs in the background; the blocking warning tells the user
+        if (countryDetector.allowProceed(snapshot.getSector(), true)) {
+            return null;
+        }
+
+        Country country = countryDetector.getFirstCountry(snapshot.getSector());
+        Ensure.notNull(country, "country");
+        return country;
+    }
+
     @Override
     protected boolean onInvalidated(FlightPlan flightplan) {
-        if (!countryDetector.allowProceed(flightplan.getSector())) {
-            Country country = countryDetector.getFirstCountry(flightplan.getSector());
-            Ensure.notNull(country, "country");
+        Country country = getComputedResult(flightplan);
+        if (country != null) {
             addWarning(
                 languageHelper.getString(className + ".restricted", "" + country.name),
                 ValidationMessageCategory.BLOCKING);
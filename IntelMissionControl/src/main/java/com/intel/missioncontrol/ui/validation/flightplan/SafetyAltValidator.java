@@ -8,6 +8,7 @@ package com.intel.missioncontrol.ui.validation.flightplan;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import com.intel.missioncontrol.hardware.IPlatformDescription;
 import com.intel.missioncontrol.helper.ILanguageHelper;
 import com.intel.missioncontrol.map.elevation.IElevationModel;
 import com.intel.missioncontrol.measure.Quantity;
@@ -20,7 +21,9 @@ import com.intel.missioncontrol.ui.controls.AdaptiveQuantityFormat;
 import com.intel.missioncontrol.ui.validation.IResolveAction;
 import com.intel.missioncontrol.ui.validation.SimpleResolveAction;
 import com.intel.missioncontrol.ui.validation.ValidationMessageCategory;
+import eu.mavinci.core.helper.MinMaxPair;
 import gov.nasa.worldwind.geom.Sector;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** check A-**: check if mission safety altitude is reasonable compare to terrain */
 @SuppressWarnings("FieldCanBeLocal")
@@ -47,27 +50,33 @@ public class SafetyAltValidator extends OnFlightplanChangedValidator {
         this.quantityFormat = new AdaptiveQuantityFormat(generalSettings);
     }
 
+    /** Returns the minimum safe altitude, or null if it doesn't need to be checked. */
     @Override
-    protected boolean onInvalidated(FlightPlan flightplan) {
-        var hardwareConfiguration = flightplan.getLegacyFlightplan().getHardwareConfiguration();
-        if (!hardwareConfiguration.getPlatformDescription().areEmergencyActionsSettable()) {
-            return true;
+    protected @Nullable Double compute(FlightplanValidationSnapshot snapshot) {
+        IPlatformDescription platformDescription = snapshot.getPlatformDescription();
+        if (!platformDescription.areEmergencyActionsSettable()) {
+            return null;
         }
 
-        Sector picAreaSector = flightplan.getLegacyFlightplan().getPicAreaSector();
+        Sector picAreaSector = snapshot.getPicAreaSector();
         if (picAreaSector == null) {
+            return null;
+        }
+
+        MinMaxPair maxElevation = elevationModel.getMaxElevation(picAreaSector);
+        return maxElevation.max
+            + platformDescription.getMinGroundDistance().convertTo(Unit.METER).getValue().doubleValue()
+            - maxElevation.min;
+    }
+
+    @Override
+    protected boolean onInvalidated(FlightPlan flightplan) {
+        Double minSafeAltitude = getComputedResult(flightplan);
+        if (minSafeAltitude == null) {
             return true;
         }
 
-        double minActualSafeAltitude =
-            elevationModel.getMaxElevation(picAreaSector).max
-                + hardwareConfiguration
-                    .getPlatformDescription()
-                    .getMinGroundDistance()
-                    .convertTo(Unit.METER)
-                    .getValue()
-                    .doubleValue()
-                - elevationModel.getMaxElevation(picAreaSector).min;
+        double minActualSafeAltitude = minSafeAltitude;
         double currentSafetyAltitude = flightplan.safetyAltitudeProperty().get();
 
         if (currentSafetyAltitude < minActualSafeAltitude) {
@@ -12,7 +12,10 @@ import com.intel.missioncontrol.helper.ILanguageHelper;
 import com.intel.missioncontrol.measure.property.IQuantityStyleProvider;
 import com.intel.missioncontrol.mission.FlightPlan;
 import com.intel.missioncontrol.mission.FlightPlanValidation;
+import com.intel.missioncontrol.mission.WayPoint;
 import com.intel.missioncontrol.ui.validation.ValidationMessageCategory;
+import java.util.BitSet;
+import java.util.List;
 
 /** check spacial separation between waypoints */
 public class WaypointSeparationValidator extends OnFlightplanRecomputedValidator {
@@ -34,10 +37,22 @@ public class WaypointSeparationValidator extends OnFlightplanRecomputedValidator
         setOkMessage(languageHelper.getString(className + ".okMessage"));
     }
 
+    @Override
+    protected List<WayPoint> compute(FlightplanValidationSnapshot snapshot) {
+        BitSet violations =
+            FlightPlanValidation.findWaypointSeparationViolations(
+                snapshot.getPlatformDescription(), snapshot.getWaypointPositions());
+        return snapshot.getWaypoints(violations);
+    }
+
     @Override
     protected boolean onInvalidated(FlightPlan flightplan) {
-        boolean checkOk = FlightPlanValidation.validateWaypointSeparation(flightplan);
-        if (!checkOk) {
+        List<WayPoint> violations = getComputedResult(flightplan);
+        if (!violations.isEmpty()) {
+            for (WayPoint waypoint : violations) {
+                waypoint.airspaceWarningProperty().setValue(true);
+            }
+
             addWarning(languageHelper.getString(className + ".outOfRange"), ValidationMessageCategory.NORMAL);
         }
 
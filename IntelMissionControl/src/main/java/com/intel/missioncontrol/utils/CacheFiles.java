@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/** Files of on-disk caches, named after the key of their content and replaced atomically. */
+public final class CacheFiles {
+
+    public interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private CacheFiles() {}
+
+    /** Returns the file for the given key in the directory, with a name that is safe on every file system. */
+    public static Path resolve(Path directory, String key, String extension) {
+        return directory.resolve(UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + extension);
+    }
+
+    /**
+     * Writes a cache file, replacing an existing one. The content is written to a temporary file next to it that is
+     * moved in place afterwards, so concurrent readers never see a half written file.
+     */
+    public static void write(Path file, Writer writer) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                writer.write(out);
+            }
+
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+}
@@ -13,6 +13,8 @@ import com.intel.missioncontrol.hardware.IPayloadConfiguration;
 import com.intel.missioncontrol.hardware.IPayloadMountConfiguration;
 import com.intel.missioncontrol.hardware.IPlatformDescription;
 import eu.mavinci.core.helper.Pair;
+import eu.mavinci.core.helper.StringHelper;
+import eu.mavinci.core.helper.XmlHashWriter;
 import eu.mavinci.core.licence.ILicenceManager;
 import eu.mavinci.core.xml.XMLWriter;
 import eu.mavinci.flightplan.Dump;
@@ -26,7 +28,10 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -34,6 +39,9 @@ import java.util.Vector;
 
 public class CFMLWriter {
 
+    private static final String HASH_PLACEHOLDER = "HASHPLACEHOLDER";
+    private static final int INITIAL_XML_CAPACITY = 64 * 1024;
+
     public interface Tokens extends FMLReader.Tokens {
 
         public static final String FLIGHTPLANML_HEADER =
@@ -60,28 +68,53 @@ public class CFMLWriter {
         return out.toString();
     }
 
+    /**
+     * Serializes the plan with its hash in a single pass. The hash dumps are written with a placeholder, which is
+     * replaced once the rest of the document has been hashed. The result is the same as hashing the plan without hash
+     * dumps and serializing it again with them.
+     */
+    public String flightplanToXMLwithHash(CFlightplan plan) throws IOException {
+        StringWriter out = new StringWriter(INITIAL_XML_CAPACITY);
+        writeFlightplan(plan, new PrintWriter(out), HASH_PLACEHOLDER);
+        String xml = insertHash(out.getBuffer(), hashDumpCount);
+        if (xml == null) {
+            // the placeholders weren't written verbatim, hash the plan the slow way
+            String hash = StringHelper.getHashXML(flightplanToXML(plan, null));
+            xml = flightplanToXML(plan, hash);
+        }
+
+        return xml;
+    }
+
     public void writeFlightplan(CFlightplan plan, OutputStream os) throws IOException {
         writeFlightplan(plan, os, null);
     }
 
     String hash = null;
+    private int hashDumpCount;
 
     public void writeFlightplan(CFlightplan plan, OutputStream os, String hash) throws IOException {
+        // XMLWriter xml = new GXMLWriter(new PrintWriter(os)); //I dont use this, because it wrongly encodes umlaute in
+        // tag-bodies
+        writeFlightplan(plan, new PrintWriter(os), hash);
+    }
+
+    private void writeFlightplan(CFlightplan plan, PrintWriter out, String hash) throws IOException {
         if (hash != null) {
             hash = hash.toUpperCase();
         }
 
         this.hash = hash;
+        hashDumpCount = 0;
 
-        // XMLWriter xml = new GXMLWriter(new PrintWriter(os)); //I dont use this, because it wrongly encodes umlaute in
-        // tag-bodies
-        XMLWriter xml = new XMLWriter(new PrintWriter(os));
+        XMLWriter xml = new XMLWriter(out);
         xml.begin(Tokens.FLIGHTPLANML_HEADER, 2);
         xml.comment(StaticInjector.getInstance(ILicenceManager.class).getExportHeaderCore());
 
         xml.start(Tokens.HEAD);
         if (hash != null) {
             write(new Dump(Dump.prefixFPhash + hash), xml);
+            hashDumpCount++;
             // } else {
             // write(new CDump("dummy"),xml); //without this, we will not get an almost blank line if we trying to
             // remove the dump on text
@@ -144,6 +177,65 @@ public class CFMLWriter {
 
         // finish writing file
         xml.finish("</" + Tokens.FLIGHTPLAN + ">\n");
+        out.flush();
+    }
+
+    /**
+     * Hashes the document without its placeholder hash dumps and the whitespace in front of them, which is exactly
+     * the document written without a hash, and puts the hash into the placeholders of the buffer.
+     *
+     * @return null if the document doesn't contain the expected number of placeholders
+     */
+    static String insertHash(StringBuffer xml, int expectedDumpCount) throws IOException {
+        String placeholderDump = getHashDump(HASH_PLACEHOLDER);
+        List<Integer> dumpStarts = new ArrayList<>();
+        List<Integer> dumpEnds = new ArrayList<>();
+        XmlHashWriter hashWriter = new XmlHashWriter();
+        int start = 0;
+        int dump;
+        while ((dump = xml.indexOf(placeholderDump, start)) >= 0) {
+            int whitespaceStart = dump;
+            while (whitespaceStart > start && isWhitespace(xml.charAt(whitespaceStart - 1))) {
+                whitespaceStart--;
+            }
+
+            writeRange(hashWriter, xml, start, whitespaceStart);
+            dumpStarts.add(dump);
+            start = dump + placeholderDump.length();
+            dumpEnds.add(start);
+        }
+
+        if (dumpStarts.size() != expectedDumpCount) {
+            return null;
+        }
+
+        writeRange(hashWriter, xml, start, xml.length());
+
+        // replaced from the back, so the positions of the remaining placeholders stay valid
+        String hashDump = getHashDump(hashWriter.getHash().toUpperCase());
+        for (int i = dumpStarts.size() - 1; i >= 0; i--) {
+            xml.replace(dumpStarts.get(i), dumpEnds.get(i), hashDump);
+        }
+
+        return xml.toString();
+    }
+
+    private static String getHashDump(String hash) {
+        return "<" + Tokens.DUMP + ">" + CDump.prefixFPhash + hash + "</" + Tokens.DUMP + ">";
+    }
+
+    private static boolean isWhitespace(char ch) {
+        // the characters of [\s] in the patterns that remove hash dumps
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+
+    private static void writeRange(Writer writer, StringBuffer text, int start, int end) throws IOException {
+        char[] chunk = new char[8192];
+        for (int i = start; i < end; i += chunk.length) {
+            int length = Math.min(chunk.length, end - i);
+            text.getChars(i, i + length, chunk, 0);
+            writer.write(chunk, 0, length);
+        }
     }
     //
     //    private void write(IFlightPlanDescription flightPlanDescription, XMLWriter xml) {
@@ -475,6 +567,7 @@ public class CFMLWriter {
 
         if (photo.powerOn && hash != null) {
             write(new Dump(Dump.prefixFPhash + hash), xml);
+            hashDumpCount++;
         }
     }
 
@@ -406,10 +406,9 @@ public abstract class CFlightplan extends AFlightplanContainer
     }
 
     public String toXMLwithHash() {
-        String hash = StringHelper.getHashXML(toXML());
         CFMLWriter writer = new CFMLWriter();
         try {
-            return writer.flightplanToXML(this, hash);
+            return writer.flightplanToXMLwithHash(this);
         } catch (IOException e) {
             Debug.getLog().log(Level.WARNING, "Mission toXMLwithHash conversion Problems", e);
             throw new IllegalStateException("Mission toXMLwithHash conversion Problems: ", e);
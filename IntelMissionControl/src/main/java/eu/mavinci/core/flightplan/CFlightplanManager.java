@@ -184,15 +184,13 @@ public class CFlightplanManager
     }
 
     public void sendFP(CFlightplan fp, int reentryPoint) {
+        String xml = fp.toXMLwithHash();
         Debug.getLog()
             .log(
                 Level.FINE,
-                "really transmitt mission, all tests passed or overwritten by user "
-                    + fp.toXMLwithHash()
-                    + "@"
-                    + reentryPoint);
+                "really transmitt mission, all tests passed or overwritten by user " + xml + "@" + reentryPoint);
 
-        plane.setFlightPlanXML(fp.toXMLwithHash(), reentryPoint);
+        plane.setFlightPlanXML(xml, reentryPoint);
         onAirRelatedLocalFP = fp;
         // System.out.println("sedning FP with ID" + fp.hashCode());
         // DON'T set this, because it is set by the plane answere
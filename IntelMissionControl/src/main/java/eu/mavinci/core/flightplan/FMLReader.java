@@ -9,18 +9,15 @@ package eu.mavinci.core.flightplan;
 import com.intel.missioncontrol.StaticInjector;
 import com.intel.missioncontrol.hardware.IHardwareConfigurationManager;
 import com.intel.missioncontrol.utils.IVersionProvider;
-import eu.mavinci.core.main.OsTypes;
 import eu.mavinci.core.xml.MEntryResolver;
+import eu.mavinci.core.xml.SaxParserPool;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
 // SAXParser p = SAXParserFactory.newInstance().newSAXParser();
 // DefaultHandler handler = new XMLHanler();
@@ -41,41 +38,28 @@ import org.xml.sax.XMLReader;
 
 public class FMLReader {
 
+    private static final SaxParserPool parserPool = new SaxParserPool(true, false);
+
     public CFlightplan readFML(
             CFlightplan plan, InputStream is, IHardwareConfigurationManager hardwareConfigurationManager)
             throws SAXException, IOException, ParserConfigurationException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        // if (GlobalSettings.system != OpSys.Android) { // avoid a lot of
-        // validation in android
-        // factory.setNamespaceAware(false);
-        // }
-        factory.setNamespaceAware(true);
-        // factory.setValidating(GlobalSettings.system.isDesktop());
-        factory.setValidating(false);
-
-        SAXParser saxParser;
         MEntryResolver res = MEntryResolver.resolver;
+        boolean isAndroid = StaticInjector.getInstance(IVersionProvider.class).getSystem().isAndroid();
 
         try {
-            saxParser = factory.newSAXParser();
-
-            FMLHandler handler = new FMLHandler(plan, hardwareConfigurationManager);
-
-            XMLReader xr = saxParser.getXMLReader();
-            xr.setContentHandler(handler);
-            xr.setEntityResolver(res);
-            xr.setErrorHandler(handler);
-            OsTypes system = StaticInjector.getInstance(IVersionProvider.class).getSystem();
-            if (!system.isAndroid()) { // avoid warning in
-                // android
-                xr.setDTDHandler(handler); // not supported in android
-            }
-
-            xr.parse(new InputSource(is));
-            // saxParser.parse(is, handler);
-
-            return handler.getFlightplan();
-
+            return parserPool.parse(
+                xr -> {
+                    FMLHandler handler = new FMLHandler(plan, hardwareConfigurationManager);
+                    xr.setContentHandler(handler);
+                    xr.setEntityResolver(res);
+                    xr.setErrorHandler(handler);
+                    if (!isAndroid) { // avoid warning in android
+                        xr.setDTDHandler(handler); // not supported in android
+                    }
+
+                    xr.parse(new InputSource(is));
+                    return handler.getFlightplan();
+                });
         } finally {
             if (res != null) {
                 res.closeResource();
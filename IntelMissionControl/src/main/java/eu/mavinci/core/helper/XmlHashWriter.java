@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.core.helper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the same hash as {@link StringHelper#getHashXML(String)} from XML that is written into it piece by piece,
+ * without holding the document in memory.
+ *
+ * <p>Like the regular expression {@code [\s]*<!--.*?-->} used there, comments that end on the line they start on are
+ * skipped together with the whitespace in front of them. Everything else is encoded in the platform charset and
+ * digested with MD5.
+ */
+public class XmlHashWriter extends Writer {
+
+    private static final String COMMENT_START = "<!--";
+
+    private enum State {
+        TEXT,
+        WHITESPACE,
+        COMMENT_START,
+        COMMENT
+    }
+
+    private final MessageDigest digest;
+    private final Writer encoder;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder pending = new StringBuilder();
+    private int bufferLength;
+    private State state = State.TEXT;
+    private int commentStartLength;
+    private int commentBodyLength;
+    private String hash;
+
+    public XmlHashWriter() {
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        encoder =
+            new OutputStreamWriter(
+                new DigestOutputStream(OutputStream.nullOutputStream(), digest), Charset.defaultCharset());
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (state != State.TEXT) {
+                write(chars[i++]);
+                continue;
+            }
+
+            // plain text up to the next whitespace or tag is passed through in bulk
+            int textEnd = i;
+            while (textEnd < end && chars[textEnd] != '<' && !isWhitespace(chars[textEnd])) {
+                textEnd++;
+            }
+
+            emit(chars, i, textEnd - i);
+            if (textEnd < end) {
+                write(chars[textEnd]);
+            }
+
+            i = textEnd + 1;
+        }
+    }
+
+    @Override
+    public void write(String str, int offset, int length) throws IOException {
+        char[] chunk = new char[Math.min(length, buffer.length)];
+        for (int i = offset; i < offset + length; i += chunk.length) {
+            int chunkLength = Math.min(chunk.length, offset + length - i);
+            str.getChars(i, i + chunkLength, chunk, 0);
+            write(chunk, 0, chunkLength);
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        char ch = (char)c;
+        switch (state) {
+        case TEXT:
+            if (isWhitespace(ch)) {
+                pending.append(ch);
+                state = State.WHITESPACE;
+            } else if (ch == '<') {
+                pending.append(ch);
+                commentStartLength = 1;
+                state = State.COMMENT_START;
+            } else {
+                emit(ch);
+            }
+
+            break;
+        case WHITESPACE:
+            if (isWhitespace(ch)) {
+                pending.append(ch);
+            } else if (ch == '<') {
+                pending.append(ch);
+                commentStartLength = 1;
+                state = State.COMMENT_START;
+            } else {
+                emitPending();
+                emit(ch);
+            }
+
+            break;
+        case COMMENT_START:
+            if (ch == COMMENT_START.charAt(commentStartLength)) {
+                pending.append(ch);
+                if (++commentStartLength == COMMENT_START.length()) {
+                    commentBodyLength = 0;
+                    state = State.COMMENT;
+                }
+            } else {
+                // none of "!-" can start a comment, so the rejected characters are plain text
+                emitPending();
+                write(ch);
+            }
+
+            break;
+        case COMMENT:
+            if (isLineTerminator(ch)) {
+                // "." doesn't match line terminators, so this comment is kept, but whitespace at its end may belong
+                // to the whitespace in front of the next one
+                int textLength = pending.length();
+                while (isWhitespace(pending.charAt(textLength - 1))) {
+                    textLength--;
+                }
+
+                String whitespace = pending.substring(textLength);
+                pending.setLength(textLength);
+                emitPending();
+                write(whitespace, 0, whitespace.length());
+                write(ch);
+            } else if (ch == '>' && commentBodyLength >= 2 && endsWithDashes()) {
+                pending.setLength(0);
+                state = State.TEXT;
+            } else {
+                pending.append(ch);
+                commentBodyLength++;
+            }
+
+            break;
+        default:
+            throw new IllegalStateException(state.toString());
+        }
+    }
+
+    @Override
+    public void flush() {}
+
+    /** Finishes the document. */
+    @Override
+    public void close() throws IOException {
+        if (hash == null) {
+            emitPending();
+            encoder.write(buffer, 0, bufferLength);
+            encoder.close();
+            String result = new BigInteger(1, digest.digest()).toString(16);
+            hash = (result.length() % 2) != 0 ? "0" + result : result;
+        }
+    }
+
+    /** Returns the hash in the format of {@link StringHelper#md5(String)}, closing the writer if needed. */
+    public String getHash() throws IOException {
+        close();
+        return hash;
+    }
+
+    private void emit(char[] chars, int offset, int length) throws IOException {
+        if (bufferLength + length > buffer.length) {
+            encoder.write(buffer, 0, bufferLength);
+            bufferLength = 0;
+            if (length > buffer.length) {
+                encoder.write(chars, offset, length);
+                return;
+            }
+        }
+
+        System.arraycopy(chars, offset, buffer, bufferLength, length);
+        bufferLength += length;
+    }
+
+    private void emit(char ch) throws IOException {
+        if (bufferLength == buffer.length) {
+            encoder.write(buffer, 0, bufferLength);
+            bufferLength = 0;
+        }
+
+        buffer[bufferLength++] = ch;
+    }
+
+    private void emitPending() throws IOException {
+        for (int i = 0; i < pending.length(); i++) {
+            emit(pending.charAt(i));
+        }
+
+        pending.setLength(0);
+        state = State.TEXT;
+    }
+
+    private boolean endsWithDashes() {
+        int length = pending.length();
+        return pending.charAt(length - 1) == '-' && pending.charAt(length - 2) == '-';
+    }
+
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+
+    private static boolean isLineTerminator(char ch) {
+        return ch == '\n' || ch == '\r' || ch == 0x85 || ch == 0x2028 || ch == 0x2029;
+    }
+
+}
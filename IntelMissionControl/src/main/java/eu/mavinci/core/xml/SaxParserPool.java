@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.core.xml;
+
+import java.io.IOException;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Keeps configured SAX parsers for reuse, one per thread, since looking up the factory and creating a parser costs
+ * more than parsing a small document. Parsers are reset after each use, which drops the handlers of the caller.
+ */
+public final class SaxParserPool {
+
+    public interface ParseAction<T> {
+        T parse(XMLReader reader) throws SAXException, IOException;
+    }
+
+    private final SAXParserFactory factory;
+    private final ThreadLocal<SAXParser> idleParser = new ThreadLocal<>();
+
+    public SaxParserPool(boolean namespaceAware, boolean validating) {
+        factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        factory.setValidating(validating);
+    }
+
+    /** Runs the action with an idle parser of this thread, or a new one if the thread is already parsing. */
+    public <T> T parse(ParseAction<T> action) throws SAXException, IOException, ParserConfigurationException {
+        SAXParser parser = idleParser.get();
+        if (parser != null) {
+            idleParser.set(null);
+        } else {
+            synchronized (factory) {
+                parser = factory.newSAXParser();
+            }
+        }
+
+        try {
+            return action.parse(parser.getXMLReader());
+        } finally {
+            try {
+                parser.reset();
+                idleParser.set(parser);
+            } catch (UnsupportedOperationException e) {
+                // parsers that can't be reset aren't reused
+            }
+        }
+    }
+
+}
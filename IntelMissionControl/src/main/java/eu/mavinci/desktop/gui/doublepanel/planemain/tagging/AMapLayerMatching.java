@@ -16,7 +16,6 @@ import eu.mavinci.desktop.cir.Histogram;
 import eu.mavinci.desktop.gui.doublepanel.mapmanager.IResourceFileReferenced;
 import eu.mavinci.desktop.gui.doublepanel.planemain.tree.maplayers.IMapLayer;
 import eu.mavinci.desktop.gui.doublepanel.planemain.tree.maplayers.MapLayerSectorReferenced;
-import eu.mavinci.desktop.gui.doublepanel.planemain.wwd.AerialPinholeImage;
 import eu.mavinci.desktop.gui.doublepanel.planemain.wwd.ComputeCornerData;
 import eu.mavinci.desktop.helper.IRecomputeRunnable;
 import eu.mavinci.desktop.helper.MFileFilter;
@@ -27,11 +26,14 @@ import gov.nasa.worldwind.geom.LatLon;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 import java.util.logging.Level;
 import org.xml.sax.SAXException;
@@ -122,7 +124,12 @@ public abstract class AMapLayerMatching extends MapLayerSectorReferenced
     private final GpsFixTypeCounter gpsFixTypeCounter = new GpsFixTypeCounter();
 
     boolean elevationDataAvaliable = true; // this value shuld be threadsafe
-    private boolean elevationDataAvaliableTmp = true; // is only used for storing a non ready value
+
+    // only used by the filter recomputation
+    private MatchAttributeTable attributeTable;
+    private int[] failedFilters = new int[0];
+
+    private final Map<Comparator<MapLayerMatch>, SortedMatches> sortedMatchesCache = new IdentityHashMap<>();
 
     private boolean isChanged = false;
     private Double estimateStaringElevationInM = null;
@@ -138,17 +145,10 @@ public abstract class AMapLayerMatching extends MapLayerSectorReferenced
             public void run() {
                 long start = System.currentTimeMillis();
                 try {
-                    elevationDataAvaliableTmp = true;
-                    for (IMapLayer subLayer : getPicsLayer().getLayers()) {
-                        if (subLayer instanceof MapLayerMatch) {
-                            MapLayerMatch match = (MapLayerMatch)subLayer;
-                            if (applyFilter(match)) {
-                                filterResultChanged = true;
-                            }
-                        }
+                    if (applyFilters()) {
+                        filterResultChanged = true;
                     }
 
-                    elevationDataAvaliable = elevationDataAvaliableTmp;
                     if (!notFirstRun) {
                         filterResultChanged = true;
                         notFirstRun = true;
@@ -170,44 +170,43 @@ public abstract class AMapLayerMatching extends MapLayerSectorReferenced
                     totalSizeFilteredBytes = 0L;
                     filteredFileType = "";
 
-                    for (IMapLayer subLayer : getPicsLayer().getLayers()) {
-                        if (subLayer instanceof MapLayerMatch) {
-                            MapLayerMatch match = (MapLayerMatch)subLayer;
-                            if (!match.isPassFilter) {
-                                if (!match.getAreaPassFilter()) {
-                                    areaNotPassedFilter++;
-                                }
-
-                                if (!match.getRollPassFilter()) {
-                                    rollNotPassedFilter++;
-                                }
+                    MatchAttributeTable table = attributeTable;
+                    for (int i = 0; i < table.size(); i++) {
+                        MapLayerMatch match = table.getMatch(i);
+                        if (!match.isPassFilter) {
+                            if (!match.getAreaPassFilter()) {
+                                areaNotPassedFilter++;
+                            }
 
-                                if (!match.getYawPassFilter()) {
-                                    yawNotPassedFilter++;
-                                }
+                            if (!match.getRollPassFilter()) {
+                                rollNotPassedFilter++;
+                            }
 
-                                if (!match.getPitchPassFilter()) {
-                                    pitchNotPassedFilter++;
-                                }
+                            if (!match.getYawPassFilter()) {
+                                yawNotPassedFilter++;
+                            }
 
-                                if (!match.getRangePassFilter()) {
-                                    rangeNotPassedFilter++;
-                                }
+                            if (!match.getPitchPassFilter()) {
+                                pitchNotPassedFilter++;
+                            }
 
-                                continue;
+                            if (!match.getRangePassFilter()) {
+                                rangeNotPassedFilter++;
                             }
 
-                            countFiltered++;
-                            // TODO IMC-3043 add here all filters extra
+                            continue;
+                        }
 
-                            GPSFixType fix = match.getPhotoLogLine().fixType;
-                            gpsFixTypeCounter.increment(fix);
+                        countFiltered++;
+                        // TODO IMC-3043 add here all filters extra
 
-                            totalSizeFilteredBytes += match.getResourceFileSizeBytes();
+                        GPSFixType fix = match.getPhotoLogLine().fixType;
+                        gpsFixTypeCounter.increment(fix);
 
-                            if (Strings.isNullOrEmpty(filteredFileType)) {
-                                filteredFileType = match.getResourceFileType();
-                            }
+                        totalSizeFilteredBytes += match.getResourceFileSizeBytes();
+
+                        if (Strings.isNullOrEmpty(filteredFileType)) {
+                            filteredFileType = match.getResourceFileType();
                         }
                     }
 
@@ -934,76 +933,72 @@ public abstract class AMapLayerMatching extends MapLayerSectorReferenced
     }
 
     /**
-     * Applys all LOCAL filters to a match so dontPerforateLines has to be applied in a second run
+     * Applys all LOCAL filters to the matches so dontPerforateLines has to be applied in a second run. Each filter is
+     * evaluated for all matches at once on the attribute table, only the results are written back to the matches.
      *
-     * @param match
-     * @return if filter value was changed
+     * @return if a filter value was changed
      */
-    private boolean applyFilter(MapLayerMatch match) {
-        AerialPinholeImage img = match.img;
-
-        if (img == null) {
-            return true;
+    private boolean applyFilters() {
+        MatchAttributeTable table = MatchAttributeTable.update(attributeTable, getPicsLayer().getLayers());
+        attributeTable = table;
+        int size = table.size();
+        if (failedFilters.length < size) {
+            failedFilters = new int[size];
         }
 
-        ComputeCornerData computeCornerData = img.getComputeCornerData();
+        int[] failed = failedFilters;
+        Arrays.fill(failed, 0, size, 0);
 
-        /*if (GlobalSettings.userLevel == GuiLevels.DEBUG) {
-            FuzzinessData fuzzinessData = match.getFuzzinessBlocking();
-            if (fuzzinessData != null && fuzzinessData.getInPixel() == -1) {
-                elevationDataAvaliableTmp = false; // maybe I could remove this line later?
-            }
-        }*/
+        // TODO IMC-3043 show the number of images filtered out by each filter
+        table.markInvalidPositions(failed);
+        if (altitudeAGLEnabled) {
+            table.markAltitudeOutside(altitudeFrom, altitudeTo, failed);
+        }
 
-        if (computeCornerData == null || !computeCornerData.isElevationDataReady()) {
-            elevationDataAvaliableTmp = false;
+        if (rollEnabled) {
+            table.markRollOutside(rollFrom, rollTo, failed);
         }
 
-        double alt =
-            (computeCornerData != null && computeCornerData.getAltOverCenter() != null)
-                ? computeCornerData.getAltOverCenter()
-                : match.line.getAltInM();
-        // System.out.println(match.getResourceFile() + " -> "+alt + " - " + match.line.alt/100f);
+        if (pitchEnabled) {
+            table.markPitchOutside(pitchFrom, pitchTo, failed);
+        }
 
-        // TODO IMC-3043 show the number of images filtered out by each filter
-        match.setRangePassFilter(true);
-        match.setRollPassFilter(true);
-        match.setPitchPassFilter(true);
-        match.setYawPassFilter(true);
-        match.setAreaPassFilter(true);
-
-        boolean isPass =
-            // (GlobalSettings.userLevel != GuiLevels.DEBUG || match.getFuzzyness().inPixel <= maxPixelFuzzyness) &&
-            // && (!onlyMainLines || match.line.isOnMainLine()) && (!onlySingleDirection || match.line.isForwardLine()
-            Math.abs(match.line.lat) > 1E-300 // falcon without valid GPS
-                && isAltAGLPass(alt)
-                && isRollPass(match)
-                && isPitchPass(match)
-                && isYawPass(match);
-        if (!isPass) {
-            if (!isAltAGLPass(alt)) match.setRangePassFilter(false);
-            if (!isRollPass(match)) match.setRollPassFilter(false);
-            if (!isPitchPass(match)) match.setPitchPassFilter(false);
-            if (!isYawPass(match)) match.setYawPassFilter(false);
+        if (yawEnabled) {
+            table.markYawOutside(yawFrom, yawTo, failed);
         }
         // TODO IMC-3043 add new filters
 
-        if (areaEnabled && computeCornerData != null && !getVisiblePicAreas().isEmpty()) {
-            match.setAreaPassFilter(false);
-            for (MapLayerPicArea picArea : getVisiblePicAreas()) {
-                if (picArea.intersectsWith(
-                        computeCornerData.getGroundProjectedCorners(), computeCornerData.getSector())) {
-                    match.setAreaPassFilter(true);
-                    break;
-                }
-            }
+        List<MapLayerPicArea> visiblePicAreas = getVisiblePicAreas();
+        if (areaEnabled && !visiblePicAreas.isEmpty()) {
+            table.markOutsideAreas(visiblePicAreas, failed);
         }
 
-        if (!match.getAreaPassFilter() && isPass) {
-            isPass = false;
+        boolean changed = false;
+        boolean elevationDataReady = true;
+        for (int i = 0; i < size; i++) {
+            if (!table.hasImage(i)) {
+                changed = true;
+                continue;
+            }
+
+            if (!table.isElevationDataReady(i)) {
+                elevationDataReady = false;
+            }
+
+            MapLayerMatch match = table.getMatch(i);
+            int flags = failed[i];
+            match.setRangePassFilter((flags & MatchAttributeTable.FAILED_RANGE) == 0);
+            match.setRollPassFilter((flags & MatchAttributeTable.FAILED_ROLL) == 0);
+            match.setPitchPassFilter((flags & MatchAttributeTable.FAILED_PITCH) == 0);
+            match.setYawPassFilter((flags & MatchAttributeTable.FAILED_YAW) == 0);
+            match.setAreaPassFilter((flags & MatchAttributeTable.FAILED_AREA) == 0);
+            if (match.setPassFilter(flags == 0)) {
+                changed = true;
+            }
         }
-        // System.out.println("apply Filter on " + match + " pass="+isPass);
-        return match.setPassFilter(isPass);
+
+        elevationDataAvaliable = elevationDataReady;
+        return changed;
     }
 
     public abstract List<MapLayerPicArea> getPicAreas();
@@ -1242,13 +1237,15 @@ public abstract class AMapLayerMatching extends MapLayerSectorReferenced
     }
 
     public static Vector<MapLayerMatch> sortMatches(AMapLayerMatching matching, Comparator<MapLayerMatch> imageOrder) {
-        Vector<AMapLayerMatching> all_matchings = new Vector<>();
-        all_matchings.add(matching);
-        return sortMatches(all_matchings, imageOrder);
+        return new Vector<>(Arrays.asList(matching.getSortedMatches(imageOrder)));
     }
 
     public static Vector<MapLayerMatch> sortMatches(
             Collection<AMapLayerMatching> all_matchings, Comparator<MapLayerMatch> imageOrder) {
+        if (all_matchings.size() == 1) {
+            return sortMatches(all_matchings.iterator().next(), imageOrder);
+        }
+
         Vector<MapLayerMatch> matches = new Vector<>();
         // int fileNo = 0;
         for (AMapLayerMatching matching : all_matchings) {
@@ -1272,6 +1269,65 @@ public abstract class AMapLayerMatching extends MapLayerSectorReferenced
         return matches;
     }
 
+    /**
+     * The matches of this matching in the given order. The order is remembered per comparator until the pictures of
+     * this matching change, so dragging a filter slider or exporting again doesn't sort all matches again. Don't modify
+     * the returned array.
+     */
+    private MapLayerMatch[] getSortedMatches(Comparator<MapLayerMatch> imageOrder) {
+        IMapLayer[] pictures = getPictures().toArray(new IMapLayer[0]);
+        synchronized (sortedMatchesCache) {
+            SortedMatches sorted = sortedMatchesCache.get(imageOrder);
+            if (sorted != null && MatchAttributeTable.isSameLayers(sorted.pictures, pictures)) {
+                return sorted.matches;
+            }
+        }
+
+        List<MapLayerMatch> matches = new ArrayList<>(pictures.length);
+        for (IMapLayer layer : pictures) {
+            if (layer instanceof MapLayerMatch) {
+                matches.add((MapLayerMatch)layer);
+            }
+        }
+
+        boolean sortedCompletely = true;
+        try {
+            matches.sort(
+                (first, second) -> {
+                    try {
+                        return imageOrder.compare(first, second);
+                    } catch (Throwable t) {
+                        comparisonContractViolationFound = true;
+                        Debug.getLog().log(Level.SEVERE, "could not sort matches", t);
+                        return 0;
+                    }
+                });
+        } catch (Throwable t) {
+            comparisonContractViolationFound = true;
+            sortedCompletely = false;
+            Debug.getLog().log(Level.SEVERE, "could not sort matches", t);
+        }
+
+        MapLayerMatch[] result = matches.toArray(new MapLayerMatch[0]);
+        if (sortedCompletely) {
+            synchronized (sortedMatchesCache) {
+                sortedMatchesCache.put(imageOrder, new SortedMatches(pictures, result));
+            }
+        }
+
+        return result;
+    }
+
+    private static final class SortedMatches {
+        final IMapLayer[] pictures;
+        final MapLayerMatch[] matches;
+
+        SortedMatches(IMapLayer[] pictures, MapLayerMatch[] matches) {
+            this.pictures = pictures;
+            this.matches = matches;
+        }
+    }
+
     /**
      * Gets a list of matches whitch also could come from multiple flights, and reorder it by distinguished lines non
      * Forward lines are reversed if revertBackwardLines is true
@@ -1460,66 +1516,6 @@ public abstract class AMapLayerMatching extends MapLayerSectorReferenced
         }
     }
 
-    private boolean isAltAGLPass(double alt) {
-        if (!altitudeAGLEnabled) {
-            return true;
-        }
-
-        Double altitudeValue = (altitudeFrom + altitudeTo) / 2;
-        Double altitudeSpread = (altitudeTo - altitudeValue);
-        return Math.abs(altitudeValue - alt) <= altitudeSpread;
-    }
-
-    private boolean isRollPass(MapLayerMatch match) {
-        if (!rollEnabled) {
-            return true;
-        }
-
-        Double rollValue = (rollFrom + rollTo) / 2;
-        Double rollSpread = rollTo - rollValue;
-        double rollNormalized = rollValue - match.line.cameraRoll;
-        while (rollNormalized < -180) {
-            rollNormalized += 360;
-        }
-
-        while (rollNormalized >= 180) {
-            rollNormalized -= 360;
-        }
-
-        return Math.abs(rollNormalized) <= rollSpread;
-    }
-
-    private boolean isPitchPass(MapLayerMatch match) {
-        if (!pitchEnabled) {
-            return true;
-        }
-
-        Double pitchValue = (pitchFrom + pitchTo) / 2;
-        Double pitchSpread = pitchTo - pitchValue;
-
-        return Math.abs(pitchValue - match.line.cameraPitch) <= pitchSpread;
-    }
-
-    private boolean isYawPass(MapLayerMatch match) {
-        if (!yawEnabled) {
-            return true;
-        }
-
-        Double yawValue = (yawFrom + yawTo) / 2;
-        Double yawSpread = yawTo - yawValue;
-
-        double yawNormalized = yawValue - match.line.cameraYaw;
-        while (yawNormalized < -180) {
-            yawNormalized += 360;
-        }
-
-        while (yawNormalized >= 180) {
-            yawNormalized -= 360;
-        }
-
-        return Math.abs(yawNormalized) <= yawSpread;
-    }
-
     public void setElevationOffset(double elevationOffset) {
         if (this.elevationOffset == elevationOffset) return;
         this.elevationOffset = elevationOffset;
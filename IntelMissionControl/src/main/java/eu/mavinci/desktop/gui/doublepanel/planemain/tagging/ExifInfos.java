@@ -48,6 +48,12 @@ public class ExifInfos {
 
     public static boolean enableAllWarning = true;
 
+    /**
+     * Guards all uses of the ExifTool daemon, which runs one command at a time and is not thread safe, while images are
+     * read and tagged on many threads, for example by the parallel exports.
+     */
+    public static final Object EXIF_TOOL_LOCK = new Object();
+
     public String xmpMake = null;
     public String model = null;
     public Date datetime = null;
@@ -802,8 +808,9 @@ public class ExifInfos {
         } else if (MFileFilter.jpegFilter.accept(image)) { // TODO add only if GH
             return applyImageDescription(image, Tag.USER_COMMENT, tags);
         } else {
-            Map<Tag, String> valueMap = ExifTool.instance.getImageMeta(image, tags);
-            return valueMap;
+            synchronized (EXIF_TOOL_LOCK) {
+                return ExifTool.instance.getImageMeta(image, tags);
+            }
         }
     }
 
@@ -811,7 +818,11 @@ public class ExifInfos {
             throws IllegalArgumentException, SecurityException, IOException {
         Tag[] tagsWithDescription = Arrays.copyOf(tags, tags.length + 1);
         tagsWithDescription[tags.length] = sourceTag;
-        Map<Tag, String> valueMap = ExifTool.instance.getImageMeta(image, tagsWithDescription);
+        Map<Tag, String> valueMap;
+        synchronized (EXIF_TOOL_LOCK) {
+            valueMap = ExifTool.instance.getImageMeta(image, tagsWithDescription);
+        }
+
         var imageDescription = valueMap.get(sourceTag);
         if ((imageDescription != null) && (imageDescription.length() != 0)) {
             applyImageDescription(valueMap, sourceTag, tags);
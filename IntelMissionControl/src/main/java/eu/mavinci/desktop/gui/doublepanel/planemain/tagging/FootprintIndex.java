@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.gui.doublepanel.planemain.tagging;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform lat/lon grid over the bounding boxes of image footprints. Every footprint is registered in each cell its box
+ * overlaps, so a query only visits the footprints in the cells overlapping the query box instead of all of them. The
+ * cell size follows the median footprint size, which keeps the number of cells per footprint small.
+ *
+ * <p>Footprints with a NaN bound are not indexed. Like the rest of the area filter, this ignores the date line.
+ */
+final class FootprintIndex {
+
+    // bounds the size of the grid when the footprints are spread over a large area
+    private static final int MAX_CELLS_PER_FOOTPRINT = 4;
+
+    private final double[] minLat;
+    private final double[] maxLat;
+    private final double[] minLon;
+    private final double[] maxLon;
+
+    private final double originLat;
+    private final double originLon;
+    private final double cellLat;
+    private final double cellLon;
+    private final int rows;
+    private final int columns;
+
+    // footprints of cell c are cellItems[cellStarts[c]] ... cellItems[cellStarts[c + 1] - 1]
+    private final int[] cellStarts;
+    private final int[] cellItems;
+
+    // marks the footprints already reported by the current query
+    private final int[] visited;
+    private int query;
+
+    FootprintIndex(double[] minLat, double[] maxLat, double[] minLon, double[] maxLon, int count) {
+        this.minLat = minLat;
+        this.maxLat = maxLat;
+        this.minLon = minLon;
+        this.maxLon = maxLon;
+        this.visited = new int[count];
+
+        double lat0 = Double.POSITIVE_INFINITY;
+        double lon0 = Double.POSITIVE_INFINITY;
+        double lat1 = Double.NEGATIVE_INFINITY;
+        double lon1 = Double.NEGATIVE_INFINITY;
+        double[] heights = new double[count];
+        double[] widths = new double[count];
+        int indexed = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isIndexed(i)) {
+                continue;
+            }
+
+            lat0 = Math.min(lat0, minLat[i]);
+            lon0 = Math.min(lon0, minLon[i]);
+            lat1 = Math.max(lat1, maxLat[i]);
+            lon1 = Math.max(lon1, maxLon[i]);
+            heights[indexed] = maxLat[i] - minLat[i];
+            widths[indexed] = maxLon[i] - minLon[i];
+            indexed++;
+        }
+
+        if (indexed == 0) {
+            originLat = 0;
+            originLon = 0;
+            cellLat = 1;
+            cellLon = 1;
+            rows = 1;
+            columns = 1;
+        } else {
+            double height = getMedian(heights, indexed);
+            double width = getMedian(widths, indexed);
+            while (getCellCount(lat1 - lat0, height) * (long)getCellCount(lon1 - lon0, width)
+                    > MAX_CELLS_PER_FOOTPRINT * (long)indexed + 16) {
+                height *= 2;
+                width *= 2;
+            }
+
+            originLat = lat0;
+            originLon = lon0;
+            cellLat = height;
+            cellLon = width;
+            rows = getCellCount(lat1 - lat0, height);
+            columns = getCellCount(lon1 - lon0, width);
+        }
+
+        // counting sort of the footprints by cell
+        cellStarts = new int[rows * columns + 1];
+        for (int i = 0; i < count; i++) {
+            if (isIndexed(i)) {
+                forEachCell(i, cell -> cellStarts[cell + 1]++);
+            }
+        }
+
+        for (int c = 0; c < rows * columns; c++) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+
+        cellItems = new int[cellStarts[rows * columns]];
+        int[] fill = new int[rows * columns];
+        for (int i = 0; i < count; i++) {
+            if (isIndexed(i)) {
+                final int item = i;
+                forEachCell(i, cell -> cellItems[cellStarts[cell] + fill[cell]++] = item);
+            }
+        }
+    }
+
+    /**
+     * Reports each footprint whose bounding box intersects the given box once. The order of the footprints is
+     * unspecified. Not thread safe.
+     */
+    void forEachIntersecting(double lat0, double lat1, double lon0, double lon1, IntConsumer consumer) {
+        if (++query == 0) {
+            Arrays.fill(visited, 0);
+            query = 1;
+        }
+
+        int row0 = Math.max(0, getRow(lat0));
+        int row1 = Math.min(rows - 1, getRow(lat1));
+        int column0 = Math.max(0, getColumn(lon0));
+        int column1 = Math.min(columns - 1, getColumn(lon1));
+        for (int row = row0; row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                int cell = row * columns + column;
+                for (int k = cellStarts[cell]; k < cellStarts[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    if (visited[i] == query) {
+                        continue;
+                    }
+
+                    visited[i] = query;
+                    if (minLat[i] <= lat1 && maxLat[i] >= lat0 && minLon[i] <= lon1 && maxLon[i] >= lon0) {
+                        consumer.accept(i);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isIndexed(int i) {
+        return !Double.isNaN(minLat[i] + maxLat[i] + minLon[i] + maxLon[i]);
+    }
+
+    private void forEachCell(int i, IntConsumer consumer) {
+        int row1 = clamp(getRow(maxLat[i]), rows);
+        int column0 = clamp(getColumn(minLon[i]), columns);
+        int column1 = clamp(getColumn(maxLon[i]), columns);
+        for (int row = clamp(getRow(minLat[i]), rows); row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                consumer.accept(row * columns + column);
+            }
+        }
+    }
+
+    private int getRow(double lat) {
+        return (int)Math.floor((lat - originLat) / cellLat);
+    }
+
+    private int getColumn(double lon) {
+        return (int)Math.floor((lon - originLon) / cellLon);
+    }
+
+    private static int clamp(int cell, int cells) {
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    private static double getMedian(double[] sizes, int count) {
+        Arrays.sort(sizes, 0, count);
+        double size = sizes[count / 2];
+        return size > 0 ? size : 1e-6;
+    }
+
+    private static int getCellCount(double extent, double cellSize) {
+        return (int)Math.min(Integer.MAX_VALUE / 2, (long)(extent / cellSize) + 1);
+    }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.gui.doublepanel.planemain.tagging;
+
+import eu.mavinci.core.flightplan.CPhotoLogLine;
+import eu.mavinci.desktop.gui.doublepanel.planemain.tree.maplayers.IMapLayer;
+import eu.mavinci.desktop.gui.doublepanel.planemain.wwd.AerialPinholeImage;
+import eu.mavinci.desktop.gui.doublepanel.planemain.wwd.ComputeCornerData;
+import gov.nasa.worldwind.geom.Sector;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per match attributes used by the image filters of a {@link AMapLayerMatching}, kept in one primitive array per
+ * attribute. The filters run as one loop per predicate over these arrays, which avoids walking the matches and their
+ * corner data on every slider move. A row is extracted again only when the corner data or the photo log line of its
+ * match was replaced, and the whole table is rebuilt when the pictures of the matching change.
+ *
+ * <p>The result of the filters is one bit set per row, see the {@code FAILED_*} flags.
+ */
+final class MatchAttributeTable {
+
+    static final int FAILED_POSITION = 1;
+    static final int FAILED_RANGE = 2;
+    static final int FAILED_ROLL = 4;
+    static final int FAILED_PITCH = 8;
+    static final int FAILED_YAW = 16;
+    static final int FAILED_AREA = 32;
+
+    private final IMapLayer[] pictures;
+    private final MapLayerMatch[] matches;
+    private final int size;
+
+    private final CPhotoLogLine[] lines;
+    private final ComputeCornerData[] cornerData;
+    private final boolean[] elevationDataReady;
+    private final boolean[] validPosition;
+    private final double[] altitude;
+    private final double[] roll;
+    private final double[] pitch;
+    private final double[] yaw;
+
+    // footprint bounding boxes, NaN if the match has no footprint
+    private final double[] minLat;
+    private final double[] maxLat;
+    private final double[] minLon;
+    private final double[] maxLon;
+    private FootprintIndex footprintIndex;
+
+    private MatchAttributeTable(IMapLayer[] pictures) {
+        this.pictures = pictures;
+        List<MapLayerMatch> matches = new ArrayList<>(pictures.length);
+        for (IMapLayer layer : pictures) {
+            if (layer instanceof MapLayerMatch) {
+                matches.add((MapLayerMatch)layer);
+            }
+        }
+
+        this.matches = matches.toArray(new MapLayerMatch[0]);
+        size = this.matches.length;
+        lines = new CPhotoLogLine[size];
+        cornerData = new ComputeCornerData[size];
+        elevationDataReady = new boolean[size];
+        validPosition = new boolean[size];
+        altitude = new double[size];
+        roll = new double[size];
+        pitch = new double[size];
+        yaw = new double[size];
+        minLat = new double[size];
+        maxLat = new double[size];
+        minLon = new double[size];
+        maxLon = new double[size];
+        for (int i = 0; i < size; i++) {
+            extractRow(i);
+        }
+    }
+
+    /**
+     * Returns the given table if it was built for the same pictures, or a new table otherwise. In both cases the rows
+     * are up to date with the current corner data of the matches.
+     */
+    static MatchAttributeTable update(MatchAttributeTable table, List<IMapLayer> pictures) {
+        IMapLayer[] current = pictures.toArray(new IMapLayer[0]);
+        if (table == null || !isSameLayers(table.pictures, current)) {
+            return new MatchAttributeTable(current);
+        }
+
+        for (int i = 0; i < table.size; i++) {
+            MapLayerMatch match = table.matches[i];
+            if (match.line != table.lines[i]
+                    || (match.img != null && match.img.getComputeCornerData() != table.cornerData[i])) {
+                table.extractRow(i);
+            }
+        }
+
+        return table;
+    }
+
+    static boolean isSameLayers(IMapLayer[] first, IMapLayer[] second) {
+        if (first.length != second.length) {
+            return false;
+        }
+
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] != second[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void extractRow(int i) {
+        MapLayerMatch match = matches[i];
+        AerialPinholeImage img = match.img;
+        ComputeCornerData computeCornerData = img != null ? img.getComputeCornerData() : null;
+        CPhotoLogLine line = match.line;
+
+        lines[i] = line;
+        cornerData[i] = computeCornerData;
+        elevationDataReady[i] = computeCornerData != null && computeCornerData.isElevationDataReady();
+        validPosition[i] = Math.abs(line.lat) > 1E-300; // falcon without valid GPS
+        altitude[i] =
+            (computeCornerData != null && computeCornerData.getAltOverCenter() != null)
+                ? computeCornerData.getAltOverCenter()
+                : line.getAltInM();
+        roll[i] = line.cameraRoll;
+        pitch[i] = line.cameraPitch;
+        yaw[i] = line.cameraYaw;
+
+        Sector sector = computeCornerData != null ? computeCornerData.getSector() : null;
+        if (sector != null && computeCornerData.getGroundProjectedCorners() != null) {
+            minLat[i] = sector.getMinLatitude().degrees;
+            maxLat[i] = sector.getMaxLatitude().degrees;
+            minLon[i] = sector.getMinLongitude().degrees;
+            maxLon[i] = sector.getMaxLongitude().degrees;
+        } else {
+            minLat[i] = Double.NaN;
+            maxLat[i] = Double.NaN;
+            minLon[i] = Double.NaN;
+            maxLon[i] = Double.NaN;
+        }
+
+        footprintIndex = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    MapLayerMatch getMatch(int i) {
+        return matches[i];
+    }
+
+    boolean hasImage(int i) {
+        return matches[i].img != null;
+    }
+
+    boolean isElevationDataReady(int i) {
+        return elevationDataReady[i];
+    }
+
+    void markInvalidPositions(int[] failed) {
+        for (int i = 0; i < size; i++) {
+            if (!validPosition[i]) {
+                failed[i] |= FAILED_POSITION;
+            }
+        }
+    }
+
+    void markAltitudeOutside(double from, double to, int[] failed) {
+        markOutside(altitude, size, from, to, false, FAILED_RANGE, failed);
+    }
+
+    void markRollOutside(double from, double to, int[] failed) {
+        markOutside(roll, size, from, to, true, FAILED_ROLL, failed);
+    }
+
+    void markPitchOutside(double from, double to, int[] failed) {
+        markOutside(pitch, size, from, to, false, FAILED_PITCH, failed);
+    }
+
+    void markYawOutside(double from, double to, int[] failed) {
+        markOutside(yaw, size, from, to, true, FAILED_YAW, failed);
+    }
+
+    /**
+     * Sets the flag for each value that is further than half the range from the middle of the range. For periodic
+     * values in degrees the distance is taken the short way around the circle.
+     */
+    static void markOutside(
+            double[] values, int count, double from, double to, boolean periodic, int flag, int[] failed) {
+        double center = (from + to) / 2;
+        double spread = to - center;
+        for (int i = 0; i < count; i++) {
+            double distance = center - values[i];
+            if (periodic) {
+                while (distance < -180) {
+                    distance += 360;
+                }
+
+                while (distance >= 180) {
+                    distance -= 360;
+                }
+            }
+
+            if (!(Math.abs(distance) <= spread)) {
+                failed[i] |= flag;
+            }
+        }
+    }
+
+    /**
+     * Sets the area flag for each match with corner data whose footprint intersects none of the given areas. Only the
+     * footprints next to an area are tested against its polygon.
+     */
+    void markOutsideAreas(List<MapLayerPicArea> picAreas, int[] failed) {
+        for (int i = 0; i < size; i++) {
+            if (cornerData[i] != null) {
+                failed[i] |= FAILED_AREA;
+            }
+        }
+
+        if (footprintIndex == null) {
+            footprintIndex = new FootprintIndex(minLat, maxLat, minLon, maxLon, size);
+        }
+
+        for (MapLayerPicArea picArea : picAreas) {
+            Sector sector = picArea.getSector();
+            if (sector == null) {
+                continue;
+            }
+
+            footprintIndex.forEachIntersecting(
+                sector.getMinLatitude().degrees,
+                sector.getMaxLatitude().degrees,
+                sector.getMinLongitude().degrees,
+                sector.getMaxLongitude().degrees,
+                i -> {
+                    if ((failed[i] & FAILED_AREA) != 0
+                            && picArea.intersectsWith(
+                                cornerData[i].getGroundProjectedCorners(), cornerData[i].getSector())) {
+                        failed[i] &= ~FAILED_AREA;
+                    }
+                });
+        }
+    }
+
+}
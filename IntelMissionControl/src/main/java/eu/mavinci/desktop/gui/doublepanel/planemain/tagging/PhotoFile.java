@@ -161,7 +161,9 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
             }
 
             Map<Tag, String> valueMap;
-            valueMap = ExifTool.instance.getImageMeta(source, Tag.IMAGE_WIDTH, Tag.IMAGE_HEIGHT);
+            synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+                valueMap = ExifTool.instance.getImageMeta(source, Tag.IMAGE_WIDTH, Tag.IMAGE_HEIGHT);
+            }
 
             String d = valueMap.get(Tag.IMAGE_WIDTH);
             if (d == null && source.exists()) {
@@ -169,7 +171,10 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
                 File tmp = new File(target.getAbsolutePath() + "~");
                 tmp.deleteOnExit();
                 FileHelper.copyFile(source, tmp);
-                valueMap = ExifTool.instance.getImageMeta(tmp, Tag.IMAGE_WIDTH, Tag.IMAGE_HEIGHT);
+                synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+                    valueMap = ExifTool.instance.getImageMeta(tmp, Tag.IMAGE_WIDTH, Tag.IMAGE_HEIGHT);
+                }
+
                 source = tmp;
                 // tmp.delete();
                 d = valueMap.get(Tag.IMAGE_WIDTH);
@@ -196,7 +201,10 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
                 // source
 
                 byte[] prevData;
-                prevData = ExifTool.instance.extractPreview(source);
+                synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+                    prevData = ExifTool.instance.extractPreview(source);
+                }
+
                 if (prevData == null || prevData.length == 0) {
                     throw new RuntimeException("no preview data contained in JPG");
                 }
@@ -496,14 +504,22 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
     }
 
     public void writeMetadata(IHardwareConfiguration hardwareConfiguration) throws Exception {
-        writeMetadata(
+        Map<Tag, String> map = createMetadata(hardwareConfiguration);
+        synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+            ExifTool.instance.setImageMeta(file, map);
+        }
+    }
+
+    /** Computes the EXIF tags {@link #writeMetadata} writes, without writing them. */
+    public Map<Tag, String> createMetadata(IHardwareConfiguration hardwareConfiguration) throws Exception {
+        return createMetadata(
             hardwareConfiguration,
             match.getMatching().getEstimatedStartingElevationInMoverWGS84(true),
             match.getRtkOffset());
     }
 
-    private void writeMetadata(IHardwareConfiguration hardwareConfiguration, double groundElevation, Vec4 rtkOffset)
-            throws Exception {
+    private Map<Tag, String> createMetadata(
+            IHardwareConfiguration hardwareConfiguration, double groundElevation, Vec4 rtkOffset) throws Exception {
         Ensure.notNull(hardwareConfiguration, "hardwareConfiguration");
 
         CPhotoLogLine line = getPhotoLogLine();
@@ -637,14 +653,16 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
         }
 
         Map<Tag, String> valueMap;
-        valueMap =
-            ExifTool.instance.getImageMeta(
-                file,
-                Tag.CREATION_DATE,
-                Tag.DATE_TIME_ORIGINAL,
-                Tag.CREATION_DATE_BACKUP,
-                Tag.DATE_TIME_ORIGINAL_BACKUP,
-                Tag.DATE_TIME_CREATED);
+        synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+            valueMap =
+                ExifTool.instance.getImageMeta(
+                    file,
+                    Tag.CREATION_DATE,
+                    Tag.DATE_TIME_ORIGINAL,
+                    Tag.CREATION_DATE_BACKUP,
+                    Tag.DATE_TIME_ORIGINAL_BACKUP,
+                    Tag.DATE_TIME_CREATED);
+        }
 
         String creationDateBackup = valueMap.get(Tag.CREATION_DATE_BACKUP);
         String dateTimeOriginalBackup = valueMap.get(Tag.DATE_TIME_ORIGINAL_BACKUP);
@@ -692,7 +710,7 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
 
         // System.out.println("exif data:" + map);
 
-        ExifTool.instance.setImageMeta(file, map);
+        return map;
     }
     // public static final int PREVIEW_HEIGHT = 120; //auto scaled..
 
@@ -702,7 +720,9 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
             Map<Tag, String> valueMap;
 
             try {
-                valueMap = ExifTool.instance.getImageMeta(file, Tag.ORIENTATION);
+                synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+                    valueMap = ExifTool.instance.getImageMeta(file, Tag.ORIENTATION);
+                }
             } catch (Exception e) {
                 if (ExifInfos.enableAllWarning) {
                     Debug.getLog().log(Level.SEVERE, "Unable to run ExifTool from image at " + file, e);
@@ -716,9 +736,11 @@ public class PhotoFile implements Comparable<PhotoFile>, IResourceFileReferenced
             if (orientation != 1) {
                 Map<Tag, String> map = new TreeMap<Tag, String>();
                 map.put(Tag.ORIENTATION, "1");
-                ExifTool.instance.setImageMeta(file, map);
+                synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+                    ExifTool.instance.setImageMeta(file, map);
+                    valueMap = ExifTool.instance.getImageMeta(file, Tag.ORIENTATION);
+                }
 
-                valueMap = ExifTool.instance.getImageMeta(file, Tag.ORIENTATION);
                 d = valueMap.get(Tag.ORIENTATION);
                 orientation = Double.parseDouble(d);
                 // System.out.println("final orientation "+orientation);
@@ -9,7 +9,6 @@ package eu.mavinci.desktop.gui.doublepanel.planemain.wwd;
 import com.intel.missioncontrol.StaticInjector;
 import com.intel.missioncontrol.map.worldwind.IWWGlobes;
 import com.intel.missioncontrol.settings.ExpertSettings;
-import eu.mavinci.airspace.Point;
 import eu.mavinci.core.desktop.listener.WeakListenerList;
 import eu.mavinci.core.flightplan.IMuteable;
 import eu.mavinci.core.helper.Pair;
@@ -37,17 +36,12 @@ import gov.nasa.worldwind.render.Renderable;
 import gov.nasa.worldwind.util.WWMath;
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.logging.Level;
-import javax.media.jai.PerspectiveTransform;
-import javax.media.jai.WarpPerspective;
 
 public class AerialPinholeImageLayer extends RenderableLayer
         implements IUserObjectComposite, IMuteable { // implements ISectorReferenced {
@@ -131,6 +125,7 @@ public class AerialPinholeImageLayer extends RenderableLayer
         }
     }
 
+    private final GroundProjectedMosaic mosaic = new GroundProjectedMosaic();
     RecomputeImageRunnable recompRun = new RecomputeImageRunnable();
     Recomputer recomp = new Recomputer(recompRun);
 
@@ -162,7 +157,6 @@ public class AerialPinholeImageLayer extends RenderableLayer
             //			System.out.println("tileSizeMax="+tileSizeMax);
 
             //			Graphics2D g = null;
-            Point[] cTran = null;
             boolean elevationDataReady = true;
             try {
                 Debug.getLog().fine("starting previewMake" + start);
@@ -235,247 +229,12 @@ public class AerialPinholeImageLayer extends RenderableLayer
                     //					System.out.println("tileHeight=" + tileHeight +  "  tileWidth="+tileWidth);
                 }
 
-                BufferedImage composedImage = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_4BYTE_ABGR);
-                final DataBuffer bufferD = composedImage.getRaster().getDataBuffer();
-
-                final int bytePerPixel_D = 4;
-                final int OFFSET_R_D = 3;
-                final int OFFSET_G_D = 2;
-                final int OFFSET_B_D = 1;
-                final int OFFSET_A_D = 0;
-                float[][] dist = new float[tileWidth][tileHeight];
-                for (int x = 0; x != tileWidth; ++x) {
-                    for (int y = 0; y != tileHeight; ++y) {
-                        dist[x][y] = Float.POSITIVE_INFINITY;
-                        int idxD = (y * tileWidth + x) * bytePerPixel_D;
-                        bufferD.setElem(idxD + OFFSET_A_D, 0); // enable alpha
-                    }
-                }
-                //				g = composedImage.createGraphics();
-                //		        g.setBackground(SurfaceImageWithUserData.transparencyColor);
-                //		        g.clearRect(0, 0, composedImage.getWidth(), composedImage.getHeight());
-                //		        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-                // RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-
+                BufferedImage composedImage;
                 if (sec != null && !imgs.isEmpty()) {
-                    double minX = sec.getMinLongitude().degrees;
-                    //					double minY = sec.getMinLatitude().degrees;
-                    double maxY = sec.getMaxLatitude().degrees;
-                    double dX = sec.getDeltaLonDegrees();
-                    double dY = sec.getDeltaLatDegrees();
-                    //					System.out.println("sec="+sec);
-                    //					System.out.println("minX="+minX + "maxY="+maxY + " dx="+dX+ " dy="+dY);
-
-                    for (AerialPinholeKnownImage img : imgs) {
-                        if (!img.shouldRender()) continue;
-                        ComputeCornerData computeCornerData = img.getComputeCornerData();
-                        if (computeCornerData == null) {
-                            continue;
-                        }
-
-                        Sector secThis = computeCornerData.getSector();
-                        if (secThis == null) continue;
-                        double dXThis = secThis.getDeltaLonDegrees();
-                        double dYThis = secThis.getDeltaLatDegrees();
-                        if (dXThis == 0 || dYThis == 0) {
-                            //							Debug.printStackTrace("null sector?!?!",secThis);
-                            continue;
-                        }
-
-                        ArrayList<LatLon> corners = computeCornerData.getGroundProjectedCorners();
-                        if (corners == null) continue;
-
-                        // this stuff was allready tested above, but maybe the corners where recomputed meanwhile and
-                        // now its somewhere 0
-                        Sector s = img.getSector();
-                        if (s == null) continue;
-                        if (s.getDeltaLatDegrees() == 0 || s.getDeltaLonDegrees() == 0) continue;
-
-                        Position center = computeCornerData.getCenterRayPosition();
-                        if (center == null) continue;
-
-                        MapLayerMatch match = img.getMatch();
-                        ImageMask mask = null;
-                        if (match != null) {
-                            mask = match.getMaskWide();
-                        }
-
-                        BufferedImage imgS = BufferedImageCache.getImage(img.getThumpFile(), mask);
-                        if (imgS == null) continue;
-
-                        int sourceWidth = imgS.getWidth();
-                        if (sourceWidth == 0) continue;
-                        int sourceHeight = imgS.getHeight();
-                        if (sourceHeight == 0) continue;
-
-                        //					System.out.println("transforming:"+img.getThumpFile().getAbsolutePath());
-                        //					System.out.println("secThis="+secThis);
-
-                        //						System.out.print("img:" + img.getMatch().getResourceFile().getName()+"\t");
-
-                        final int bytePerPixel;
-                        final int OFFSET_R;
-                        final int OFFSET_G;
-                        final int OFFSET_B;
-                        final int OFFSET_A;
-
-                        final DataBuffer bufferS = imgS.getRaster().getDataBuffer();
-                        switch (imgS.getType()) {
-                        case BufferedImage.TYPE_INT_RGB:
-                            bytePerPixel = 3;
-                            OFFSET_R = 0;
-                            OFFSET_G = 1;
-                            OFFSET_B = 2;
-                            OFFSET_A = -1;
-                            break;
-                        case BufferedImage.TYPE_INT_BGR:
-                        case BufferedImage.TYPE_3BYTE_BGR:
-                            bytePerPixel = 3;
-                            OFFSET_B = 0;
-                            OFFSET_G = 1;
-                            OFFSET_R = 2;
-                            OFFSET_A = -1;
-                            break;
-                        case BufferedImage.TYPE_INT_ARGB:
-                        case BufferedImage.TYPE_INT_ARGB_PRE:
-                            bytePerPixel = 4;
-                            OFFSET_A = 0;
-                            OFFSET_R = 1;
-                            OFFSET_G = 2;
-                            OFFSET_B = 3;
-                            break;
-                        case BufferedImage.TYPE_4BYTE_ABGR:
-                        case BufferedImage.TYPE_4BYTE_ABGR_PRE:
-                            bytePerPixel = 4;
-                            OFFSET_A = 0;
-                            OFFSET_B = 1;
-                            OFFSET_G = 2;
-                            OFFSET_R = 3;
-                            break;
-                        case BufferedImage.TYPE_BYTE_GRAY:
-                            bytePerPixel = 1;
-                            OFFSET_A = 0;
-                            OFFSET_B = 0;
-                            OFFSET_G = 0;
-                            OFFSET_R = 0;
-                            break;
-                        default:
-                            throw new IOException("could not load image, wrong colormodel: " + imgS.getType());
-                        }
-
-                        // LON = X , LAT = Y
-
-                        //					System.out.println("this: minX="+minXThis+ " minY="+minYThis + "maxY="+maxYThis + "
-                        // dx="+dXThis+ " dy="+dYThis);
-                        //					System.out.println("d="+d);
-                        //						int thumpOutSize = Math.max(d.width, d.height);
-
-                        cTran = new Point[4]; // airspace points are in double!
-                        for (int i = 0; i != 4; ++i) {
-                            LatLon latLon = corners.get(i);
-                            double x = tileWidth * (latLon.getLongitude().degrees - minX) / dX;
-                            double y = tileHeight * (maxY - latLon.getLatitude().degrees) / dY;
-                            Point p = new Point(x, y);
-                            cTran[i] = p;
-                            //							if (p.x <0 || p.y < 0 || p.x > d.width || p.y > d.height){
-                            //								throw new RuntimeException("Projection problem in corner i="+i + " of
-                            // img="+img.getThumpFile().getName()+ " p:"+p + "   not in d:"+d);
-                            //							}
-                            //							System.out.println("corner " + i + " @ "  +latLon +  "  ->  " + p);
-                        }
-
-                        double xCenter = tileWidth * (center.getLongitude().degrees - minX) / dX;
-                        double yCenter = tileHeight * (maxY - center.getLatitude().degrees) / dY;
-
-                        WarpPerspective wp =
-                            new WarpPerspective(
-                                PerspectiveTransform.getQuadToQuad(
-                                    cTran[0].x,
-                                    cTran[0].y,
-                                    cTran[1].x,
-                                    cTran[1].y,
-                                    cTran[2].x,
-                                    cTran[2].y,
-                                    cTran[3].x,
-                                    cTran[3].y,
-                                    0,
-                                    sourceHeight,
-                                    sourceWidth,
-                                    sourceHeight,
-                                    sourceWidth,
-                                    0,
-                                    0,
-                                    0));
-
-                        // possible target sector, scan this and search for source colors
-                        double minXThis = secThis.getMinLongitude().degrees;
-                        //					double minYThis = secThis.getMinLatitude().degrees;
-                        double maxYThis = secThis.getMaxLatitude().degrees;
-
-                        int dx1 = (int)(tileWidth * (minXThis - minX) / dX);
-                        int dy1 = (int)(tileHeight * (maxY - maxYThis) / dY);
-                        int dx2 = (int)(tileWidth * (minXThis - minX + dXThis) / dX);
-                        int dy2 = (int)(tileHeight * (maxY - maxYThis + dYThis) / dY);
-
-                        //						if (dx2<dx1) {
-                        //							int tmp = dx1;
-                        //							dx1 = dx2;
-                        //							dx2= tmp;
-                        //							System.out.println("swapX");
-                        //						}
-                        //						if (dy2<dy1) {
-                        //							int tmp = dy1;
-                        //							dy1 = dy2;
-                        //							dy2= tmp;
-                        //							System.out.println("swapY");
-                        //						}
-                        if (dx1 < 0) dx1 = 0;
-                        if (dy1 < 0) dy1 = 0;
-                        if (dx2 >= tileWidth) dx2 = tileWidth - 1;
-                        if (dy2 >= tileHeight) dy2 = tileHeight - 1;
-
-                        //						System.out.print(xCenter +"\t"+yCenter+"\t");
-
-                        //						System.out.println("---------");
-                        //						System.out.println("dest: " +tileWidth + " " + tileHeight);
-                        //						System.out.println("soruce: " +d.width + " " +d.height);
-                        //						int pixC=0;
-                        //						int pixC2=0;
-                        //						int pixC3=0;
-                        for (int x = dx1; x <= dx2; ++x) {
-                            for (int y = dy1; y <= dy2; ++y) {
-                                double distCenterX = (xCenter - x);
-                                double distCenterY = (yCenter - y);
-                                float distCenter = (float)(distCenterX * distCenterX + distCenterY * distCenterY);
-                                if (dist[x][y] <= distCenter) continue;
-                                //								pixC2++;
-                                // check if inside source image
-                                Point2D sourceP = wp.mapDestPoint(new java.awt.Point(x, y));
-                                //								System.out.print("\t" + new java.awt.Point(x,y) );
-                                int sourceX = (int)(sourceP.getX());
-                                if (sourceX < 0 || sourceX >= sourceWidth) continue;
-                                //								pixC3++;
-                                int sourceY = (int)(sourceP.getY());
-                                if (sourceY < 0 || sourceY >= sourceHeight) continue;
-
-                                // overwrite color and distance
-                                dist[x][y] = distCenter;
-                                //								System.out.println("dest: " + x + " " + y+ "  soruce: "+ sourceX+ "
-                                // "+sourceY);
-                                int idxD = (y * tileWidth + x) * bytePerPixel_D;
-                                int idxS = (sourceY * sourceWidth + sourceX) * bytePerPixel;
-
-                                if (OFFSET_A >= 0 && bufferS.getElem(idxS + OFFSET_A) == 0) continue;
-
-                                bufferD.setElem(idxD + OFFSET_A_D, 255); // disable alpha
-                                bufferD.setElem(idxD + OFFSET_R_D, bufferS.getElem(idxS + OFFSET_R));
-                                bufferD.setElem(idxD + OFFSET_G_D, bufferS.getElem(idxS + OFFSET_G));
-                                bufferD.setElem(idxD + OFFSET_B_D, bufferS.getElem(idxS + OFFSET_B));
-                                //								pixC++;
-                            }
-                        }
-                        //						System.out.println(pixC+"\t"+pixC2+"\t"+pixC3);
-                    }
+                    composedImage = mosaic.compose(sec, tileWidth, tileHeight, new ArrayList<>(imgs));
+                } else {
+                    mosaic.reset();
+                    composedImage = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_4BYTE_ABGR);
                 }
 
                 //				System.out.println();
@@ -524,13 +283,9 @@ public class AerialPinholeImageLayer extends RenderableLayer
                 }
 
             } catch (Exception e) {
-
+                mosaic.reset();
                 throw new RuntimeException(
-                    "problems wrapping: corners:"
-                        + (cTran == null ? null : Arrays.asList(cTran))
-                        + "  file:"
-                        + mapLayerPics.getMatching().getResourceFile(),
-                    e);
+                    "problems wrapping: file:" + mapLayerPics.getMatching().getResourceFile(), e);
             } finally {
                 //				if (g!= null) g.dispose();
                 Debug.getLog()
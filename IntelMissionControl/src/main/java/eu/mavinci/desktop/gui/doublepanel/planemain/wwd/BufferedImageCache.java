@@ -6,78 +6,51 @@
 
 package eu.mavinci.desktop.gui.doublepanel.planemain.wwd;
 
-import eu.mavinci.desktop.gui.doublepanel.planemain.tagging.PhotoFile;
-import eu.mavinci.desktop.helper.ImageHelper;
+import com.intel.missioncontrol.StaticInjector;
+import com.intel.missioncontrol.common.IPathProvider;
+import com.intel.missioncontrol.settings.ExpertSettings;
 import eu.mavinci.desktop.helper.ImageMask;
-import eu.mavinci.desktop.main.debug.Debug;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.lang.ref.Reference;
-import java.lang.ref.ReferenceQueue;
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
-import java.util.logging.Level;
+import java.nio.file.Path;
 
+/** Application wide {@link ImageCache} of thumbnails, sized by the expert settings. */
 public class BufferedImageCache {
 
-    static HashMap<String, SoftReference<BufferedImage>> hashMap =
-        new HashMap<String, SoftReference<BufferedImage>>(2000);
-    static ReferenceQueue<BufferedImage> queue = new ReferenceQueue<BufferedImage>();
+    private static final String DISK_DIRECTORY = "maskedThumbnails";
+    private static final long MAX_DISK_BYTES = 1024L * 1024L * 1024L;
 
-    public static synchronized BufferedImage getImage(File f, ImageMask imageMask) {
-        String key = f.getAbsolutePath();
-        if (imageMask != null) {
-            key += "_masked";
-        }
-
-        // cleanup cache
-        Reference<? extends BufferedImage> oldRef = queue.poll();
-        while (oldRef != null) {
-            hashMap.remove(oldRef);
-            oldRef = queue.poll();
-        }
+    private static class Holder {
+        static final ImageCache instance = createCache();
+    }
 
-        SoftReference<BufferedImage> ref = hashMap.get(key);
+    public static BufferedImage getImage(File f, ImageMask imageMask) {
+        return Holder.instance.getImage(f, imageMask);
+    }
 
-        BufferedImage bi = null;
-        if (ref != null) {
-            bi = ref.get();
-        }
-        // System.out.println("get img for from cache:" + f);
-        if (bi == null) {
-            // System.out.println(" cache miss!");
+    public static void dropFromCache(File f) {
+        Holder.instance.invalidate(f);
+    }
 
-            // System.out.println("loading:"+f.getAbsolutePath());
-            try {
-                if (!f.exists()) {
-                    throw new FileNotFoundException(f.getAbsolutePath());
-                }
+    public static ImageCache getCache() {
+        return Holder.instance;
+    }
 
-                bi = PhotoFile.convertFloatBuffImgIfNeeded(ImageHelper.loadImage(f));
-                if (imageMask != null) {
-                    // System.out.println("create image with mask:" + f);
-                    bi = imageMask.applyMask(bi);
-                    // ImageIO.write(bi, "png", new File("/home/marco/tmp/"+f.getName()+".png"));
-                    // } else {
-                    // Debug.printStackTrace(f,imageMask);
-                }
-            } catch (Exception e1) {
-                Debug.getLog().log(Level.SEVERE, "could not load image: " + f, e1);
-                return null;
-            }
-            //
-            hashMap.put(key, new SoftReference<BufferedImage>(bi, queue));
+    private static ImageCache createCache() {
+        ExpertSettings expertSettings = StaticInjector.getInstance(ExpertSettings.class);
+        long maxBytes =
+            expertSettings.getImageCacheSizeMb() > 0
+                ? expertSettings.getImageCacheSizeMb() * 1024L * 1024L
+                : Runtime.getRuntime().maxMemory() / 8;
+
+        Path diskDirectory = null;
+        if (expertSettings.getImageCacheOnDisk()) {
+            Path cacheDirectory = StaticInjector.getInstance(IPathProvider.class).getCacheDirectory();
+            diskDirectory = cacheDirectory != null ? cacheDirectory.resolve(DISK_DIRECTORY) : null;
         }
 
-        return bi;
-    }
-
-    public static synchronized void dropFromCache(File f) {
-        String key = f.getAbsolutePath();
-        hashMap.remove(key);
-        key += "_masked";
-        hashMap.remove(key);
+        return new ImageCache(maxBytes, diskDirectory, MAX_DISK_BYTES, MetricsRegistry.getDefault());
     }
 
 }
@@ -0,0 +1,461 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.gui.doublepanel.planemain.wwd;
+
+import eu.mavinci.desktop.gui.doublepanel.planemain.tagging.MapLayerMatch;
+import eu.mavinci.desktop.helper.ImageMask;
+import eu.mavinci.desktop.main.debug.Debug;
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.geom.Sector;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import javax.media.jai.PerspectiveTransform;
+import org.asyncfx.concurrent.FutureExecutorService;
+
+/**
+ * Composes the ground projected thumbnails of a dataset into one mosaic image, in which every pixel shows the image
+ * whose projected center is closest.
+ *
+ * <p>The mosaic is split into square blocks that are composed in parallel on the background threads, each block by a
+ * single thread, so the pixels and the depth buffer need no synchronization. Mosaic pixels are mapped into the
+ * thumbnails with the perspective transform of each image evaluated in closed form, and pixels are copied directly
+ * between the byte arrays of the rasters.
+ *
+ * <p>Pixels and depth buffer are kept between calls. As long as the sector and size of the mosaic stay the same, only
+ * the blocks touched by images that were added, removed, hidden, whose corners moved or whose thumbnail or mask
+ * changed are composed again.
+ */
+class GroundProjectedMosaic {
+
+    static final int BLOCK_SIZE = 256;
+
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int OFFSET_A = 0;
+    private static final int OFFSET_B = 1;
+    private static final int OFFSET_G = 2;
+    private static final int OFFSET_R = 3;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /** Where one image lands in the mosaic, in mosaic pixel coordinates. */
+    static final class Placement {
+        final File thumbFile;
+        final long thumbLastModified;
+        final ImageMask mask;
+        final double[] corners;
+        final double centerX;
+        final double centerY;
+        final int minX;
+        final int minY;
+        final int maxX;
+        final int maxY;
+
+        Placement(
+                File thumbFile,
+                long thumbLastModified,
+                ImageMask mask,
+                double[] corners,
+                double centerX,
+                double centerY,
+                int minX,
+                int minY,
+                int maxX,
+                int maxY) {
+            this.thumbFile = thumbFile;
+            this.thumbLastModified = thumbLastModified;
+            this.mask = mask;
+            this.corners = corners;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        boolean isSameAs(Placement other) {
+            // a new mask is a new instance, and a recreated thumbnail has a new modification time
+            return thumbFile.equals(other.thumbFile)
+                && thumbLastModified == other.thumbLastModified
+                && mask == other.mask
+                && centerX == other.centerX
+                && centerY == other.centerY
+                && Arrays.equals(corners, other.corners);
+        }
+    }
+
+    /** Direct access to the pixels of a thumbnail. */
+    private static final class SourceRaster {
+        final byte[] bytes;
+        final DataBuffer buffer;
+        final int bytesPerPixel;
+        final int offsetR;
+        final int offsetG;
+        final int offsetB;
+        final int offsetA;
+
+        private SourceRaster(
+                DataBuffer buffer, int bytesPerPixel, int offsetR, int offsetG, int offsetB, int offsetA) {
+            this.buffer = buffer;
+            this.bytes = buffer instanceof DataBufferByte ? ((DataBufferByte)buffer).getData() : null;
+            this.bytesPerPixel = bytesPerPixel;
+            this.offsetR = offsetR;
+            this.offsetG = offsetG;
+            this.offsetB = offsetB;
+            this.offsetA = offsetA;
+        }
+
+        static SourceRaster of(BufferedImage image) throws IOException {
+            DataBuffer buffer = image.getRaster().getDataBuffer();
+            switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+                return new SourceRaster(buffer, 3, 0, 1, 2, -1);
+            case BufferedImage.TYPE_INT_BGR:
+            case BufferedImage.TYPE_3BYTE_BGR:
+                return new SourceRaster(buffer, 3, 2, 1, 0, -1);
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+                return new SourceRaster(buffer, 4, 1, 2, 3, 0);
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+                return new SourceRaster(buffer, 4, 3, 2, 1, 0);
+            case BufferedImage.TYPE_BYTE_GRAY:
+                return new SourceRaster(buffer, 1, 0, 0, 0, 0);
+            default:
+                throw new IOException("could not load image, wrong colormodel: " + image.getType());
+            }
+        }
+
+        /** Copies a pixel into an ABGR byte array, unless it is transparent. */
+        void copyPixel(int sourcePixel, byte[] target, int targetIndex) {
+            int index = sourcePixel * bytesPerPixel;
+            if (bytes != null) {
+                if (offsetA >= 0 && bytes[index + offsetA] == 0) {
+                    return;
+                }
+
+                target[targetIndex + OFFSET_A] = (byte)255;
+                target[targetIndex + OFFSET_R] = bytes[index + offsetR];
+                target[targetIndex + OFFSET_G] = bytes[index + offsetG];
+                target[targetIndex + OFFSET_B] = bytes[index + offsetB];
+            } else {
+                if (offsetA >= 0 && buffer.getElem(index + offsetA) == 0) {
+                    return;
+                }
+
+                target[targetIndex + OFFSET_A] = (byte)255;
+                target[targetIndex + OFFSET_R] = (byte)buffer.getElem(index + offsetR);
+                target[targetIndex + OFFSET_G] = (byte)buffer.getElem(index + offsetG);
+                target[targetIndex + OFFSET_B] = (byte)buffer.getElem(index + offsetB);
+            }
+        }
+    }
+
+    private final BiFunction<File, ImageMask, BufferedImage> thumbnailLoader;
+    private Sector sector;
+    private int width;
+    private int height;
+    private byte[] pixels;
+    private float[] depth;
+    private Map<Object, Placement> placements = new IdentityHashMap<>();
+    private int lastComposedBlockCount;
+
+    GroundProjectedMosaic() {
+        this(BufferedImageCache::getImage);
+    }
+
+    /** @param thumbnailLoader loads the masked thumbnail of an image, or returns null if it is not available */
+    GroundProjectedMosaic(BiFunction<File, ImageMask, BufferedImage> thumbnailLoader) {
+        this.thumbnailLoader = thumbnailLoader;
+    }
+
+    /**
+     * Composes the given images into a mosaic covering the given sector. The returned image is not modified by later
+     * calls.
+     */
+    synchronized BufferedImage compose(Sector sector, int width, int height, List<AerialPinholeKnownImage> images)
+            throws IOException, InterruptedException {
+        double minX = sector.getMinLongitude().degrees;
+        double maxY = sector.getMaxLatitude().degrees;
+        double dX = sector.getDeltaLonDegrees();
+        double dY = sector.getDeltaLatDegrees();
+
+        List<Object> keys = new ArrayList<>(images.size());
+        List<Placement> placed = new ArrayList<>(images.size());
+        for (AerialPinholeKnownImage image : images) {
+            Placement placement = place(image, minX, maxY, dX, dY, width, height);
+            if (placement != null) {
+                keys.add(image);
+                placed.add(placement);
+            }
+        }
+
+        return compose(sector, width, height, keys, placed);
+    }
+
+    /**
+     * Composes images that were already placed into the mosaic. Placements are matched with the ones of the last call
+     * by the identity of their keys.
+     */
+    synchronized BufferedImage compose(Sector sector, int width, int height, List<?> keys, List<Placement> placed)
+            throws IOException, InterruptedException {
+        List<Placement> ordered = new ArrayList<>(placed.size());
+        Map<Object, Placement> current = new IdentityHashMap<>();
+        for (int i = 0; i < placed.size(); i++) {
+            if (current.put(keys.get(i), placed.get(i)) == null) {
+                ordered.add(placed.get(i));
+            }
+        }
+
+        int blocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blocksY = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        boolean[] dirty = new boolean[blocksX * blocksY];
+        if (!sector.equals(this.sector) || width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            pixels = new byte[width * height * BYTES_PER_PIXEL];
+            depth = new float[width * height];
+            Arrays.fill(dirty, true);
+        } else {
+            for (Map.Entry<Object, Placement> entry : current.entrySet()) {
+                Placement previous = placements.get(entry.getKey());
+                if (previous == null || !previous.isSameAs(entry.getValue())) {
+                    markDirty(dirty, blocksX, entry.getValue());
+                    if (previous != null) {
+                        markDirty(dirty, blocksX, previous);
+                    }
+                }
+            }
+
+            for (Map.Entry<Object, Placement> entry : placements.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    markDirty(dirty, blocksX, entry.getValue());
+                }
+            }
+        }
+
+        int[] dirtyBlocks = new int[dirty.length];
+        int dirtyCount = 0;
+        for (int block = 0; block < dirty.length; block++) {
+            if (dirty[block]) {
+                dirtyBlocks[dirtyCount++] = block;
+            }
+        }
+
+        // one task per processor, each taking the next dirty block until all are done
+        int blockCount = dirtyCount;
+        AtomicInteger nextBlock = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(PARALLELISM, blockCount); i++) {
+            tasks.add(
+                () -> {
+                    for (int b = nextBlock.getAndIncrement(); b < blockCount; b = nextBlock.getAndIncrement()) {
+                        int block = dirtyBlocks[b];
+                        composeBlock((block % blocksX) * BLOCK_SIZE, (block / blocksX) * BLOCK_SIZE, ordered);
+                    }
+
+                    return null;
+                });
+        }
+
+        // until all blocks are done, the pixels don't match any placements, so a failure forces a full recompute
+        this.sector = null;
+        placements = new IdentityHashMap<>();
+        try {
+            for (Future<Void> future : FutureExecutorService.getInstance().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+
+            throw new RuntimeException(e.getCause());
+        }
+
+        this.sector = sector;
+        placements = current;
+        lastComposedBlockCount = blockCount;
+        Debug.getLog().fine("composed " + blockCount + " of " + dirty.length + " mosaic blocks");
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+        System.arraycopy(pixels, 0, ((DataBufferByte)image.getRaster().getDataBuffer()).getData(), 0, pixels.length);
+        return image;
+    }
+
+    /** Returns the number of blocks composed by the last call of {@link #compose}. */
+    synchronized int getLastComposedBlockCount() {
+        return lastComposedBlockCount;
+    }
+
+    /** Forgets the current mosaic, so the next call composes it from scratch. */
+    synchronized void reset() {
+        sector = null;
+        pixels = null;
+        depth = null;
+        placements = new IdentityHashMap<>();
+    }
+
+    private static Placement place(
+            AerialPinholeKnownImage image, double minX, double maxY, double dX, double dY, int width, int height) {
+        if (!image.shouldRender()) {
+            return null;
+        }
+
+        ComputeCornerData computeCornerData = image.getComputeCornerData();
+        if (computeCornerData == null) {
+            return null;
+        }
+
+        Sector imageSector = computeCornerData.getSector();
+        if (imageSector == null) {
+            return null;
+        }
+
+        double dXImage = imageSector.getDeltaLonDegrees();
+        double dYImage = imageSector.getDeltaLatDegrees();
+        if (dXImage == 0 || dYImage == 0) {
+            return null;
+        }
+
+        ArrayList<LatLon> corners = computeCornerData.getGroundProjectedCorners();
+        if (corners == null) {
+            return null;
+        }
+
+        // the corners may have been recomputed since the caller checked them
+        Sector sector = image.getSector();
+        if (sector == null || sector.getDeltaLatDegrees() == 0 || sector.getDeltaLonDegrees() == 0) {
+            return null;
+        }
+
+        Position center = computeCornerData.getCenterRayPosition();
+        if (center == null) {
+            return null;
+        }
+
+        MapLayerMatch match = image.getMatch();
+        ImageMask mask = match != null ? match.getMaskWide() : null;
+
+        // LON = X , LAT = Y
+        double[] cornerPixels = new double[8];
+        for (int i = 0; i != 4; ++i) {
+            LatLon latLon = corners.get(i);
+            cornerPixels[2 * i] = width * (latLon.getLongitude().degrees - minX) / dX;
+            cornerPixels[2 * i + 1] = height * (maxY - latLon.getLatitude().degrees) / dY;
+        }
+
+        double centerX = width * (center.getLongitude().degrees - minX) / dX;
+        double centerY = height * (maxY - center.getLatitude().degrees) / dY;
+
+        // possible target area, the pixels in there are mapped back into the source image
+        double minXImage = imageSector.getMinLongitude().degrees;
+        double maxYImage = imageSector.getMaxLatitude().degrees;
+        int x1 = Math.max(0, (int)(width * (minXImage - minX) / dX));
+        int y1 = Math.max(0, (int)(height * (maxY - maxYImage) / dY));
+        int x2 = Math.min(width - 1, (int)(width * (minXImage - minX + dXImage) / dX));
+        int y2 = Math.min(height - 1, (int)(height * (maxY - maxYImage + dYImage) / dY));
+
+        File thumbFile = image.getThumpFile();
+        return new Placement(
+            thumbFile, thumbFile.lastModified(), mask, cornerPixels, centerX, centerY, x1, y1, x2, y2);
+    }
+
+    private static void markDirty(boolean[] dirty, int blocksX, Placement placement) {
+        for (int blockY = placement.minY / BLOCK_SIZE; blockY <= placement.maxY / BLOCK_SIZE; blockY++) {
+            for (int blockX = placement.minX / BLOCK_SIZE; blockX <= placement.maxX / BLOCK_SIZE; blockX++) {
+                dirty[blockY * blocksX + blockX] = true;
+            }
+        }
+    }
+
+    private void composeBlock(int x0, int y0, List<Placement> ordered) throws IOException {
+        int x1 = Math.min(x0 + BLOCK_SIZE, width) - 1;
+        int y1 = Math.min(y0 + BLOCK_SIZE, height) - 1;
+        for (int y = y0; y <= y1; y++) {
+            int rowStart = y * width;
+            Arrays.fill(depth, rowStart + x0, rowStart + x1 + 1, Float.POSITIVE_INFINITY);
+            Arrays.fill(pixels, (rowStart + x0) * BYTES_PER_PIXEL, (rowStart + x1 + 1) * BYTES_PER_PIXEL, (byte)0);
+        }
+
+        // images are drawn in the order of the layer, so ties in the distance are resolved like before
+        for (Placement placement : ordered) {
+            int minX = Math.max(placement.minX, x0);
+            int minY = Math.max(placement.minY, y0);
+            int maxX = Math.min(placement.maxX, x1);
+            int maxY = Math.min(placement.maxY, y1);
+            if (minX > maxX || minY > maxY) {
+                continue;
+            }
+
+            BufferedImage source = thumbnailLoader.apply(placement.thumbFile, placement.mask);
+            if (source == null) {
+                continue;
+            }
+
+            int sourceWidth = source.getWidth();
+            int sourceHeight = source.getHeight();
+            if (sourceWidth == 0 || sourceHeight == 0) {
+                continue;
+            }
+
+            SourceRaster raster = SourceRaster.of(source);
+            double[] c = placement.corners;
+            double[][] m =
+                PerspectiveTransform.getQuadToQuad(
+                        c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], 0, sourceHeight, sourceWidth, sourceHeight,
+                        sourceWidth, 0, 0, 0)
+                    .getMatrix(new double[3][3]);
+
+            for (int y = minY; y <= maxY; ++y) {
+                double distCenterY = placement.centerY - y;
+                double rowX = m[0][1] * y + m[0][2];
+                double rowY = m[1][1] * y + m[1][2];
+                double rowW = m[2][1] * y + m[2][2];
+                for (int x = minX; x <= maxX; ++x) {
+                    int index = y * width + x;
+                    double distCenterX = placement.centerX - x;
+                    float distCenter = (float)(distCenterX * distCenterX + distCenterY * distCenterY);
+                    if (depth[index] <= distCenter) {
+                        continue;
+                    }
+
+                    // check if inside source image
+                    double w = m[2][0] * x + rowW;
+                    int sourceX = (int)((m[0][0] * x + rowX) / w);
+                    if (sourceX < 0 || sourceX >= sourceWidth) {
+                        continue;
+                    }
+
+                    int sourceY = (int)((m[1][0] * x + rowY) / w);
+                    if (sourceY < 0 || sourceY >= sourceHeight) {
+                        continue;
+                    }
+
+                    // overwrite color and distance
+                    depth[index] = distCenter;
+                    raster.copyPixel(sourceY * sourceWidth + sourceX, pixels, index * BYTES_PER_PIXEL);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,458 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.gui.doublepanel.planemain.wwd;
+
+import com.intel.missioncontrol.utils.CacheFiles;
+import eu.mavinci.desktop.gui.doublepanel.planemain.tagging.PhotoFile;
+import eu.mavinci.desktop.helper.ImageHelper;
+import eu.mavinci.desktop.helper.ImageMask;
+import eu.mavinci.desktop.main.debug.Debug;
+import eu.mavinci.desktop.main.debug.profiling.metrics.Counter;
+import eu.mavinci.desktop.main.debug.profiling.metrics.LatencyHistogram;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.logging.Level;
+import javax.imageio.ImageIO;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Concurrent cache of decoded (and optionally masked) images, bounded by the number of bytes of their rasters.
+ *
+ * <p>Lookups of cached images don't block. Images are decoded outside of any lock, and concurrent requests for the
+ * same image wait for a single load instead of decoding it again.
+ *
+ * <p>Eviction follows W-TinyLFU: new images enter a small LRU window, and an image leaving the window only replaces
+ * the least recently used image of the main area if it was requested more often recently. Access frequencies are
+ * estimated with a {@link FrequencySketch}. Under contention, accesses to cached images may go unrecorded, which only
+ * makes the eviction order less precise.
+ *
+ * <p>If a disk directory is given, masked variants of images are stored there as PNG, so they don't need to be masked
+ * again in the next session. The directory is bounded by a number of bytes: when the cache is created, and whenever
+ * writes take it beyond the bound, the least recently used files are deleted.
+ */
+public final class ImageCache {
+
+    private static final char KEY_SEPARATOR = '|';
+    private static final double WINDOW_FRACTION = 0.01;
+    private static final long TYPICAL_IMAGE_BYTES = 256 * 1024;
+
+    // pruning leaves room for more writes, so it doesn't run again on every write
+    private static final double DISK_PRUNE_FRACTION = 0.75;
+
+    private static final class Entry {
+        final String key;
+        final BufferedImage image;
+        final long weight;
+
+        Entry(String key, BufferedImage image, long weight) {
+            this.key = key;
+            this.image = image;
+            this.weight = weight;
+        }
+    }
+
+    private static final class DiskFile {
+        final Path path;
+        final long size;
+        final long lastModified;
+
+        DiskFile(Path path, BasicFileAttributes attributes) {
+            this.path = path;
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    private final long maxBytes;
+    private final long windowMaxBytes;
+    private final @Nullable Path diskDirectory;
+    private final long maxDiskBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final AtomicBoolean diskPruning = new AtomicBoolean();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<BufferedImage>> loads = new ConcurrentHashMap<>();
+
+    // loads that were started before an invalidation don't admit their image, it may be stale
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // guards the eviction policy: window, main area, their sizes and the sketch
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long windowBytes;
+    private long mainBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loadFailures;
+    private final Counter diskHits;
+    private final Counter diskEvictions;
+    private final Counter evictions;
+    private final LatencyHistogram loadLatency;
+
+    public ImageCache(long maxBytes, @Nullable Path diskDirectory, long maxDiskBytes, MetricsRegistry metrics) {
+        this.maxBytes = maxBytes;
+        this.windowMaxBytes = Math.max(1, (long)(maxBytes * WINDOW_FRACTION));
+        this.diskDirectory = diskDirectory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.sketch = new FrequencySketch((int)Math.min(Integer.MAX_VALUE, maxBytes / TYPICAL_IMAGE_BYTES));
+        hits = metrics.counter("imageCache.hits");
+        misses = metrics.counter("imageCache.misses");
+        loadFailures = metrics.counter("imageCache.loadFailures");
+        diskHits = metrics.counter("imageCache.diskHits");
+        diskEvictions = metrics.counter("imageCache.diskEvictions");
+        evictions = metrics.counter("imageCache.evictions");
+        loadLatency = metrics.histogram("imageCache.loadLatency");
+        metrics.gauge("imageCache.bytes", this::getWeightedBytes);
+        metrics.gauge("imageCache.hitRate", this::getHitRate);
+        if (diskDirectory != null) {
+            pruneDisk();
+        }
+    }
+
+    /**
+     * Returns the image of the file, with the mask applied if one is given, or null if it can't be loaded. The returned
+     * image is shared and must not be modified.
+     */
+    public @Nullable BufferedImage getImage(File file, @Nullable ImageMask imageMask) {
+        String key = keyOf(file, imageMask);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits.increment();
+            recordAccess(key);
+            return entry.image;
+        }
+
+        misses.increment();
+        CompletableFuture<BufferedImage> load = new CompletableFuture<>();
+        CompletableFuture<BufferedImage> pending = loads.putIfAbsent(key, load);
+        if (pending != null) {
+            return pending.join();
+        }
+
+        BufferedImage image = null;
+        try {
+            // another thread may have finished loading between the lookup and the registration of our load
+            long invalidationCount = invalidations.get();
+            entry = entries.get(key);
+            if (entry != null) {
+                image = entry.image;
+            } else {
+                image = load(file, imageMask, key);
+                if (image != null) {
+                    admit(key, image, invalidationCount);
+                }
+            }
+
+            return image;
+        } finally {
+            load.complete(image);
+            loads.remove(key, load);
+        }
+    }
+
+    /**
+     * Drops the plain and all masked images of the file. Loads of the file that are in progress complete for their
+     * callers, but their images are not cached.
+     */
+    public void invalidate(File file) {
+        String prefix = file.getAbsolutePath() + KEY_SEPARATOR;
+        policyLock.lock();
+        try {
+            invalidations.incrementAndGet();
+            loads.keySet().removeIf(key -> key.startsWith(prefix));
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (entry.key.startsWith(prefix)) {
+                    it.remove();
+                    removeFromPolicy(entry);
+                }
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getWeightedBytes() {
+        policyLock.lock();
+        try {
+            return windowBytes + mainBytes;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long requestCount = hitCount + misses.get();
+        return requestCount == 0 ? 1.0 : (double)hitCount / requestCount;
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the key of the image of the file with the mask applied. It changes whenever the file or the mask file is
+     * written again, so an image is not served anymore once its thumbnail was regenerated or its mask recomputed. Masks
+     * that don't come from a file are told apart by their identity.
+     */
+    private static String keyOf(File file, @Nullable ImageMask imageMask) {
+        StringBuilder key =
+            new StringBuilder(file.getAbsolutePath())
+                .append(KEY_SEPARATOR)
+                .append(file.lastModified())
+                .append(KEY_SEPARATOR)
+                .append(file.length());
+        if (imageMask != null) {
+            File maskFile = imageMask.getFile();
+            key.append(KEY_SEPARATOR);
+            if (maskFile != null) {
+                key.append(maskFile.getAbsolutePath()).append(KEY_SEPARATOR).append(maskFile.lastModified());
+            } else {
+                key.append('@').append(System.identityHashCode(imageMask));
+            }
+        }
+
+        return key.toString();
+    }
+
+    private @Nullable BufferedImage load(File file, @Nullable ImageMask imageMask, String key) {
+        long start = System.nanoTime();
+        try {
+            if (!file.exists()) {
+                throw new FileNotFoundException(file.getAbsolutePath());
+            }
+
+            File diskFile = getDiskFile(imageMask, key);
+            if (diskFile != null && diskFile.exists()) {
+                BufferedImage image = ImageIO.read(diskFile);
+                if (image != null) {
+                    // the modification time orders the files for pruning
+                    diskFile.setLastModified(System.currentTimeMillis());
+                    diskHits.increment();
+                    return image;
+                }
+            }
+
+            BufferedImage image = PhotoFile.convertFloatBuffImgIfNeeded(ImageHelper.loadImage(file));
+            if (imageMask != null) {
+                image = imageMask.applyMask(image);
+                if (diskFile != null) {
+                    writeToDisk(image, diskFile);
+                }
+            }
+
+            return image;
+        } catch (Exception e) {
+            loadFailures.increment();
+            Debug.getLog().log(Level.SEVERE, "could not load image: " + file, e);
+            return null;
+        } finally {
+            loadLatency.recordSince(start);
+        }
+    }
+
+    /** Masked variants are only stored if the mask comes from a file, otherwise they can't be told apart. */
+    private @Nullable File getDiskFile(@Nullable ImageMask imageMask, String key) {
+        if (diskDirectory == null || imageMask == null || imageMask.getFile() == null) {
+            return null;
+        }
+
+        return CacheFiles.resolve(diskDirectory, key, ".png").toFile();
+    }
+
+    private void writeToDisk(BufferedImage image, File diskFile) {
+        try {
+            CacheFiles.write(diskFile.toPath(), out -> ImageIO.write(image, "png", out));
+            if (diskBytes.addAndGet(diskFile.length()) > maxDiskBytes && diskPruning.compareAndSet(false, true)) {
+                try {
+                    pruneDisk();
+                } finally {
+                    diskPruning.set(false);
+                }
+            }
+        } catch (IOException e) {
+            Debug.getLog().log(Level.WARNING, "could not cache masked image: " + diskFile, e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used files of the disk directory until it is well within its bound, and recounts the
+     * bytes of the remaining files.
+     */
+    private void pruneDisk() {
+        List<DiskFile> files = new ArrayList<>();
+        long totalBytes = 0;
+        try (Stream<Path> paths = Files.list(diskDirectory)) {
+            for (Iterator<Path> it = paths.iterator(); it.hasNext(); ) {
+                Path path = it.next();
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    DiskFile file = new DiskFile(path, attributes);
+                    files.add(file);
+                    totalBytes += file.size;
+                }
+            }
+        } catch (IOException e) {
+            // the directory doesn't exist yet, or a file was deleted while listing; the bytes are counted again later
+            diskBytes.set(totalBytes);
+            return;
+        }
+
+        if (totalBytes > maxDiskBytes) {
+            files.sort(Comparator.comparingLong(file -> file.lastModified));
+            long targetBytes = (long)(maxDiskBytes * DISK_PRUNE_FRACTION);
+            for (Iterator<DiskFile> it = files.iterator(); it.hasNext() && totalBytes > targetBytes; ) {
+                DiskFile file = it.next();
+                try {
+                    Files.deleteIfExists(file.path);
+                    totalBytes -= file.size;
+                    diskEvictions.increment();
+                } catch (IOException e) {
+                    Debug.getLog().log(Level.WARNING, "could not delete cached masked image: " + file.path, e);
+                }
+            }
+        }
+
+        diskBytes.set(totalBytes);
+    }
+
+    private void recordAccess(String key) {
+        if (!policyLock.tryLock()) {
+            return;
+        }
+
+        try {
+            sketch.increment(key);
+            if (window.get(key) == null) {
+                main.get(key);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void admit(String key, BufferedImage image, long invalidationCount) {
+        long weight = weigh(image);
+        policyLock.lock();
+        try {
+            if (invalidations.get() != invalidationCount) {
+                return;
+            }
+
+            sketch.increment(key);
+            if (weight > maxBytes) {
+                return;
+            }
+
+            Entry entry = new Entry(key, image, weight);
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                removeFromPolicy(previous);
+            }
+
+            window.put(key, entry);
+            windowBytes += weight;
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void evict() {
+        while (windowBytes > windowMaxBytes && !window.isEmpty()) {
+            Entry candidate = removeEldest(window);
+            windowBytes -= candidate.weight;
+            admitToMain(candidate);
+        }
+
+        // only if a single image is larger than the space left for the main area
+        while (windowBytes + mainBytes > maxBytes) {
+            if (!main.isEmpty()) {
+                Entry victim = removeEldest(main);
+                mainBytes -= victim.weight;
+                discard(victim);
+            } else {
+                Entry victim = removeEldest(window);
+                windowBytes -= victim.weight;
+                discard(victim);
+            }
+        }
+    }
+
+    private void admitToMain(Entry candidate) {
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (windowBytes + mainBytes + candidate.weight > maxBytes && !main.isEmpty()) {
+            Entry victim = main.values().iterator().next();
+            if (sketch.frequency(victim.key) >= candidateFrequency) {
+                discard(candidate);
+                return;
+            }
+
+            main.remove(victim.key);
+            mainBytes -= victim.weight;
+            discard(victim);
+        }
+
+        main.put(candidate.key, candidate);
+        mainBytes += candidate.weight;
+    }
+
+    private void removeFromPolicy(Entry entry) {
+        if (window.remove(entry.key, entry)) {
+            windowBytes -= entry.weight;
+        } else if (main.remove(entry.key, entry)) {
+            mainBytes -= entry.weight;
+        }
+    }
+
+    private void discard(Entry entry) {
+        entries.remove(entry.key, entry);
+        evictions.increment();
+    }
+
+    private static Entry removeEldest(LinkedHashMap<String, Entry> area) {
+        Iterator<Entry> iterator = area.values().iterator();
+        Entry eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    private static long weigh(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long)buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+}
@@ -40,7 +40,9 @@ public class ImageHelper {
 
     public static final String KEY = "eu.mavinci.desktop.helper.ImageHelper";
 
-    public static synchronized BufferedImage loadImage(File file) throws IOException {
+    private static final Object tiffLock = new Object();
+
+    public static BufferedImage loadImage(File file) throws IOException {
         // since WWJ installs some own tiff reader, we have to avoid this one,
         // to be able to read rikola tiffs without problems
         if (!file.exists()) {
@@ -57,18 +59,21 @@ public class ImageHelper {
 
         // rikola tiff images are broken due to gdal tiff reader placed by factory pattern into java imageIO
         if (MFileFilter.tiffFilter.accept(file)) {
-            FileSeekableStream stream = new FileSeekableStream(file);
-            TIFFDecodeParam decodeParam = new TIFFDecodeParam();
-            decodeParam.setDecodePaletteAsShorts(true);
-            ParameterBlock params = new ParameterBlock();
-            params.add(stream);
-            RenderedOp image1 = JAI.create("tiff", params);
-            BufferedImage img = image1.getAsBufferedImage();
-            if (img == null) {
-                throw new IOException("cant read image:" + file);
-            }
+            // only the JAI path stays serialized, ImageIO decodes concurrently
+            synchronized (tiffLock) {
+                FileSeekableStream stream = new FileSeekableStream(file);
+                TIFFDecodeParam decodeParam = new TIFFDecodeParam();
+                decodeParam.setDecodePaletteAsShorts(true);
+                ParameterBlock params = new ParameterBlock();
+                params.add(stream);
+                RenderedOp image1 = JAI.create("tiff", params);
+                BufferedImage img = image1.getAsBufferedImage();
+                if (img == null) {
+                    throw new IOException("cant read image:" + file);
+                }
 
-            return img;
+                return img;
+            }
         } else {
             BufferedImage img = ImageIO.read(file);
             if (img == null) {
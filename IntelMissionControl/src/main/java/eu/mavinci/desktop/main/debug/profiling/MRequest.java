@@ -8,12 +8,25 @@ package eu.mavinci.desktop.main.debug.profiling;
 
 import com.logicstyle.samplr.Request;
 import eu.mavinci.core.obfuscation.IKeepClassname;
+import eu.mavinci.desktop.main.debug.profiling.metrics.LatencyHistogram;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
 
 public abstract class MRequest extends Request implements IKeepClassname {
 
+    private static final ClassValue<LatencyHistogram> HISTOGRAMS =
+        new ClassValue<>() {
+            @Override
+            protected LatencyHistogram computeValue(Class<?> type) {
+                return MetricsRegistry.getDefault().histogram("request." + type.getSimpleName());
+            }
+        };
+
     long requestLengthSamplingThreshold;
     long maximalRequestToSample;
 
+    private long metricsStartNanos;
+    private ProfilingRequestEvent event;
+
     public MRequest(long requestLengthSamplingThreshold, long maximalRequestToSample) {
         this.requestLengthSamplingThreshold = requestLengthSamplingThreshold;
         this.maximalRequestToSample = maximalRequestToSample;
@@ -30,6 +43,37 @@ public abstract class MRequest extends Request implements IKeepClassname {
         return ret;
     }
 
+    /** Starts the always-on measurement, independent of whether the sampling profiler is enabled. */
+    void metricsStarted() {
+        ProfilingRequestEvent event = new ProfilingRequestEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            this.event = event;
+        }
+
+        metricsStartNanos = System.nanoTime();
+    }
+
+    void metricsFinished() {
+        if (metricsStartNanos == 0) {
+            return;
+        }
+
+        HISTOGRAMS.get(getClass()).recordSince(metricsStartNanos);
+        metricsStartNanos = 0;
+
+        ProfilingRequestEvent event = this.event;
+        if (event != null) {
+            this.event = null;
+            event.end();
+            if (event.shouldCommit()) {
+                event.requestType = getClass().getSimpleName();
+                event.requestId = String.valueOf(getId());
+                event.commit();
+            }
+        }
+    }
+
     public abstract void sampleThis();
 
     public abstract boolean isSlowestUpToNow(long duration);
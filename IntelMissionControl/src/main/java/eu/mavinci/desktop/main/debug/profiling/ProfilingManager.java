@@ -14,8 +14,14 @@ import eu.mavinci.core.desktop.main.debug.IProfilingListener;
 import eu.mavinci.core.desktop.main.debug.IProfilingManager;
 import eu.mavinci.desktop.main.core.Application;
 import eu.mavinci.desktop.main.core.IAppListener;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
 import eu.mavinci.desktop.main.debug.profiling.requests.AppCloseRequest;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,11 +29,16 @@ public class ProfilingManager implements IProfilingManager, IAppListener {
 
     private static Logger LOGGER = LoggerFactory.getLogger(ProfilingManager.class);
 
+    private static final String METRICS_REPORT = "metrics.jsonl";
+
     AppCloseRequest closeRequest;
 
     WeakListenerList<IProfilingListener> listeners = new WeakListenerList<>("ProfilingManager");
 
+    private final File profilingsFolder;
+
     public ProfilingManager(File profilingsFolder, boolean isEnabled) {
+        this.profilingsFolder = profilingsFolder;
         enableProfiling = isEnabled;
         LOGGER.info("enableProfiling=" + enableProfiling);
 
@@ -57,6 +68,10 @@ public class ProfilingManager implements IProfilingManager, IAppListener {
     public boolean uiReadyLoaded = false;
 
     public void requestStarting(Request request) {
+        if (request instanceof MRequest) {
+            ((MRequest)request).metricsStarted();
+        }
+
         if (!uiReadyLoaded) {
             return;
         }
@@ -68,6 +83,10 @@ public class ProfilingManager implements IProfilingManager, IAppListener {
     }
 
     public void requestFinished(Request request) {
+        if (request instanceof MRequest) {
+            ((MRequest)request).metricsFinished();
+        }
+
         if (!uiReadyLoaded) {
             return;
         }
@@ -101,6 +120,20 @@ public class ProfilingManager implements IProfilingManager, IAppListener {
 
         enableProfiling = false;
         requestManager.shutdown();
+        writeMetricsReport();
+    }
+
+    /** Appends the metrics of this session to the profiling folder, so they can be compared across builds. */
+    private void writeMetricsReport() {
+        File reportFile = new File(profilingsFolder, METRICS_REPORT);
+        try (Writer writer =
+            Files.newBufferedWriter(
+                reportFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(MetricsRegistry.getDefault().snapshot().toJson());
+            writer.write('\n');
+        } catch (IOException e) {
+            LOGGER.warn("Could not write metrics report " + reportFile, e);
+        }
     }
 
     @Override
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.main.debug.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event spanning an {@link MRequest}, from requestStarting to requestFinished. */
+@Name("com.intel.missioncontrol.ProfilingRequest")
+@Label("Profiling Request")
+@Description("Duration of a profiled request, such as rendering or computing a flight plan")
+@Category({"Intel Mission Control", "Profiling"})
+@StackTrace(false)
+final class ProfilingRequestEvent extends Event {
+
+    @Label("Request Type")
+    String requestType;
+
+    @Label("Request Id")
+    String requestId;
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.main.debug.profiling.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A monotonically increasing count. Increments from many threads don't contend on a single memory location. */
+public final class Counter {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+}
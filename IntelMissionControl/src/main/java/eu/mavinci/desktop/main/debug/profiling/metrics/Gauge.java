@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.main.debug.profiling.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/** A value that is sampled when a snapshot is taken, for example a queue length or the used heap. */
+public final class Gauge {
+
+    private final String name;
+    private final DoubleSupplier supplier;
+
+    Gauge(String name, DoubleSupplier supplier) {
+        this.name = name;
+        this.supplier = supplier;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double get() {
+        try {
+            return supplier.getAsDouble();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.main.debug.profiling.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Always-on registry of counters, gauges and latency histograms. Unlike the sampling profiler of
+ * {@link eu.mavinci.desktop.main.debug.profiling.ProfilingManager}, recording is cheap enough to stay enabled in
+ * production builds, so latencies can be compared across builds via {@link #snapshot()}.
+ *
+ * <p>Metrics are created on first use and live for the lifetime of the registry. Hot code paths should keep the
+ * returned metric in a field instead of looking it up by name each time.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /** Registers a gauge, replacing any previous gauge with the same name. */
+    public Gauge gauge(String name, DoubleSupplier supplier) {
+        Gauge gauge = new Gauge(name, supplier);
+        gauges.put(name, gauge);
+        return gauge;
+    }
+
+    public MetricsSnapshot snapshot() {
+        List<Counter> counters = new ArrayList<>(this.counters.values());
+        List<Gauge> gauges = new ArrayList<>(this.gauges.values());
+        List<LatencyHistogram.Snapshot> histograms = new ArrayList<>();
+        for (LatencyHistogram histogram : this.histograms.values()) {
+            histograms.add(histogram.snapshot());
+        }
+
+        return new MetricsSnapshot(System.currentTimeMillis(), counters, gauges, histograms);
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.main.debug.profiling.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Immutable copy of all metrics of a {@link MetricsRegistry}, sorted by name. */
+public final class MetricsSnapshot {
+
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    private final long timestamp;
+    private final Map<String, Long> counters = new TreeMap<>();
+    private final Map<String, Double> gauges = new TreeMap<>();
+    private final Map<String, LatencyHistogram.Snapshot> histograms = new TreeMap<>();
+
+    MetricsSnapshot(
+            long timestamp, List<Counter> counters, List<Gauge> gauges, List<LatencyHistogram.Snapshot> histograms) {
+        this.timestamp = timestamp;
+        for (Counter counter : counters) {
+            this.counters.put(counter.getName(), counter.get());
+        }
+
+        for (Gauge gauge : gauges) {
+            this.gauges.put(gauge.getName(), gauge.get());
+        }
+
+        for (LatencyHistogram.Snapshot histogram : histograms) {
+            this.histograms.put(histogram.getName(), histogram);
+        }
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<String, Long> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Map<String, Double> getGauges() {
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    /** Returns the snapshot as a single line of JSON, with histogram values in milliseconds. */
+    public String toJson() {
+        Map<String, Object> histogramReports = new LinkedHashMap<>();
+        for (LatencyHistogram.Snapshot histogram : histograms.values()) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("count", histogram.getCount());
+            report.put("meanMs", histogram.getMeanNanos() / 1e6);
+            for (double percentile : EXPORTED_PERCENTILES) {
+                report.put("p" + formatPercentile(percentile) + "Ms", histogram.getValueAtPercentile(percentile) / 1e6);
+            }
+
+            report.put("maxMs", histogram.getMaxNanos() / 1e6);
+            histogramReports.put(histogram.getName(), report);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", timestamp);
+        report.put("counters", counters);
+        report.put("gauges", gauges);
+        report.put("histograms", histogramReports);
+
+        Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+        return gson.toJson(report);
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile)
+            ? Long.toString((long)percentile)
+            : Double.toString(percentile).replace('.', '_');
+    }
+
+}
@@ -24,6 +24,7 @@ import eu.mavinci.core.flightplan.IFlightplanStatement;
 import eu.mavinci.core.flightplan.PlanType;
 import eu.mavinci.core.licence.ILicenceManager;
 import eu.mavinci.core.plane.protocol.ProtocolTokens;
+import eu.mavinci.desktop.gui.doublepanel.planemain.tagging.ExifInfos;
 import eu.mavinci.desktop.gui.widgets.IMProgressMonitor;
 import eu.mavinci.desktop.helper.FileHelper;
 import eu.mavinci.desktop.helper.MFileFilter;
@@ -719,7 +720,10 @@ public class ACPWriter {
         if (jpgDescription != null) {
             Map<ExifTool.Tag, String> map = new TreeMap<ExifTool.Tag, String>();
             map.put(ExifTool.Tag.ASCTECCOMMENT, jpgDescription);
-            ExifTool.instance.setImageMeta(targetJpg, map);
+            synchronized (ExifInfos.EXIF_TOOL_LOCK) {
+                ExifTool.instance.setImageMeta(targetJpg, map);
+            }
+
             Debug.getLog().log(Level.INFO, "Image description saved to file" + targetJpg.getPath());
         }
 
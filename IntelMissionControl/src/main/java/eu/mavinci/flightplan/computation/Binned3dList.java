@@ -14,6 +14,11 @@ import eu.mavinci.core.helper.MinMaxPair;
 import java.util.Iterator;
 import java.util.LinkedList;
 
+/**
+ * @deprecated keeps a linked list per cell and allocates the result and a {@link Vec4} per neighbour on every query,
+ *     use {@link PointGrid} for range queries over fixed points.
+ */
+@Deprecated
 public class Binned3dList<T> implements Iterable<DataElement<T>> {
 
     MinMaxPair minMaxX;
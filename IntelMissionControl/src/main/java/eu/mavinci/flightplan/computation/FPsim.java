@@ -57,6 +57,7 @@ import eu.mavinci.flightplan.Flightplan;
 import eu.mavinci.flightplan.PicArea;
 import eu.mavinci.flightplan.Point;
 import eu.mavinci.plane.simjava.AirplaneSim;
+import eu.mavinci.plane.simjava.SimulationKernel;
 import gov.nasa.worldwind.WorldWind;
 import gov.nasa.worldwind.geom.Position;
 import gov.nasa.worldwind.geom.Sector;
@@ -81,6 +82,7 @@ public class FPsim extends Recomputer
     private static final IEgmModel egmModel = StaticInjector.getInstance(IEgmModel.class);
 
     private static final double TAKEOFF_RADIUS = 10;
+    private static final long PREVIEW_SEED = 0;
 
     static boolean computePreviewSim = StaticInjector.getInstance(ExpertSettings.class).getComputePreviewSim();
 
@@ -556,6 +558,12 @@ public class FPsim extends Recomputer
     private void simSingleFP(Flightplan fp) {
         // Debug.printStackTrace("sim single FP" , fp);
         tmpSimResult.firstFPobj = null;
+
+        // flown as fast as possible on a virtual clock starting now, with the same noise on every recomputation
+        SimulationKernel kernel =
+            new SimulationKernel(
+                PREVIEW_SEED, System.currentTimeMillis() / 1000., SimulationKernel.AS_FAST_AS_POSSIBLE, 1);
+        kernel.add(sim);
         sim.setNativeHardwareConfiguration(fp.getHardwareConfiguration());
         sim.reset();
 
@@ -583,7 +591,12 @@ public class FPsim extends Recomputer
 
         sim.setFlightPlan(fp, 0);
         sim.setFlightPhase(AirplaneFlightphase.takeoff);
-        sim.run();
+        try {
+            kernel.run(Double.POSITIVE_INFINITY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
         sim.setFlightPhase(AirplaneFlightphase.ground);
         tmpSimResult.flightTime += sim.simTime - sim.simStartTime;
         tmpSimResult.distance += sim.flightDistance;
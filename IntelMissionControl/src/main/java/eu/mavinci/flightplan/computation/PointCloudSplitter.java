@@ -6,40 +6,38 @@
 
 package eu.mavinci.flightplan.computation;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import gov.nasa.worldwind.geom.Vec4;
 import java.util.Vector;
 
 public class PointCloudSplitter {
+
+    /**
+     * Splits the vertices into clusters of way points, which are connected by chains of way points no more than maxDist
+     * apart. The clusters are ordered by their first vertex, and keep the order of the input inside of a cluster.
+     */
     public static Vector<Vector<FlightplanVertex>> splitPointCloud(Vector<FlightplanVertex> points, double maxDist) {
-        double maxDistSq = maxDist * maxDist;
         Vector<Vector<FlightplanVertex>> res = new Vector<>();
+        if (points.isEmpty()) {
+            return res;
+        }
+
+        double[] coordinates = new double[points.size() * 3];
+        for (int i = 0; i < points.size(); i++) {
+            Vec4 wayPoint = points.get(i).getWayPoint();
+            coordinates[3 * i] = wayPoint.x;
+            coordinates[3 * i + 1] = wayPoint.y;
+            coordinates[3 * i + 2] = wayPoint.z;
+        }
 
-        LinkedList<FlightplanVertex> pointsUnfinished = new LinkedList<>();
-        pointsUnfinished.addAll(points);
-
-        // outer loop for starting node curUnderTest
-        while (!pointsUnfinished.isEmpty()) {
-            Vector<FlightplanVertex> currentCluster = new Vector<>();
-            LinkedList<FlightplanVertex> pointsUnderProbe = new LinkedList<>();
-            pointsUnderProbe.add(pointsUnfinished.removeFirst());
-
-            while (!pointsUnderProbe.isEmpty()) {
-                FlightplanVertex curPoint = pointsUnderProbe.removeFirst();
-                currentCluster.add(curPoint);
-
-                // Find all direct neighbors:
-                Iterator<FlightplanVertex> it = pointsUnfinished.iterator();
-                while (it.hasNext()) {
-                    FlightplanVertex next = it.next();
-                    if (next.distanceAtWaypointSquared(curPoint) <= maxDistSq) {
-                        pointsUnderProbe.add(next);
-                        it.remove();
-                    }
-                }
+        // with maxDist 0 only identical way points are joined, the cell size just has to be positive then
+        double radius = Math.abs(maxDist);
+        int[] clusters = new PointGrid(coordinates, radius > 0 ? radius : 1).clusters(radius);
+        for (int i = 0; i < clusters.length; i++) {
+            if (clusters[i] == res.size()) {
+                res.add(new Vector<>());
             }
 
-            res.add(currentCluster);
+            res.get(clusters[i]).add(points.get(i));
         }
 
         return res;
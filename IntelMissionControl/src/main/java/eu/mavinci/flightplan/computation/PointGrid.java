@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static neighbour index over a set of 3d points, backed by primitive arrays only.
+ *
+ * <p>Space is split into cubic cells of a fixed size, which are hashed into a power of two number of buckets. The
+ * point indices are sorted by bucket once, so the points of a bucket are a contiguous range of an int array and a
+ * range query only touches the buckets of the cells around the query point. Points of other cells sharing a bucket are
+ * told apart by the cell coordinates stored for every point.
+ *
+ * <p>Queries are fast as long as the radius is in the order of the cell size. The index is immutable and can be
+ * queried from several threads.
+ */
+public final class PointGrid {
+
+    private final double[] coordinates;
+    private final double cellSize;
+    private final double minX;
+    private final double minY;
+    private final double minZ;
+    private final int[] maxCell = new int[3];
+    private final int[] cells;
+    private final int bucketMask;
+    private final int[] bucketStart;
+    private final int[] sortedPoints;
+
+    /**
+     * @param coordinates the x, y and z coordinates of all points one after the other, the point with index i starts at
+     *     3 * i. The array is not copied and must not be changed while the grid is in use.
+     * @param cellSize the edge length of a cell, usually the radius of the queries
+     */
+    public PointGrid(double[] coordinates, double cellSize) {
+        if (coordinates.length % 3 != 0) {
+            throw new IllegalArgumentException("coordinates must contain three values per point");
+        }
+
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+
+        this.coordinates = coordinates;
+        this.cellSize = cellSize;
+        int pointCount = coordinates.length / 3;
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < pointCount; i++) {
+            // comparisons instead of Math.min, a NaN coordinate must not spoil the origin of the grid
+            if (coordinates[3 * i] < minX) {
+                minX = coordinates[3 * i];
+            }
+
+            if (coordinates[3 * i + 1] < minY) {
+                minY = coordinates[3 * i + 1];
+            }
+
+            if (coordinates[3 * i + 2] < minZ) {
+                minZ = coordinates[3 * i + 2];
+            }
+        }
+
+        this.minX = minX == Double.POSITIVE_INFINITY ? 0 : minX;
+        this.minY = minY == Double.POSITIVE_INFINITY ? 0 : minY;
+        this.minZ = minZ == Double.POSITIVE_INFINITY ? 0 : minZ;
+
+        int bucketCount = Integer.highestOneBit(Math.max(1, pointCount)) << 1;
+        bucketMask = bucketCount - 1;
+        cells = new int[pointCount * 3];
+        int[] buckets = new int[pointCount];
+        bucketStart = new int[bucketCount + 1];
+        for (int i = 0; i < pointCount; i++) {
+            int x = cellX(coordinates[3 * i]);
+            int y = cellY(coordinates[3 * i + 1]);
+            int z = cellZ(coordinates[3 * i + 2]);
+            cells[3 * i] = x;
+            cells[3 * i + 1] = y;
+            cells[3 * i + 2] = z;
+            maxCell[0] = Math.max(maxCell[0], x);
+            maxCell[1] = Math.max(maxCell[1], y);
+            maxCell[2] = Math.max(maxCell[2], z);
+            buckets[i] = bucket(x, y, z);
+            bucketStart[buckets[i] + 1]++;
+        }
+
+        for (int b = 0; b < bucketCount; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+
+        // counting sort by bucket, keeps the points of a bucket in ascending order
+        sortedPoints = new int[pointCount];
+        int[] fill = new int[bucketCount];
+        for (int i = 0; i < pointCount; i++) {
+            sortedPoints[bucketStart[buckets[i]] + fill[buckets[i]]++] = i;
+        }
+    }
+
+    public int size() {
+        return cells.length / 3;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Passes the indices of all points within the given distance of a position to the consumer, in no particular order.
+     * A point at the position itself is included.
+     */
+    public void forEachWithin(double x, double y, double z, double radius, IntConsumer consumer) {
+        if (cells.length == 0 || !(radius >= 0)) {
+            return;
+        }
+
+        double radius2 = radius * radius;
+        // all points are in cells from 0 to maxCell, which also bounds the loops for huge radii
+        int fromX = Math.max(0, cellX(x - radius));
+        int toX = Math.min(maxCell[0], cellX(x + radius));
+        int fromY = Math.max(0, cellY(y - radius));
+        int toY = Math.min(maxCell[1], cellY(y + radius));
+        int fromZ = Math.max(0, cellZ(z - radius));
+        int toZ = Math.min(maxCell[2], cellZ(z + radius));
+        for (int cx = fromX; cx <= toX; cx++) {
+            for (int cy = fromY; cy <= toY; cy++) {
+                for (int cz = fromZ; cz <= toZ; cz++) {
+                    int bucket = bucket(cx, cy, cz);
+                    for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+                        int i = sortedPoints[k];
+                        if (cells[3 * i] != cx || cells[3 * i + 1] != cy || cells[3 * i + 2] != cz) {
+                            continue;
+                        }
+
+                        double dx = coordinates[3 * i] - x;
+                        double dy = coordinates[3 * i + 1] - y;
+                        double dz = coordinates[3 * i + 2] - z;
+                        if (dx * dx + dy * dy + dz * dz <= radius2) {
+                            consumer.accept(i);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Passes the indices of all other points within the given distance of a point to the consumer. */
+    public void forEachNeighbour(int index, double radius, IntConsumer consumer) {
+        forEachWithin(
+            coordinates[3 * index],
+            coordinates[3 * index + 1],
+            coordinates[3 * index + 2],
+            radius,
+            other -> {
+                if (other != index) {
+                    consumer.accept(other);
+                }
+            });
+    }
+
+    /**
+     * Groups the points into clusters, where two points are in the same cluster if they are connected by a chain of
+     * points with at most the given distance between neighbours.
+     *
+     * <p>Uses a union-find over the neighbour pairs, so the time is close to linear in the number of points as long as
+     * the distance is in the order of the cell size.
+     *
+     * @return the cluster of every point, clusters are numbered from 0 in the order of their first point
+     */
+    public int[] clusters(double maxDistance) {
+        int pointCount = size();
+        int[] parent = new int[pointCount];
+        int[] rank = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            parent[i] = i;
+        }
+
+        for (int i = 0; i < pointCount; i++) {
+            int index = i;
+            forEachNeighbour(
+                i,
+                maxDistance,
+                other -> {
+                    // every pair is seen from both sides, joining it once is enough
+                    if (other > index) {
+                        union(parent, rank, index, other);
+                    }
+                });
+        }
+
+        int[] clusters = new int[pointCount];
+        int[] rootCluster = new int[pointCount];
+        Arrays.fill(rootCluster, -1);
+        int clusterCount = 0;
+        for (int i = 0; i < pointCount; i++) {
+            int root = find(parent, i);
+            if (rootCluster[root] < 0) {
+                rootCluster[root] = clusterCount++;
+            }
+
+            clusters[i] = rootCluster[root];
+        }
+
+        return clusters;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+
+        return i;
+    }
+
+    private static void union(int[] parent, int[] rank, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA == rootB) {
+            return;
+        }
+
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+        } else if (rank[rootA] > rank[rootB]) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootB] = rootA;
+            rank[rootA]++;
+        }
+    }
+
+    private int cellX(double x) {
+        return cell(x, minX);
+    }
+
+    private int cellY(double y) {
+        return cell(y, minY);
+    }
+
+    private int cellZ(double z) {
+        return cell(z, minZ);
+    }
+
+    private int cell(double value, double min) {
+        // the cast saturates for points far outside of the grid, which then share the outermost cell
+        return (int)Math.floor((value - min) / cellSize);
+    }
+
+    private int bucket(int x, int y, int z) {
+        return ((x * 73856093) ^ (y * 19349663) ^ (z * 83492791)) & bucketMask;
+    }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation.objectSurface;
+
+import gov.nasa.worldwind.geom.Vec4;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import org.asyncfx.concurrent.FutureExecutorService;
+
+/**
+ * Fills the symmetric cost and direction matrices of all pairs of points for the TSP of the object surface planning.
+ *
+ * <p>The pairs below the diagonal are split into square tiles, which are taken by the worker threads one after the
+ * other, so the long rows at the end of the matrix don't leave a single thread working. Progress is reported and
+ * cancellation is checked between tiles. Pairs that already have a cost, because they are part of the same tour, only
+ * get their directions.
+ */
+final class CollisionCostMatrix {
+
+    static final int TILE_SIZE = 64;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private final Vec4[] points;
+    private final double[] normals;
+    private final VoxelOccupancy occupancy;
+    private final double collisionPenaltyCost;
+    private final double cameraChangeRadToMeterPenalty;
+    private final double[][] costs;
+    private final Vec4[][] directions;
+    private final int tilesPerSide;
+    private final int tileCount;
+    private final AtomicInteger nextTile = new AtomicInteger();
+    private final AtomicLong donePairs = new AtomicLong();
+
+    /**
+     * @param points the points of all vertices, indexed like the matrices
+     * @param normals the unit camera directions of all vertices
+     * @param occupancy the voxels that an edge must not pass through
+     */
+    CollisionCostMatrix(
+            Vec4[] points,
+            Vec4[] normals,
+            VoxelOccupancy occupancy,
+            double collisionPenaltyCost,
+            double cameraChangeRadToMeterPenalty,
+            double[][] costs,
+            Vec4[][] directions) {
+        this.points = points;
+        this.normals = new double[normals.length * 3];
+        for (int i = 0; i < normals.length; i++) {
+            this.normals[3 * i] = normals[i].x;
+            this.normals[3 * i + 1] = normals[i].y;
+            this.normals[3 * i + 2] = normals[i].z;
+        }
+
+        this.occupancy = occupancy;
+        this.collisionPenaltyCost = collisionPenaltyCost;
+        this.cameraChangeRadToMeterPenalty = cameraChangeRadToMeterPenalty;
+        this.costs = costs;
+        this.directions = directions;
+        this.tilesPerSide = (points.length + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileCount = tilesPerSide * (tilesPerSide + 1) / 2;
+    }
+
+    /**
+     * Computes the matrices on up to one background thread per processor.
+     *
+     * @param progress receives the completed fraction of the pairs
+     * @return false if the computation was cancelled or interrupted, in which case the matrices are incomplete
+     */
+    boolean compute(BooleanSupplier isCancelled, DoubleConsumer progress) {
+        long pairCount = (long)points.length * (points.length - 1) / 2;
+        List<Callable<Boolean>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(PARALLELISM, tileCount); i++) {
+            workers.add(
+                () -> {
+                    for (int tile = nextTile.getAndIncrement(); tile < tileCount; tile = nextTile.getAndIncrement()) {
+                        if (isCancelled.getAsBoolean()) {
+                            return false;
+                        }
+
+                        long done = donePairs.addAndGet(computeTile(tile));
+                        progress.accept(pairCount == 0 ? 1 : done / (double)pairCount);
+                    }
+
+                    return true;
+                });
+        }
+
+        try {
+            boolean completed = true;
+            for (Future<Boolean> worker : FutureExecutorService.getInstance().invokeAll(workers)) {
+                completed &= worker.get();
+            }
+
+            return completed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /** Computes the pairs of one tile below the diagonal, tiles are numbered row by row. */
+    private int computeTile(int tile) {
+        int tileRow = (int)((Math.sqrt(8.0 * tile + 1) - 1) / 2);
+        while (tileRow * (tileRow + 1) / 2 > tile) {
+            tileRow--;
+        }
+
+        while ((tileRow + 1) * (tileRow + 2) / 2 <= tile) {
+            tileRow++;
+        }
+
+        int tileColumn = tile - tileRow * (tileRow + 1) / 2;
+        int rowStart = tileRow * TILE_SIZE;
+        int rowEnd = Math.min(points.length, rowStart + TILE_SIZE);
+        int columnStart = tileColumn * TILE_SIZE;
+        int columnEnd = Math.min(points.length, columnStart + TILE_SIZE);
+
+        int pairs = 0;
+        for (int i = rowStart; i < rowEnd; i++) {
+            for (int j = columnStart; j < Math.min(i, columnEnd); j++) {
+                computePair(i, j);
+                pairs++;
+            }
+        }
+
+        return pairs;
+    }
+
+    private void computePair(int i, int j) {
+        Vec4 a = points[i];
+        Vec4 b = points[j];
+        double dx = a.x - b.x;
+        double dy = a.y - b.y;
+        double dz = a.z - b.z;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance == 0) {
+            directions[i][j] = directions[j][i] = Vec4.ZERO;
+        } else {
+            directions[i][j] = new Vec4(dx / distance, dy / distance, dz / distance);
+            directions[j][i] = new Vec4(-dx / distance, -dy / distance, -dz / distance);
+        }
+
+        if (costs[i][j] != 0) {
+            // inside of one tour, the cost was set before
+            return;
+        }
+
+        double cost = occupancy.intersects(a.x, a.y, a.z, b.x, b.y, b.z) ? collisionPenaltyCost : 0;
+        cost += distance;
+
+        double cosAngle =
+            normals[3 * i] * normals[3 * j]
+                + normals[3 * i + 1] * normals[3 * j + 1]
+                + normals[3 * i + 2] * normals[3 * j + 2];
+        cost += Math.acos(Math.max(-1, Math.min(1, cosAngle))) * cameraChangeRadToMeterPenalty;
+
+        costs[i][j] = cost;
+        costs[j][i] = cost;
+    }
+
+}
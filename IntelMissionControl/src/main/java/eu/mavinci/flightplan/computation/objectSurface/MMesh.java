@@ -25,11 +25,13 @@ public class MMesh {
     MinMaxPair minMaxX = new MinMaxPair();
     MinMaxPair minMaxZ = new MinMaxPair();
     MinMaxPair minMaxY = new MinMaxPair();
+    private MeshBvh bvh;
 
     public MMesh() {}
 
-    public void setTriangles(Vector<MTriangle> triangles) {
+    public synchronized void setTriangles(Vector<MTriangle> triangles) {
         this.triangles = triangles;
+        this.bvh = null;
         for (MTriangle triangle : triangles) {
             minMaxX.enlarge(triangle.minMaxX);
             minMaxY.enlarge(triangle.minMaxY);
@@ -37,7 +39,7 @@ public class MMesh {
         }
     }
 
-    public void transform(
+    public synchronized void transform(
             Matrix transform,
             CPicArea.ModelAxisAlignment xAlign,
             double xOffset,
@@ -83,20 +85,24 @@ public class MMesh {
         }
 
         triangles = trianglesNew;
+        bvh = null;
         System.out.println("after transform");
         System.out.println("minMaxX:" + minMaxX);
         System.out.println("minMaxY:" + minMaxY);
         System.out.println("minMaxZ:" + minMaxZ);
     }
 
-    public double checkCollision(double safetyDist, Vec4 from, Vec4 to) {
-        for (MTriangle triangle : triangles) {
-            MTriangle.DistanceResult res = triangle.getDistanceToLinesegment(from, to, safetyDist);
-            if (res != null && res.distance < safetyDist) {
-                return res.distance;
-            }
+    /** The hierarchy over the current triangles, built on first use after they changed. */
+    synchronized MeshBvh getBvh() {
+        if (bvh == null) {
+            bvh = new MeshBvh(triangles);
         }
 
-        return Double.POSITIVE_INFINITY;
+        return bvh;
+    }
+
+    /** Returns the distance of the segment to the mesh, or positive infinity if it is not closer than safetyDist. */
+    public double checkCollision(double safetyDist, Vec4 from, Vec4 to) {
+        return getBvh().distanceToSegment(from, to, safetyDist);
     }
 }
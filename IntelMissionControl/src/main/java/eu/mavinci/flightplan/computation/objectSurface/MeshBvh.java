@@ -0,0 +1,784 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation.objectSurface;
+
+import gov.nasa.worldwind.geom.Vec4;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.asyncfx.concurrent.FutureExecutorService;
+
+/**
+ * Bounding volume hierarchy over the triangles of a mesh, for distance and intersection queries of line segments and
+ * rays.
+ *
+ * <p>The hierarchy is split by the surface area heuristic, evaluated on binned triangle centroids. Nodes are stored
+ * depth first in flat arrays: the left child of an inner node directly follows it, the index of the right child is
+ * stored with the node. The triangle corners are copied into one array in leaf order, so a leaf reads one contiguous
+ * block.
+ *
+ * <p>Distances are exact distances between segment and triangles. Queries only allocate their small traversal stack
+ * and can run from any number of threads; the batch queries spread the segments over all cores.
+ */
+final class MeshBvh {
+
+    static final int MAX_LEAF_SIZE = 4;
+
+    private static final int BIN_COUNT = 16;
+    private static final int MAX_DEPTH = 60;
+    private static final int STACK_SIZE = MAX_DEPTH + 2;
+    private static final int BATCH_SIZE = 512;
+    private static final double EPSILON = 1e-18;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private final double[] vertices;
+    private final int triangleCount;
+    private double[] nodeBounds;
+    private int[] nodeChildOrFirst;
+    private int[] nodeTriangleCount;
+    private int nodeCount;
+
+    // only used during the build
+    private double[] triangleBounds;
+    private double[] centroids;
+    private int[] order;
+
+    MeshBvh(List<MTriangle> triangles) {
+        int count = triangles.size();
+        triangleBounds = new double[count * 6];
+        centroids = new double[count * 3];
+        order = new int[count];
+        for (int i = 0; i < count; i++) {
+            MTriangle triangle = triangles.get(i);
+            triangleBounds[6 * i] = triangle.minMaxX.min;
+            triangleBounds[6 * i + 1] = triangle.minMaxY.min;
+            triangleBounds[6 * i + 2] = triangle.minMaxZ.min;
+            triangleBounds[6 * i + 3] = triangle.minMaxX.max;
+            triangleBounds[6 * i + 4] = triangle.minMaxY.max;
+            triangleBounds[6 * i + 5] = triangle.minMaxZ.max;
+            for (int axis = 0; axis < 3; axis++) {
+                centroids[3 * i + axis] = (triangleBounds[6 * i + axis] + triangleBounds[6 * i + 3 + axis]) / 2;
+            }
+
+            order[i] = i;
+        }
+
+        int maxNodes = Math.max(1, 2 * count - 1);
+        nodeBounds = new double[maxNodes * 6];
+        nodeChildOrFirst = new int[maxNodes];
+        nodeTriangleCount = new int[maxNodes];
+        build(0, count, 0);
+
+        vertices = new double[count * 9];
+        triangleCount = count;
+        for (int k = 0; k < count; k++) {
+            MTriangle triangle = triangles.get(order[k]);
+            putVertex(vertices, 9 * k, triangle.getA());
+            putVertex(vertices, 9 * k + 3, triangle.getB());
+            putVertex(vertices, 9 * k + 6, triangle.getC());
+        }
+
+        triangleBounds = null;
+        centroids = null;
+        order = null;
+    }
+
+    int getTriangleCount() {
+        return triangleCount;
+    }
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the smallest distance between the segment from a to b and the triangles, or positive infinity if no
+     * triangle is closer than maxDistance.
+     */
+    double distanceToSegment(Vec4 a, Vec4 b, double maxDistance) {
+        return distanceToSegment(a.x, a.y, a.z, b.x, b.y, b.z, maxDistance);
+    }
+
+    double distanceToSegment(double ax, double ay, double az, double bx, double by, double bz, double maxDistance) {
+        if (triangleCount == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double minX = Math.min(ax, bx);
+        double minY = Math.min(ay, by);
+        double minZ = Math.min(az, bz);
+        double maxX = Math.max(ax, bx);
+        double maxY = Math.max(ay, by);
+        double maxZ = Math.max(az, bz);
+        double inverseX = 1 / (bx - ax);
+        double inverseY = 1 / (by - ay);
+        double inverseZ = 1 / (bz - az);
+        double best = maxDistance == Double.POSITIVE_INFINITY ? maxDistance : maxDistance * maxDistance;
+        boolean found = false;
+
+        int[] stack = new int[STACK_SIZE];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (boxDistance2(node, minX, minY, minZ, maxX, maxY, maxZ) >= best
+                    || !segmentNearBox(node, ax, ay, az, inverseX, inverseY, inverseZ, Math.sqrt(best))) {
+                continue;
+            }
+
+            int leafSize = nodeTriangleCount[node];
+            if (leafSize > 0) {
+                int first = nodeChildOrFirst[node];
+                for (int k = first; k < first + leafSize; k++) {
+                    double distance2 = segmentTriangleDistance2(vertices, 9 * k, ax, ay, az, bx, by, bz);
+                    if (distance2 < best) {
+                        best = distance2;
+                        found = true;
+                        if (distance2 == 0) {
+                            return 0;
+                        }
+                    }
+                }
+            } else {
+                int left = node + 1;
+                int right = nodeChildOrFirst[node];
+                double leftDistance2 = boxDistance2(left, minX, minY, minZ, maxX, maxY, maxZ);
+                double rightDistance2 = boxDistance2(right, minX, minY, minZ, maxX, maxY, maxZ);
+                if (leftDistance2 <= rightDistance2) {
+                    stack[stackSize++] = right;
+                    stack[stackSize++] = left;
+                } else {
+                    stack[stackSize++] = left;
+                    stack[stackSize++] = right;
+                }
+            }
+        }
+
+        return found ? Math.sqrt(best) : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns whether any triangle is closer than radius to the segment from a to b. */
+    boolean anyWithin(Vec4 a, Vec4 b, double radius) {
+        return anyWithin(a.x, a.y, a.z, b.x, b.y, b.z, radius);
+    }
+
+    boolean anyWithin(double ax, double ay, double az, double bx, double by, double bz, double radius) {
+        if (triangleCount == 0) {
+            return false;
+        }
+
+        double minX = Math.min(ax, bx);
+        double minY = Math.min(ay, by);
+        double minZ = Math.min(az, bz);
+        double maxX = Math.max(ax, bx);
+        double maxY = Math.max(ay, by);
+        double maxZ = Math.max(az, bz);
+        double inverseX = 1 / (bx - ax);
+        double inverseY = 1 / (by - ay);
+        double inverseZ = 1 / (bz - az);
+        double radius2 = radius * radius;
+
+        int[] stack = new int[STACK_SIZE];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (boxDistance2(node, minX, minY, minZ, maxX, maxY, maxZ) >= radius2
+                    || !segmentNearBox(node, ax, ay, az, inverseX, inverseY, inverseZ, radius)) {
+                continue;
+            }
+
+            int leafSize = nodeTriangleCount[node];
+            if (leafSize > 0) {
+                int first = nodeChildOrFirst[node];
+                for (int k = first; k < first + leafSize; k++) {
+                    if (segmentTriangleDistance2(vertices, 9 * k, ax, ay, az, bx, by, bz) < radius2) {
+                        return true;
+                    }
+                }
+            } else {
+                stack[stackSize++] = nodeChildOrFirst[node];
+                stack[stackSize++] = node + 1;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the parameter t of the nearest intersection of the ray origin + t * direction with a triangle for t in
+     * [0, maxT], or positive infinity if the ray doesn't hit a triangle.
+     */
+    double intersectRay(Vec4 origin, Vec4 direction, double maxT) {
+        if (triangleCount == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double ox = origin.x;
+        double oy = origin.y;
+        double oz = origin.z;
+        double dx = direction.x;
+        double dy = direction.y;
+        double dz = direction.z;
+        double inverseX = 1 / dx;
+        double inverseY = 1 / dy;
+        double inverseZ = 1 / dz;
+        double nearest = maxT;
+        boolean found = false;
+
+        int[] stack = new int[STACK_SIZE];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (rayBoxEntry(node, ox, oy, oz, inverseX, inverseY, inverseZ, nearest) == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+
+            int leafSize = nodeTriangleCount[node];
+            if (leafSize > 0) {
+                int first = nodeChildOrFirst[node];
+                for (int k = first; k < first + leafSize; k++) {
+                    double t = rayTriangleIntersection(vertices, 9 * k, ox, oy, oz, dx, dy, dz);
+                    if (t >= 0 && t <= nearest) {
+                        nearest = t;
+                        found = true;
+                    }
+                }
+            } else {
+                int left = node + 1;
+                int right = nodeChildOrFirst[node];
+                double leftEntry = rayBoxEntry(left, ox, oy, oz, inverseX, inverseY, inverseZ, nearest);
+                double rightEntry = rayBoxEntry(right, ox, oy, oz, inverseX, inverseY, inverseZ, nearest);
+                if (leftEntry <= rightEntry) {
+                    stack[stackSize++] = right;
+                    stack[stackSize++] = left;
+                } else {
+                    stack[stackSize++] = left;
+                    stack[stackSize++] = right;
+                }
+            }
+        }
+
+        return found ? nearest : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Computes {@link #distanceToSegment} for many segments on all cores.
+     *
+     * @param segments the end points of the segments, six coordinates per segment
+     */
+    double[] distancesToSegments(double[] segments, double maxDistance) {
+        double[] distances = new double[segments.length / 6];
+        runBatches(
+            distances.length,
+            (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    int o = 6 * i;
+                    distances[i] =
+                        distanceToSegment(
+                            segments[o],
+                            segments[o + 1],
+                            segments[o + 2],
+                            segments[o + 3],
+                            segments[o + 4],
+                            segments[o + 5],
+                            maxDistance);
+                }
+            });
+        return distances;
+    }
+
+    /**
+     * Computes {@link #anyWithin} for many segments on all cores.
+     *
+     * @param segments the end points of the segments, six coordinates per segment
+     */
+    boolean[] anyWithin(double[] segments, double radius) {
+        boolean[] hits = new boolean[segments.length / 6];
+        runBatches(
+            hits.length,
+            (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    int o = 6 * i;
+                    hits[i] =
+                        anyWithin(
+                            segments[o],
+                            segments[o + 1],
+                            segments[o + 2],
+                            segments[o + 3],
+                            segments[o + 4],
+                            segments[o + 5],
+                            radius);
+                }
+            });
+        return hits;
+    }
+
+    private interface Batch {
+        void run(int start, int end);
+    }
+
+    private static void runBatches(int count, Batch batch) {
+        if (count <= BATCH_SIZE || PARALLELISM == 1) {
+            batch.run(0, count);
+            return;
+        }
+
+        // one task per processor on the background threads, each taking the next batch until all are done
+        int batchCount = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+        AtomicInteger nextBatch = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(PARALLELISM, batchCount); i++) {
+            tasks.add(
+                () -> {
+                    for (int b = nextBatch.getAndIncrement(); b < batchCount; b = nextBatch.getAndIncrement()) {
+                        batch.run(b * BATCH_SIZE, Math.min(count, (b + 1) * BATCH_SIZE));
+                    }
+
+                    return null;
+                });
+        }
+
+        try {
+            for (Future<Void> future : FutureExecutorService.getInstance().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private int build(int start, int end, int depth) {
+        int node = nodeCount++;
+        double[] bounds = nodeBounds;
+        int o = 6 * node;
+        bounds[o] = bounds[o + 1] = bounds[o + 2] = Double.POSITIVE_INFINITY;
+        bounds[o + 3] = bounds[o + 4] = bounds[o + 5] = Double.NEGATIVE_INFINITY;
+        double[] centroidMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] centroidMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int k = start; k < end; k++) {
+            int triangle = order[k];
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[o + axis] = Math.min(bounds[o + axis], triangleBounds[6 * triangle + axis]);
+                bounds[o + 3 + axis] = Math.max(bounds[o + 3 + axis], triangleBounds[6 * triangle + 3 + axis]);
+                centroidMin[axis] = Math.min(centroidMin[axis], centroids[3 * triangle + axis]);
+                centroidMax[axis] = Math.max(centroidMax[axis], centroids[3 * triangle + axis]);
+            }
+        }
+
+        int count = end - start;
+        if (count <= MAX_LEAF_SIZE || depth >= MAX_DEPTH) {
+            return makeLeaf(node, start, count);
+        }
+
+        // evaluate the surface area heuristic at the borders between the bins on every axis
+        int bestAxis = -1;
+        int bestSplit = 0;
+        double bestCost = count * surfaceArea(bounds, o);
+        int[] binCounts = new int[BIN_COUNT];
+        double[] binBounds = new double[BIN_COUNT * 6];
+        double[] rightAreas = new double[BIN_COUNT];
+        int[] rightCounts = new int[BIN_COUNT];
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = centroidMax[axis] - centroidMin[axis];
+            if (!(extent > 0)) {
+                continue;
+            }
+
+            Arrays.fill(binCounts, 0);
+            for (int bin = 0; bin < BIN_COUNT; bin++) {
+                resetBounds(binBounds, 6 * bin);
+            }
+
+            double scale = BIN_COUNT / extent;
+            for (int k = start; k < end; k++) {
+                int triangle = order[k];
+                int bin = binOf(centroids[3 * triangle + axis], centroidMin[axis], scale);
+                binCounts[bin]++;
+                growBounds(binBounds, 6 * bin, triangleBounds, 6 * triangle);
+            }
+
+            double[] sweep = new double[6];
+            resetBounds(sweep, 0);
+            int rightCount = 0;
+            for (int bin = BIN_COUNT - 1; bin > 0; bin--) {
+                rightCount += binCounts[bin];
+                growBounds(sweep, 0, binBounds, 6 * bin);
+                rightCounts[bin] = rightCount;
+                rightAreas[bin] = rightCount == 0 ? 0 : surfaceArea(sweep, 0);
+            }
+
+            resetBounds(sweep, 0);
+            int leftCount = 0;
+            for (int split = 1; split < BIN_COUNT; split++) {
+                leftCount += binCounts[split - 1];
+                growBounds(sweep, 0, binBounds, 6 * (split - 1));
+                if (leftCount == 0 || rightCounts[split] == 0) {
+                    continue;
+                }
+
+                double cost = leftCount * surfaceArea(sweep, 0) + rightCounts[split] * rightAreas[split];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestSplit = split;
+                }
+            }
+        }
+
+        int middle;
+        if (bestAxis >= 0) {
+            double scale = BIN_COUNT / (centroidMax[bestAxis] - centroidMin[bestAxis]);
+            int i = start;
+            int j = end - 1;
+            while (i <= j) {
+                if (binOf(centroids[3 * order[i] + bestAxis], centroidMin[bestAxis], scale) < bestSplit) {
+                    i++;
+                } else {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j--] = swap;
+                }
+            }
+
+            middle = i;
+        } else if (count <= 4 * MAX_LEAF_SIZE) {
+            // splitting doesn't pay off
+            return makeLeaf(node, start, count);
+        } else {
+            // all centroids coincide, any partition is as good as another
+            middle = start + count / 2;
+        }
+
+        build(start, middle, depth + 1);
+        nodeChildOrFirst[node] = build(middle, end, depth + 1);
+        nodeTriangleCount[node] = 0;
+        return node;
+    }
+
+    private int makeLeaf(int node, int start, int count) {
+        nodeChildOrFirst[node] = start;
+        nodeTriangleCount[node] = count;
+        return node;
+    }
+
+    private static int binOf(double centroid, double min, double scale) {
+        return Math.min(BIN_COUNT - 1, (int)((centroid - min) * scale));
+    }
+
+    private static void resetBounds(double[] bounds, int o) {
+        bounds[o] = bounds[o + 1] = bounds[o + 2] = Double.POSITIVE_INFINITY;
+        bounds[o + 3] = bounds[o + 4] = bounds[o + 5] = Double.NEGATIVE_INFINITY;
+    }
+
+    private static void growBounds(double[] bounds, int o, double[] other, int p) {
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[o + axis] = Math.min(bounds[o + axis], other[p + axis]);
+            bounds[o + 3 + axis] = Math.max(bounds[o + 3 + axis], other[p + 3 + axis]);
+        }
+    }
+
+    private static double surfaceArea(double[] bounds, int o) {
+        double dx = bounds[o + 3] - bounds[o];
+        double dy = bounds[o + 4] - bounds[o + 1];
+        double dz = bounds[o + 5] - bounds[o + 2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    private static void putVertex(double[] vertices, int o, Vec4 vertex) {
+        vertices[o] = vertex.x;
+        vertices[o + 1] = vertex.y;
+        vertices[o + 2] = vertex.z;
+    }
+
+    /** Squared distance between the box of a node and an axis aligned box, a lower bound for anything inside. */
+    private double boxDistance2(
+            int node, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int o = 6 * node;
+        double gapX = Math.max(0, Math.max(nodeBounds[o] - maxX, minX - nodeBounds[o + 3]));
+        double gapY = Math.max(0, Math.max(nodeBounds[o + 1] - maxY, minY - nodeBounds[o + 4]));
+        double gapZ = Math.max(0, Math.max(nodeBounds[o + 2] - maxZ, minZ - nodeBounds[o + 5]));
+        return gapX * gapX + gapY * gapY + gapZ * gapZ;
+    }
+
+    /**
+     * Returns whether the segment a + t * d for t in [0, 1] passes through the box of a node grown by margin on every
+     * side, which contains everything closer than margin to the box.
+     */
+    private boolean segmentNearBox(
+            int node,
+            double ax,
+            double ay,
+            double az,
+            double inverseX,
+            double inverseY,
+            double inverseZ,
+            double margin) {
+        if (margin == Double.POSITIVE_INFINITY) {
+            return true;
+        }
+
+        int o = 6 * node;
+        double t0 = (nodeBounds[o] - margin - ax) * inverseX;
+        double t1 = (nodeBounds[o + 3] + margin - ax) * inverseX;
+        double tEnter = Math.min(t0, t1);
+        double tExit = Math.max(t0, t1);
+        t0 = (nodeBounds[o + 1] - margin - ay) * inverseY;
+        t1 = (nodeBounds[o + 4] + margin - ay) * inverseY;
+        tEnter = Math.max(tEnter, Math.min(t0, t1));
+        tExit = Math.min(tExit, Math.max(t0, t1));
+        t0 = (nodeBounds[o + 2] - margin - az) * inverseZ;
+        t1 = (nodeBounds[o + 5] + margin - az) * inverseZ;
+        tEnter = Math.max(tEnter, Math.min(t0, t1));
+        tExit = Math.min(tExit, Math.max(t0, t1));
+
+        // NaN if the segment runs within one of the planes, keep the node then
+        return !(tEnter > tExit || tExit < 0 || tEnter > 1);
+    }
+
+    /** Returns where the ray enters the box of a node, or positive infinity if it misses the box before maxT. */
+    private double rayBoxEntry(
+            int node,
+            double ox,
+            double oy,
+            double oz,
+            double inverseX,
+            double inverseY,
+            double inverseZ,
+            double maxT) {
+        int o = 6 * node;
+        double t0 = (nodeBounds[o] - ox) * inverseX;
+        double t1 = (nodeBounds[o + 3] - ox) * inverseX;
+        double tEnter = Math.min(t0, t1);
+        double tExit = Math.max(t0, t1);
+        t0 = (nodeBounds[o + 1] - oy) * inverseY;
+        t1 = (nodeBounds[o + 4] - oy) * inverseY;
+        tEnter = Math.max(tEnter, Math.min(t0, t1));
+        tExit = Math.min(tExit, Math.max(t0, t1));
+        t0 = (nodeBounds[o + 2] - oz) * inverseZ;
+        t1 = (nodeBounds[o + 5] - oz) * inverseZ;
+        tEnter = Math.max(tEnter, Math.min(t0, t1));
+        tExit = Math.min(tExit, Math.max(t0, t1));
+        if (Double.isNaN(tEnter) || Double.isNaN(tExit)) {
+            // the ray runs within one of the box planes
+            return 0;
+        }
+
+        return tEnter <= tExit && tExit >= 0 && tEnter <= maxT ? Math.max(0, tEnter) : Double.POSITIVE_INFINITY;
+    }
+
+    /** Exact squared distance between the segment a to b and the triangle at offset o. */
+    static double segmentTriangleDistance2(
+            double[] v, int o, double ax, double ay, double az, double bx, double by, double bz) {
+        double t = rayTriangleIntersection(v, o, ax, ay, az, bx - ax, by - ay, bz - az);
+        if (t >= 0 && t <= 1) {
+            return 0;
+        }
+
+        // otherwise the closest points are on the border of the triangle or at an end of the segment
+        double distance2 = pointTriangleDistance2(v, o, ax, ay, az);
+        distance2 = Math.min(distance2, pointTriangleDistance2(v, o, bx, by, bz));
+        distance2 = Math.min(distance2, segmentEdgeDistance2(v, o, o + 3, ax, ay, az, bx, by, bz));
+        distance2 = Math.min(distance2, segmentEdgeDistance2(v, o + 3, o + 6, ax, ay, az, bx, by, bz));
+        return Math.min(distance2, segmentEdgeDistance2(v, o + 6, o, ax, ay, az, bx, by, bz));
+    }
+
+    private static double segmentEdgeDistance2(
+            double[] v, int p, int q, double ax, double ay, double az, double bx, double by, double bz) {
+        return segmentSegmentDistance2(ax, ay, az, bx, by, bz, v[p], v[p + 1], v[p + 2], v[q], v[q + 1], v[q + 2]);
+    }
+
+    /**
+     * Returns the parameter t of the intersection of origin + t * direction with the triangle at offset o (Moeller &
+     * Trumbore), or -1 if they don't intersect.
+     */
+    static double rayTriangleIntersection(
+            double[] v, int o, double ox, double oy, double oz, double dx, double dy, double dz) {
+        double e1x = v[o + 3] - v[o];
+        double e1y = v[o + 4] - v[o + 1];
+        double e1z = v[o + 5] - v[o + 2];
+        double e2x = v[o + 6] - v[o];
+        double e2y = v[o + 7] - v[o + 1];
+        double e2z = v[o + 8] - v[o + 2];
+        double px = dy * e2z - dz * e2y;
+        double py = dz * e2x - dx * e2z;
+        double pz = dx * e2y - dy * e2x;
+        double determinant = e1x * px + e1y * py + e1z * pz;
+        if (Math.abs(determinant) < EPSILON) {
+            return -1;
+        }
+
+        double inverse = 1 / determinant;
+        double sx = ox - v[o];
+        double sy = oy - v[o + 1];
+        double sz = oz - v[o + 2];
+        double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u < 0 || u > 1) {
+            return -1;
+        }
+
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double w = (dx * qx + dy * qy + dz * qz) * inverse;
+        if (w < 0 || u + w > 1) {
+            return -1;
+        }
+
+        double t = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+        return t >= 0 ? t : -1;
+    }
+
+    /** Squared distance of a point to the triangle at offset o (Ericson, "Real-Time Collision Detection", 5.1.5). */
+    static double pointTriangleDistance2(double[] v, int o, double px, double py, double pz) {
+        double ax = v[o];
+        double ay = v[o + 1];
+        double az = v[o + 2];
+        double abx = v[o + 3] - ax;
+        double aby = v[o + 4] - ay;
+        double abz = v[o + 5] - az;
+        double acx = v[o + 6] - ax;
+        double acy = v[o + 7] - ay;
+        double acz = v[o + 8] - az;
+        double apx = px - ax;
+        double apy = py - ay;
+        double apz = pz - az;
+        double d1 = abx * apx + aby * apy + abz * apz;
+        double d2 = acx * apx + acy * apy + acz * apz;
+        if (d1 <= 0 && d2 <= 0) {
+            return apx * apx + apy * apy + apz * apz;
+        }
+
+        double bpx = px - v[o + 3];
+        double bpy = py - v[o + 4];
+        double bpz = pz - v[o + 5];
+        double d3 = abx * bpx + aby * bpy + abz * bpz;
+        double d4 = acx * bpx + acy * bpy + acz * bpz;
+        if (d3 >= 0 && d4 <= d3) {
+            return bpx * bpx + bpy * bpy + bpz * bpz;
+        }
+
+        double vc = d1 * d4 - d3 * d2;
+        if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+            double s = d1 / (d1 - d3);
+            return distance2(px, py, pz, ax + s * abx, ay + s * aby, az + s * abz);
+        }
+
+        double cpx = px - v[o + 6];
+        double cpy = py - v[o + 7];
+        double cpz = pz - v[o + 8];
+        double d5 = abx * cpx + aby * cpy + abz * cpz;
+        double d6 = acx * cpx + acy * cpy + acz * cpz;
+        if (d6 >= 0 && d5 <= d6) {
+            return cpx * cpx + cpy * cpy + cpz * cpz;
+        }
+
+        double vb = d5 * d2 - d1 * d6;
+        if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+            double s = d2 / (d2 - d6);
+            return distance2(px, py, pz, ax + s * acx, ay + s * acy, az + s * acz);
+        }
+
+        double va = d3 * d6 - d5 * d4;
+        if (va <= 0 && d4 - d3 >= 0 && d5 - d6 >= 0) {
+            double s = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            double bx = v[o + 3];
+            double by = v[o + 4];
+            double bz = v[o + 5];
+            return distance2(px, py, pz, bx + s * (v[o + 6] - bx), by + s * (v[o + 7] - by), bz + s * (v[o + 8] - bz));
+        }
+
+        double sum = va + vb + vc;
+        if (!(sum > 0)) {
+            // degenerate triangle, its closest point is on one of its edges
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double s = vb / sum;
+        double r = vc / sum;
+        return distance2(px, py, pz, ax + abx * s + acx * r, ay + aby * s + acy * r, az + abz * s + acz * r);
+    }
+
+    /** Squared distance between the segments p1 to q1 and p2 to q2 (Ericson, 5.1.9). */
+    static double segmentSegmentDistance2(
+            double p1x,
+            double p1y,
+            double p1z,
+            double q1x,
+            double q1y,
+            double q1z,
+            double p2x,
+            double p2y,
+            double p2z,
+            double q2x,
+            double q2y,
+            double q2z) {
+        double d1x = q1x - p1x;
+        double d1y = q1y - p1y;
+        double d1z = q1z - p1z;
+        double d2x = q2x - p2x;
+        double d2y = q2y - p2y;
+        double d2z = q2z - p2z;
+        double rx = p1x - p2x;
+        double ry = p1y - p2y;
+        double rz = p1z - p2z;
+        double a = d1x * d1x + d1y * d1y + d1z * d1z;
+        double e = d2x * d2x + d2y * d2y + d2z * d2z;
+        double f = d2x * rx + d2y * ry + d2z * rz;
+        double s;
+        double t;
+        if (a <= EPSILON && e <= EPSILON) {
+            return rx * rx + ry * ry + rz * rz;
+        }
+
+        if (a <= EPSILON) {
+            s = 0;
+            t = clamp01(f / e);
+        } else {
+            double c = d1x * rx + d1y * ry + d1z * rz;
+            if (e <= EPSILON) {
+                t = 0;
+                s = clamp01(-c / a);
+            } else {
+                double b = d1x * d2x + d1y * d2y + d1z * d2z;
+                double denominator = a * e - b * b;
+                s = denominator > 0 ? clamp01((b * f - c * e) / denominator) : 0;
+                t = (b * s + f) / e;
+                if (t < 0) {
+                    t = 0;
+                    s = clamp01(-c / a);
+                } else if (t > 1) {
+                    t = 1;
+                    s = clamp01((b - c) / a);
+                }
+            }
+        }
+
+        return distance2(p1x + d1x * s, p1y + d1y * s, p1z + d1z * s, p2x + d2x * t, p2y + d2y * t, p2z + d2z * t);
+    }
+
+    private static double clamp01(double value) {
+        return value < 0 ? 0 : (value > 1 ? 1 : value);
+    }
+
+    private static double distance2(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        double dz = az - bz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+}
@@ -204,7 +204,6 @@ public class ObjectFlightplanAlg {
         double[][] costs =
             solveTsp(
                 vecBeforeGlobal,
-                stepXYZ,
                 scalingDistanceOnALine,
                 directionChangeRadToMeterPanelty,
                 cameraChangeRadToMeterPanelty,
@@ -262,7 +261,6 @@ public class ObjectFlightplanAlg {
 
     private static double[][] solveTsp(
             Vec4 vecBeforeGlobal,
-            double stepXYZ,
             double scalingDistanceOnALine,
             double directionChangeRadToMeterPanelty,
             double cameraChangeRadToMeterPanelty,
@@ -322,69 +320,28 @@ public class ObjectFlightplanAlg {
 
         final double collisionPaneltyCost = 1000;
 
-        for (int i = 0; i != flight.size() + 1; i++) {
-            task.updateProgress(12 + i / (double)flightSize, maxProgress);
-            task.updateMessage("collision matrix point i:" + i);
-            if (task.isCancelled()) {
-                return null;
-            }
-            //			System.out.println("coll from "+i);
-            if (i < flight.size()) flight.get(i).idx = i;
-
-            Vec4 a = i == flight.size() ? vecBeforeGlobal : flight.get(i).getWayPoint();
-            Vec4 ca = i == flight.size() ? Vec4.UNIT_X : flight.get(i).getNormal();
-
-            for (int j = 0; j < i; j++) {
-                Vec4 b = flight.get(j).getWayPoint();
-                Vec4 diff = a.subtract3(b).normalize3();
-                directions[i][j] = diff;
-                directions[j][i] = diff.getNegative3();
-
-                if (costs[i][j] == 0) {
-                    // this is NOT inside one tour... was set to a almost zero value allready
-
-                    double cost = 0;
-                    Vec4 pos = a;
-                    Vec4 step = diff.normalize3().multiply3(stepXYZ);
-                    int steps = (int)Math.ceil(diff.getLength3() / stepXYZ);
-                    for (int s = 0; s < steps; s++) {
-                        pos = pos.add3(step);
-                        int x = (int)Math.floor((pos.x - grid.minMaxX.min) / grid.rasterSize);
-                        int y = (int)Math.floor((pos.y - grid.minMaxY.min) / grid.rasterSize);
-                        int z = (int)Math.floor((pos.z - grid.minMaxZ.min) / grid.rasterSize);
-                        //						System.out.println(""+x +" " +y+" "+z);
-                        if (x < 0 || x >= grid.stepsX) break;
-                        if (y < 0 || y >= grid.stepsY) break;
-                        if (z < 0 || z >= grid.stepsZ) break;
-                        if (grid.voxels[x][y][z].dilatedModelCollisionCheck) {
-                            cost = collisionPaneltyCost;
-                            //							System.out.println("collision found "+i +" <-> " +j);
-                            break;
-                        }
-                    }
+        task.updateMessage("compute collision matrix");
+        Vec4[] points = new Vec4[flightSize + 1];
+        Vec4[] normals = new Vec4[flightSize + 1];
+        for (int i = 0; i != flightSize; i++) {
+            points[i] = flight.get(i).getWayPoint();
+            normals[i] = flight.get(i).getNormal();
+        }
 
-                    /*for (MTriangle triangle : triangles) {
-                    	DistanceResult res = triangle.getDistanceToLinesegment(a,b, camAlt);
-                    	if (res == null || res.distance>= camAlt )continue;
-                    	if (res.distance<= safetyDist){
-                    		cost = collisionPaneltyCost;
-                    		break;
-                    	} else if (res.distance<= safetyDist + maxRelatveDiveBelwoCamAlt*(camAlt-safetyDist)){
-                    		cost = Math.max(cost,Math.min(collisionPaneltyCost, collisionPaneltyCost*0.1*(camAlt-safetyDist)/(res.distance-safetyDist)));
-                    	}
-                    }*/
-
-                    cost += a.distanceTo3(b);
-
-                    Vec4 cb = flight.get(j).getNormal();
-                    double angle = ca.angleBetween3(cb).getRadians();
-                    cost += angle * cameraChangeRadToMeterPanelty;
-
-                    costs[i][j] = cost;
-                    costs[j][i] = cost;
-                }
-                //				System.out.println("coll to "+j +" --> "+costs[i][j]);
-            }
+        points[flightSize] = vecBeforeGlobal;
+        normals[flightSize] = Vec4.UNIT_X;
+
+        CollisionCostMatrix costMatrix =
+            new CollisionCostMatrix(
+                points,
+                normals,
+                VoxelOccupancy.ofCollisionCheck(grid),
+                collisionPaneltyCost,
+                cameraChangeRadToMeterPanelty,
+                costs,
+                directions);
+        if (!costMatrix.compute(task::isCancelled, done -> task.updateProgress(12 + done, maxProgress))) {
+            return null;
         }
 
         System.out.println("DONE.....");
@@ -417,30 +374,31 @@ public class ObjectFlightplanAlg {
         System.out.println("==================\n===================\nlist collisions");
         //		collisionCheck(triangles, safetyDist, flight);
         // COLLISION CHECK
-        FlightplanVertex last = null;
-        for (FlightplanVertex p : flight) {
-            if (last == null) {
-                last = p;
-                continue;
-            }
-
-            boolean found = false;
-            for (MTriangle triangle : mesh.triangles) {
-                MTriangle.DistanceResult res =
-                    triangle.getDistanceToLinesegment(last.getWayPoint(), p.getWayPoint(), safetyDist);
-                if (res != null && res.distance < safetyDist) {
-                    if (!found) {
-                        System.out.println("--------\nLINE:" + last.getWayPoint() + " to " + p.getWayPoint());
-                        System.out.println("cost on this edge:" + costs[last.idx][p.idx]);
-                    }
+        if (flight.size() < 2) {
+            return;
+        }
 
-                    System.out.println("HITTT:" + res.distance + "m on " + res.closestOnSegment);
+        double[] segments = new double[(flight.size() - 1) * 6];
+        for (int i = 0; i < flight.size() - 1; i++) {
+            Vec4 from = flight.get(i).getWayPoint();
+            Vec4 to = flight.get(i + 1).getWayPoint();
+            segments[6 * i] = from.x;
+            segments[6 * i + 1] = from.y;
+            segments[6 * i + 2] = from.z;
+            segments[6 * i + 3] = to.x;
+            segments[6 * i + 4] = to.y;
+            segments[6 * i + 5] = to.z;
+        }
 
-                    found = true;
-                }
+        double[] distances = mesh.getBvh().distancesToSegments(segments, safetyDist);
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] < safetyDist) {
+                FlightplanVertex last = flight.get(i);
+                FlightplanVertex p = flight.get(i + 1);
+                System.out.println("--------\nLINE:" + last.getWayPoint() + " to " + p.getWayPoint());
+                System.out.println("cost on this edge:" + costs[last.idx][p.idx]);
+                System.out.println("HITTT:" + distances[i] + "m");
             }
-
-            last = p;
         }
 
         System.out.println("compute done");
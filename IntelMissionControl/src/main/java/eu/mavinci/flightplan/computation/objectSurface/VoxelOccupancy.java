@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation.objectSurface;
+
+/**
+ * Occupancy of a voxel raster packed into a bitset, with an exact test whether a line segment passes through any
+ * occupied voxel.
+ *
+ * <p>Voxel indices are computed like in {@link VoxelGrid}: the voxel of a point is {@code floor((p - min) /
+ * rasterSize)} on every axis. Segments are traversed voxel by voxel in the order they are crossed (Amanatides & Woo, "A
+ * Fast Voxel Traversal Algorithm for Ray Tracing"), so no voxel is skipped regardless of the raster size, and the
+ * traversal stops at the first occupied voxel. The parts of a segment outside of the raster are free.
+ *
+ * <p>Empty space is skipped by first walking the segment through bricks of {@link #BRICK_SIZE}^3 voxels in the same
+ * way, and only walking the voxels of bricks that contain an occupied voxel.
+ *
+ * <p>Instances are immutable after setup and can be queried from any number of threads.
+ */
+final class VoxelOccupancy {
+
+    /** Edge length of the bricks of voxels that are skipped as a whole if none of their voxels is occupied. */
+    static final int BRICK_SIZE = 8;
+
+    private final int stepsX;
+    private final int stepsY;
+    private final int stepsZ;
+    private final double minX;
+    private final double minY;
+    private final double minZ;
+    private final double inverseRasterSize;
+    private final long[] bits;
+    private final int bricksX;
+    private final int bricksY;
+    private final int bricksZ;
+    private final long[] brickBits;
+
+    VoxelOccupancy(int stepsX, int stepsY, int stepsZ, double minX, double minY, double minZ, double rasterSize) {
+        this.stepsX = stepsX;
+        this.stepsY = stepsY;
+        this.stepsZ = stepsZ;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.inverseRasterSize = 1 / rasterSize;
+        this.bits = new long[(int)(((long)stepsX * stepsY * stepsZ + 63) >>> 6)];
+        this.bricksX = (stepsX + BRICK_SIZE - 1) / BRICK_SIZE;
+        this.bricksY = (stepsY + BRICK_SIZE - 1) / BRICK_SIZE;
+        this.bricksZ = (stepsZ + BRICK_SIZE - 1) / BRICK_SIZE;
+        this.brickBits = new long[(bricksX * bricksY * bricksZ + 63) >>> 6];
+    }
+
+    /** Collects the voxels of the grid that are marked for the collision check. */
+    static VoxelOccupancy ofCollisionCheck(VoxelGrid grid) {
+        VoxelOccupancy occupancy =
+            new VoxelOccupancy(
+                grid.stepsX,
+                grid.stepsY,
+                grid.stepsZ,
+                grid.minMaxX.min,
+                grid.minMaxY.min,
+                grid.minMaxZ.min,
+                grid.rasterSize);
+        for (int x = 0; x != grid.stepsX; x++) {
+            for (int y = 0; y != grid.stepsY; y++) {
+                PlanVoxel[] column = grid.voxels[x][y];
+                for (int z = 0; z != grid.stepsZ; z++) {
+                    if (column[z].dilatedModelCollisionCheck) {
+                        occupancy.set(x, y, z);
+                    }
+                }
+            }
+        }
+
+        return occupancy;
+    }
+
+    void set(int x, int y, int z) {
+        int index = index(x, y, z);
+        bits[index >>> 6] |= 1L << index;
+        int brickIndex = ((x / BRICK_SIZE) * bricksY + y / BRICK_SIZE) * bricksZ + z / BRICK_SIZE;
+        brickBits[brickIndex >>> 6] |= 1L << brickIndex;
+    }
+
+    boolean isOccupied(int x, int y, int z) {
+        int index = index(x, y, z);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /** Returns whether the segment from a to b passes through an occupied voxel. */
+    boolean intersects(double ax, double ay, double az, double bx, double by, double bz) {
+        // segment in voxel coordinates, p(t) = p0 + t * d for t in [0, 1]
+        double x0 = (ax - minX) * inverseRasterSize;
+        double y0 = (ay - minY) * inverseRasterSize;
+        double z0 = (az - minZ) * inverseRasterSize;
+        double dx = (bx - minX) * inverseRasterSize - x0;
+        double dy = (by - minY) * inverseRasterSize - y0;
+        double dz = (bz - minZ) * inverseRasterSize - z0;
+
+        // clip against the raster box
+        double tEnter = 0;
+        double tExit = 1;
+        if (dx == 0) {
+            if (x0 < 0 || x0 >= stepsX) {
+                return false;
+            }
+        } else {
+            double t0 = -x0 / dx;
+            double t1 = (stepsX - x0) / dx;
+            tEnter = Math.max(tEnter, Math.min(t0, t1));
+            tExit = Math.min(tExit, Math.max(t0, t1));
+        }
+
+        if (dy == 0) {
+            if (y0 < 0 || y0 >= stepsY) {
+                return false;
+            }
+        } else {
+            double t0 = -y0 / dy;
+            double t1 = (stepsY - y0) / dy;
+            tEnter = Math.max(tEnter, Math.min(t0, t1));
+            tExit = Math.min(tExit, Math.max(t0, t1));
+        }
+
+        if (dz == 0) {
+            if (z0 < 0 || z0 >= stepsZ) {
+                return false;
+            }
+        } else {
+            double t0 = -z0 / dz;
+            double t1 = (stepsZ - z0) / dz;
+            tEnter = Math.max(tEnter, Math.min(t0, t1));
+            tExit = Math.min(tExit, Math.max(t0, t1));
+        }
+
+        if (tEnter > tExit) {
+            return false;
+        }
+
+        // walk the bricks, and the voxels only within bricks that have occupied voxels
+        double bx0 = x0 / BRICK_SIZE;
+        double by0 = y0 / BRICK_SIZE;
+        double bz0 = z0 / BRICK_SIZE;
+        double bdx = dx / BRICK_SIZE;
+        double bdy = dy / BRICK_SIZE;
+        double bdz = dz / BRICK_SIZE;
+        int x = clamp((int)Math.floor(bx0 + tEnter * bdx), 0, bricksX);
+        int y = clamp((int)Math.floor(by0 + tEnter * bdy), 0, bricksY);
+        int z = clamp((int)Math.floor(bz0 + tEnter * bdz), 0, bricksZ);
+
+        // parameters of the next brick boundary on every axis, and the distance between boundaries
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        int stepZ = dz > 0 ? 1 : -1;
+        double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY : (x + (dx > 0 ? 1 : 0) - bx0) / bdx;
+        double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY : (y + (dy > 0 ? 1 : 0) - by0) / bdy;
+        double tMaxZ = dz == 0 ? Double.POSITIVE_INFINITY : (z + (dz > 0 ? 1 : 0) - bz0) / bdz;
+        double tDeltaX = Math.abs(1 / bdx);
+        double tDeltaY = Math.abs(1 / bdy);
+        double tDeltaZ = Math.abs(1 / bdz);
+        double t = tEnter;
+
+        while (true) {
+            double tNext = Math.min(tMaxX, Math.min(tMaxY, tMaxZ));
+            if (isBrickOccupied(x, y, z)
+                    && intersectsVoxels(x0, y0, z0, dx, dy, dz, t, Math.min(tNext, tExit), x, y, z)) {
+                return true;
+            }
+
+            if (tNext > tExit) {
+                return false;
+            }
+
+            t = tNext;
+            if (tMaxX <= tMaxY && tMaxX <= tMaxZ) {
+                x += stepX;
+                if (x < 0 || x >= bricksX) {
+                    return false;
+                }
+
+                tMaxX += tDeltaX;
+            } else if (tMaxY <= tMaxZ) {
+                y += stepY;
+                if (y < 0 || y >= bricksY) {
+                    return false;
+                }
+
+                tMaxY += tDeltaY;
+            } else {
+                z += stepZ;
+                if (z < 0 || z >= bricksZ) {
+                    return false;
+                }
+
+                tMaxZ += tDeltaZ;
+            }
+        }
+    }
+
+    /** Walks the voxels of one brick that the segment crosses between tEnter and tExit. */
+    private boolean intersectsVoxels(
+            double x0,
+            double y0,
+            double z0,
+            double dx,
+            double dy,
+            double dz,
+            double tEnter,
+            double tExit,
+            int brickX,
+            int brickY,
+            int brickZ) {
+        int minX = brickX * BRICK_SIZE;
+        int minY = brickY * BRICK_SIZE;
+        int minZ = brickZ * BRICK_SIZE;
+        int maxX = Math.min(minX + BRICK_SIZE, stepsX);
+        int maxY = Math.min(minY + BRICK_SIZE, stepsY);
+        int maxZ = Math.min(minZ + BRICK_SIZE, stepsZ);
+        int x = clamp((int)Math.floor(x0 + tEnter * dx), minX, maxX);
+        int y = clamp((int)Math.floor(y0 + tEnter * dy), minY, maxY);
+        int z = clamp((int)Math.floor(z0 + tEnter * dz), minZ, maxZ);
+
+        // parameters of the next voxel boundary on every axis, and the distance between boundaries
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        int stepZ = dz > 0 ? 1 : -1;
+        double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY : (x + (dx > 0 ? 1 : 0) - x0) / dx;
+        double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY : (y + (dy > 0 ? 1 : 0) - y0) / dy;
+        double tMaxZ = dz == 0 ? Double.POSITIVE_INFINITY : (z + (dz > 0 ? 1 : 0) - z0) / dz;
+        double tDeltaX = Math.abs(1 / dx);
+        double tDeltaY = Math.abs(1 / dy);
+        double tDeltaZ = Math.abs(1 / dz);
+
+        while (true) {
+            if (isOccupied(x, y, z)) {
+                return true;
+            }
+
+            if (tMaxX <= tMaxY && tMaxX <= tMaxZ) {
+                if (tMaxX > tExit) {
+                    return false;
+                }
+
+                x += stepX;
+                if (x < minX || x >= maxX) {
+                    return false;
+                }
+
+                tMaxX += tDeltaX;
+            } else if (tMaxY <= tMaxZ) {
+                if (tMaxY > tExit) {
+                    return false;
+                }
+
+                y += stepY;
+                if (y < minY || y >= maxY) {
+                    return false;
+                }
+
+                tMaxY += tDeltaY;
+            } else {
+                if (tMaxZ > tExit) {
+                    return false;
+                }
+
+                z += stepZ;
+                if (z < minZ || z >= maxZ) {
+                    return false;
+                }
+
+                tMaxZ += tDeltaZ;
+            }
+        }
+    }
+
+    private boolean isBrickOccupied(int x, int y, int z) {
+        int index = (x * bricksY + y) * bricksZ + z;
+        return (brickBits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private int index(int x, int y, int z) {
+        return (x * stepsY + y) * stepsZ + z;
+    }
+
+    private static int clamp(int index, int min, int max) {
+        return index < min ? min : (index >= max ? max - 1 : index);
+    }
+
+}
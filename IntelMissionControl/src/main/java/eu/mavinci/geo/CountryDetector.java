@@ -107,6 +107,9 @@ public class CountryDetector implements ICountryDetector {
 
     public final TreeMap<String, Country> countries;
 
+    // built once the regulations are set up, the countries must not be changed afterwards
+    private final CountryIndex index;
+
     public CountryDetector() {
         this(loadData());
     }
@@ -114,6 +117,7 @@ public class CountryDetector implements ICountryDetector {
     public CountryDetector(TreeMap<String, Country> countries) {
         this.countries = countries;
         setupRegulations();
+        this.index = new CountryIndex(countries.values());
     }
 
     private static TreeMap<String, Country> loadData() {
@@ -232,20 +236,9 @@ public class CountryDetector implements ICountryDetector {
             return true;
         }
 
-        for (Country c : countries.values()) {
-            if (c.withinSafetyDistance(latLon)) {
-                if (c.isRestricted) {
-                    if (!silent) {
-                        showWarning(c);
-                    }
-
-                    return false;
-                }
-            }
-        }
-
+        // the country is only needed for the warning
         if (!silent) {
-            showWarning(null);
+            showWarning(index.getFirstCountry(latLon, true));
         }
 
         return false;
@@ -289,20 +282,9 @@ public class CountryDetector implements ICountryDetector {
             return true;
         }
 
-        for (Country c : countries.values()) {
-            if (c.withinSafetyDistance(sector)) {
-                if (c.isRestricted) {
-                    if (!silent) {
-                        showWarning(c);
-                    }
-
-                    return false;
-                }
-            }
-        }
-
+        // the country is only needed for the warning
         if (!silent) {
-            showWarning(null);
+            showWarning(index.getFirstCountry(sector, true));
         }
 
         return false;
@@ -314,13 +296,7 @@ public class CountryDetector implements ICountryDetector {
             return null;
         }
 
-        for (Country c : countries.values()) {
-            if (c.withinSafetyDistance(latLon)) {
-                return c;
-            }
-        }
-
-        return null;
+        return index.getFirstCountry(latLon, false);
     }
 
     @Override
@@ -329,13 +305,7 @@ public class CountryDetector implements ICountryDetector {
             return null;
         }
 
-        for (Country c : countries.values()) {
-            if (c.withinSafetyDistance(sector)) {
-                return c;
-            }
-        }
-
-        return null;
+        return index.getFirstCountry(sector, false);
     }
 
     public List<Country> getAllCountries(LatLon latLon, double distance) {
@@ -343,6 +313,11 @@ public class CountryDetector implements ICountryDetector {
             return null;
         }
 
+        if (distance >= 0) {
+            return index.getAllCountries(latLon, distance);
+        }
+
+        // only countries that contain the location, and with some distance to their borders
         ArrayList<Country> l = new ArrayList<Country>();
         for (Country c : countries.values()) {
             if (c.withinSafetyDistance(latLon, distance)) {
@@ -358,14 +333,7 @@ public class CountryDetector implements ICountryDetector {
             return null;
         }
 
-        ArrayList<Country> l = new ArrayList<Country>();
-        for (Country c : countries.values()) {
-            if (c.withinSafetyDistance(latLon)) {
-                l.add(c);
-            }
-        }
-
-        return l;
+        return index.getAllCountries(latLon);
     }
 
     public List<Country> getAllCountries(Sector sector) {
@@ -373,14 +341,7 @@ public class CountryDetector implements ICountryDetector {
             return null;
         }
 
-        ArrayList<Country> l = new ArrayList<Country>();
-        for (Country c : countries.values()) {
-            if (c.withinSafetyDistance(sector)) {
-                l.add(c);
-            }
-        }
-
-        return l;
+        return index.getAllCountries(sector);
     }
 
     public List<Country> mergeCountries() {
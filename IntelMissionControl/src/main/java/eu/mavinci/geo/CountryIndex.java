@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.geo;
+
+import com.intel.missioncontrol.geometry.StrTree;
+import eu.mavinci.airspace.Airspace;
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Sector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index of the country borders, answering the lookups of the {@link CountryDetector} that run on every map
+ * click and every telemetry update. The borders are prepared once: every border ring is stored as arrays of vertex
+ * coordinates in radians, and the rings are packed into a {@link StrTree} by their bounding boxes, so a lookup only
+ * tests the few rings close to the location instead of reprojecting every border of every country.
+ *
+ * <p>A location is within a distance of a country like in {@link Country#withinSafetyDistance}: it is inside one of the
+ * borders, or the distance to one of the border edges in the local plane around the location is at most the distance.
+ * Unlike {@link Country}, longitudes are wrapped, so borders on the other side of the antimeridian are found too.
+ *
+ * <p>The borders and safety margins of the countries are captured when the index is built. Lookups can be run from
+ * any thread and don't allocate, except for the returned lists. Countries are returned in the order they were given.
+ */
+final class CountryIndex {
+
+    /** Meters per radian in the local plane used by {@link Country}. */
+    private static final double METERS_PER_RADIAN = 180 / Math.PI * 60 * Airspace.NM_TO_METER;
+
+    private static final double TWO_PI = 2 * Math.PI;
+
+    /** A border ring, with the coordinates of its vertices in radians. */
+    private static final class Ring {
+        final double[] lat;
+        final double[] lon;
+        final int country;
+
+        // minLon, minLat, maxLon, maxLat
+        final double[] bounds = {
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+
+        Ring(double[] lat, double[] lon, int country) {
+            this.lat = lat;
+            this.lon = lon;
+            this.country = country;
+            for (int i = 0; i < lat.length; i++) {
+                bounds[0] = Math.min(bounds[0], lon[i]);
+                bounds[1] = Math.min(bounds[1], lat[i]);
+                bounds[2] = Math.max(bounds[2], lon[i]);
+                bounds[3] = Math.max(bounds[3], lat[i]);
+            }
+        }
+    }
+
+    /**
+     * The locations and the result of a lookup, reused by all lookups of a thread. It is passed to the tree as the
+     * consumer of the rings close to the locations, so lookups don't allocate.
+     */
+    private final class Query implements Consumer<Ring> {
+        // the centroid and the corners of a sector
+        final double[] lat = new double[5];
+        final double[] lon = new double[5];
+        final long[] found = new long[(countries.length + 63) / 64];
+        int pointCount;
+        boolean findAll;
+        boolean restrictedOnly;
+        boolean useSafetyMargins;
+        double distance;
+        int firstCountry;
+
+        @Override
+        public void accept(Ring ring) {
+            testRing(this, ring);
+        }
+    }
+
+    private final Country[] countries;
+    private final double[] safetyMargins;
+    private final double maxSafetyMargin;
+    private final StrTree<Ring> rings;
+    private final ThreadLocal<Query> queries;
+
+    CountryIndex(Collection<Country> countries) {
+        this.countries = countries.toArray(new Country[0]);
+        safetyMargins = new double[this.countries.length];
+        List<Ring> rings = new ArrayList<>();
+        double maxMargin = 0;
+        for (int c = 0; c < this.countries.length; c++) {
+            Country country = this.countries[c];
+            safetyMargins[c] = country.SAFETY_MARGIN;
+            maxMargin = Math.max(maxMargin, country.SAFETY_MARGIN);
+            for (List<LatLon> border : country.borders) {
+                if (border.isEmpty()) {
+                    continue;
+                }
+
+                double[] lat = new double[border.size()];
+                double[] lon = new double[border.size()];
+                for (int i = 0; i < lat.length; i++) {
+                    lat[i] = border.get(i).latitude.radians;
+                    lon[i] = border.get(i).longitude.radians;
+                }
+
+                rings.add(new Ring(lat, lon, c));
+            }
+        }
+
+        maxSafetyMargin = maxMargin;
+        this.rings = StrTree.build(rings, ring -> ring.bounds);
+        queries = ThreadLocal.withInitial(Query::new);
+    }
+
+    /**
+     * The first country that the location is within the safety margin of, or null.
+     *
+     * @param restrictedOnly whether only restricted countries are looked up
+     */
+    Country getFirstCountry(LatLon latLon, boolean restrictedOnly) {
+        Query query = begin(false, restrictedOnly, true, 0);
+        addPoint(query, latLon.latitude.radians, latLon.longitude.radians);
+        run(query);
+        return query.firstCountry < countries.length ? countries[query.firstCountry] : null;
+    }
+
+    /**
+     * The first country that the centroid or a corner of the sector is within the safety margin of, or null. Like
+     * {@link Country#withinSafetyDistance(Sector)}, the rest of the sector is not checked. All five locations are
+     * looked up in a single pass over the tree.
+     *
+     * @param restrictedOnly whether only restricted countries are looked up
+     */
+    Country getFirstCountry(Sector sector, boolean restrictedOnly) {
+        Query query = begin(false, restrictedOnly, true, 0);
+        addSector(query, sector);
+        run(query);
+        return query.firstCountry < countries.length ? countries[query.firstCountry] : null;
+    }
+
+    /** All countries that the location is within the safety margin of. */
+    List<Country> getAllCountries(LatLon latLon) {
+        Query query = begin(true, false, true, 0);
+        addPoint(query, latLon.latitude.radians, latLon.longitude.radians);
+        run(query);
+        return getFound(query);
+    }
+
+    /** All countries that the location is within the given non-negative distance in meters of. */
+    List<Country> getAllCountries(LatLon latLon, double distance) {
+        Query query = begin(true, false, false, distance);
+        addPoint(query, latLon.latitude.radians, latLon.longitude.radians);
+        run(query);
+        return getFound(query);
+    }
+
+    /** All countries that the centroid or a corner of the sector is within the safety margin of. */
+    List<Country> getAllCountries(Sector sector) {
+        Query query = begin(true, false, true, 0);
+        addSector(query, sector);
+        run(query);
+        return getFound(query);
+    }
+
+    private Query begin(boolean findAll, boolean restrictedOnly, boolean useSafetyMargins, double distance) {
+        Query query = queries.get();
+        query.pointCount = 0;
+        query.findAll = findAll;
+        query.restrictedOnly = restrictedOnly;
+        query.useSafetyMargins = useSafetyMargins;
+        query.distance = distance;
+        query.firstCountry = countries.length;
+        Arrays.fill(query.found, 0);
+        return query;
+    }
+
+    private static void addPoint(Query query, double lat, double lon) {
+        query.lat[query.pointCount] = lat;
+        query.lon[query.pointCount] = lon;
+        query.pointCount++;
+    }
+
+    private static void addSector(Query query, Sector sector) {
+        double minLat = sector.getMinLatitude().radians;
+        double maxLat = sector.getMaxLatitude().radians;
+        double minLon = sector.getMinLongitude().radians;
+        double maxLon = sector.getMaxLongitude().radians;
+        addPoint(query, 0.5 * (minLat + maxLat), 0.5 * (minLon + maxLon));
+        addPoint(query, minLat, minLon);
+        addPoint(query, minLat, maxLon);
+        addPoint(query, maxLat, maxLon);
+        addPoint(query, maxLat, minLon);
+    }
+
+    private List<Country> getFound(Query query) {
+        List<Country> found = new ArrayList<>();
+        for (int c = 0; c < countries.length; c++) {
+            if ((query.found[c >> 6] & (1L << c)) != 0) {
+                found.add(countries[c]);
+            }
+        }
+
+        return found;
+    }
+
+    private void run(Query query) {
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY;
+        double maxLon = Double.NEGATIVE_INFINITY;
+        double maxAbsLat = 0;
+        for (int i = 0; i < query.pointCount; i++) {
+            minLat = Math.min(minLat, query.lat[i]);
+            maxLat = Math.max(maxLat, query.lat[i]);
+            minLon = Math.min(minLon, query.lon[i]);
+            maxLon = Math.max(maxLon, query.lon[i]);
+            maxAbsLat = Math.max(maxAbsLat, Math.abs(query.lat[i]));
+        }
+
+        // a border is within the distance only if its bounding box is, since the local plane is linear in lat and lon
+        double distance = query.useSafetyMargins ? maxSafetyMargin : query.distance;
+        double dLat = distance / METERS_PER_RADIAN;
+        double dLon = distance / (METERS_PER_RADIAN * Math.cos(maxAbsLat));
+        if (!(dLon < Math.PI)) {
+            rings.search(Double.NEGATIVE_INFINITY, minLat - dLat, Double.POSITIVE_INFINITY, maxLat + dLat, query);
+            return;
+        }
+
+        rings.search(minLon - dLon, minLat - dLat, maxLon + dLon, maxLat + dLat, query);
+        if (minLon - dLon < -Math.PI) {
+            rings.search(minLon - dLon + TWO_PI, minLat - dLat, maxLon + dLon + TWO_PI, maxLat + dLat, query);
+        }
+
+        if (maxLon + dLon > Math.PI) {
+            rings.search(minLon - dLon - TWO_PI, minLat - dLat, maxLon + dLon - TWO_PI, maxLat + dLat, query);
+        }
+    }
+
+    private void testRing(Query query, Ring ring) {
+        int country = ring.country;
+        if (query.findAll ? (query.found[country >> 6] & (1L << country)) != 0 : country >= query.firstCountry) {
+            return;
+        }
+
+        if (query.restrictedOnly && !countries[country].isRestricted) {
+            return;
+        }
+
+        double distance = query.useSafetyMargins ? safetyMargins[country] : query.distance;
+        for (int i = 0; i < query.pointCount; i++) {
+            if (isWithin(ring, query.lat[i], query.lon[i], distance)) {
+                if (query.findAll) {
+                    query.found[country >> 6] |= 1L << country;
+                } else {
+                    query.firstCountry = country;
+                }
+
+                return;
+            }
+        }
+    }
+
+    /** Whether the location is inside the ring or within the distance of one of its edges. */
+    private static boolean isWithin(Ring ring, double lat, double lon, double distance) {
+        if (lon - ring.bounds[2] > Math.PI) {
+            lon -= TWO_PI;
+        } else if (ring.bounds[0] - lon > Math.PI) {
+            lon += TWO_PI;
+        }
+
+        double[] lats = ring.lat;
+        double[] lons = ring.lon;
+        double scaleX = METERS_PER_RADIAN * Math.cos(lat);
+        double distance2 = distance * distance;
+        boolean inside = false;
+        int n = lats.length;
+        double x0 = (lons[n - 1] - lon) * scaleX;
+        double y0 = (lats[n - 1] - lat) * METERS_PER_RADIAN;
+        for (int i = 0; i < n; i++) {
+            double x1 = (lons[i] - lon) * scaleX;
+            double y1 = (lats[i] - lat) * METERS_PER_RADIAN;
+
+            // the location is the origin of the plane; count the crossings of the ray along the positive x axis
+            if ((y1 > 0) != (y0 > 0) && x0 - y0 * (x1 - x0) / (y1 - y0) > 0) {
+                inside = !inside;
+            }
+
+            double dx = x1 - x0;
+            double dy = y1 - y0;
+            double len2 = dx * dx + dy * dy;
+            double t = len2 > 0 ? Math.max(0, Math.min(1, -(x0 * dx + y0 * dy) / len2)) : 0;
+            double px = x0 + t * dx;
+            double py = y0 + t * dy;
+            if (px * px + py * py <= distance2) {
+                return true;
+            }
+
+            x0 = x1;
+            y0 = y1;
+        }
+
+        return inside;
+    }
+
+}
@@ -1034,7 +1034,7 @@ public class AirplaneCache extends CAirplaneCache implements IAirspaceListener {
     public void recv_photo(PhotoData photo) {
         // System.out.println("photo before: " + photo);
         if (photo.gps_ellipsoid <= -199 * 100) {
-            photo.gps_ellipsoid = (float)egmModel.getEGM96Offset(LatLon.fromDegrees(photo.lat, photo.lon)) * 100;
+            photo.gps_ellipsoid = (float)egmModel.getEGM96Offset(photo.lat, photo.lon) * 100;
             // System.out.println("fixing ellipsoid:" + photo);
         }
 
@@ -66,6 +66,7 @@ import gov.nasa.worldwind.geom.Vec4;
 import gov.nasa.worldwind.globes.Earth;
 import gov.nasa.worldwind.globes.Globe;
 import java.io.File;
+import java.util.Random;
 import java.util.Stack;
 import java.util.Vector;
 import java.util.logging.Level;
@@ -103,6 +104,12 @@ public class AirplaneSim extends AAirplaneConnector implements IAirplaneConnecto
 
     Thread workerThread;
 
+    /** set if this simulation is advanced by a kernel on its virtual clock instead of running on its own thread */
+    SimulationKernel kernel;
+
+    /** source of the simulated sensor noise, seeded by the kernel for reproducible runs */
+    Random random = new Random();
+
     boolean running = true;
     boolean runAsync;
 
@@ -217,7 +224,7 @@ public class AirplaneSim extends AAirplaneConnector implements IAirplaneConnecto
         curTargetVec = lastTargetVec = vec;
         altMaxInM = altMinInM = pos.elevation;
         lastTargetVec2d = curTargetVec2d = vec == null ? null : new Vec4(vec.x, vec.y);
-        simStartTime = simTime = System.currentTimeMillis() / 1000.;
+        simStartTime = simTime = getClockSeconds();
     }
 
     public boolean isFPReady() {
@@ -339,988 +346,1015 @@ public class AirplaneSim extends AAirplaneConnector implements IAirplaneConnecto
     public double altMinInM;
     public double altMaxInM;
 
+    // state of the main loop, kept between calls of step()
+    private boolean reached2Donce;
+    private int curLandingPhase;
+    private double groundDist;
+    private Line currentLine2d;
+    private Vec4 directCurLineNorm2d;
+    private double currentLine2dLen;
+    private double radiusAssert;
+    private double radiusReached;
+    private Double relDirectionCircleStart;
+    private boolean yawCircleStartInsideCountingWindow;
+    private Waypoint copterImagePointLast;
+    private Waypoint copterImagePointNext;
+    private double currentSpeed;
+    private double turnRadius;
+    private boolean simDone;
+    private long cycleCount;
+
     @Override
     public void run() {
         try {
-            // System.out.println("sim AirplaneSim start" + this);
-
-            initConstants();
-            synchronized (this) {
-                flightDistance = 0;
-                simStartTime = simTime = System.currentTimeMillis() / 1000.;
-                sleepUebertrag = 0;
-                lastPhotoTime = -1;
-                lastPhotoReentryTriggerID = -1;
-                photo_roll_sign = 0;
-                hasDoneLastBeforeCorner = false;
-            }
+            startRun();
+            while (running) {
+                long timeStartThisLoop = System.currentTimeMillis();
+                if (!step()) {
+                    break;
+                }
 
-            assureInitFP();
-            synchronized (this) {
-                curTargetPos = lastTargetPos = pos;
-                curTargetVec = lastTargetVec = vec;
-                altMaxInM = altMinInM = pos.elevation;
-                lastTargetVec2d = curTargetVec2d = vec == null ? null : new Vec4(vec.x, vec.y);
+                if (runAsync) {
+                    double simSpeedTmp = Math.max(Math.min(simSpeed, MAX_SIM_SPEED), MIN_SIM_SPEED);
+                    // if (simSpeed <= 0)
+                    // simSpeedTmp = MAX_SIM_SPEED;
+                    long sleep_time =
+                        Math.round(1000. * MAIN_LOOP_STEP / simSpeedTmp)
+                            - (System.currentTimeMillis() - timeStartThisLoop);
+                    sleep_time += sleepUebertrag;
+                    // System.out.println("sleeping for: " + sleep_time + " @
+                    // speed="+simSpeedTmp + "
+                    // consumedTime="+(System.currentTimeMillis() -
+                    // timeStartThisLoop));
+                    if (sleep_time > 0) {
+                        sleepUebertrag = 0;
+                        try {
+                            Thread.sleep(sleep_time);
+                        } catch (InterruptedException e) {
+                        }
+                    } else {
+                        sleepUebertrag = Math.max(sleep_time, -1000); // maximal
+                        // üebertrag
+                        // 1 sec
+                    }
+                }
             }
+        } catch (Exception e) {
+            e.printStackTrace();
+            Debug.getLog().log(Level.WARNING, "local Mission simulation failed", e);
+        } finally {
+            clearFP();
+            // System.out.println("simulation terminated "+AirplaneSim.this);
+        }
+    }
 
-            // this values are critical, since sometimes point will never be reached
-            // otherwise!
-
-            // reset();
+    /** Prepares the main loop of the simulation, which is then advanced by calling {@link #step()}. */
+    void startRun() {
+        // System.out.println("sim AirplaneSim start" + this);
 
-            // return
-            // globe.computePointFromLocation(latLon).transformBy4(transform4);
+        initConstants();
+        synchronized (this) {
+            flightDistance = 0;
+            simStartTime = simTime = getClockSeconds();
+            sleepUebertrag = 0;
+            lastPhotoTime = -1;
+            lastPhotoReentryTriggerID = -1;
+            photo_roll_sign = 0;
+            hasDoneLastBeforeCorner = false;
+        }
 
-            // return
-            // globe.computePositionFromPoint(vec.transformBy4(transform4Inv));
+        assureInitFP();
+        synchronized (this) {
+            curTargetPos = lastTargetPos = pos;
+            curTargetVec = lastTargetVec = vec;
+            altMaxInM = altMinInM = pos.elevation;
+            lastTargetVec2d = curTargetVec2d = vec == null ? null : new Vec4(vec.x, vec.y);
+        }
 
-            invokeMaybeAsyc(
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        rootHandler.recv_powerOn();
-                    }
-                });
+        // this values are critical, since sometimes point will never be reached
+        // otherwise!
 
-            // if (runAsync) System.out.println("sim this fp:" + fp.toXML());
+        // reset();
 
-            boolean reached2Donce = false;
+        // return
+        // globe.computePointFromLocation(latLon).transformBy4(transform4);
 
-            int curLandingPhase = 0;
+        // return
+        // globe.computePositionFromPoint(vec.transformBy4(transform4Inv));
 
-            double groundDist = 0;
+        invokeMaybeAsyc(
+            new Runnable() {
+                @Override
+                public void run() {
+                    rootHandler.recv_powerOn();
+                }
+            });
 
-            Line currentLine2d = null;
-            Vec4 directCurLineNorm2d = null;
-            double currentLine2dLen = 0;
-            double radiusAssert = PlaneConstants.DEF_CONT_NAV_CIRCR / 100.;
-            double radiusReached = PlaneConstants.DEF_CONT_NAV_CIRCR / 100.;
+        // if (runAsync) System.out.println("sim this fp:" + fp.toXML());
 
-            Double relDirectionCircleStart = null;
-            boolean yawCircleStartInsideCountingWindow = false;
+        reached2Donce = false;
 
-            Waypoint copterImagePointLast = null;
-            Waypoint copterImagePointNext = null;
+        curLandingPhase = 0;
 
-            double currentSpeed = AIR_SPEED;
-            setDiveAndClimb(currentSpeed);
+        groundDist = 0;
 
-            final double turnRadius =
-                fp.getHardwareConfiguration()
-                    .getPlatformDescription()
-                    .getTurnRadius()
-                    .convertTo(Unit.METER)
-                    .getValue()
-                    .doubleValue();
+        currentLine2d = null;
+        directCurLineNorm2d = null;
+        currentLine2dLen = 0;
+        radiusAssert = PlaneConstants.DEF_CONT_NAV_CIRCR / 100.;
+        radiusReached = PlaneConstants.DEF_CONT_NAV_CIRCR / 100.;
 
-            // boolean landingPointReached = false;
+        relDirectionCircleStart = null;
+        yawCircleStartInsideCountingWindow = false;
 
-            boolean simDone = false;
+        copterImagePointLast = null;
+        copterImagePointNext = null;
 
-            long simUntil = -1;
-            long cycleCount = 0;
-            while (!simDone && running) {
-                cycleCount++;
-                /*if (simDone) {
-                    System.out.println("fpCurObj:" + fpCurObj);
-                    if (simUntil == -1) {
-                        simUntil = cycleCount;
-                    }
+        currentSpeed = AIR_SPEED;
+        setDiveAndClimb(currentSpeed);
 
-                    if (cycleCount > simUntil) {
-                        return;
-                    }
-                }*/
-                // synchronized (this) {
-                long timeStartThisLoop = System.currentTimeMillis();
-                // if (simTime - simStartTime > MAX_SIMULATION_TIME) throw new
-                // RuntimeException("simulation exceeds maximal runtime: " +
-                // (simTime-simStartTime) +" > " +MAX_SIMULATION_TIME);
-                // System.out.println("sim AirplaneSim start" + this +" "+runAsync +" "+ fpCurObj);
-                if (!runAsync) {
-                    if (simTime >= maxSimTimeSec) {
-                        simDone = true;
-                    }
-                }
+        turnRadius =
+            fp.getHardwareConfiguration()
+                .getPlatformDescription()
+                .getTurnRadius()
+                .convertTo(Unit.METER)
+                .getValue()
+                .doubleValue();
 
-                simTime += MAIN_LOOP_STEP;
-                int sec = (int)simTime;
-                int usec = (int)(1000000 * (simTime - sec));
-                battery = (1 - (simTime - simStartTime) / (maxSimTimeSec - simStartTime)) * 100;
-
-                boolean reachedAlt =
-                    (assureAlt == AltAssertModes.jump || isInCopterMode)
-                        ? Math.abs(vec.z - curTargetVec.z) <= WP_REACHED_ALT
-                        : true;
-                // System.out.println("\n\nreachedAlt:"+reachedAlt + " reached2Donce:"+reached2Donce);
-                Waypoint copterImagePoint = null;
-
-                // double distToTarget3D= vec.distanceTo3(curTargetVec);
-                if (!reached2Donce) {
-                    double distToTarget2D = vec.distanceTo2(curTargetVec);
-                    double reachedRadius = WP_REACHED_RADIUS;
-                    if (isInCopterMode) {
-                        // fine
-                    } else if (!reachedAlt && assureAlt == AltAssertModes.jump) {
-                        reachedRadius += radiusAssert;
-                    } else if (!reachedAlt && noCirclesCurrentTaget != 0) {
-                        reachedRadius += radiusAssert;
-                    } else if (reachedAlt && noCirclesCurrentTaget != 0) {
-                        reachedRadius += radiusReached;
-                    } else if (radiusAssert < 0) {
-                        // used in spot landing sim
-                        reachedRadius += radiusAssert;
-                    }
+        // boolean landingPointReached = false;
+
+        simDone = false;
+        cycleCount = 0;
+    }
+
+    /**
+     * Advances the simulation by {@link #MAIN_LOOP_STEP} seconds of simulated time.
+     *
+     * @return false if the simulation is done
+     */
+    boolean step() {
+        cycleCount++;
+        // if (simTime - simStartTime > MAX_SIMULATION_TIME) throw new
+        // RuntimeException("simulation exceeds maximal runtime: " +
+        // (simTime-simStartTime) +" > " +MAX_SIMULATION_TIME);
+        // System.out.println("sim AirplaneSim start" + this +" "+runAsync +" "+ fpCurObj);
+        if (!runAsync) {
+            if (simTime >= maxSimTimeSec) {
+                simDone = true;
+            }
+        }
 
-                    reached2Donce = distToTarget2D <= reachedRadius;
-                    // if (runAsync) System.out.println("reachedRadius: " + reachedRadius +
-                    // "\tdistToTarget2D:"+distToTarget2D + " =>
-                    // reached2Donce:"+reached2Donce);
-                }
+        simTime += MAIN_LOOP_STEP;
+        int sec = (int)simTime;
+        int usec = (int)(1000000 * (simTime - sec));
+        battery = (1 - (simTime - simStartTime) / (maxSimTimeSec - simStartTime)) * 100;
+
+        boolean reachedAlt =
+            (assureAlt == AltAssertModes.jump || isInCopterMode)
+                ? Math.abs(vec.z - curTargetVec.z) <= WP_REACHED_ALT
+                : true;
+        // System.out.println("\n\nreachedAlt:"+reachedAlt + " reached2Donce:"+reached2Donce);
+        Waypoint copterImagePoint = null;
+
+        // double distToTarget3D= vec.distanceTo3(curTargetVec);
+        if (!reached2Donce) {
+            double distToTarget2D = vec.distanceTo2(curTargetVec);
+            double reachedRadius = WP_REACHED_RADIUS;
+            if (isInCopterMode) {
+                // fine
+            } else if (!reachedAlt && assureAlt == AltAssertModes.jump) {
+                reachedRadius += radiusAssert;
+            } else if (!reachedAlt && noCirclesCurrentTaget != 0) {
+                reachedRadius += radiusAssert;
+            } else if (reachedAlt && noCirclesCurrentTaget != 0) {
+                reachedRadius += radiusReached;
+            } else if (radiusAssert < 0) {
+                // used in spot landing sim
+                reachedRadius += radiusAssert;
+            }
 
-                boolean reachedCircleCount =
-                    isInCopterMode || (noCirclesCurrentTaget != -1 && noCirclesCurrentTaget <= noCirclesDone);
+            reached2Donce = distToTarget2D <= reachedRadius;
+            // if (runAsync) System.out.println("reachedRadius: " + reachedRadius +
+            // "\tdistToTarget2D:"+distToTarget2D + " =>
+            // reached2Donce:"+reached2Donce);
+        }
 
-                // jump to landing point if someone sends descending!
-                if (flightPhase == AirplaneFlightphase.descending && !(fpCurObj instanceof LandingPoint)) {
-                    reached2Donce = true;
-                    reachedAlt = true;
-                    reachedCircleCount = true;
-                    // FIXME ... maybe jump first to safety altitude??? TODO
-                }
+        boolean reachedCircleCount =
+            isInCopterMode || (noCirclesCurrentTaget != -1 && noCirclesCurrentTaget <= noCirclesDone);
 
-                if (reachedCircleCount) {
-                    relDirectionCircleStart = null;
-                }
-                // System.out.println("reachedCircleCount:"+reachedCircleCount + " noCirclesCurrentTaget:"+
-                // noCirclesCurrentTaget+"
-                // noCirclesDone:"+noCirclesDone);
+        // jump to landing point if someone sends descending!
+        if (flightPhase == AirplaneFlightphase.descending && !(fpCurObj instanceof LandingPoint)) {
+            reached2Donce = true;
+            reachedAlt = true;
+            reachedCircleCount = true;
+            // FIXME ... maybe jump first to safety altitude??? TODO
+        }
 
-                // System.out.println("mainLoopTime:"+ (simTime - simStartTime)+ " "+ fpCurObj + " pos="+pos +" target="
-                // +curTargetPos +
-                // "engineOn:"+engineOn);
+        if (reachedCircleCount) {
+            relDirectionCircleStart = null;
+        }
+        // System.out.println("reachedCircleCount:"+reachedCircleCount + " noCirclesCurrentTaget:"+
+        // noCirclesCurrentTaget+"
+        // noCirclesDone:"+noCirclesDone);
 
-                if (Double.isNaN(pos.latitude.degrees)) {
-                    Debug.getLog().log(Level.WARNING, "NaN in LocalSim detected", new Exception());
-                    return;
-                }
+        // System.out.println("mainLoopTime:"+ (simTime - simStartTime)+ " "+ fpCurObj + " pos="+pos +" target="
+        // +curTargetPos +
+        // "engineOn:"+engineOn);
 
-                // navigation, determine next waypoint
-                if (reached2Donce && reachedAlt && reachedCircleCount) {
-                    reached2Donce = false;
-                    lastTargetPos = curTargetPos;
-                    lastTargetVec = curTargetVec;
-                    lastTargetVec2d = curTargetVec2d;
-                    currentLine2dLen = 0;
-                    // System.out.println("reset noCirclesCurrentTaget");
-                    noCirclesCurrentTaget = 0;
-
-                    // if (runAsync) System.out.println("WP reched, figure out next WP of " + fpCurObj + "
-                    // curLandingPhase:"+curLandingPhase);
-
-                    if (fpCurObj instanceof Waypoint) {
-                        Waypoint wp = (Waypoint)fpCurObj;
-                        simTime += wp.getStopHereTimeCopter() / 1000.;
-                        // TODO, if this number is larget then zero, we have to encounter for slowing down and
-                        // accelerating
-
-                        curLandingPhase = 0; // make sure this is resetted after a restart
-                    } else {
-                        curLandingPhase = 0; // make sure this is resetted after a restart
-                    }
+        if (Double.isNaN(pos.latitude.degrees)) {
+            Debug.getLog().log(Level.WARNING, "NaN in LocalSim detected", new Exception());
+            return false;
+        }
 
-                    // determine next WP
-                    while (!(fpCurObj instanceof LandingPoint) && curLandingPhase == 0) {
-                        noCirclesDone = 0; // reset circle stuff
-                        // if (runAsync) System.out.println("check successor of fpCurObj " + fpCurObj);
-                        // scroll to next FP object
-                        while (fpConts.size() > 0) {
-                            ContainerStackElem parent = fpConts.peek();
-                            // if (runAsync) System.out.println("curCont: " + parent.cont + " " +
-                            // parent.cont.sizeOfFlightplanContainer());
-                            if (parent.cont.sizeOfFlightplanContainer() > parent.curIndex + 1) {
-                                // next child in current container
-                                parent.curIndex++;
-                                fpCurObj = parent.cont.getFromFlightplanContainer(parent.curIndex);
-                                if (fpCurObj instanceof IFlightplanContainer
-                                        && !(fpCurObj instanceof CPicAreaCorners)) {
-                                    if (fpCurObj instanceof CWaypointLoop) {
-                                        CWaypointLoop loop = (CWaypointLoop)fpCurObj;
-                                        if (loop.isIgnore()) {
-                                            continue;
-                                        }
-                                    }
-
-                                    parent = new ContainerStackElem();
-                                    parent.enteringTime = simTime;
-                                    parent.loopCounter = 0;
-                                    parent.curIndex = -1;
-                                    parent.cont = (IFlightplanContainer)fpCurObj;
-                                    fpConts.push(parent);
-                                }
+        // navigation, determine next waypoint
+        if (reached2Donce && reachedAlt && reachedCircleCount) {
+            reached2Donce = false;
+            lastTargetPos = curTargetPos;
+            lastTargetVec = curTargetVec;
+            lastTargetVec2d = curTargetVec2d;
+            currentLine2dLen = 0;
+            // System.out.println("reset noCirclesCurrentTaget");
+            noCirclesCurrentTaget = 0;
+
+            // if (runAsync) System.out.println("WP reched, figure out next WP of " + fpCurObj + "
+            // curLandingPhase:"+curLandingPhase);
+
+            if (fpCurObj instanceof Waypoint) {
+                Waypoint wp = (Waypoint)fpCurObj;
+                simTime += wp.getStopHereTimeCopter() / 1000.;
+                // TODO, if this number is larget then zero, we have to encounter for slowing down and
+                // accelerating
+
+                curLandingPhase = 0; // make sure this is resetted after a restart
+            } else {
+                curLandingPhase = 0; // make sure this is resetted after a restart
+            }
 
-                                break;
-                            } else if (parent.cont instanceof WaypointLoop) {
-                                parent.loopCounter++;
-                                WaypointLoop loop = (WaypointLoop)parent.cont;
-                                if (loop.getCount() > 0 && loop.getCount() >= parent.loopCounter) {
-                                    // this container ready
-                                    fpConts.pop();
-                                } else if (loop.getTime() > 0 && loop.getTime() + parent.enteringTime >= simTime) {
-                                    // this container ready
-                                    fpConts.pop();
-                                } else {
-                                    // back to start of the loop
-                                    parent.curIndex = -1;
+            // determine next WP
+            while (!(fpCurObj instanceof LandingPoint) && curLandingPhase == 0) {
+                noCirclesDone = 0; // reset circle stuff
+                // if (runAsync) System.out.println("check successor of fpCurObj " + fpCurObj);
+                // scroll to next FP object
+                while (fpConts.size() > 0) {
+                    ContainerStackElem parent = fpConts.peek();
+                    // if (runAsync) System.out.println("curCont: " + parent.cont + " " +
+                    // parent.cont.sizeOfFlightplanContainer());
+                    if (parent.cont.sizeOfFlightplanContainer() > parent.curIndex + 1) {
+                        // next child in current container
+                        parent.curIndex++;
+                        fpCurObj = parent.cont.getFromFlightplanContainer(parent.curIndex);
+                        if (fpCurObj instanceof IFlightplanContainer
+                                && !(fpCurObj instanceof CPicAreaCorners)) {
+                            if (fpCurObj instanceof CWaypointLoop) {
+                                CWaypointLoop loop = (CWaypointLoop)fpCurObj;
+                                if (loop.isIgnore()) {
+                                    continue;
                                 }
-                            } else {
-                                // this container ready
-                                fpConts.pop();
                             }
-                        }
 
-                        if (fpConts.isEmpty() || flightPhase == AirplaneFlightphase.descending) {
-                            if (!runAsync) {
-                                simDone = true;
-                            }
-
-                            fpCurObj = fp.getLandingpoint();
-                            // System.out.println("set landingP as target");
+                            parent = new ContainerStackElem();
+                            parent.enteringTime = simTime;
+                            parent.loopCounter = 0;
+                            parent.curIndex = -1;
+                            parent.cont = (IFlightplanContainer)fpCurObj;
+                            fpConts.push(parent);
                         }
 
-                        // if (runAsync) System.out.println("nextObj:" + fpCurObj);
-
-                        if (fpCurObj instanceof Point && !(fpCurObj instanceof LandingPoint)) {
-                            continue;
-                        }
-
-                        if (fpCurObj instanceof CPicAreaCorners) {
-                            continue;
+                        break;
+                    } else if (parent.cont instanceof WaypointLoop) {
+                        parent.loopCounter++;
+                        WaypointLoop loop = (WaypointLoop)parent.cont;
+                        if (loop.getCount() > 0 && loop.getCount() >= parent.loopCounter) {
+                            // this container ready
+                            fpConts.pop();
+                        } else if (loop.getTime() > 0 && loop.getTime() + parent.enteringTime >= simTime) {
+                            // this container ready
+                            fpConts.pop();
+                        } else {
+                            // back to start of the loop
+                            parent.curIndex = -1;
                         }
+                    } else {
+                        // this container ready
+                        fpConts.pop();
+                    }
+                }
 
-                        if (fpCurObj instanceof ReferencePoint) {
-                            continue;
-                        }
+                if (fpConts.isEmpty() || flightPhase == AirplaneFlightphase.descending) {
+                    if (!runAsync) {
+                        simDone = true;
+                    }
 
-                        // search for next breakpoint in FP
-                        if (fpCurObj instanceof Photo) {
-                            Photo photo = (Photo)fpCurObj;
-                            photoOn = photo.isPowerOn();
-                            photoDistance = photo.getDistanceInCm();
-                            photoDistanceMax = photo.getDistanceMaxInCm();
-                            continue;
-                        }
+                    fpCurObj = fp.getLandingpoint();
+                    // System.out.println("set landingP as target");
+                }
 
-                        if (fpCurObj instanceof IReentryPoint) {
-                            reentyPointID = ((IReentryPoint)fpCurObj).getId();
-                        }
+                // if (runAsync) System.out.println("nextObj:" + fpCurObj);
 
-                        if (fpCurObj instanceof LandingPoint) {
-                            if (flightPhase == AirplaneFlightphase.airborne && !isInCopterMode) {
-                                setFlightPhase(AirplaneFlightphase.descending);
-                            }
+                if (fpCurObj instanceof Point && !(fpCurObj instanceof LandingPoint)) {
+                    continue;
+                }
 
-                            radiusReached = radiusAssert = turnRadius;
-
-                            LandingPoint landP = (LandingPoint)fpCurObj;
-                            if (isInCopterMode) {
-                                // System.out.println("landP:" + landP + "  " + landP.getMode() + " "
-                                // +landP.getPosition());
-                                switch (landP.getMode()) {
-                                case CUSTOM_LOCATION: // =0 //copters will use this for custom auto landing location
-                                    noCirclesCurrentTaget = -1; // circeling some while
-                                    assureAlt = AltAssertModes.unasserted;
-                                    curTargetPos = landP.getPosition();
-                                    break;
-
-                                case LAND_AT_TAKEOFF: // =1 //copters will use this for auto landing on Same as actual
-                                    // takeoff location
-                                    noCirclesCurrentTaget = -1; // circeling some while
-                                    assureAlt = AltAssertModes.unasserted;
-                                    curTargetPos = new Position(startPos, landP.getAltInMAboveFPRefPoint());
-                                    break;
-
-                                default:
-                                    Debug.getLog()
-                                        .log(Level.CONFIG, "unsuported landing mode detected:" + landP.getMode());
-                                    // fallthrough
-                                case LAST_WAYPOINT: // =3 //copters will stay airborne on last waypoint, fixedwing
-                                    // will go to startprocedure location==same as landing but stay
-                                    // on alt
-                                    noCirclesCurrentTaget = -1; // circeling some while
-                                    assureAlt = AltAssertModes.unasserted;
-                                    curTargetPos = pos;
-                                }
-                            }
+                if (fpCurObj instanceof CPicAreaCorners) {
+                    continue;
+                }
 
-                            curTargetVec = globe.computePointFromPosition(curTargetPos).transformBy4(transform4);
-                            break;
-                        }
+                if (fpCurObj instanceof ReferencePoint) {
+                    continue;
+                }
 
-                        if (fpCurObj instanceof IFlightplanPositionReferenced) {
-                            IFlightplanPositionReferenced posRef = (IFlightplanPositionReferenced)fpCurObj;
-                            curTargetPos =
-                                Position.fromDegrees(
-                                    posRef.getLat(), posRef.getLon(), posRef.getAltInMAboveFPRefPoint());
-                            curTargetVec = globe.computePointFromPosition(curTargetPos).transformBy4(transform4);
-                            // System.out.println("new target
-                            // Pos:"+curTargetPos);
-
-                            currentSpeed = AIR_SPEED;
-                            if (posRef instanceof Waypoint) {
-                                Waypoint wp = (Waypoint)posRef;
-                                if (wp.isIgnore()) {
-                                    continue;
-                                }
+                // search for next breakpoint in FP
+                if (fpCurObj instanceof Photo) {
+                    Photo photo = (Photo)fpCurObj;
+                    photoOn = photo.isPowerOn();
+                    photoDistance = photo.getDistanceInCm();
+                    photoDistanceMax = photo.getDistanceMaxInCm();
+                    continue;
+                }
 
-                                if (wp.getSpeedMpSec() > 0) {
-                                    currentSpeed = wp.getSpeedMpSec();
-                                }
+                if (fpCurObj instanceof IReentryPoint) {
+                    reentyPointID = ((IReentryPoint)fpCurObj).getId();
+                }
 
-                                assureAlt = wp.getAssertAltitudeMode();
-                                radiusAssert = turnRadius;
-                                if (wp.isCirceling()) {
-                                    radiusReached = wp.getRadiusWithinM();
-                                    noCirclesCurrentTaget = 1; // more than one is done by outer loops
-                                }
-                            } else {
-                                radiusAssert = radiusReached = turnRadius;
-                                assureAlt = AltAssertModes.unasserted;
-                            }
+                if (fpCurObj instanceof LandingPoint) {
+                    if (flightPhase == AirplaneFlightphase.airborne && !isInCopterMode) {
+                        setFlightPhase(AirplaneFlightphase.descending);
+                    }
 
-                            setDiveAndClimb(currentSpeed);
+                    radiusReached = radiusAssert = turnRadius;
 
-                            // System.out.println("new alt mode:"+assureAlt);
+                    LandingPoint landP = (LandingPoint)fpCurObj;
+                    if (isInCopterMode) {
+                        // System.out.println("landP:" + landP + "  " + landP.getMode() + " "
+                        // +landP.getPosition());
+                        switch (landP.getMode()) {
+                        case CUSTOM_LOCATION: // =0 //copters will use this for custom auto landing location
+                            noCirclesCurrentTaget = -1; // circeling some while
+                            assureAlt = AltAssertModes.unasserted;
+                            curTargetPos = landP.getPosition();
                             break;
-                        }
 
-                        if (fpCurObj instanceof IFlightplanLatLonReferenced) {
-                            IFlightplanLatLonReferenced posRef = (IFlightplanLatLonReferenced)fpCurObj;
-                            curTargetPos =
-                                Position.fromDegrees(posRef.getLat(), posRef.getLon(), curTargetPos.elevation);
-
-                            curTargetVec = globe.computePointFromPosition(curTargetPos).transformBy4(transform4);
+                        case LAND_AT_TAKEOFF: // =1 //copters will use this for auto landing on Same as actual
+                            // takeoff location
+                            noCirclesCurrentTaget = -1; // circeling some while
                             assureAlt = AltAssertModes.unasserted;
+                            curTargetPos = new Position(startPos, landP.getAltInMAboveFPRefPoint());
                             break;
-                        }
-                    }
-
-                    if (lastTargetVec.x != curTargetVec.x || lastTargetVec.y != curTargetVec.y) {
-                        curTargetVec2d = new Vec4(curTargetVec.x, curTargetVec.y);
-                        currentLine2d = Line.fromSegment(lastTargetVec2d, curTargetVec2d);
-                        directCurLineNorm2d = currentLine2d.getDirection();
-                        currentLine2dLen = directCurLineNorm2d.getLength3();
-                        directCurLineNorm2d = directCurLineNorm2d.multiply3(1 / currentLine2dLen);
-                    }
-                }
 
-                if (isPlannedImagesTriggersMode && copterImagePointNext != fpCurObj) {
-                    if (copterImagePointNext != null && copterImagePointNext.isTriggerImageHereCopterMode()) {
-                        copterImagePoint = copterImagePointNext;
+                        default:
+                            Debug.getLog()
+                                .log(Level.CONFIG, "unsuported landing mode detected:" + landP.getMode());
+                            // fallthrough
+                        case LAST_WAYPOINT: // =3 //copters will stay airborne on last waypoint, fixedwing
+                            // will go to startprocedure location==same as landing but stay
+                            // on alt
+                            noCirclesCurrentTaget = -1; // circeling some while
+                            assureAlt = AltAssertModes.unasserted;
+                            curTargetPos = pos;
+                        }
                     }
 
-                    copterImagePointLast = copterImagePointNext;
-                    if (fpCurObj instanceof Waypoint) {
-                        copterImagePointNext = (Waypoint)fpCurObj;
-                    } else {
-                        copterImagePointNext = null;
-                    }
+                    curTargetVec = globe.computePointFromPosition(curTargetPos).transformBy4(transform4);
+                    break;
                 }
 
-                boolean isFlyingLine = false;
-                Double percentLineDone = null;
-                Angle yawSoll;
-                double pitchCamSoll = 0;
-                double rollCamSoll = 0;
-
-                if (isInCopterMode) {
-                    // flying always on line with infinite climb rate
-                    Vec4 direction = curTargetVec.subtract3(vec);
-                    Vec4 line = curTargetVec.subtract3(lastTargetVec);
-                    // Angle yawSoll = LatLon.greatCircleAzimuth(pos,curTargetPos);
-                    // System.out.println("direction: "+ direction);
-                    percentLineDone =
-                        MathHelper.intoRange(
-                            1 - Math.sqrt(direction.getLengthSquared3() / line.getLengthSquared3()), 0, 1);
-                    if (copterImagePointLast != null && copterImagePointNext != null) {
-                        double dYaw =
-                            copterImagePointNext.getOrientation().getYaw()
-                                - copterImagePointLast.getOrientation().getYaw();
-                        while (dYaw > 180) {
-                            dYaw -= 360;
+                if (fpCurObj instanceof IFlightplanPositionReferenced) {
+                    IFlightplanPositionReferenced posRef = (IFlightplanPositionReferenced)fpCurObj;
+                    curTargetPos =
+                        Position.fromDegrees(
+                            posRef.getLat(), posRef.getLon(), posRef.getAltInMAboveFPRefPoint());
+                    curTargetVec = globe.computePointFromPosition(curTargetPos).transformBy4(transform4);
+                    // System.out.println("new target
+                    // Pos:"+curTargetPos);
+
+                    currentSpeed = AIR_SPEED;
+                    if (posRef instanceof Waypoint) {
+                        Waypoint wp = (Waypoint)posRef;
+                        if (wp.isIgnore()) {
+                            continue;
                         }
 
-                        while (dYaw < -180) {
-                            dYaw += 360;
+                        if (wp.getSpeedMpSec() > 0) {
+                            currentSpeed = wp.getSpeedMpSec();
                         }
 
-                        yawSoll =
-                            Angle.fromDegrees(copterImagePointLast.getOrientation().getYaw() + percentLineDone * dYaw);
-                        pitchCamSoll = copterImagePointNext.getOrientation().getPitch();
-                        rollCamSoll = copterImagePointNext.getOrientation().getRoll();
-                    } else if (copterImagePointNext != null) {
-                        yawSoll = Angle.fromDegrees(copterImagePointNext.getOrientation().getYaw());
-                        pitchCamSoll = copterImagePointNext.getOrientation().getPitch();
-                        rollCamSoll = copterImagePointNext.getOrientation().getRoll();
-                    } else {
-                        yawSoll = yaw;
-                        pitchCamSoll = pitchCam;
-                        rollCamSoll = rollCam;
-                    }
-
-                    crossTrackErr = 0;
-                    isFlyingLine = true;
-                } else if (!isInCopterMode
-                        && reached2Donce
-                        && reachedAlt
-                        && curTargetVec != null
-                        && !reachedCircleCount) {
-                    // System.out.println("counting circle");
-
-                    Vec4 vec2d = new Vec4(vec.x, vec.y);
-                    Vec4 crossErr = vec2d.subtract3(curTargetVec);
-                    Vec4 crossErr2d = new Vec4(crossErr.x, crossErr.y);
-                    crossTrackErr = crossErr2d.getLength3() - radiusReached;
-                    double relDirection = Math.toDegrees(Math.atan2(crossErr2d.x, crossErr2d.y));
-                    // System.out.println("counted circ: " + noCirclesDone);
-                    // do counted circles
-                    if (relDirectionCircleStart == null) {
-                        relDirectionCircleStart = relDirection;
-                        noCirclesDone = 0;
-                        yawCircleStartInsideCountingWindow = true;
-                    }
-
-                    double relDirectionNorm = relDirection - relDirectionCircleStart;
-                    while (relDirectionNorm > 180) {
-                        relDirectionNorm -= 360;
-                    }
-
-                    while (relDirectionNorm < -180) {
-                        relDirectionNorm += 360;
-                    }
-
-                    // count current circle
-                    if (relDirectionNorm >= 0 && relDirectionNorm <= YAW_RATE_MAX * MAIN_LOOP_STEP * 2) {
-                        if (!yawCircleStartInsideCountingWindow) {
-                            noCirclesDone++;
-                            yawCircleStartInsideCountingWindow = true;
-                            // System.out.println("yaw reached: " + vec.z + " " + vec.z );
+                        assureAlt = wp.getAssertAltitudeMode();
+                        radiusAssert = turnRadius;
+                        if (wp.isCirceling()) {
+                            radiusReached = wp.getRadiusWithinM();
+                            noCirclesCurrentTaget = 1; // more than one is done by outer loops
                         }
                     } else {
-                        relDirectionNorm += 180;
-                        while (relDirectionNorm > 180) {
-                            relDirectionNorm -= 360;
-                        }
+                        radiusAssert = radiusReached = turnRadius;
+                        assureAlt = AltAssertModes.unasserted;
+                    }
 
-                        while (relDirectionNorm < -180) {
-                            relDirectionNorm += 360;
-                        }
+                    setDiveAndClimb(currentSpeed);
 
-                        if (relDirectionNorm >= 0 && relDirectionNorm <= YAW_RATE_MAX * MAIN_LOOP_STEP * 2) {
-                            yawCircleStartInsideCountingWindow = false;
-                        }
-                    }
+                    // System.out.println("new alt mode:"+assureAlt);
+                    break;
+                }
 
-                    percentLineDone = 1d;
-                    yawSoll = Angle.fromDegrees(relDirection + 90 + crossTrackErr * CROSSTRACK_METERS_TO_YAWOFFSET_DEG);
-                } else if (reached2Donce && !reachedAlt && curTargetVec != null) {
-                    // System.out.println("circle nav");
-                    percentLineDone = 1d;
-                    // double yawRate = Math.toDegrees(AIR_SPEED/radius);
-                    // System.out.println();
-                    // System.out.println("yawRate:"+yawRate);
-                    // double yawAdd = yawRate * MAIN_LOOP_STEP;
-                    // System.out.println("yawAdd:"+yawAdd);
-                    Vec4 vec2d = new Vec4(vec.x, vec.y);
-                    Vec4 crossErr = vec2d.subtract3(curTargetVec);
-                    Vec4 crossErr2d = new Vec4(crossErr.x, crossErr.y);
-                    crossTrackErr = crossErr2d.getLength3() - radiusAssert;
-                    // System.out.println("crossErr:" + crossTrackErr + " " + crossErr2d.getLength3());
-                    // System.out.println("perfect curren yaw : "+Math.toDegrees(Math.atan2(crossErr2d.x,
-                    // crossErr2d.y)));
-                    // System.out.println("actual yaw : "+yaw);
-                    yawSoll =
-                        Angle.fromDegrees(
-                            Math.toDegrees(Math.atan2(crossErr2d.x, crossErr2d.y))
-                                + 90
-                                + crossTrackErr * CROSSTRACK_METERS_TO_YAWOFFSET_DEG);
-                    // System.out.println("yawSoll:"+yawSoll);
-
-                    // yawAdd += crossTrackErr*CROSSTRACK_METERS_TO_YAWOFFSET_DEG/3;
-                    // yawSoll = yaw.addDegrees(MathHelper.intoRange(yawAdd, -yawRate/2, 2*yawRate));
-                    // System.out.println("compensation:"+MathHelper.intoRange(crossTrackErr*CROSSTRACK_METERS_TO_YAWOFFSET_DEG, -5, +10));
+                if (fpCurObj instanceof IFlightplanLatLonReferenced) {
+                    IFlightplanLatLonReferenced posRef = (IFlightplanLatLonReferenced)fpCurObj;
+                    curTargetPos =
+                        Position.fromDegrees(posRef.getLat(), posRef.getLon(), curTargetPos.elevation);
 
-                } else {
-                    // System.out.println("line nav");
-                    // determine yaw
-                    Vec4 direction = curTargetVec.subtract3(vec);
-                    // Angle yawSoll = LatLon.greatCircleAzimuth(pos,curTargetPos);
-                    // System.out.println("direction: "+ direction);
+                    curTargetVec = globe.computePointFromPosition(curTargetPos).transformBy4(transform4);
+                    assureAlt = AltAssertModes.unasserted;
+                    break;
+                }
+            }
 
-                    // System.out.println();
+            if (lastTargetVec.x != curTargetVec.x || lastTargetVec.y != curTargetVec.y) {
+                curTargetVec2d = new Vec4(curTargetVec.x, curTargetVec.y);
+                currentLine2d = Line.fromSegment(lastTargetVec2d, curTargetVec2d);
+                directCurLineNorm2d = currentLine2d.getDirection();
+                currentLine2dLen = directCurLineNorm2d.getLength3();
+                directCurLineNorm2d = directCurLineNorm2d.multiply3(1 / currentLine2dLen);
+            }
+        }
 
-                    yawSoll = Angle.fromRadians(Math.atan2(direction.x, direction.y));
+        if (isPlannedImagesTriggersMode && copterImagePointNext != fpCurObj) {
+            if (copterImagePointNext != null && copterImagePointNext.isTriggerImageHereCopterMode()) {
+                copterImagePoint = copterImagePointNext;
+            }
 
-                    if (currentLine2dLen > 0 && !reached2Donce) {
-                        isFlyingLine = true;
-                        Vec4 vec2d = new Vec4(vec.x, vec.y);
+            copterImagePointLast = copterImagePointNext;
+            if (fpCurObj instanceof Waypoint) {
+                copterImagePointNext = (Waypoint)fpCurObj;
+            } else {
+                copterImagePointNext = null;
+            }
+        }
 
-                        Vec4 offP2d = currentLine2d.nearestPointTo(vec2d);
-                        Vec4 crossErr = vec2d.subtract3(offP2d);
-                        Vec4 crossErr2d = new Vec4(crossErr.x, crossErr.y); // otherwise it has a wrong lenght!
+        boolean isFlyingLine = false;
+        Double percentLineDone = null;
+        Angle yawSoll;
+        double pitchCamSoll = 0;
+        double rollCamSoll = 0;
+
+        if (isInCopterMode) {
+            // flying always on line with infinite climb rate
+            Vec4 direction = curTargetVec.subtract3(vec);
+            Vec4 line = curTargetVec.subtract3(lastTargetVec);
+            // Angle yawSoll = LatLon.greatCircleAzimuth(pos,curTargetPos);
+            // System.out.println("direction: "+ direction);
+            percentLineDone =
+                MathHelper.intoRange(
+                    1 - Math.sqrt(direction.getLengthSquared3() / line.getLengthSquared3()), 0, 1);
+            if (copterImagePointLast != null && copterImagePointNext != null) {
+                double dYaw =
+                    copterImagePointNext.getOrientation().getYaw()
+                        - copterImagePointLast.getOrientation().getYaw();
+                while (dYaw > 180) {
+                    dYaw -= 360;
+                }
 
-                        // System.out.println("scalarPRof="+(crossErr2d.dot3(directCurLineNorm2d)));
-                        crossTrackErr =
-                            crossErr2d.getLength3()
-                                * Math.signum(
-                                    (directCurLineNorm2d.x * crossErr.y) - (directCurLineNorm2d.y * crossErr.x));
+                while (dYaw < -180) {
+                    dYaw += 360;
+                }
 
-                        Vec4 dirOffP = offP2d.subtract3(lastTargetVec2d);
-                        Vec4 dirOffP2d = new Vec4(dirOffP.x, dirOffP.y);
+                yawSoll =
+                    Angle.fromDegrees(copterImagePointLast.getOrientation().getYaw() + percentLineDone * dYaw);
+                pitchCamSoll = copterImagePointNext.getOrientation().getPitch();
+                rollCamSoll = copterImagePointNext.getOrientation().getRoll();
+            } else if (copterImagePointNext != null) {
+                yawSoll = Angle.fromDegrees(copterImagePointNext.getOrientation().getYaw());
+                pitchCamSoll = copterImagePointNext.getOrientation().getPitch();
+                rollCamSoll = copterImagePointNext.getOrientation().getRoll();
+            } else {
+                yawSoll = yaw;
+                pitchCamSoll = pitchCam;
+                rollCamSoll = rollCam;
+            }
 
-                        percentLineDone =
-                            MathHelper.intoRange(dirOffP2d.dot3(directCurLineNorm2d) / currentLine2dLen, 0, 1);
-                        // System.out.format("percentLineDone=%f\tcrossTrackErr=%f\tyawSoll=%f\n",percentLineDone,crossTrackErr,yawSoll.degrees);
-                        // percentLineDone = MathHelper.intoRange(percentLineDone ,0,1);
+            crossTrackErr = 0;
+            isFlyingLine = true;
+        } else if (!isInCopterMode
+                && reached2Donce
+                && reachedAlt
+                && curTargetVec != null
+                && !reachedCircleCount) {
+            // System.out.println("counting circle");
+
+            Vec4 vec2d = new Vec4(vec.x, vec.y);
+            Vec4 crossErr = vec2d.subtract3(curTargetVec);
+            Vec4 crossErr2d = new Vec4(crossErr.x, crossErr.y);
+            crossTrackErr = crossErr2d.getLength3() - radiusReached;
+            double relDirection = Math.toDegrees(Math.atan2(crossErr2d.x, crossErr2d.y));
+            // System.out.println("counted circ: " + noCirclesDone);
+            // do counted circles
+            if (relDirectionCircleStart == null) {
+                relDirectionCircleStart = relDirection;
+                noCirclesDone = 0;
+                yawCircleStartInsideCountingWindow = true;
+            }
 
-                        // System.out.format("crossErr=%s\tdirNorm=%s\n",crossErr.toString(),directCurLineNorm2d.toString());
+            double relDirectionNorm = relDirection - relDirectionCircleStart;
+            while (relDirectionNorm > 180) {
+                relDirectionNorm -= 360;
+            }
 
-                        // double criteria = WP_REACHED_RADIUS/(currentLine2dLen*2);
-                        // if (percentLineDone>criteria && percentLineDone <1-criteria){
-                        yawSoll =
-                            yawSoll.addDegrees(
-                                MathHelper.intoRange(crossTrackErr * CROSSTRACK_METERS_TO_YAWOFFSET_DEG, -45, +45));
-                        // }
+            while (relDirectionNorm < -180) {
+                relDirectionNorm += 360;
+            }
 
-                    }
+            // count current circle
+            if (relDirectionNorm >= 0 && relDirectionNorm <= YAW_RATE_MAX * MAIN_LOOP_STEP * 2) {
+                if (!yawCircleStartInsideCountingWindow) {
+                    noCirclesDone++;
+                    yawCircleStartInsideCountingWindow = true;
+                    // System.out.println("yaw reached: " + vec.z + " " + vec.z );
                 }
-                // System.out.println( "direction: "+ direction + "
-                // yaw;"+yawSoll);
-                // limiting yawRate
-                double yawSollStep = yawSoll.degrees - yaw.degrees;
-                while (yawSollStep > 180) {
-                    yawSollStep -= 360;
+            } else {
+                relDirectionNorm += 180;
+                while (relDirectionNorm > 180) {
+                    relDirectionNorm -= 360;
                 }
 
-                while (yawSollStep <= -180) {
-                    yawSollStep += 360;
+                while (relDirectionNorm < -180) {
+                    relDirectionNorm += 360;
                 }
 
-                double yawStep =
-                    engineOn
-                        ? Math.signum(yawSollStep) * Math.min(YAW_RATE_MAX * MAIN_LOOP_STEP, Math.abs(yawSollStep))
-                        : 0;
-                yawRate = yawStep / MAIN_LOOP_STEP;
-                // System.out.format("yawSoll=%f\tyawSollStep=%f\tyawStep=%f\tyaw=%f\n",yawSoll.degrees,yawSollStep,yawStep,yaw.degrees);
-                double yawNew = yaw.degrees + yawStep;
-                while (yawNew >= 360) {
-                    yawNew -= 360;
+                if (relDirectionNorm >= 0 && relDirectionNorm <= YAW_RATE_MAX * MAIN_LOOP_STEP * 2) {
+                    yawCircleStartInsideCountingWindow = false;
                 }
+            }
 
-                while (yawNew < 0) {
-                    yawNew += 360;
-                }
+            percentLineDone = 1d;
+            yawSoll = Angle.fromDegrees(relDirection + 90 + crossTrackErr * CROSSTRACK_METERS_TO_YAWOFFSET_DEG);
+        } else if (reached2Donce && !reachedAlt && curTargetVec != null) {
+            // System.out.println("circle nav");
+            percentLineDone = 1d;
+            // double yawRate = Math.toDegrees(AIR_SPEED/radius);
+            // System.out.println();
+            // System.out.println("yawRate:"+yawRate);
+            // double yawAdd = yawRate * MAIN_LOOP_STEP;
+            // System.out.println("yawAdd:"+yawAdd);
+            Vec4 vec2d = new Vec4(vec.x, vec.y);
+            Vec4 crossErr = vec2d.subtract3(curTargetVec);
+            Vec4 crossErr2d = new Vec4(crossErr.x, crossErr.y);
+            crossTrackErr = crossErr2d.getLength3() - radiusAssert;
+            // System.out.println("crossErr:" + crossTrackErr + " " + crossErr2d.getLength3());
+            // System.out.println("perfect curren yaw : "+Math.toDegrees(Math.atan2(crossErr2d.x,
+            // crossErr2d.y)));
+            // System.out.println("actual yaw : "+yaw);
+            yawSoll =
+                Angle.fromDegrees(
+                    Math.toDegrees(Math.atan2(crossErr2d.x, crossErr2d.y))
+                        + 90
+                        + crossTrackErr * CROSSTRACK_METERS_TO_YAWOFFSET_DEG);
+            // System.out.println("yawSoll:"+yawSoll);
+
+            // yawAdd += crossTrackErr*CROSSTRACK_METERS_TO_YAWOFFSET_DEG/3;
+            // yawSoll = yaw.addDegrees(MathHelper.intoRange(yawAdd, -yawRate/2, 2*yawRate));
+            // System.out.println("compensation:"+MathHelper.intoRange(crossTrackErr*CROSSTRACK_METERS_TO_YAWOFFSET_DEG, -5, +10));
 
-                yaw = Angle.fromDegrees(yawNew);
+        } else {
+            // System.out.println("line nav");
+            // determine yaw
+            Vec4 direction = curTargetVec.subtract3(vec);
+            // Angle yawSoll = LatLon.greatCircleAzimuth(pos,curTargetPos);
+            // System.out.println("direction: "+ direction);
 
-                // System.out.println("yawNew:"+ yawNew + " engineOn:"+engineOn);
+            // System.out.println();
 
-                // simulate roll in such a way, that acceleration inside the UAV points downwards
-                double newRoll =
-                    -Math.toDegrees(Math.atan(Math.toRadians(yawRate) * currentSpeed / 9.81)); // * YAW_RATE_TO_ROLL;
-                // System.out.println("newRoll:"+newRoll + " yawRate:"+yawRate );
-                rollRate = (newRoll - roll) / MAIN_LOOP_STEP;
-                roll = isInCopterMode ? 0 : newRoll;
+            yawSoll = Angle.fromRadians(Math.atan2(direction.x, direction.y));
 
-                // moving position and altitude / compute pitch
-                double newPitch = 0;
-                // Position posOld = pos;
-                Vec4 vecOld = vec;
-                if (engineOn) { // && !(fpCurObj instanceof LandingPoint && isInCopterMode && reached2Donce)) {
-                    double altPrevious = pos.elevation;
+            if (currentLine2dLen > 0 && !reached2Donce) {
+                isFlyingLine = true;
+                Vec4 vec2d = new Vec4(vec.x, vec.y);
 
-                    if (isInCopterMode) {
-                        double dist = currentSpeed * MAIN_LOOP_STEP;
-                        Vec4 dVec = curTargetVec.subtract3(vec);
-                        if (dVec.getLengthSquared3() != 0) {
-                            dVec = dVec.normalize3().multiply3(dist);
-                        }
+                Vec4 offP2d = currentLine2d.nearestPointTo(vec2d);
+                Vec4 crossErr = vec2d.subtract3(offP2d);
+                Vec4 crossErr2d = new Vec4(crossErr.x, crossErr.y); // otherwise it has a wrong lenght!
 
-                        vec = vec.add3(dVec);
-                        pos = globe.computePositionFromPoint(vec.transformBy4(transform4Inv));
-                        // System.out.println("vec: " + vec + "   step:"+dist + " p:"+pos + "
-                        // dToTarget:"+dVec.getLength3()+ " dVec:"+dVec);
-                        altMinInM = pos.elevation;
-                        altMaxInM = pos.elevation;
-                        newPitch = 0;
-                        double pitchCamD = pitchCamSoll - pitchCam;
-                        pitchCam =
-                            pitchCam
-                                + Math.signum(pitchCamD)
-                                    * Math.min(PITCH_RATE_MAX * MAIN_LOOP_STEP, Math.abs(pitchCamD));
-
-                        double rollCamD = rollCamSoll - rollCam;
-                        rollCam =
-                            rollCam
-                                + Math.signum(rollCamD) * Math.min(ROLL_RATE_MAX * MAIN_LOOP_STEP, Math.abs(rollCamD));
-
-                        // set airborne either after reaching a specified height or after reaching a waypoint's height
-                        // (if it's lower that "AIRBORNE_HEIGHT")
-                        if (pos.elevation >= AIRBORNE_HEIGHT && flightPhase == AirplaneFlightphase.takeoff
-                                || (fpCurObj instanceof Waypoint
-                                    && ((Waypoint)fpCurObj).getAltInMAboveFPRefPoint() < AIRBORNE_HEIGHT
-                                    && pos.elevation >= ((Waypoint)fpCurObj).getAltInMAboveFPRefPoint() - 1.0d)) {
-                            groundDist = 0;
-                            setFlightPhase(AirplaneFlightphase.airborne);
-                        }
-                    } else {
+                // System.out.println("scalarPRof="+(crossErr2d.dot3(directCurLineNorm2d)));
+                crossTrackErr =
+                    crossErr2d.getLength3()
+                        * Math.signum(
+                            (directCurLineNorm2d.x * crossErr.y) - (directCurLineNorm2d.y * crossErr.x));
 
-                        // shift pos in 2d
-                        double dist = currentSpeed * MAIN_LOOP_STEP;
-                        Vec4 dVec = new Vec4(yaw.sin(), yaw.cos()).multiply3(dist);
-                        vec = vec.add3(dVec);
-                        pos = globe.computePositionFromPoint(vec.transformBy4(transform4Inv));
-
-                        // compute current target altitude
-                        double altSoll;
-                        if ((assureAlt == AltAssertModes.linear || isInCopterMode) && percentLineDone != null) {
-                            altSoll =
-                                lastTargetPos.elevation
-                                    + percentLineDone * (curTargetPos.elevation - lastTargetPos.elevation);
-                        } else {
-                            altSoll = curTargetPos.elevation;
-                        }
+                Vec4 dirOffP = offP2d.subtract3(lastTargetVec2d);
+                Vec4 dirOffP2d = new Vec4(dirOffP.x, dirOffP.y);
 
-                        // compute new altitude, and also range in which this could be
-                        double altNew =
-                            MathHelper.intoRange(
-                                altSoll,
-                                altPrevious - diveStep,
-                                (flightPhase == AirplaneFlightphase.takeoff && !isInCopterMode)
-                                    ? altPrevious + climbStep * 1.5
-                                    : altPrevious + climbStep);
-                        double altMinNew =
-                            MathHelper.intoRange(
-                                altSoll,
-                                altMinInM - diveStep,
-                                (flightPhase == AirplaneFlightphase.takeoff && !isInCopterMode)
-                                    ? altMinInM + climbStep * 1.5
-                                    : altMinInM + climbStep);
-                        double altMaxNew =
-                            MathHelper.intoRange(
-                                altSoll,
-                                altMaxInM - diveStep,
-                                (flightPhase == AirplaneFlightphase.takeoff && !isInCopterMode)
-                                    ? altMaxInM + climbStep * 1.5
-                                    : altMaxInM + climbStep);
-                        MinMaxPair alt = new MinMaxPair();
-                        alt.update(altSoll);
-                        alt.update(altNew);
-                        alt.update(altMinNew);
-                        alt.update(altMaxNew);
-                        altMinInM = alt.min;
-                        altMaxInM = alt.max;
-
-                        pos = new Position(pos, altNew);
-                        vec = globe.computePointFromPosition(pos).transformBy4(transform4);
-                        if (!isFlyingLine && sendPositionOrientation) {
-                            crossTrackErr = vec.distanceTo2(curTargetVec);
-                        }
+                percentLineDone =
+                    MathHelper.intoRange(dirOffP2d.dot3(directCurLineNorm2d) / currentLine2dLen, 0, 1);
+                // System.out.format("percentLineDone=%f\tcrossTrackErr=%f\tyawSoll=%f\n",percentLineDone,crossTrackErr,yawSoll.degrees);
+                // percentLineDone = MathHelper.intoRange(percentLineDone ,0,1);
 
-                        newPitch = isInCopterMode ? 0 : Math.toDegrees(Math.atan2(altNew - altPrevious, dist));
-                        // System.out.println("altNew:"+altNew +" altPrevious:"+altPrevious + " altSoll:"+altSoll +"
-                        // dist:"+dist
-                        // +"pitch:"+newPitch);
+                // System.out.format("crossErr=%s\tdirNorm=%s\n",crossErr.toString(),directCurLineNorm2d.toString());
 
-                    }
-                }
+                // double criteria = WP_REACHED_RADIUS/(currentLine2dLen*2);
+                // if (percentLineDone>criteria && percentLineDone <1-criteria){
+                yawSoll =
+                    yawSoll.addDegrees(
+                        MathHelper.intoRange(crossTrackErr * CROSSTRACK_METERS_TO_YAWOFFSET_DEG, -45, +45));
+                // }
 
-                double dist = vec.distanceTo3(vecOld);
-                groundDist += dist;
-                // System.out.println("vec:"+vec+ " vecOld:"+vecOld + " dist:"+dist);
-                flightDistance += dist;
-                double groundspeed = dist / MAIN_LOOP_STEP; // m/sec
-                pitchRate = (newPitch - pitch) / MAIN_LOOP_STEP;
-                pitch = newPitch;
-                // System.out.println("groundSpeed_cms:"+groundspeed);
-
-                Vec4 headingVec = vec.subtract3(vecOld);
-                double heading = Math.toDegrees(Math.atan2(headingVec.y, headingVec.x));
-
-                if (simTime >= nextPosOrSample) {
-                    nextPosOrSample += POSITION_ORIENTATION_SAMPLE;
-                    // System.out.println("sendPosOr:"+sendPositionOrientation);
-                    if (sendPositionOrientation) {
-                        // if (runAsync) System.out.println("send position");
-                        final PositionOrientationData p = new PositionOrientationData();
-                        p.time_sec = sec;
-                        p.time_usec = usec;
-                        p.flightmode = AirplaneFlightmode.AutomaticFlight.ordinal();
-                        p.flightphase = flightPhase.ordinal();
-                        p.altitude = (int)((pos.elevation + (Math.random() - 0.5) * 0.05) * 100);
-                        // p.altitude = (int) ((altMaxInM+(Math.random()-0.5)*0.05) * 100) ;
-                        p.lat =
-                            pos.latitude.degrees
-                                + (Math.random() - 0.5) * (0.001 * 360 / (Earth.WGS84_POLAR_RADIUS * 2 * Math.PI));
-                        p.lon =
-                            pos.longitude.degrees
-                                + (Math.random() - 0.5) * (0.001 * 360 / (Earth.WGS84_POLAR_RADIUS * 2 * Math.PI));
-                        p.reentrypoint = reentyPointID;
-                        p.batteryVoltage = (float)battery;
-                        p.batteryPercent = (float)battery;
-                        if (isInCopterMode) { // && copterImagePointLast != null && copterImagePointNext != null &&
-                            // isFlyingLine) {
-                            p.cameraPitch = pitchCam; // percentLineDone * dPitch;
-                            p.cameraRoll = rollCam; // percentLineDone * dRoll;
-                            p.cameraYaw = yaw.degrees; // percentLineDone * dYaw;
-                            while (p.cameraRoll < -180) {
-                                p.cameraRoll += 360;
-                            }
+            }
+        }
+        // System.out.println( "direction: "+ direction + "
+        // yaw;"+yawSoll);
+        // limiting yawRate
+        double yawSollStep = yawSoll.degrees - yaw.degrees;
+        while (yawSollStep > 180) {
+            yawSollStep -= 360;
+        }
 
-                            while (p.cameraRoll >= 180) {
-                                p.cameraRoll -= 360;
-                            }
+        while (yawSollStep <= -180) {
+            yawSollStep += 360;
+        }
 
-                            while (p.cameraYaw < -180) {
-                                p.cameraYaw += 360;
-                            }
+        double yawStep =
+            engineOn
+                ? Math.signum(yawSollStep) * Math.min(YAW_RATE_MAX * MAIN_LOOP_STEP, Math.abs(yawSollStep))
+                : 0;
+        yawRate = yawStep / MAIN_LOOP_STEP;
+        // System.out.format("yawSoll=%f\tyawSollStep=%f\tyawStep=%f\tyaw=%f\n",yawSoll.degrees,yawSollStep,yawStep,yaw.degrees);
+        double yawNew = yaw.degrees + yawStep;
+        while (yawNew >= 360) {
+            yawNew -= 360;
+        }
 
-                            while (p.cameraYaw >= 180) {
-                                p.cameraYaw -= 360;
-                            }
+        while (yawNew < 0) {
+            yawNew += 360;
+        }
 
-                            while (p.cameraPitch < -180) {
-                                p.cameraPitch += 360;
-                            }
+        yaw = Angle.fromDegrees(yawNew);
+
+        // System.out.println("yawNew:"+ yawNew + " engineOn:"+engineOn);
+
+        // simulate roll in such a way, that acceleration inside the UAV points downwards
+        double newRoll =
+            -Math.toDegrees(Math.atan(Math.toRadians(yawRate) * currentSpeed / 9.81)); // * YAW_RATE_TO_ROLL;
+        // System.out.println("newRoll:"+newRoll + " yawRate:"+yawRate );
+        rollRate = (newRoll - roll) / MAIN_LOOP_STEP;
+        roll = isInCopterMode ? 0 : newRoll;
+
+        // moving position and altitude / compute pitch
+        double newPitch = 0;
+        // Position posOld = pos;
+        Vec4 vecOld = vec;
+        if (engineOn) { // && !(fpCurObj instanceof LandingPoint && isInCopterMode && reached2Donce)) {
+            double altPrevious = pos.elevation;
+
+            if (isInCopterMode) {
+                double dist = currentSpeed * MAIN_LOOP_STEP;
+                Vec4 dVec = curTargetVec.subtract3(vec);
+                if (dVec.getLengthSquared3() != 0) {
+                    dVec = dVec.normalize3().multiply3(dist);
+                }
 
-                            while (p.cameraPitch >= 180) {
-                                p.cameraPitch -= 360;
-                            }
+                vec = vec.add3(dVec);
+                pos = globe.computePositionFromPoint(vec.transformBy4(transform4Inv));
+                // System.out.println("vec: " + vec + "   step:"+dist + " p:"+pos + "
+                // dToTarget:"+dVec.getLength3()+ " dVec:"+dVec);
+                altMinInM = pos.elevation;
+                altMaxInM = pos.elevation;
+                newPitch = 0;
+                double pitchCamD = pitchCamSoll - pitchCam;
+                pitchCam =
+                    pitchCam
+                        + Math.signum(pitchCamD)
+                            * Math.min(PITCH_RATE_MAX * MAIN_LOOP_STEP, Math.abs(pitchCamD));
+
+                double rollCamD = rollCamSoll - rollCam;
+                rollCam =
+                    rollCam
+                        + Math.signum(rollCamD) * Math.min(ROLL_RATE_MAX * MAIN_LOOP_STEP, Math.abs(rollCamD));
+
+                // set airborne either after reaching a specified height or after reaching a waypoint's height
+                // (if it's lower that "AIRBORNE_HEIGHT")
+                if (pos.elevation >= AIRBORNE_HEIGHT && flightPhase == AirplaneFlightphase.takeoff
+                        || (fpCurObj instanceof Waypoint
+                            && ((Waypoint)fpCurObj).getAltInMAboveFPRefPoint() < AIRBORNE_HEIGHT
+                            && pos.elevation >= ((Waypoint)fpCurObj).getAltInMAboveFPRefPoint() - 1.0d)) {
+                    groundDist = 0;
+                    setFlightPhase(AirplaneFlightphase.airborne);
+                }
+            } else {
+
+                // shift pos in 2d
+                double dist = currentSpeed * MAIN_LOOP_STEP;
+                Vec4 dVec = new Vec4(yaw.sin(), yaw.cos()).multiply3(dist);
+                vec = vec.add3(dVec);
+                pos = globe.computePositionFromPoint(vec.transformBy4(transform4Inv));
+
+                // compute current target altitude
+                double altSoll;
+                if ((assureAlt == AltAssertModes.linear || isInCopterMode) && percentLineDone != null) {
+                    altSoll =
+                        lastTargetPos.elevation
+                            + percentLineDone * (curTargetPos.elevation - lastTargetPos.elevation);
+                } else {
+                    altSoll = curTargetPos.elevation;
+                }
 
-                            p.pitch = 0; // p.cameraPitch;//TODO, actally this isnt the physic of the plattform
-                            p.roll = 0; // p.cameraRoll;//TODO, actally this isnt the physic of the plattform
-                            p.yaw = p.cameraYaw;
-                        } else {
-                            p.pitch = (float)pitch;
-                            p.roll = (float)roll;
-                            p.yaw = (float)yaw.degrees;
-                        }
+                // compute new altitude, and also range in which this could be
+                double altNew =
+                    MathHelper.intoRange(
+                        altSoll,
+                        altPrevious - diveStep,
+                        (flightPhase == AirplaneFlightphase.takeoff && !isInCopterMode)
+                            ? altPrevious + climbStep * 1.5
+                            : altPrevious + climbStep);
+                double altMinNew =
+                    MathHelper.intoRange(
+                        altSoll,
+                        altMinInM - diveStep,
+                        (flightPhase == AirplaneFlightphase.takeoff && !isInCopterMode)
+                            ? altMinInM + climbStep * 1.5
+                            : altMinInM + climbStep);
+                double altMaxNew =
+                    MathHelper.intoRange(
+                        altSoll,
+                        altMaxInM - diveStep,
+                        (flightPhase == AirplaneFlightphase.takeoff && !isInCopterMode)
+                            ? altMaxInM + climbStep * 1.5
+                            : altMaxInM + climbStep);
+                MinMaxPair alt = new MinMaxPair();
+                alt.update(altSoll);
+                alt.update(altNew);
+                alt.update(altMinNew);
+                alt.update(altMaxNew);
+                altMinInM = alt.min;
+                altMaxInM = alt.max;
+
+                pos = new Position(pos, altNew);
+                vec = globe.computePointFromPosition(pos).transformBy4(transform4);
+                if (!isFlyingLine && sendPositionOrientation) {
+                    crossTrackErr = vec.distanceTo2(curTargetVec);
+                }
 
-                        invokeMaybeAsyc(
-                            new Runnable() {
-                                @Override
-                                public void run() {
-                                    rootHandler.recv_positionOrientation(p);
-                                }
-                            });
-                    }
+                newPitch = isInCopterMode ? 0 : Math.toDegrees(Math.atan2(altNew - altPrevious, dist));
+                // System.out.println("altNew:"+altNew +" altPrevious:"+altPrevious + " altSoll:"+altSoll +"
+                // dist:"+dist
+                // +"pitch:"+newPitch);
 
-                    // take images if distance and angles is ok
-                    if (sendPhoto
-                            && ((photoOn
-                                    && !isPlannedImagesTriggersMode
-                                    && vec.distanceTo3(lastPhotoVec) >= photoDistance / 100
-                                    && (simTime - lastPhotoTime) >= fp.getPhotoSettings().getMinTimeInterval())
-                                || (photoOn
-                                    && !isPlannedImagesTriggersMode
-                                    && !hasDoneLastBeforeCorner
-                                    && vec.distanceTo3(curTargetVec) <= LAST_IMAGE_BEFORE_WAYPOINT_M
-                                    && (simTime - lastPhotoTime) >= fp.getPhotoSettings().getMinTimeInterval())
-                                || (isPlannedImagesTriggersMode && copterImagePoint != null))) {
-
-                        // wait on point until cam is ready... simulated by time jump;
-                        if (isPlannedImagesTriggersMode) {
-                            if (simTime < fp.getPhotoSettings().getMinTimeInterval() + lastPhotoTime) {
-                                simTime = fp.getPhotoSettings().getMinTimeInterval() + lastPhotoTime;
-                            }
-                        }
+            }
+        }
 
-                        if (!shouldTakeImage) {
-                            if (lastPhotoReentryTriggerID != reentyPointID) {
-                                hasDoneLastBeforeCorner = false;
-                                if (roll < 0) {
-                                    photo_roll_sign = -1;
-                                } else {
-                                    photo_roll_sign = +1;
-                                }
-                            }
+        double dist = vec.distanceTo3(vecOld);
+        groundDist += dist;
+        // System.out.println("vec:"+vec+ " vecOld:"+vecOld + " dist:"+dist);
+        flightDistance += dist;
+        double groundspeed = dist / MAIN_LOOP_STEP; // m/sec
+        pitchRate = (newPitch - pitch) / MAIN_LOOP_STEP;
+        pitch = newPitch;
+        // System.out.println("groundSpeed_cms:"+groundspeed);
+
+        Vec4 headingVec = vec.subtract3(vecOld);
+        double heading = Math.toDegrees(Math.atan2(headingVec.y, headingVec.x));
+
+        if (simTime >= nextPosOrSample) {
+            nextPosOrSample += POSITION_ORIENTATION_SAMPLE;
+            // System.out.println("sendPosOr:"+sendPositionOrientation);
+            if (sendPositionOrientation) {
+                // if (runAsync) System.out.println("send position");
+                final PositionOrientationData p = new PositionOrientationData();
+                p.time_sec = sec;
+                p.time_usec = usec;
+                p.flightmode = AirplaneFlightmode.AutomaticFlight.ordinal();
+                p.flightphase = flightPhase.ordinal();
+                p.altitude = (int)((pos.elevation + (random.nextDouble() - 0.5) * 0.05) * 100);
+                // p.altitude = (int) ((altMaxInM+(random.nextDouble()-0.5)*0.05) * 100) ;
+                p.lat =
+                    pos.latitude.degrees
+                        + (random.nextDouble() - 0.5) * (0.001 * 360 / (Earth.WGS84_POLAR_RADIUS * 2 * Math.PI));
+                p.lon =
+                    pos.longitude.degrees
+                        + (random.nextDouble() - 0.5) * (0.001 * 360 / (Earth.WGS84_POLAR_RADIUS * 2 * Math.PI));
+                p.reentrypoint = reentyPointID;
+                p.batteryVoltage = (float)battery;
+                p.batteryPercent = (float)battery;
+                if (isInCopterMode) { // && copterImagePointLast != null && copterImagePointNext != null &&
+                    // isFlyingLine) {
+                    p.cameraPitch = pitchCam; // percentLineDone * dPitch;
+                    p.cameraRoll = rollCam; // percentLineDone * dRoll;
+                    p.cameraYaw = yaw.degrees; // percentLineDone * dYaw;
+                    while (p.cameraRoll < -180) {
+                        p.cameraRoll += 360;
+                    }
 
-                            lastPhotoReentryTriggerID = reentyPointID;
-                            shouldTakeImage = true;
-                        }
+                    while (p.cameraRoll >= 180) {
+                        p.cameraRoll -= 360;
+                    }
 
-                        // but sometimes also if the last image is way to far
-                        // away, even with bad angles
-                        if ((photo_roll_sign * rollRate >= -5
-                                    && Math.abs(pitch) <= fp.getPhotoSettings().getMaxNick()
-                                    && Math.abs(roll) <= fp.getPhotoSettings().getMaxRoll())
-                                || vec.distanceTo3(lastPhotoVec) >= photoDistanceMax / 100
-                                || vec.distanceTo3(curTargetVec) <= LAST_IMAGE_BEFORE_WAYPOINT_M
-                                || lastPhotoReentryTriggerID != reentyPointID
-                                || copterImagePoint != null) {
-                            // System.out.format("photo roll=%f\tpitch=%f\n",
-                            // roll,pitch);
-                            if (vec.distanceTo3(curTargetVec) <= LAST_IMAGE_BEFORE_WAYPOINT_M) {
-                                hasDoneLastBeforeCorner = true;
-                            }
+                    while (p.cameraYaw < -180) {
+                        p.cameraYaw += 360;
+                    }
 
-                            shouldTakeImage = false;
-
-                            photo_roll_sign = 0;
-                            lastPhotoPos = pos;
-                            lastPhotoVec = vec;
-                            lastPhotoTime = simTime;
-                            noLastImage++;
-                            final PhotoData photo = new PhotoData();
-                            photo.alt = (int)(pos.elevation * 100);
-                            photo.time_sec = sec;
-                            photo.time_usec = usec;
-                            photo.lat = pos.latitude.degrees;
-                            photo.lon = pos.longitude.degrees;
-                            photo.reentrypoint = reentyPointID;
-                            if (isInCopterMode) {
-                                photo.camera_pitch = (float)pitchCam; // percentLineDone * dPitch;
-                                photo.camera_roll = (float)rollCam; // percentLineDone * dRoll;
-                                photo.camera_yaw = (float)yaw.degrees; // percentLineDone * dYaw;
-                                while (photo.camera_roll < -180) {
-                                    photo.camera_roll += 360;
-                                }
+                    while (p.cameraYaw >= 180) {
+                        p.cameraYaw -= 360;
+                    }
 
-                                while (photo.camera_roll >= 180) {
-                                    photo.camera_roll -= 360;
-                                }
+                    while (p.cameraPitch < -180) {
+                        p.cameraPitch += 360;
+                    }
 
-                                while (photo.camera_yaw < -180) {
-                                    photo.camera_yaw += 360;
-                                }
+                    while (p.cameraPitch >= 180) {
+                        p.cameraPitch -= 360;
+                    }
 
-                                while (photo.camera_yaw >= 180) {
-                                    photo.camera_yaw -= 360;
-                                }
+                    p.pitch = 0; // p.cameraPitch;//TODO, actally this isnt the physic of the plattform
+                    p.roll = 0; // p.cameraRoll;//TODO, actally this isnt the physic of the plattform
+                    p.yaw = p.cameraYaw;
+                } else {
+                    p.pitch = (float)pitch;
+                    p.roll = (float)roll;
+                    p.yaw = (float)yaw.degrees;
+                }
 
-                                while (photo.camera_pitch < -180) {
-                                    photo.camera_pitch += 360;
-                                }
+                invokeMaybeAsyc(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            rootHandler.recv_positionOrientation(p);
+                        }
+                    });
+            }
 
-                                while (photo.camera_pitch >= 180) {
-                                    photo.camera_pitch -= 360;
-                                }
-                            } else {
-                                photo.camera_pitch = (float)pitch;
-                                photo.camera_roll = (float)roll;
-                                photo.camera_yaw = (float)yaw.degrees;
-                            }
+            // take images if distance and angles is ok
+            if (sendPhoto
+                    && ((photoOn
+                            && !isPlannedImagesTriggersMode
+                            && vec.distanceTo3(lastPhotoVec) >= photoDistance / 100
+                            && (simTime - lastPhotoTime) >= fp.getPhotoSettings().getMinTimeInterval())
+                        || (photoOn
+                            && !isPlannedImagesTriggersMode
+                            && !hasDoneLastBeforeCorner
+                            && vec.distanceTo3(curTargetVec) <= LAST_IMAGE_BEFORE_WAYPOINT_M
+                            && (simTime - lastPhotoTime) >= fp.getPhotoSettings().getMinTimeInterval())
+                        || (isPlannedImagesTriggersMode && copterImagePoint != null))) {
+
+                // wait on point until cam is ready... simulated by time jump;
+                if (isPlannedImagesTriggersMode) {
+                    if (simTime < fp.getPhotoSettings().getMinTimeInterval() + lastPhotoTime) {
+                        simTime = fp.getPhotoSettings().getMinTimeInterval() + lastPhotoTime;
+                    }
+                }
 
-                            photo.time_since_last_fix = 0;
-                            photo.gyropitch = (float)pitchRate;
-                            photo.gyroroll = (float)rollRate;
-                            photo.gyroyaw = (float)yawRate;
-                            photo.number = noLastImage;
-                            photo.heading = (float)heading;
-                            photo.groundspeed = (int)Math.round(groundspeed * 100);
-                            photo.type = PhotoLogLineType.FLASH.ordinal() + 1;
-                            photo.gps_alt =
-                                (int)
-                                    Math.round(
-                                        100 * (getStartElevOverWGS84() + pos.elevation - getStartElevEgmOffset()));
-                            photo.gps_ellipsoid = (float)(getStartElevEgmOffset() * 100);
-                            photo.gps_mode = 1;
-                            invokeMaybeAsyc(
-                                new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        rootHandler.recv_photo(photo);
-                                    }
-                                });
+                if (!shouldTakeImage) {
+                    if (lastPhotoReentryTriggerID != reentyPointID) {
+                        hasDoneLastBeforeCorner = false;
+                        if (roll < 0) {
+                            photo_roll_sign = -1;
+                        } else {
+                            photo_roll_sign = +1;
                         }
                     }
-                }
 
-                if (sendDebug && simTime >= nextDebugSample) {
-                    nextDebugSample += DEBUG_SAMPLE;
+                    lastPhotoReentryTriggerID = reentyPointID;
+                    shouldTakeImage = true;
+                }
 
-                    final DebugData d = new DebugData();
-                    d.time_sec = sec;
-                    d.time_usec = usec;
-                    if (sendPositionGPSAlt) {
-                        d.gpsAltitude =
-                            (int)Math.round(100 * (getStartElevOverWGS84() + pos.elevation - getStartElevEgmOffset()));
-                        d.gps_ellipsoid = (float)(getStartElevEgmOffset() * 100);
+                // but sometimes also if the last image is way to far
+                // away, even with bad angles
+                if ((photo_roll_sign * rollRate >= -5
+                            && Math.abs(pitch) <= fp.getPhotoSettings().getMaxNick()
+                            && Math.abs(roll) <= fp.getPhotoSettings().getMaxRoll())
+                        || vec.distanceTo3(lastPhotoVec) >= photoDistanceMax / 100
+                        || vec.distanceTo3(curTargetVec) <= LAST_IMAGE_BEFORE_WAYPOINT_M
+                        || lastPhotoReentryTriggerID != reentyPointID
+                        || copterImagePoint != null) {
+                    // System.out.format("photo roll=%f\tpitch=%f\n",
+                    // roll,pitch);
+                    if (vec.distanceTo3(curTargetVec) <= LAST_IMAGE_BEFORE_WAYPOINT_M) {
+                        hasDoneLastBeforeCorner = true;
                     }
 
-                    d.groundspeed = (int)Math.round(groundspeed * 100);
-                    // System.out.println("AirSim:d.groundSpped:"+d.groundspeed + " " + groundspeed);
-                    d.cross_track_error = (int)(100 * crossTrackErr);
-                    d.heading = (float)heading;
-                    d.groundDistance = (int)(groundDist * 100);
+                    shouldTakeImage = false;
+
+                    photo_roll_sign = 0;
+                    lastPhotoPos = pos;
+                    lastPhotoVec = vec;
+                    lastPhotoTime = simTime;
+                    noLastImage++;
+                    final PhotoData photo = new PhotoData();
+                    photo.alt = (int)(pos.elevation * 100);
+                    photo.time_sec = sec;
+                    photo.time_usec = usec;
+                    photo.lat = pos.latitude.degrees;
+                    photo.lon = pos.longitude.degrees;
+                    photo.reentrypoint = reentyPointID;
+                    if (isInCopterMode) {
+                        photo.camera_pitch = (float)pitchCam; // percentLineDone * dPitch;
+                        photo.camera_roll = (float)rollCam; // percentLineDone * dRoll;
+                        photo.camera_yaw = (float)yaw.degrees; // percentLineDone * dYaw;
+                        while (photo.camera_roll < -180) {
+                            photo.camera_roll += 360;
+                        }
 
-                    d.gyropitch = (float)pitchRate;
-                    d.gyroroll = (float)rollRate;
-                    d.gyroyaw = (float)yawRate;
+                        while (photo.camera_roll >= 180) {
+                            photo.camera_roll -= 360;
+                        }
 
-                    invokeMaybeAsyc(
-                        new Runnable() {
-                            @Override
-                            public void run() {
-                                rootHandler.recv_debug(d);
-                            }
-                        });
-                }
+                        while (photo.camera_yaw < -180) {
+                            photo.camera_yaw += 360;
+                        }
+
+                        while (photo.camera_yaw >= 180) {
+                            photo.camera_yaw -= 360;
+                        }
+
+                        while (photo.camera_pitch < -180) {
+                            photo.camera_pitch += 360;
+                        }
+
+                        while (photo.camera_pitch >= 180) {
+                            photo.camera_pitch -= 360;
+                        }
+                    } else {
+                        photo.camera_pitch = (float)pitch;
+                        photo.camera_roll = (float)roll;
+                        photo.camera_yaw = (float)yaw.degrees;
+                    }
 
-                if (sendHealth && simTime >= nextHEALTHsample) {
-                    nextHEALTHsample += HEALTH_SAMPLE;
-
-                    final HealthData h = new HealthData();
-                    h.absolute.add((float)battery);
-                    h.percent.add((float)battery);
-                    h.absolute.add((float)10); // GPS sats
-                    h.percent.add((float)10); // GPS sats
-                    GPSFixType fixType =
-                        fp.getHardwareConfiguration().getPlatformDescription().getGpsType().getBestFixType();
-                    h.absolute.add((float)(fixType.ordinal())); // gps fix type
-                    h.percent.add((float)(fixType.ordinal())); // gps fix type
+                    photo.time_since_last_fix = 0;
+                    photo.gyropitch = (float)pitchRate;
+                    photo.gyroroll = (float)rollRate;
+                    photo.gyroyaw = (float)yawRate;
+                    photo.number = noLastImage;
+                    photo.heading = (float)heading;
+                    photo.groundspeed = (int)Math.round(groundspeed * 100);
+                    photo.type = PhotoLogLineType.FLASH.ordinal() + 1;
+                    photo.gps_alt =
+                        (int)
+                            Math.round(
+                                100 * (getStartElevOverWGS84() + pos.elevation - getStartElevEgmOffset()));
+                    photo.gps_ellipsoid = (float)(getStartElevEgmOffset() * 100);
+                    photo.gps_mode = 1;
                     invokeMaybeAsyc(
                         new Runnable() {
                             @Override
                             public void run() {
-                                rootHandler.recv_health(h);
+                                rootHandler.recv_photo(photo);
                             }
                         });
                 }
+            }
+        }
 
-                if (runAsync) {
-                    double simSpeedTmp = Math.max(Math.min(simSpeed, MAX_SIM_SPEED), MIN_SIM_SPEED);
-                    // if (simSpeed <= 0)
-                    // simSpeedTmp = MAX_SIM_SPEED;
-                    long sleep_time =
-                        Math.round(1000. * MAIN_LOOP_STEP / simSpeedTmp)
-                            - (System.currentTimeMillis() - timeStartThisLoop);
-                    sleep_time += sleepUebertrag;
-                    // System.out.println("sleeping for: " + sleep_time + " @
-                    // speed="+simSpeedTmp + "
-                    // consumedTime="+(System.currentTimeMillis() -
-                    // timeStartThisLoop));
-                    if (sleep_time > 0) {
-                        sleepUebertrag = 0;
-                        try {
-                            Thread.sleep(sleep_time);
-                        } catch (InterruptedException e) {
-                        }
-                    } else {
-                        sleepUebertrag = Math.max(sleep_time, -1000); // maximal
-                        // üebertrag
-                        // 1 sec
-                    }
-                }
+        if (sendDebug && simTime >= nextDebugSample) {
+            nextDebugSample += DEBUG_SAMPLE;
+
+            final DebugData d = new DebugData();
+            d.time_sec = sec;
+            d.time_usec = usec;
+            if (sendPositionGPSAlt) {
+                d.gpsAltitude =
+                    (int)Math.round(100 * (getStartElevOverWGS84() + pos.elevation - getStartElevEgmOffset()));
+                d.gps_ellipsoid = (float)(getStartElevEgmOffset() * 100);
             }
-            // }
-        } catch (Exception e) {
-            e.printStackTrace();
-            Debug.getLog().log(Level.WARNING, "local Mission simulation failed", e);
-        } finally {
-            clearFP();
-            // System.out.println("simulation terminated "+AirplaneSim.this);
+
+            d.groundspeed = (int)Math.round(groundspeed * 100);
+            // System.out.println("AirSim:d.groundSpped:"+d.groundspeed + " " + groundspeed);
+            d.cross_track_error = (int)(100 * crossTrackErr);
+            d.heading = (float)heading;
+            d.groundDistance = (int)(groundDist * 100);
+
+            d.gyropitch = (float)pitchRate;
+            d.gyroroll = (float)rollRate;
+            d.gyroyaw = (float)yawRate;
+
+            invokeMaybeAsyc(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        rootHandler.recv_debug(d);
+                    }
+                });
+        }
+
+        if (sendHealth && simTime >= nextHEALTHsample) {
+            nextHEALTHsample += HEALTH_SAMPLE;
+
+            final HealthData h = new HealthData();
+            h.absolute.add((float)battery);
+            h.percent.add((float)battery);
+            h.absolute.add((float)10); // GPS sats
+            h.percent.add((float)10); // GPS sats
+            GPSFixType fixType =
+                fp.getHardwareConfiguration().getPlatformDescription().getGpsType().getBestFixType();
+            h.absolute.add((float)(fixType.ordinal())); // gps fix type
+            h.percent.add((float)(fixType.ordinal())); // gps fix type
+            invokeMaybeAsyc(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        rootHandler.recv_health(h);
+                    }
+                });
         }
+
+        return !simDone;
+    }
+
+    private double getClockSeconds() {
+        SimulationKernel kernel = this.kernel;
+        return kernel != null ? kernel.getVirtualTimeSeconds() : System.currentTimeMillis() / 1000.;
     }
 
     protected void invokeMaybeAsyc(Runnable r) {
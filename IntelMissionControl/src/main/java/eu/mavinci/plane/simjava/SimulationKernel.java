@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.plane.simjava;
+
+import eu.mavinci.desktop.main.debug.Debug;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import org.asyncfx.concurrent.FutureExecutorService;
+
+/**
+ * Advances many {@link AirplaneSim} instances on a shared virtual clock, stepping them on the background threads
+ * instead of on one thread per simulated vehicle.
+ *
+ * <p>Virtual time advances in windows of {@link #WINDOW_SECONDS}. Within a window every vehicle executes all of its
+ * main loop steps that fall into the window; since simulated vehicles don't interact, the vehicles of one window are
+ * stepped in parallel and only synchronize at the window boundary. A kernel with a single vehicle steps it on the
+ * calling thread. Between windows, the kernel either sleeps to keep virtual time at the requested multiple of
+ * wall-clock time, or continues immediately if running as fast as possible.
+ *
+ * <p>A run is reproducible: vehicles only depend on their inputs, the virtual clock and their own noise generator,
+ * which is seeded from the kernel seed and the order in which vehicles were added. Listeners of the simulations are
+ * called on the stepping threads, so each vehicle should report to its own listener.
+ */
+public class SimulationKernel {
+
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    static final double WINDOW_SECONDS = 1.0;
+
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    /** A vehicle advanced by the kernel. */
+    abstract static class Vehicle {
+        private boolean started;
+        private boolean done;
+
+        /** Called when the vehicle is added, with the noise generator it has to use from then on. */
+        abstract void attach(SimulationKernel kernel, Random random);
+
+        /** Called at the beginning of the first window of the vehicle. */
+        abstract void start();
+
+        /**
+         * Advances the vehicle by one step of its own length.
+         *
+         * @return false if the vehicle is done
+         */
+        abstract boolean step();
+
+        /** The virtual time in seconds up to which the vehicle has been advanced. */
+        abstract double getTime();
+
+        /** Called once the vehicle is done or failed. */
+        abstract void finish();
+    }
+
+    private static final class SimVehicle extends Vehicle {
+        final AirplaneSim sim;
+
+        SimVehicle(AirplaneSim sim) {
+            this.sim = sim;
+        }
+
+        @Override
+        void attach(SimulationKernel kernel, Random random) {
+            sim.kernel = kernel;
+            sim.random = random;
+        }
+
+        @Override
+        void start() {
+            sim.startRun();
+        }
+
+        @Override
+        boolean step() {
+            return sim.running && sim.step();
+        }
+
+        @Override
+        double getTime() {
+            return sim.simTime;
+        }
+
+        @Override
+        void finish() {
+            sim.clearFP();
+        }
+
+        @Override
+        public String toString() {
+            return sim.getPlanePort();
+        }
+    }
+
+    private final long seed;
+    private final double speedFactor;
+    private final int parallelism;
+    private final List<Vehicle> vehicles = new ArrayList<>();
+    private volatile double virtualTimeSeconds;
+
+    /**
+     * @param seed seed of the simulated sensor noise, runs with the same seed and inputs yield identical results
+     * @param epochSeconds virtual time in seconds since 1970 at which the simulation starts
+     * @param speedFactor how many times faster than real time the simulation runs, or {@link #AS_FAST_AS_POSSIBLE}
+     * @param parallelism maximum number of vehicles stepped at the same time
+     */
+    public SimulationKernel(long seed, double epochSeconds, double speedFactor, int parallelism) {
+        if (!(speedFactor > 0)) {
+            throw new IllegalArgumentException("speedFactor must be positive: " + speedFactor);
+        }
+
+        this.seed = seed;
+        this.speedFactor = speedFactor;
+        this.parallelism = Math.max(1, parallelism);
+        this.virtualTimeSeconds = epochSeconds;
+    }
+
+    /**
+     * Adds a vehicle, which from then on takes its time from the virtual clock. The simulation must have been created
+     * to run synchronously, and must have its flight plan and start position set before the kernel runs; it starts at
+     * the beginning of the next window.
+     */
+    public void add(AirplaneSim sim) {
+        if (sim.runAsync) {
+            throw new IllegalArgumentException("Simulation " + sim.getPlanePort() + " runs on its own thread");
+        }
+
+        add(new SimVehicle(sim));
+    }
+
+    synchronized void add(Vehicle vehicle) {
+        vehicle.attach(this, new Random(seed + SEED_INCREMENT * (vehicles.size() + 1)));
+        vehicles.add(vehicle);
+    }
+
+    public double getVirtualTimeSeconds() {
+        return virtualTimeSeconds;
+    }
+
+    /**
+     * Runs the simulation until all vehicles are done or the given amount of virtual time has passed.
+     *
+     * @return true if all vehicles are done
+     */
+    public boolean run(double durationSeconds) throws InterruptedException {
+        final double endTime = virtualTimeSeconds + durationSeconds;
+        final double startTime = virtualTimeSeconds;
+        final long wallStartNanos = System.nanoTime();
+
+        while (virtualTimeSeconds < endTime) {
+            final double windowEnd = Math.min(virtualTimeSeconds + WINDOW_SECONDS, endTime);
+            List<Vehicle> active = new ArrayList<>();
+            synchronized (this) {
+                for (Vehicle vehicle : vehicles) {
+                    if (!vehicle.done) {
+                        active.add(vehicle);
+                    }
+                }
+            }
+
+            if (active.isEmpty()) {
+                return true;
+            }
+
+            if (active.size() == 1 || parallelism == 1) {
+                for (Vehicle vehicle : active) {
+                    advance(vehicle, windowEnd);
+                }
+            } else {
+                advanceInParallel(active, windowEnd);
+            }
+
+            virtualTimeSeconds = windowEnd;
+
+            if (speedFactor != AS_FAST_AS_POSSIBLE) {
+                long dueNanos = wallStartNanos + (long)((windowEnd - startTime) / speedFactor * 1e9);
+                long sleepNanos = dueNanos - System.nanoTime();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+            }
+        }
+
+        synchronized (this) {
+            return vehicles.stream().allMatch(vehicle -> vehicle.done);
+        }
+    }
+
+    private void advanceInParallel(List<Vehicle> active, double windowEnd) throws InterruptedException {
+        // at most one task per allowed thread, each taking the next vehicle until all are advanced
+        AtomicInteger nextVehicle = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, active.size()); i++) {
+            tasks.add(
+                () -> {
+                    for (int v = nextVehicle.getAndIncrement(); v < active.size(); v = nextVehicle.getAndIncrement()) {
+                        advance(active.get(v), windowEnd);
+                    }
+
+                    return null;
+                });
+        }
+
+        for (Future<Void> future : FutureExecutorService.getInstance().invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // advance() handles failures of single vehicles
+                Debug.getLog().log(Level.WARNING, "simulation kernel task failed", e.getCause());
+            }
+        }
+    }
+
+    private void advance(Vehicle vehicle, double windowEnd) {
+        try {
+            if (!vehicle.started) {
+                vehicle.started = true;
+                vehicle.start();
+            }
+
+            while (vehicle.getTime() < windowEnd) {
+                if (!vehicle.step()) {
+                    finish(vehicle);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            Debug.getLog().log(Level.WARNING, "simulation of " + vehicle + " failed", e);
+            finish(vehicle);
+        }
+    }
+
+    private void finish(Vehicle vehicle) {
+        vehicle.done = true;
+        vehicle.finish();
+    }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StartupGraphTest {
+
+    @Test
+    void steps_RunAfterTheirDependencies() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        new StartupGraph(System.nanoTime())
+            .step("a", () -> order.add("a"))
+            .step("b", () -> order.add("b"), "a")
+            .step("c", () -> order.add("c"), "a")
+            .step("d", () -> order.add("d"), "b", "c")
+            .run();
+
+        Assertions.assertEquals(4, order.size());
+        Assertions.assertEquals("a", order.get(0));
+        Assertions.assertEquals("d", order.get(3));
+    }
+
+    @Test
+    void chainedSteps_RunInDeclarationOrder() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        new StartupGraph(System.nanoTime())
+            .step("a", () -> order.add("a"))
+            .step(
+                "b",
+                () -> {
+                    Thread.sleep(50);
+                    order.add("b");
+                },
+                "a")
+            .step("c", () -> order.add("c"), "b")
+            .run();
+
+        Assertions.assertEquals(Arrays.asList("a", "b", "c"), order);
+    }
+
+    @Test
+    void run_DoesNotWaitForBackgroundSteps() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch backgroundDone = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        new StartupGraph(System.nanoTime())
+            .step("a", () -> order.add("a"))
+            .backgroundStep(
+                "warmUp",
+                () -> {
+                    release.await();
+                    backgroundDone.countDown();
+                },
+                "a")
+            .step("b", () -> order.add("b"), "a")
+            .run();
+
+        Assertions.assertEquals(Arrays.asList("a", "b"), order);
+        Assertions.assertEquals(1, backgroundDone.getCount(), "background step is still running");
+        release.countDown();
+        Assertions.assertTrue(backgroundDone.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failingStep_IsRethrownByRunAndSkipsDependentSteps() {
+        IOException failure = new IOException("step failed");
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        StartupGraph graph =
+            new StartupGraph(System.nanoTime())
+                .step("a", () -> order.add("a"))
+                .step(
+                    "b",
+                    () -> {
+                        throw failure;
+                    },
+                    "a")
+                .step("c", () -> order.add("c"), "b");
+
+        IOException e = Assertions.assertThrows(IOException.class, graph::run);
+
+        Assertions.assertSame(failure, e);
+        Assertions.assertEquals(Collections.singletonList("a"), order);
+    }
+
+    @Test
+    void failingBackgroundStep_IsNotRethrown() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        new StartupGraph(System.nanoTime())
+            .step("a", () -> order.add("a"))
+            .backgroundStep(
+                "warmUp",
+                () -> {
+                    throw new IOException("warm up failed");
+                },
+                "a")
+            .step("b", () -> order.add("b"), "a")
+            .run();
+
+        Assertions.assertEquals(Arrays.asList("a", "b"), order);
+    }
+
+    @Test
+    void unknownDependency_IsRejected() {
+        StartupGraph graph = new StartupGraph(System.nanoTime()).step("a", () -> {});
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> graph.step("b", () -> {}, "missing"));
+    }
+
+    @Test
+    void cycle_IsRejected() {
+        StartupGraph graph = new StartupGraph(System.nanoTime()).step("a", () -> {});
+
+        // a step can only depend on steps declared before it, so closing a cycle needs a forward reference
+        Assertions.assertThrows(IllegalArgumentException.class, () -> graph.step("b", () -> {}, "b"));
+    }
+
+    @Test
+    void duplicateStep_IsRejected() {
+        StartupGraph graph = new StartupGraph(System.nanoTime()).step("a", () -> {});
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> graph.backgroundStep("a", () -> {}));
+    }
+
+}
@@ -20,6 +20,10 @@ import gov.nasa.worldwind.util.LevelSet;
 import gov.nasa.worldwind.util.Tile;
 import gov.nasa.worldwind.util.TileUrlBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -27,9 +31,13 @@ import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 public class AirSpaceTest {
@@ -100,4 +108,26 @@ public class AirSpaceTest {
 
         assertNotNull(resp);
     }
+
+    @Test
+    public void codecRoundTrip() throws Exception {
+        Collection<AirSpaceObject> airspaces = Loader.loadFromAirmapJson(loadTestData());
+
+        byte[] encoded = encode(airspaces);
+        List<AirSpaceObject> decoded =
+            AirSpaceObjectCodec.readAll(new DataInputStream(new ByteArrayInputStream(encoded)));
+
+        assertEquals(airspaces.size(), decoded.size());
+        assertEquals(new ArrayList<>(airspaces), decoded);
+        assertArrayEquals(encoded, encode(decoded));
+    }
+
+    private static byte[] encode(Collection<AirSpaceObject> airspaces) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            AirSpaceObjectCodec.writeAll(out, airspaces);
+        }
+
+        return bytes.toByteArray();
+    }
 }
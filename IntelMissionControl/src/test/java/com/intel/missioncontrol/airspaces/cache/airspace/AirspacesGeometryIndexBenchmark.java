@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.airspaces.cache.airspace;
+
+import com.github.davidmoten.rtree.Entry;
+import com.github.davidmoten.rtree.RTree;
+import com.github.davidmoten.rtree.geometry.Geometries;
+import com.github.davidmoten.rtree.geometry.Rectangle;
+import eu.mavinci.airspace.IAirspace;
+import gov.nasa.worldwind.geom.Sector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compares the packed {@link AirspacesGeometryIndex} with an R-tree built by adding one airspace at a time, as the
+ * index did before. Measures the build time and point, bounding box and corridor lookups over random airspaces.
+ *
+ * <p>Usage: {@code AirspacesGeometryIndexBenchmark [airspaces] [queries]}
+ */
+public final class AirspacesGeometryIndexBenchmark {
+
+    public static void main(String[] args) {
+        int airspaceCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        Random random = new Random(1);
+        List<IAirspace> airspaces = new ArrayList<>(airspaceCount);
+        for (int i = 0; i < airspaceCount; i++) {
+            airspaces.add(AirspacesGeometryIndexTest.createAirspace(random, "airspace" + i));
+        }
+
+        List<Sector> points = new ArrayList<>();
+        List<Sector> boxes = new ArrayList<>();
+        List<List<Sector>> corridors = new ArrayList<>();
+        for (int i = 0; i < queryCount; i++) {
+            double lat = -80 + random.nextDouble() * 160;
+            double lon = -170 + random.nextDouble() * 340;
+            points.add(Sector.fromDegrees(lat, lat, lon, lon));
+            boxes.add(Sector.fromDegrees(lat, lat + 0.5, lon, lon + 0.5));
+
+            // a flight line of ten legs, each looked up with a small buffer around it
+            List<Sector> corridor = new ArrayList<>();
+            for (int leg = 0; leg < 10; leg++) {
+                double nextLat = lat + (random.nextDouble() - 0.5) * 0.1;
+                double nextLon = lon + (random.nextDouble() - 0.5) * 0.1;
+                corridor.add(
+                    Sector.fromDegrees(
+                        Math.min(lat, nextLat) - 0.005,
+                        Math.max(lat, nextLat) + 0.005,
+                        Math.min(lon, nextLon) - 0.005,
+                        Math.max(lon, nextLon) + 0.005));
+                lat = nextLat;
+                lon = nextLon;
+            }
+
+            corridors.add(corridor);
+        }
+
+        for (int run = 0; run < 3; run++) {
+            System.out.println("run " + run);
+
+            long start = System.nanoTime();
+            RTree<IAirspace, Rectangle> legacy = RTree.create();
+            for (IAirspace airspace : airspaces) {
+                legacy = legacy.add(airspace, toRectangle(airspace.getBoundingBox()));
+            }
+
+            report("  incremental build", start, 1);
+
+            start = System.nanoTime();
+            AirspacesGeometryIndex index = new AirspacesGeometryIndex();
+            index.addAll(airspaces);
+            report("  bulk load", start, 1);
+
+            RTree<IAirspace, Rectangle> legacyTree = legacy;
+            Function<Sector, List<IAirspace>> legacySearch =
+                sector ->
+                    legacyTree.search(toRectangle(sector)).map(Entry::value).toList().toBlocking().single();
+            Function<Sector, List<IAirspace>> indexSearch = index::search;
+
+            long checksum = 0;
+            for (Function<Sector, List<IAirspace>> search : List.of(legacySearch, indexSearch)) {
+                String name = search == legacySearch ? "incremental" : "bulk loaded";
+                start = System.nanoTime();
+                for (Sector point : points) {
+                    checksum += search.apply(point).size();
+                }
+
+                report("  " + name + " point", start, queryCount);
+
+                start = System.nanoTime();
+                for (Sector box : boxes) {
+                    checksum += search.apply(box).size();
+                }
+
+                report("  " + name + " bounding box", start, queryCount);
+
+                start = System.nanoTime();
+                for (List<Sector> corridor : corridors) {
+                    Set<IAirspace> found = Collections.newSetFromMap(new IdentityHashMap<>());
+                    for (Sector leg : corridor) {
+                        found.addAll(search.apply(leg));
+                    }
+
+                    checksum += found.size();
+                }
+
+                report("  " + name + " corridor", start, queryCount);
+            }
+
+            System.out.println("  checksum " + checksum);
+        }
+    }
+
+    private static Rectangle toRectangle(Sector sector) {
+        return Geometries.rectangleGeographic(
+            sector.getMinLongitude().degrees,
+            sector.getMinLatitude().degrees,
+            sector.getMaxLongitude().degrees,
+            sector.getMaxLatitude().degrees);
+    }
+
+    private static void report(String name, long startNanos, int operations) {
+        double millis = (System.nanoTime() - startNanos) / 1e6;
+        System.out.println(String.format("%s: %.1f ms, %.2f us/op", name, millis, millis * 1000 / operations));
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.airspaces.cache.airspace;
+
+import com.intel.missioncontrol.geometry.StrTree;
+import eu.mavinci.airspace.Airspace;
+import eu.mavinci.airspace.AirspaceTypes;
+import eu.mavinci.airspace.IAirspace;
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Sector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AirspacesGeometryIndexTest {
+
+    @Test
+    void search_MatchesLinearScan_AfterBulkLoadAndDeltas() {
+        Random random = new Random(7);
+        List<IAirspace> all = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            all.add(createAirspace(random, "airspace" + i));
+        }
+
+        AirspacesGeometryIndex index = new AirspacesGeometryIndex();
+        index.addAll(all);
+        assertSearchesMatch(index, all, random);
+
+        // small deltas stay next to the tree, a large one repacks it
+        List<IAirspace> live = new ArrayList<>(all);
+        for (int round = 0; round < 4; round++) {
+            List<IAirspace> added = new ArrayList<>();
+            List<IAirspace> removed = new ArrayList<>();
+            int changes = round < 3 ? 20 : 2000;
+            for (int i = 0; i < changes; i++) {
+                added.add(createAirspace(random, "round" + round + "_" + i));
+                removed.add(live.remove(random.nextInt(live.size())));
+            }
+
+            index.update(added, removed);
+            live.addAll(added);
+            Assertions.assertEquals(live.size(), index.size());
+            assertSearchesMatch(index, live, random);
+        }
+
+        index.removeAll(new ArrayList<>(live));
+        Assertions.assertTrue(index.search(Sector.FULL_SPHERE).isEmpty());
+    }
+
+    @Test
+    void strTree_PacksNodesFull() {
+        Random random = new Random(11);
+        List<IAirspace> all = new ArrayList<>();
+        for (int i = 0; i < 4097; i++) {
+            all.add(createAirspace(random, "airspace" + i));
+        }
+
+        StrTree<IAirspace> tree =
+            StrTree.build(
+                all,
+                airspace -> {
+                    Sector box = airspace.getBoundingBox();
+                    return new double[] {
+                        box.getMinLongitude().degrees,
+                        box.getMinLatitude().degrees,
+                        box.getMaxLongitude().degrees,
+                        box.getMaxLatitude().degrees
+                    };
+                });
+        Assertions.assertEquals(4097, tree.size());
+        Assertions.assertEquals(4, tree.getHeight());
+    }
+
+    private static void assertSearchesMatch(AirspacesGeometryIndex index, List<IAirspace> live, Random random) {
+        for (int i = 0; i < 200; i++) {
+            double lat = -80 + random.nextDouble() * 160;
+            double lon = -170 + random.nextDouble() * 340;
+            double size = random.nextDouble() * (i % 2 == 0 ? 0.01 : 5);
+            Sector query = Sector.fromDegrees(lat, lat + size, lon, lon + size);
+
+            Set<IAirspace> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (IAirspace airspace : live) {
+                if (airspace.getBoundingBox().intersects(query)) {
+                    expected.add(airspace);
+                }
+            }
+
+            List<IAirspace> found = index.search(query);
+            Set<IAirspace> actual = Collections.newSetFromMap(new IdentityHashMap<>());
+            actual.addAll(found);
+            Assertions.assertEquals(found.size(), actual.size());
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    static Airspace createAirspace(Random random, String name) {
+        double lat = -80 + random.nextDouble() * 160;
+        double lon = -170 + random.nextDouble() * 340;
+        double size = 0.01 + random.nextDouble() * random.nextDouble() * 2;
+        Airspace airspace = new Airspace(name, AirspaceTypes.Restricted);
+        airspace.addVertex(LatLon.fromDegrees(lat, lon));
+        airspace.addVertex(LatLon.fromDegrees(lat + size, lon));
+        airspace.addVertex(LatLon.fromDegrees(lat + size, lon + size));
+        airspace.addVertex(LatLon.fromDegrees(lat, lon + size));
+        return airspace;
+    }
+
+}
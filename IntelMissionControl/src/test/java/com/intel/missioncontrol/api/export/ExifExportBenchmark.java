@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.api.export;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Writes geotags into a generated dataset of small JPEGs, once with one ExifTool run per image as the export did
+ * before, and once with argument file batches fed by the {@link ExportPipeline}. Requires an ExifTool executable,
+ * taken from the {@code exiftool.path} system property or the path.
+ *
+ * <p>Usage: {@code ExifExportBenchmark [images] [perImageSamples]}
+ */
+public final class ExifExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int imageCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int perImageSamples = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        String exifToolPath = System.getProperty("exiftool.path", "exiftool");
+        try {
+            new ProcessBuilder(exifToolPath, "-ver").start().waitFor();
+        } catch (IOException e) {
+            System.out.println("ExifTool not found at " + exifToolPath + ", skipping benchmark");
+            return;
+        }
+
+        Path directory = Files.createTempDirectory("exifExportBenchmark");
+        try {
+            List<File> images = createImages(directory, imageCount);
+
+            // one process per image; only a sample is measured, since this takes minutes for the whole dataset
+            long start = System.nanoTime();
+            try (ExifToolBatchWriter writer = new ExifToolBatchWriter(exifToolPath, 1)) {
+                for (int i = 0; i < Math.min(perImageSamples, images.size()); i++) {
+                    writer.write(createGeotag(i, images.get(i)));
+                }
+            }
+
+            double perImageMillis = (System.nanoTime() - start) / 1e6 / Math.min(perImageSamples, images.size());
+            System.out.println(
+                String.format(
+                    "per image: %.2f ms/image, %.1f s extrapolated to %d images",
+                    perImageMillis,
+                    perImageMillis * images.size() / 1000,
+                    images.size()));
+
+            start = System.nanoTime();
+            int[] progress = new int[1];
+            try (ExifToolBatchWriter writer =
+                    new ExifToolBatchWriter(exifToolPath, ExifToolBatchWriter.DEFAULT_BATCH_SIZE)) {
+                List<Integer> indices = new ArrayList<>();
+                for (int i = 0; i < images.size(); i++) {
+                    indices.add(i);
+                }
+
+                ExportPipeline.run(
+                    indices,
+                    i -> createGeotag(i, images.get(i)),
+                    (i, command) -> writer.write(command),
+                    (done, total) -> progress[0] = done,
+                    () -> false);
+                writer.flush();
+                double millis = (System.nanoTime() - start) / 1e6;
+                System.out.println(
+                    String.format(
+                        "batched: %.2f ms/image, %.1f s for %d images, %d updated, %d failed",
+                        millis / images.size(),
+                        millis / 1000,
+                        progress[0],
+                        writer.getUpdatedCount(),
+                        writer.getFailedCount()));
+            }
+        } finally {
+            for (File file : directory.toFile().listFiles()) {
+                file.delete();
+            }
+
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static List<File> createImages(Path directory, int imageCount) throws IOException {
+        Random random = new Random(5);
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        List<File> images = new ArrayList<>(imageCount);
+        for (int i = 0; i < imageCount; i++) {
+            image.setRGB(random.nextInt(64), random.nextInt(48), random.nextInt());
+            File file = directory.resolve(String.format("IMG_%05d.jpg", i)).toFile();
+            ImageIO.write(image, "jpg", file);
+            images.add(file);
+        }
+
+        return images;
+    }
+
+    private static List<String> createGeotag(int index, File image) {
+        double lat = 48.1 + index * 1e-5;
+        double lon = 11.5 + index * 1e-5;
+        List<String> command = new ArrayList<>();
+        command.add("-GPSLatitude=" + lat);
+        command.add("-GPSLatitudeRef=N");
+        command.add("-GPSLongitude=" + lon);
+        command.add("-GPSLongitudeRef=E");
+        command.add("-GPSAltitude=" + (500 + index % 100));
+        command.add("-GPSAltitudeRef=0");
+        command.add("-Orientation#=1");
+        command.add("-UserComment=synthetic image " + index);
+        command.add(image.getAbsolutePath());
+        return command;
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.api.export;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ExportPipelineTest {
+
+    @Test
+    void run_WritesRecordsInInputOrder() throws Exception {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(i);
+        }
+
+        Random random = new Random(3);
+        int[] delays = new int[items.size()];
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = random.nextInt(3);
+        }
+
+        List<String> written = new ArrayList<>();
+        AtomicInteger lastProgress = new AtomicInteger();
+        boolean completed =
+            ExportPipeline.run(
+                items,
+                item -> {
+                    Thread.sleep(delays[item]);
+                    return "record" + item;
+                },
+                (item, record) -> {
+                    Assertions.assertEquals("record" + item, record);
+                    written.add(record);
+                },
+                (done, total) -> {
+                    Assertions.assertEquals(lastProgress.get() + 1, done);
+                    Assertions.assertEquals(items.size(), total);
+                    lastProgress.set(done);
+                },
+                () -> false);
+
+        Assertions.assertTrue(completed);
+        Assertions.assertEquals(items.size(), written.size());
+        for (int i = 0; i < items.size(); i++) {
+            Assertions.assertEquals("record" + i, written.get(i));
+        }
+
+        Assertions.assertEquals(items.size(), lastProgress.get());
+    }
+
+    @Test
+    void run_ComputesBoundedNumberOfRecordsAhead() throws Exception {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            items.add(i);
+        }
+
+        AtomicInteger computed = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        ExportPipeline.run(
+            items,
+            item -> {
+                int ahead = computed.incrementAndGet() - written.get();
+                maxAhead.accumulateAndGet(ahead, Math::max);
+                return item;
+            },
+            (item, record) -> {
+                Thread.sleep(1);
+                written.incrementAndGet();
+            },
+            null,
+            () -> false);
+
+        Assertions.assertEquals(items.size(), written.get());
+        Assertions.assertTrue(maxAhead.get() <= ExportPipeline.RECORDS_AHEAD + 1, "ahead: " + maxAhead.get());
+    }
+
+    @Test
+    void run_StopsWriting_WhenCancelled() throws Exception {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(i);
+        }
+
+        AtomicInteger written = new AtomicInteger();
+        boolean completed =
+            ExportPipeline.run(
+                items, item -> item, (item, record) -> written.incrementAndGet(), null, () -> written.get() >= 10);
+
+        Assertions.assertFalse(completed);
+        Assertions.assertEquals(10, written.get());
+    }
+
+    @Test
+    void run_RethrowsFailureOfComputation() {
+        List<Integer> items = List.of(0, 1, 2, 3);
+        IOException thrown =
+            Assertions.assertThrows(
+                IOException.class,
+                () ->
+                    ExportPipeline.run(
+                        items,
+                        item -> {
+                            if (item == 2) {
+                                throw new IOException("broken image");
+                            }
+
+                            return item;
+                        },
+                        (item, record) -> {},
+                        null,
+                        () -> false));
+        Assertions.assertEquals("broken image", thrown.getMessage());
+    }
+
+    @Test
+    void toArgFileLine_EscapesLineBreaksOnly() {
+        Assertions.assertEquals("-GPSLatitude=48.1", ExifToolBatchWriter.toArgFileLine("-GPSLatitude=48.1"));
+        Assertions.assertEquals("C:\\images\\a.jpg", ExifToolBatchWriter.toArgFileLine("C:\\images\\a.jpg"));
+        Assertions.assertEquals(
+            "#[CSTR]-UserComment=a\\\\b\\nc", ExifToolBatchWriter.toArgFileLine("-UserComment=a\\b\nc"));
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scripted packet loss and reordering of an emulated link. The script is a sequence of phases, each with its own loss
+ * and reorder probability; the last phase stays in effect once the script has run out.
+ *
+ * <p>A reordered packet is held back and only sent after {@link #getReorderDistance()} later packets of the same
+ * link.
+ */
+public final class LinkImpairment {
+
+    private static class Phase {
+        final long durationNanos;
+        final double lossProbability;
+        final double reorderProbability;
+
+        Phase(long durationNanos, double lossProbability, double reorderProbability) {
+            this.durationNanos = durationNanos;
+            this.lossProbability = lossProbability;
+            this.reorderProbability = reorderProbability;
+        }
+    }
+
+    private final List<Phase> phases = new ArrayList<>();
+    private int reorderDistance = 3;
+
+    private LinkImpairment() {}
+
+    /** A perfect link. */
+    public static LinkImpairment none() {
+        return new LinkImpairment();
+    }
+
+    /** A link that loses and reorders packets with the given probabilities for its whole lifetime. */
+    public static LinkImpairment constant(double lossProbability, double reorderProbability) {
+        return new LinkImpairment().phase(Duration.ZERO, lossProbability, reorderProbability);
+    }
+
+    /** Appends a phase to the script. */
+    public LinkImpairment phase(Duration duration, double lossProbability, double reorderProbability) {
+        checkProbability(lossProbability);
+        checkProbability(reorderProbability);
+        phases.add(new Phase(duration.toNanos(), lossProbability, reorderProbability));
+        return this;
+    }
+
+    public LinkImpairment reorderDistance(int packets) {
+        if (packets < 1) {
+            throw new IllegalArgumentException("reorder distance must be at least one packet: " + packets);
+        }
+
+        reorderDistance = packets;
+        return this;
+    }
+
+    public int getReorderDistance() {
+        return reorderDistance;
+    }
+
+    /** Returns the loss probability at the given time since the link was started. */
+    double getLossProbability(long elapsedNanos) {
+        Phase phase = phaseAt(elapsedNanos);
+        return phase != null ? phase.lossProbability : 0;
+    }
+
+    /** Returns the reorder probability at the given time since the link was started. */
+    double getReorderProbability(long elapsedNanos) {
+        Phase phase = phaseAt(elapsedNanos);
+        return phase != null ? phase.reorderProbability : 0;
+    }
+
+    private Phase phaseAt(long elapsedNanos) {
+        Phase current = null;
+        long phaseEnd = 0;
+        for (Phase phase : phases) {
+            current = phase;
+            phaseEnd += phase.durationNanos;
+            if (elapsedNanos < phaseEnd) {
+                break;
+            }
+        }
+
+        return current;
+    }
+
+    private static void checkProbability(double probability) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("probability must be between 0 and 1: " + probability);
+        }
+    }
+
+}
@@ -8,15 +8,21 @@ package com.intel.missioncontrol.drone.connection.mavlink;
 
 import com.intel.missioncontrol.TestBase;
 import com.intel.missioncontrol.Waiter;
+import com.intel.missioncontrol.drone.connection.TcpIpTransportType;
 import java.time.Duration;
 import org.asyncfx.concurrent.CancellationSource;
 import org.asyncfx.concurrent.Dispatcher;
 import org.asyncfx.concurrent.FutureCompletionSource;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 class MavlinkTest extends TestBase {
 
+    // the heartbeat is sent once per second, so this takes a few seconds; the timeout only catches lost streams
+    private static final int MESSAGES_PER_STREAM = 3;
+    private static final Duration DELIVERY_TIMEOUT = Duration.ofSeconds(30);
+
     @BeforeAll
     static void init() {
     }
@@ -163,4 +169,34 @@ class MavlinkTest extends TestBase {
 
         waiter.assertTrue(fcs.getFuture().isCancelled());
     }
+
+    @Test
+    void telemetryLoad_Udp_DeliversEveryStream() throws Exception {
+        var config = VehicleEmulator.Config.defaultMix().vehicles(4).seed(1);
+
+        var result =
+            TelemetryLoadBenchmark.runUntilDelivered(
+                TcpIpTransportType.UDP, config, MESSAGES_PER_STREAM, DELIVERY_TIMEOUT);
+
+        Assertions.assertTrue(result.isEveryStreamDelivered(), result.toString());
+        Assertions.assertTrue(result.getLatency().getCount() > 0);
+    }
+
+    @Test
+    void telemetryLoad_Tcp_WithScriptedLoss_DeliversEveryStream() throws Exception {
+        var config =
+            VehicleEmulator.Config.defaultMix()
+                .vehicles(4)
+                .seed(1)
+                .impairment(LinkImpairment.constant(0.2, 0.05));
+
+        var result =
+            TelemetryLoadBenchmark.runUntilDelivered(
+                TcpIpTransportType.TCP, config, MESSAGES_PER_STREAM, DELIVERY_TIMEOUT);
+
+        Assertions.assertTrue(result.isEveryStreamDelivered(), result.toString());
+        Assertions.assertTrue(result.getDroppedCount() > 0);
+        Assertions.assertTrue(result.getReorderedCount() > 0);
+    }
+
 }
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import com.intel.missioncontrol.drone.SpecialDuration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MavlinkTimerTest {
+
+    private long nowNanos;
+    private final List<Runnable> queued = new ArrayList<>();
+
+    // 8 buckets of 10 ms, so delays above 80 ms need more than one revolution
+    private final MavlinkTimer timer = new MavlinkTimer(Duration.ofMillis(10), 8, queued::add, () -> nowNanos);
+
+    @Test
+    void timeout_FiresAfterDelayButNotBefore() {
+        int[] fired = new int[1];
+        MavlinkTimer.Timeout timeout = timer.newTimeout(t -> fired[0]++);
+        timeout.start(Duration.ofMillis(25));
+        Assertions.assertTrue(timeout.isPending());
+
+        advanceTo(29);
+        Assertions.assertEquals(0, fired[0]);
+        advanceTo(30);
+        Assertions.assertEquals(1, fired[0]);
+        Assertions.assertFalse(timeout.isPending());
+        Assertions.assertEquals(0, timer.getPendingCount());
+
+        advanceTo(500);
+        Assertions.assertEquals(1, fired[0]);
+    }
+
+    @Test
+    void timeout_WaitsForMoreThanOneRevolution() {
+        int[] fired = new int[1];
+        MavlinkTimer.Timeout timeout = timer.newTimeout(t -> fired[0]++);
+        timeout.start(Duration.ofMillis(250));
+
+        advanceTo(90);
+        advanceTo(170);
+        advanceTo(249);
+        Assertions.assertEquals(0, fired[0]);
+        advanceTo(250);
+        Assertions.assertEquals(1, fired[0]);
+    }
+
+    @Test
+    void refresh_PostponesTimeout() {
+        int[] fired = new int[1];
+        MavlinkTimer.Timeout timeout = timer.newTimeout(t -> fired[0]++);
+        timeout.start(Duration.ofMillis(50));
+        for (int i = 1; i <= 10; i++) {
+            advanceTo(40 * i);
+            timeout.start(Duration.ofMillis(50));
+        }
+
+        Assertions.assertEquals(0, fired[0]);
+        Assertions.assertEquals(1, timer.getPendingCount());
+        advanceTo(450);
+        Assertions.assertEquals(1, fired[0]);
+    }
+
+    @Test
+    void cancel_PreventsTimeoutEvenWhenAlreadyQueued() {
+        int[] fired = new int[1];
+        MavlinkTimer.Timeout timeout = timer.newTimeout(t -> fired[0]++);
+        Assertions.assertFalse(timeout.cancel());
+
+        timeout.start(Duration.ofMillis(20));
+        Assertions.assertTrue(timeout.cancel());
+        nowNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        timer.advance();
+        runQueued();
+        Assertions.assertEquals(0, fired[0]);
+
+        // expired and handed to the executor, but not run yet
+        timeout.start(Duration.ofMillis(20));
+        nowNanos = TimeUnit.MILLISECONDS.toNanos(200);
+        timer.advance();
+        Assertions.assertTrue(timeout.cancel());
+        runQueued();
+        Assertions.assertEquals(0, fired[0]);
+
+        timeout.start(Duration.ofMillis(20));
+        advanceTo(300);
+        Assertions.assertEquals(1, fired[0]);
+        Assertions.assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void start_ZeroDelayRunsRightAwayAndTaskMayRestart() {
+        List<Long> firedAt = new ArrayList<>();
+        MavlinkTimer.Timeout timeout =
+            timer.newTimeout(
+                t -> {
+                    firedAt.add(TimeUnit.NANOSECONDS.toMillis(nowNanos));
+                    if (firedAt.size() < 3) {
+                        t.start(Duration.ofMillis(100));
+                    }
+                });
+        timeout.start(Duration.ZERO);
+        runQueued();
+        Assertions.assertEquals(List.of(0L), firedAt);
+
+        for (int ms = 10; ms <= 1000; ms += 10) {
+            advanceTo(ms);
+        }
+
+        Assertions.assertEquals(List.of(0L, 100L, 200L), firedAt);
+    }
+
+    @Test
+    void start_IndefiniteDelayNeverFires() {
+        int[] fired = new int[1];
+        MavlinkTimer.Timeout timeout = timer.newTimeout(t -> fired[0]++);
+        timeout.start(SpecialDuration.INDEFINITE);
+        advanceTo(10_000);
+        Assertions.assertEquals(0, fired[0]);
+        Assertions.assertTrue(timeout.isPending());
+        Assertions.assertTrue(timeout.cancel());
+        Assertions.assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    void advance_CatchesUpAfterLongPause() {
+        int[] fired = new int[1];
+        for (int i = 1; i <= 100; i++) {
+            timer.newTimeout(t -> fired[0]++).start(Duration.ofMillis(7 * i));
+        }
+
+        advanceTo(5000);
+        Assertions.assertEquals(100, fired[0]);
+        Assertions.assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    void getProtocol_StripsSenderAndReceiver() {
+        Assertions.assertEquals("missionProtocol", ProtocolCounters.getProtocol(MissionProtocolSender.class));
+        Assertions.assertEquals(
+            "missionProtocol", ProtocolCounters.getProtocol(MissionProtocolSender.MissionItemSender.class));
+        Assertions.assertEquals("telemetry", ProtocolCounters.getProtocol(TelemetryReceiver.class));
+    }
+
+    private void advanceTo(long millis) {
+        nowNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        timer.advance();
+        runQueued();
+    }
+
+    private void runQueued() {
+        List<Runnable> runnables = new ArrayList<>(queued);
+        queued.clear();
+        runnables.forEach(Runnable::run);
+    }
+
+}
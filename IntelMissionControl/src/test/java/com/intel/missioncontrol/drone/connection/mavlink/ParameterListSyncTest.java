@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ParameterListSyncTest {
+
+    private static final Duration TICK = Duration.ofMillis(20);
+    private static final long RESPONSE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void sync_LosslessLinkNeedsOneListRequest() {
+        SimulatedParameterVehicle vehicle = new SimulatedParameterVehicle(500, 1);
+        ParameterListSync sync = new ParameterListSync(vehicle, null, false, 30, RESPONSE_TIMEOUT_NANOS);
+
+        Assertions.assertTrue(vehicle.run(sync, TICK, Duration.ofMinutes(1)));
+        Assertions.assertTrue(sync.isDone());
+        Assertions.assertEquals(1, sync.getListRequestCount());
+        Assertions.assertEquals(0, sync.getReadRequestCount());
+        assertSameParameters(vehicle.getParameters(), sync.getParameters());
+    }
+
+    @Test
+    void sync_LossyLinkRequestsOnlyMissingParameters() {
+        SimulatedParameterVehicle vehicle = new SimulatedParameterVehicle(1200, 2).loss(0.2);
+        ParameterListSync sync = new ParameterListSync(vehicle, null, false, 30, RESPONSE_TIMEOUT_NANOS);
+
+        Assertions.assertTrue(vehicle.run(sync, TICK, Duration.ofMinutes(5)));
+        Assertions.assertTrue(sync.isDone());
+        assertSameParameters(vehicle.getParameters(), sync.getParameters());
+
+        // about a fifth of the stream is lost, and a fifth of the reads and answers; much more means flooding
+        Assertions.assertTrue(sync.getReadRequestCount() < 1200 / 2, "reads: " + sync.getReadRequestCount());
+    }
+
+    @Test
+    void sync_FailsWhenVehicleDoesNotAnswer() {
+        SimulatedParameterVehicle vehicle = new SimulatedParameterVehicle(10, 3).loss(1);
+        ParameterListSync sync = new ParameterListSync(vehicle, null, false, 3, RESPONSE_TIMEOUT_NANOS);
+
+        Assertions.assertTrue(vehicle.run(sync, TICK, Duration.ofMinutes(1)));
+        Assertions.assertTrue(sync.isFailed());
+        Assertions.assertEquals(3, sync.getListRequestCount());
+    }
+
+    @Test
+    void sync_UsesSnapshotWhenHashIsUnchanged() {
+        SimulatedParameterVehicle vehicle = new SimulatedParameterVehicle(300, 4).hashSupported(true);
+        ParameterListSync first = new ParameterListSync(vehicle, null, true, 30, RESPONSE_TIMEOUT_NANOS);
+        Assertions.assertTrue(vehicle.run(first, TICK, Duration.ofMinutes(1)));
+        Assertions.assertFalse(first.isFromSnapshot());
+        Assertions.assertEquals(
+            Integer.valueOf(ParameterListSync.computeHash(vehicle.getParameters())), first.getVehicleHash());
+
+        ParameterSnapshot snapshot = new ParameterSnapshot(first.getParameters(), first.getVehicleHash());
+        ParameterListSync second = new ParameterListSync(vehicle, snapshot, true, 30, RESPONSE_TIMEOUT_NANOS);
+        Assertions.assertTrue(vehicle.run(second, TICK, Duration.ofMinutes(1)));
+        Assertions.assertTrue(second.isFromSnapshot());
+        Assertions.assertEquals(0, second.getListRequestCount());
+        assertSameParameters(vehicle.getParameters(), second.getParameters());
+
+        vehicle.setParameter(7, 42);
+        ParameterListSync third = new ParameterListSync(vehicle, snapshot, true, 30, RESPONSE_TIMEOUT_NANOS);
+        Assertions.assertTrue(vehicle.run(third, TICK, Duration.ofMinutes(1)));
+        Assertions.assertFalse(third.isFromSnapshot());
+        Assertions.assertEquals(1, third.getListRequestCount());
+        assertSameParameters(vehicle.getParameters(), third.getParameters());
+    }
+
+    @Test
+    void sync_StreamsWhenVehicleHasNoHash() {
+        SimulatedParameterVehicle vehicle = new SimulatedParameterVehicle(100, 5);
+        ParameterSnapshot snapshot = new ParameterSnapshot(vehicle.getParameters(), 1234);
+        ParameterListSync sync = new ParameterListSync(vehicle, snapshot, true, 30, RESPONSE_TIMEOUT_NANOS);
+
+        Assertions.assertTrue(vehicle.run(sync, TICK, Duration.ofMinutes(1)));
+        Assertions.assertTrue(sync.isDone());
+        Assertions.assertFalse(sync.isFromSnapshot());
+        Assertions.assertNull(sync.getVehicleHash());
+        assertSameParameters(vehicle.getParameters(), sync.getParameters());
+    }
+
+    @Test
+    void cache_StoresAndLoadsSnapshot() throws IOException {
+        Path directory = Files.createTempDirectory("params");
+        try {
+            ParameterCache cache = new ParameterCache(directory);
+            Assertions.assertNull(cache.load("uid-1"));
+
+            List<Parameter> parameters = new SimulatedParameterVehicle(50, 6).getParameters();
+            cache.store("uid-1", new ParameterSnapshot(parameters, -17));
+            ParameterSnapshot loaded = cache.load("uid-1");
+            Assertions.assertNotNull(loaded);
+            Assertions.assertEquals(Integer.valueOf(-17), loaded.getHash());
+            assertSameParameters(parameters, loaded.getParameters());
+            Assertions.assertNull(cache.load("uid-2"));
+
+            cache.store("uid-1", new ParameterSnapshot(parameters.subList(0, 3), null));
+            loaded = cache.load("uid-1");
+            Assertions.assertNull(loaded.getHash());
+            Assertions.assertEquals(3, loaded.getParameters().size());
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>)files::iterator) {
+                    Files.delete(file);
+                }
+            }
+
+            Files.delete(directory);
+        }
+    }
+
+    private static void assertSameParameters(List<Parameter> expected, List<Parameter> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            Assertions.assertEquals(expected.get(i).getType(), actual.get(i).getType());
+            Assertions.assertEquals(
+                Float.floatToRawIntBits(expected.get(i).getRawFloatValue()),
+                Float.floatToRawIntBits(actual.get(i).getRawFloatValue()));
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import io.dronefleet.mavlink.common.ParamValue;
+import java.time.Duration;
+import java.util.BitSet;
+
+/**
+ * Compares the download of a complete parameter list over a simulated telemetry link. The former download requested
+ * parameter 0 and then all other parameters at once by index, each repeated every second until answered. The
+ * {@link ParameterListSync} streams the list and only requests the missing parameters, with a bounded number of reads
+ * in flight.
+ *
+ * <p>Reported are the simulated time until the list is complete and the number of requests and parameter values sent.
+ *
+ * <p>Usage: {@code ParameterSyncBenchmark [parameters] [latencyMillis] [packetMillis]}
+ */
+public final class ParameterSyncBenchmark {
+
+    private static final Duration TICK = Duration.ofMillis(20);
+    private static final Duration MAX_TIME = Duration.ofMinutes(10);
+    private static final long RETRY_NANOS = PayloadSender.defaultResponseTimeoutPerRepetition.toNanos();
+
+    /** The former download, repeating each read every second until answered. */
+    private static class LegacyDownload {
+        private final SimulatedParameterVehicle vehicle;
+        private BitSet received;
+        private int receivedCount;
+        private int count = -1;
+        private int requestCount;
+        private boolean failed;
+
+        LegacyDownload(SimulatedParameterVehicle vehicle) {
+            this.vehicle = vehicle;
+        }
+
+        boolean run() {
+            vehicle.setReceiver(this::onParamValue);
+            request(0, 0);
+            return vehicle.runUntil(() -> failed || (count >= 0 && receivedCount == count), MAX_TIME) && !failed;
+        }
+
+        private void onParamValue(ParamValue value) {
+            if (count < 0) {
+                count = value.paramCount();
+                received = new BitSet(count);
+                for (int i = 0; i < count; i++) {
+                    request(i, 0);
+                }
+            }
+
+            if (!received.get(value.paramIndex())) {
+                received.set(value.paramIndex());
+                receivedCount++;
+            }
+        }
+
+        private void request(int index, int repetition) {
+            if ((received != null && received.get(index)) || (index == 0 && count >= 0 && repetition > 0)) {
+                return;
+            }
+
+            if (repetition >= PayloadSender.defaultRepetitions) {
+                failed = true;
+                return;
+            }
+
+            requestCount++;
+            vehicle.requestRead(index);
+            vehicle.schedule(RETRY_NANOS, () -> request(index, repetition + 1));
+        }
+    }
+
+    public static void main(String[] args) {
+        int parameters = args.length > 0 ? Integer.parseInt(args[0]) : 1200;
+        Duration latency = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 40);
+        Duration packetTime = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 2);
+
+        System.out.println(
+            "parameters: " + parameters + ", latency: " + latency.toMillis() + " ms, packet time: "
+                + packetTime.toMillis() + " ms");
+        System.out.println(
+            String.format("%-6s %-10s %10s %10s %10s", "loss", "method", "seconds", "requests", "values"));
+        for (double loss : new double[] {0, 0.02, 0.1, 0.3}) {
+            SimulatedParameterVehicle legacyVehicle =
+                new SimulatedParameterVehicle(parameters, 1).latency(latency).packetTime(packetTime).loss(loss);
+            LegacyDownload legacy = new LegacyDownload(legacyVehicle);
+            boolean legacyDone = legacy.run();
+            print(loss, "read-all", legacyDone, legacyVehicle.now(), legacy.requestCount, legacyVehicle);
+
+            SimulatedParameterVehicle syncVehicle =
+                new SimulatedParameterVehicle(parameters, 1).latency(latency).packetTime(packetTime).loss(loss);
+            ParameterListSync sync =
+                new ParameterListSync(syncVehicle, null, false, PayloadSender.defaultRepetitions, RETRY_NANOS);
+            boolean syncDone = syncVehicle.run(sync, TICK, MAX_TIME) && sync.isDone();
+            print(
+                loss,
+                "stream",
+                syncDone,
+                syncVehicle.now(),
+                sync.getListRequestCount() + sync.getReadRequestCount(),
+                syncVehicle);
+        }
+    }
+
+    private static void print(
+            double loss, String method, boolean done, long nanos, int requests, SimulatedParameterVehicle vehicle) {
+        System.out.println(
+            String.format(
+                "%-6.2f %-10s %10s %10d %10d",
+                loss,
+                method,
+                done ? String.format("%.2f", nanos / 1e9) : "failed",
+                requests,
+                vehicle.getSentCount()));
+    }
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import io.dronefleet.mavlink.common.MavParamType;
+import io.dronefleet.mavlink.common.ParamValue;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A vehicle that answers the parameter protocol over a simulated link, driven by a discrete event clock instead of
+ * wall time. Both directions of the link have the same latency, loss probability and packet rate; a direction drops
+ * packets while its send queue is full, like the buffer of a telemetry radio.
+ *
+ * <p>The vehicle streams its list paced by the free space of the downlink queue, answers reads by index and by id and,
+ * if enabled, reports a PX4 style _HASH_CHECK parameter.
+ */
+final class SimulatedParameterVehicle implements ParameterListSync.Link {
+
+    private static class Event implements Comparable<Event> {
+        final long timeNanos;
+        final long sequence;
+        final Runnable action;
+
+        Event(long timeNanos, long sequence, Runnable action) {
+            this.timeNanos = timeNanos;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int result = Long.compare(timeNanos, other.timeNanos);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final MavParamType[] TYPES = {
+        MavParamType.MAV_PARAM_TYPE_REAL32, MavParamType.MAV_PARAM_TYPE_INT32, MavParamType.MAV_PARAM_TYPE_INT8
+    };
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final Random random;
+    private final List<Parameter> parameters = new ArrayList<>();
+    private long nowNanos;
+    private long sequence;
+
+    private long latencyNanos = Duration.ofMillis(40).toNanos();
+    private long packetNanos = Duration.ofMillis(2).toNanos();
+    private double lossProbability;
+    private int queueLimit = 32;
+    private boolean hashSupported;
+
+    private long uplinkFreeNanos;
+    private long downlinkFreeNanos;
+    private int streamIndex = -1;
+    private boolean streamScheduled;
+    private Consumer<ParamValue> receiver = v -> {};
+
+    private int requestCount;
+    private int sentCount;
+
+    SimulatedParameterVehicle(int count, long seed) {
+        random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            MavParamType type = TYPES[i % TYPES.length];
+            float value = type == MavParamType.MAV_PARAM_TYPE_REAL32 ? random.nextFloat() : random.nextInt(100);
+            parameters.add(Parameter.create(String.format("PARAM_%04d", i), value, type));
+        }
+    }
+
+    SimulatedParameterVehicle latency(Duration latency) {
+        latencyNanos = latency.toNanos();
+        return this;
+    }
+
+    /** The time one packet occupies the link, i.e. the inverse of the packet rate. */
+    SimulatedParameterVehicle packetTime(Duration packetTime) {
+        packetNanos = packetTime.toNanos();
+        return this;
+    }
+
+    SimulatedParameterVehicle loss(double lossProbability) {
+        this.lossProbability = lossProbability;
+        return this;
+    }
+
+    SimulatedParameterVehicle queueLimit(int packets) {
+        queueLimit = packets;
+        return this;
+    }
+
+    SimulatedParameterVehicle hashSupported(boolean hashSupported) {
+        this.hashSupported = hashSupported;
+        return this;
+    }
+
+    void setReceiver(Consumer<ParamValue> receiver) {
+        this.receiver = receiver;
+    }
+
+    long now() {
+        return nowNanos;
+    }
+
+    void schedule(long delayNanos, Runnable action) {
+        events.add(new Event(nowNanos + delayNanos, sequence++, action));
+    }
+
+    /** Processes events until the condition holds or the given simulated time has passed. */
+    boolean runUntil(BooleanSupplier condition, Duration maxTime) {
+        long endNanos = nowNanos + maxTime.toNanos();
+        while (!condition.getAsBoolean()) {
+            Event event = events.poll();
+            if (event == null || event.timeNanos > endNanos) {
+                return false;
+            }
+
+            nowNanos = event.timeNanos;
+            event.action.run();
+        }
+
+        return true;
+    }
+
+    /** Runs the given sync against this vehicle, ticking it in the given interval. */
+    boolean run(ParameterListSync sync, Duration tick, Duration maxTime) {
+        setReceiver(value -> sync.onParamValue(value, nowNanos));
+        long tickNanos = tick.toNanos();
+        Runnable[] ticker = new Runnable[1];
+        ticker[0] =
+            () -> {
+                sync.onTick(nowNanos);
+                if (!sync.isDone() && !sync.isFailed()) {
+                    schedule(tickNanos, ticker[0]);
+                }
+            };
+        sync.start(nowNanos);
+        schedule(tickNanos, ticker[0]);
+        return runUntil(() -> sync.isDone() || sync.isFailed(), maxTime);
+    }
+
+    List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    void setParameter(int index, float value) {
+        Parameter parameter = parameters.get(index);
+        parameters.set(index, Parameter.create(parameter.getId(), value, parameter.getType()));
+    }
+
+    /** The number of requests that reached the vehicle. */
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    /** The number of parameter values the vehicle put on the downlink. */
+    int getSentCount() {
+        return sentCount;
+    }
+
+    @Override
+    public void requestList() {
+        uplink(
+            () -> {
+                streamIndex = 0;
+                scheduleStream();
+            });
+    }
+
+    @Override
+    public void requestRead(int paramIndex) {
+        uplink(
+            () -> {
+                if (paramIndex >= 0 && paramIndex < parameters.size()) {
+                    downlink(toValue(paramIndex));
+                }
+            });
+    }
+
+    @Override
+    public void requestRead(String paramId) {
+        uplink(
+            () -> {
+                if (ParameterListSync.HASH_PARAM_ID.equals(paramId)) {
+                    if (hashSupported) {
+                        downlink(
+                            ParamValue.builder()
+                                .paramId(paramId)
+                                .paramType(MavParamType.MAV_PARAM_TYPE_INT32)
+                                .paramValue(Float.intBitsToFloat(ParameterListSync.computeHash(parameters)))
+                                .paramIndex(-1)
+                                .paramCount(parameters.size())
+                                .build());
+                    }
+
+                    return;
+                }
+
+                for (int i = 0; i < parameters.size(); i++) {
+                    if (parameters.get(i).getId().equals(paramId)) {
+                        downlink(toValue(i));
+                    }
+                }
+            });
+    }
+
+    private ParamValue toValue(int index) {
+        Parameter parameter = parameters.get(index);
+        return ParamValue.builder()
+            .paramId(parameter.getId())
+            .paramType(parameter.getType())
+            .paramValue(parameter.getRawFloatValue())
+            .paramIndex(index)
+            .paramCount(parameters.size())
+            .build();
+    }
+
+    private void uplink(Runnable request) {
+        long arrivalNanos = transmit(true);
+        if (arrivalNanos >= 0) {
+            events.add(
+                new Event(
+                    arrivalNanos,
+                    sequence++,
+                    () -> {
+                        requestCount++;
+                        request.run();
+                    }));
+        }
+    }
+
+    private void downlink(ParamValue value) {
+        sentCount++;
+        long arrivalNanos = transmit(false);
+        if (arrivalNanos >= 0) {
+            events.add(new Event(arrivalNanos, sequence++, () -> receiver.accept(value)));
+        }
+    }
+
+    /** Queues a packet in one direction and returns its arrival time, or -1 if it is lost. */
+    private long transmit(boolean up) {
+        long freeNanos = Math.max(nowNanos, up ? uplinkFreeNanos : downlinkFreeNanos);
+        if (freeNanos - nowNanos >= queueLimit * packetNanos) {
+            return -1;
+        }
+
+        freeNanos += packetNanos;
+        if (up) {
+            uplinkFreeNanos = freeNanos;
+        } else {
+            downlinkFreeNanos = freeNanos;
+        }
+
+        return random.nextDouble() < lossProbability ? -1 : freeNanos + latencyNanos;
+    }
+
+    private void scheduleStream() {
+        if (streamScheduled) {
+            return;
+        }
+
+        streamScheduled = true;
+        schedule(
+            Math.max(0, downlinkFreeNanos - nowNanos - packetNanos),
+            () -> {
+                streamScheduled = false;
+                if (streamIndex < 0 || streamIndex >= parameters.size()) {
+                    streamIndex = -1;
+                    return;
+                }
+
+                // the stream only uses free space, so it never overflows the queue
+                if (downlinkFreeNanos - nowNanos < (queueLimit - 1) * packetNanos) {
+                    downlink(toValue(streamIndex++));
+                }
+
+                scheduleStream();
+            });
+    }
+
+}
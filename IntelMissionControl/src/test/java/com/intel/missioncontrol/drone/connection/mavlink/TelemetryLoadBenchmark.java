@@ -0,0 +1,402 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import com.intel.missioncontrol.drone.connection.TcpIpTransportType;
+import eu.mavinci.desktop.main.debug.profiling.metrics.LatencyHistogram;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import gov.nasa.worldwind.geom.Angle;
+import gov.nasa.worldwind.geom.Position;
+import io.dronefleet.mavlink.common.Attitude;
+import io.dronefleet.mavlink.common.GlobalPositionInt;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.asyncfx.beans.property.AsyncBooleanProperty;
+import org.asyncfx.beans.property.AsyncObjectProperty;
+import org.asyncfx.beans.property.PropertyMetadata;
+import org.asyncfx.beans.property.SimpleAsyncBooleanProperty;
+import org.asyncfx.beans.property.SimpleAsyncObjectProperty;
+import org.asyncfx.concurrent.CancellationSource;
+
+/**
+ * End-to-end telemetry load test of the netty based MAVLink connection. A {@link VehicleEmulator} streams telemetry of
+ * many vehicles over loopback into the real {@link UdpBroadcastListener} or {@link TcpClient}; the packets are decoded
+ * and dispatched by {@link MavlinkHandler} to one {@link TelemetryReceiver} per vehicle, which updates async
+ * properties like {@link com.intel.missioncontrol.drone.MavlinkDrone} does.
+ *
+ * <p>After a warmup, the benchmark reports the received message rate, delivery ratio, the latency percentiles from
+ * writing a packet in the emulator to the property update, and the bytes allocated by all threads per message. Tests
+ * use {@link #runUntilDelivered} instead, which doesn't depend on the throughput of the machine.
+ *
+ * <p>Usage: {@code TelemetryLoadBenchmark [udp|tcp] [vehicles] [seconds] [lossProbability] [reorderProbability]}
+ */
+public final class TelemetryLoadBenchmark {
+
+    private static final Duration RECEIVER_TIMEOUT = Duration.ofSeconds(5);
+
+    /** The telemetry state of one vehicle, as held by a drone model. */
+    private static class VehicleModel {
+        final AsyncObjectProperty<Position> position = new SimpleAsyncObjectProperty<>(this);
+        final AsyncObjectProperty<Attitude> attitude = new SimpleAsyncObjectProperty<>(this);
+        final AsyncBooleanProperty telemetryOld =
+            new SimpleAsyncBooleanProperty(this, new PropertyMetadata.Builder<Boolean>().initialValue(false).create());
+    }
+
+    public static class Result {
+        private final double seconds;
+        private final long sent;
+        private final long dropped;
+        private final long reordered;
+        private final long received;
+        private final Map<VehicleEmulator.Stream, Long> receivedPerStream;
+        private final long timeouts;
+        private final LatencyHistogram.Snapshot latency;
+        private final long allocatedBytes;
+        private final long gcCount;
+        private final boolean everyStreamDelivered;
+
+        Result(
+                double seconds,
+                long sent,
+                long dropped,
+                long reordered,
+                long received,
+                Map<VehicleEmulator.Stream, Long> receivedPerStream,
+                long timeouts,
+                LatencyHistogram.Snapshot latency,
+                long allocatedBytes,
+                long gcCount,
+                boolean everyStreamDelivered) {
+            this.seconds = seconds;
+            this.sent = sent;
+            this.dropped = dropped;
+            this.reordered = reordered;
+            this.received = received;
+            this.receivedPerStream = receivedPerStream;
+            this.timeouts = timeouts;
+            this.latency = latency;
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.everyStreamDelivered = everyStreamDelivered;
+        }
+
+        public long getSentCount() {
+            return sent;
+        }
+
+        public long getDroppedCount() {
+            return dropped;
+        }
+
+        public long getReorderedCount() {
+            return reordered;
+        }
+
+        public long getReceivedCount() {
+            return received;
+        }
+
+        public long getReceivedCount(VehicleEmulator.Stream stream) {
+            return receivedPerStream.getOrDefault(stream, 0L);
+        }
+
+        public long getTimeoutCount() {
+            return timeouts;
+        }
+
+        public double getMessagesPerSecond() {
+            return received / seconds;
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        /** Whether every stream of every vehicle delivered the expected number of messages. */
+        public boolean isEveryStreamDelivered() {
+            return everyStreamDelivered;
+        }
+
+        /** Bytes allocated by all threads per received message, or -1 if the JVM doesn't measure allocations. */
+        public double getAllocatedBytesPerMessage() {
+            return allocatedBytes < 0 || received == 0 ? -1 : (double)allocatedBytes / received;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%.0f msg/s received (%d of %d sent, %d dropped, %d reordered, %d timeouts)%n"
+                    + "latency us: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n"
+                    + "allocation: %.2f MB/s, %.0f bytes/msg, %d GCs%n"
+                    + "per stream: %s",
+                getMessagesPerSecond(),
+                received,
+                sent,
+                dropped,
+                reordered,
+                timeouts,
+                latency.getValueAtPercentile(50) / 1e3,
+                latency.getValueAtPercentile(90) / 1e3,
+                latency.getValueAtPercentile(99) / 1e3,
+                latency.getValueAtPercentile(99.9) / 1e3,
+                latency.getMaxNanos() / 1e3,
+                allocatedBytes / seconds / 1e6,
+                getAllocatedBytesPerMessage(),
+                gcCount,
+                receivedPerStream);
+        }
+    }
+
+    private final Map<VehicleEmulator.Stream, LongAdder> receivedPerStream =
+        new EnumMap<>(VehicleEmulator.Stream.class);
+    private final LongAdder timeouts = new LongAdder();
+    private volatile VehicleEmulator emulator;
+    private volatile LatencyHistogram latency = new MetricsRegistry().histogram("warmup");
+    private volatile CountDownLatch undeliveredStreams;
+
+    private TelemetryLoadBenchmark() {
+        for (VehicleEmulator.Stream stream : VehicleEmulator.Stream.values()) {
+            receivedPerStream.put(stream, new LongAdder());
+        }
+    }
+
+    /**
+     * Streams the telemetry of the given configuration over the given transport and measures the receiving side.
+     * Packets lost to the link impairment are counted as dropped, not as sent.
+     */
+    public static Result run(
+            TcpIpTransportType transport, VehicleEmulator.Config config, Duration warmup, Duration duration)
+            throws Exception {
+        return new TelemetryLoadBenchmark().execute(transport, config, warmup, duration, 1, false);
+    }
+
+    /**
+     * Streams the telemetry of the given configuration over the given transport until every stream of every vehicle
+     * delivered the given number of messages, or the timeout elapsed. There is no warmup, and the result covers the
+     * whole run.
+     */
+    public static Result runUntilDelivered(
+            TcpIpTransportType transport, VehicleEmulator.Config config, int messagesPerStream, Duration timeout)
+            throws Exception {
+        return new TelemetryLoadBenchmark().execute(transport, config, Duration.ZERO, timeout, messagesPerStream, true);
+    }
+
+    private Result execute(
+            TcpIpTransportType transport,
+            VehicleEmulator.Config config,
+            Duration warmup,
+            Duration duration,
+            int messagesPerStream,
+            boolean untilDelivered)
+            throws Exception {
+        CancellationSource cancellationSource = new CancellationSource();
+        try {
+            MavlinkHandler handler;
+            if (transport == TcpIpTransportType.UDP) {
+                UdpBroadcastListener listener = new UdpBroadcastListener();
+                listener.bindAsync(0, cancellationSource).get();
+                handler = listener.getHandler();
+                int port = ((InetSocketAddress)handler.getChannel().localAddress()).getPort();
+                emulator = VehicleEmulator.udp(config, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            } else {
+                emulator = VehicleEmulator.tcpServer(config);
+                TcpClient tcpClient = new TcpClient();
+                tcpClient.connectAsync(emulator.getLocalAddress(), Duration.ofSeconds(5), cancellationSource).get();
+                handler = tcpClient.getHandler();
+            }
+
+            undeliveredStreams = new CountDownLatch(emulator.getSystemIds().size() * config.getRatesHz().size());
+            for (int systemId : emulator.getSystemIds()) {
+                registerVehicle(transport, handler, systemId, config, messagesPerStream, cancellationSource);
+            }
+
+            emulator.start();
+            Thread.sleep(warmup.toMillis());
+
+            // start measuring
+            latency = new MetricsRegistry().histogram("latency");
+            receivedPerStream.values().forEach(LongAdder::reset);
+            timeouts.reset();
+            long sentStart = emulator.getSentCount();
+            long droppedStart = emulator.getDroppedCount();
+            long reorderedStart = emulator.getReorderedCount();
+            long allocatedStart = getAllocatedBytes();
+            long gcStart = getGcCount();
+            long startNanos = System.nanoTime();
+
+            if (untilDelivered) {
+                undeliveredStreams.await(duration.toMillis(), TimeUnit.MILLISECONDS);
+            } else {
+                Thread.sleep(duration.toMillis());
+            }
+
+            long allocatedEnd = getAllocatedBytes();
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            Map<VehicleEmulator.Stream, Long> received = new EnumMap<>(VehicleEmulator.Stream.class);
+            long receivedTotal = 0;
+            for (Map.Entry<VehicleEmulator.Stream, LongAdder> entry : receivedPerStream.entrySet()) {
+                long count = entry.getValue().sum();
+                received.put(entry.getKey(), count);
+                receivedTotal += count;
+            }
+
+            return new Result(
+                seconds,
+                emulator.getSentCount() - sentStart,
+                emulator.getDroppedCount() - droppedStart,
+                emulator.getReorderedCount() - reorderedStart,
+                receivedTotal,
+                received,
+                timeouts.sum(),
+                latency.snapshot(),
+                allocatedStart < 0 || allocatedEnd < 0 ? -1 : allocatedEnd - allocatedStart,
+                getGcCount() - gcStart,
+                undeliveredStreams.getCount() == 0);
+        } finally {
+            if (emulator != null) {
+                emulator.close();
+            }
+
+            cancellationSource.cancel();
+        }
+    }
+
+    private void registerVehicle(
+            TcpIpTransportType transport,
+            MavlinkHandler handler,
+            int systemId,
+            VehicleEmulator.Config config,
+            int messagesPerStream,
+            CancellationSource cancellationSource) {
+        MavlinkEndpoint endpoint =
+            new MavlinkEndpoint(transport, emulator.getLocalAddress(), systemId, VehicleEmulator.COMPONENT_ID);
+        TelemetryReceiver receiver = new TelemetryReceiver(endpoint, handler, cancellationSource);
+        VehicleModel model = new VehicleModel();
+        for (VehicleEmulator.Stream stream : config.getRatesHz().keySet()) {
+            LongAdder received = receivedPerStream.get(stream);
+            AtomicLong delivered = new AtomicLong();
+            receiver.registerTelemetryCallbackAsync(
+                stream.getPayloadType(),
+                receivedPayload -> {
+                    onReceived(model, systemId, receivedPayload.getPayload());
+                    received.increment();
+                    if (delivered.incrementAndGet() == messagesPerStream) {
+                        undeliveredStreams.countDown();
+                    }
+                },
+                RECEIVER_TIMEOUT,
+                () -> {
+                    model.telemetryOld.set(true);
+                    timeouts.increment();
+                });
+        }
+    }
+
+    private void onReceived(VehicleModel model, int systemId, Object payload) {
+        model.telemetryOld.set(false);
+        if (payload instanceof GlobalPositionInt) {
+            GlobalPositionInt globalPosition = (GlobalPositionInt)payload;
+            model.position.set(
+                new Position(
+                    Angle.fromDegreesLatitude(((double)globalPosition.lat() * 1e-7)),
+                    Angle.fromDegreesLongitude(((double)globalPosition.lon() * 1e-7)),
+                    ((double)globalPosition.relativeAlt() * 0.001)));
+            recordLatency(systemId, globalPosition.timeBootMs());
+        } else if (payload instanceof Attitude) {
+            Attitude attitude = (Attitude)payload;
+            model.attitude.set(attitude);
+            recordLatency(systemId, attitude.timeBootMs());
+        }
+    }
+
+    private void recordLatency(int systemId, long stamp) {
+        long sendNanos = emulator.getSendNanos(systemId, stamp);
+        if (sendNanos != 0) {
+            latency.recordSince(sendNanos);
+        }
+    }
+
+    /** Returns the bytes allocated so far by all live threads, or -1 if not supported by the JVM. */
+    private static long getAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        long total = 0;
+        for (long bytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+
+        return total;
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gcBean.getCollectionCount());
+        }
+
+        return count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        TcpIpTransportType transport =
+            args.length > 0 && args[0].equalsIgnoreCase("tcp") ? TcpIpTransportType.TCP : TcpIpTransportType.UDP;
+        int vehicles = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        double loss = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        double reorder = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        VehicleEmulator.Config config =
+            VehicleEmulator.Config.defaultMix()
+                .vehicles(vehicles)
+                .impairment(LinkImpairment.constant(loss, reorder))
+                .seed(42);
+
+        System.out.println(
+            String.format(
+                "%s, %d vehicles, %.0f msg/s offered, loss %.3f, reorder %.3f",
+                transport,
+                vehicles,
+                config.getMessageRate(),
+                loss,
+                reorder));
+
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Result result = run(transport, config, Duration.ofSeconds(5), Duration.ofSeconds(seconds));
+            results.add(result);
+            System.out.println("run " + (i + 1) + ": " + result);
+        }
+
+        System.out.println(
+            String.format(
+                "best throughput: %.0f msg/s",
+                results.stream().mapToDouble(Result::getMessagesPerSecond).max().orElse(0)));
+        System.exit(0);
+    }
+
+}
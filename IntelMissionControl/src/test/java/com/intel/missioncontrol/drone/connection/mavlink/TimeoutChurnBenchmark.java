@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import org.asyncfx.concurrent.CancellationSource;
+import org.asyncfx.concurrent.Dispatcher;
+
+/**
+ * Simulates thousands of concurrent in-flight MAVLink requests. Every request has a response timeout that is
+ * refreshed whenever a message of the request arrives, like the receivers of the mission and telemetry protocols do;
+ * now and then a request completes, cancelling its timeout, and a new one is started. This is done with one cancellable
+ * delayed task per refresh on the background dispatcher, as before, and with a reusable {@link MavlinkTimer.Timeout}.
+ *
+ * <p>Reports refresh operations per second and the bytes allocated per operation by the refreshing threads. No
+ * timeout should expire, since all requests are refreshed well within their timeout.
+ *
+ * <p>Usage: {@code TimeoutChurnBenchmark [requests] [threads] [seconds]}
+ */
+public final class TimeoutChurnBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final int COMPLETE_EVERY = 50;
+
+    private interface Request {
+        void refresh();
+
+        void complete();
+    }
+
+    /** The former refreshable timeout, with a new cancellation source and delayed task per refresh. */
+    private static class DispatcherRequest implements Request {
+        private final Runnable onTimeout;
+        private CancellationSource cancellationSource;
+
+        DispatcherRequest(Runnable onTimeout) {
+            this.onTimeout = onTimeout;
+        }
+
+        @Override
+        public synchronized void refresh() {
+            if (cancellationSource != null) {
+                cancellationSource.cancel();
+            }
+
+            cancellationSource = new CancellationSource();
+            Dispatcher.background().runLaterAsync(onTimeout, TIMEOUT, cancellationSource);
+        }
+
+        @Override
+        public synchronized void complete() {
+            if (cancellationSource != null) {
+                cancellationSource.cancel();
+                cancellationSource = null;
+            }
+        }
+    }
+
+    private static class TimerRequest implements Request {
+        private final MavlinkTimer.Timeout timeout;
+
+        TimerRequest(Runnable onTimeout) {
+            timeout = MavlinkTimer.getDefault().newTimeout(t -> onTimeout.run());
+        }
+
+        @Override
+        public void refresh() {
+            timeout.start(TIMEOUT);
+        }
+
+        @Override
+        public void complete() {
+            timeout.cancel();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+
+        System.out.println("requests: " + requests + ", threads: " + threads + ", seconds: " + seconds);
+        for (int round = 0; round < 2; round++) {
+            // the first round is warmup
+            run("dispatcher", requests, threads, seconds, DispatcherRequest::new, round > 0);
+            run("wheel", requests, threads, seconds, TimerRequest::new, round > 0);
+        }
+
+        System.out.println(
+            "pending wheel timeouts after completion: " + MavlinkTimer.getDefault().getPendingCount());
+    }
+
+    private interface RequestFactory {
+        Request create(Runnable onTimeout);
+    }
+
+    private static void run(
+            String name, int requestCount, int threadCount, double seconds, RequestFactory factory, boolean print)
+            throws InterruptedException {
+        LongAdder timeouts = new LongAdder();
+        Request[] requests = new Request[requestCount];
+        for (int i = 0; i < requestCount; i++) {
+            requests[i] = factory.create(timeouts::increment);
+            requests[i].refresh();
+        }
+
+        LongAdder operations = new LongAdder();
+        LongAdder allocated = new LongAdder();
+        long endNanos = System.nanoTime() + (long)(seconds * 1e9);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int seed = t;
+            Thread thread =
+                new Thread(
+                    () -> {
+                        Random random = new Random(seed);
+                        long allocatedStart = getAllocatedBytes();
+                        long count = 0;
+                        while ((count & 1023) != 0 || System.nanoTime() < endNanos) {
+                            Request request = requests[random.nextInt(requests.length)];
+                            if (random.nextInt(COMPLETE_EVERY) == 0) {
+                                request.complete();
+                            }
+
+                            request.refresh();
+                            count++;
+                        }
+
+                        operations.add(count);
+                        allocated.add(allocatedStart < 0 ? 0 : getAllocatedBytes() - allocatedStart);
+                    });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (Request request : requests) {
+            request.complete();
+        }
+
+        if (print) {
+            long ops = operations.sum();
+            System.out.println(
+                String.format(
+                    "%-10s %12.0f ops/s %10s bytes/op %6d timeouts",
+                    name,
+                    ops / seconds,
+                    getAllocatedBytes() < 0 ? "n/a" : String.format("%.1f", (double)allocated.sum() / ops),
+                    timeouts.sum()));
+        }
+    }
+
+    /** The bytes allocated by the current thread, or -1 if unknown. */
+    private static long getAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
@@ -0,0 +1,516 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.drone.connection.mavlink;
+
+import io.dronefleet.mavlink.Mavlink2Message;
+import io.dronefleet.mavlink.annotations.MavlinkMessageInfo;
+import io.dronefleet.mavlink.common.Attitude;
+import io.dronefleet.mavlink.common.GlobalPositionInt;
+import io.dronefleet.mavlink.common.GpsFixType;
+import io.dronefleet.mavlink.common.GpsRawInt;
+import io.dronefleet.mavlink.common.Heartbeat;
+import io.dronefleet.mavlink.common.MavAutopilot;
+import io.dronefleet.mavlink.common.MavModeFlag;
+import io.dronefleet.mavlink.common.MavState;
+import io.dronefleet.mavlink.common.MavType;
+import io.dronefleet.mavlink.common.VfrHud;
+import io.dronefleet.mavlink.protocol.MavlinkPacket;
+import io.dronefleet.mavlink.serialization.payload.MavlinkPayloadSerializer;
+import io.dronefleet.mavlink.serialization.payload.reflection.ReflectionPayloadSerializer;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stand-in for a number of MAVLink vehicles (e.g. SITL instances) on the loopback interface. Every virtual vehicle
+ * streams telemetry at the configured rates, either as UDP datagrams to a listening ground station or over TCP to all
+ * clients connected to the emulator.
+ *
+ * <p>Packets are generated on a single thread in the order of their due time. Each packet can be lost or reordered
+ * according to a {@link LinkImpairment} script; all randomness is derived from the configured seed. ATTITUDE and
+ * GLOBAL_POSITION_INT messages carry a per-vehicle stamp in their time_boot_ms field, and the time at which a stamped
+ * packet was written to the channel can be looked up with {@link #getSendNanos(int, long)} to measure end-to-end
+ * latency.
+ */
+public class VehicleEmulator implements AutoCloseable {
+
+    static final int COMPONENT_ID = 1;
+
+    private static final int STAMP_RING_SIZE = 1 << 16;
+    private static final int STAMP_RING_MASK = STAMP_RING_SIZE - 1;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int MAX_UNFLUSHED_PACKETS = 64;
+
+    public enum Stream {
+        HEARTBEAT(Heartbeat.class, false),
+        ATTITUDE(Attitude.class, true),
+        GLOBAL_POSITION_INT(GlobalPositionInt.class, true),
+        GPS_RAW_INT(GpsRawInt.class, false),
+        VFR_HUD(VfrHud.class, false);
+
+        private final Class<?> payloadType;
+        private final boolean stamped;
+
+        Stream(Class<?> payloadType, boolean stamped) {
+            this.payloadType = payloadType;
+            this.stamped = stamped;
+        }
+
+        public Class<?> getPayloadType() {
+            return payloadType;
+        }
+
+        public boolean isStamped() {
+            return stamped;
+        }
+    }
+
+    public static class Config {
+        private final Map<Stream, Double> ratesHz = new EnumMap<>(Stream.class);
+        private int vehicleCount = 1;
+        private int firstSystemId = 1;
+        private LinkImpairment impairment = LinkImpairment.none();
+        private long seed;
+
+        /** The message mix of a typical PX4 vehicle on a telemetry link. */
+        public static Config defaultMix() {
+            return new Config()
+                .rate(Stream.HEARTBEAT, 1)
+                .rate(Stream.ATTITUDE, 50)
+                .rate(Stream.GLOBAL_POSITION_INT, 10)
+                .rate(Stream.GPS_RAW_INT, 5)
+                .rate(Stream.VFR_HUD, 4);
+        }
+
+        public Config vehicles(int count) {
+            if (count < 1 || firstSystemId + count > 256) {
+                throw new IllegalArgumentException("invalid vehicle count: " + count);
+            }
+
+            vehicleCount = count;
+            return this;
+        }
+
+        /** Sets the rate of a stream; a rate of zero disables the stream. */
+        public Config rate(Stream stream, double hz) {
+            if (hz < 0) {
+                throw new IllegalArgumentException("rate must not be negative: " + hz);
+            }
+
+            if (hz == 0) {
+                ratesHz.remove(stream);
+            } else {
+                ratesHz.put(stream, hz);
+            }
+
+            return this;
+        }
+
+        public Config impairment(LinkImpairment impairment) {
+            this.impairment = impairment;
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public int getVehicleCount() {
+            return vehicleCount;
+        }
+
+        public int getSystemId(int vehicleIndex) {
+            return firstSystemId + vehicleIndex;
+        }
+
+        public Map<Stream, Double> getRatesHz() {
+            return new EnumMap<>(ratesHz);
+        }
+
+        /** Returns the total number of messages per second of all vehicles. */
+        public double getMessageRate() {
+            return ratesHz.values().stream().mapToDouble(Double::doubleValue).sum() * vehicleCount;
+        }
+    }
+
+    private static class Vehicle {
+        final int systemId;
+        final double phase;
+        final AtomicLongArray sendNanos = new AtomicLongArray(STAMP_RING_SIZE);
+        long stamp;
+        int sequence;
+
+        Vehicle(int systemId, double phase) {
+            this.systemId = systemId;
+            this.phase = phase;
+        }
+    }
+
+    private static class ScheduledStream {
+        final Vehicle vehicle;
+        final Stream stream;
+        final long periodNanos;
+        long dueNanos;
+
+        ScheduledStream(Vehicle vehicle, Stream stream, long periodNanos, long dueNanos) {
+            this.vehicle = vehicle;
+            this.stream = stream;
+            this.periodNanos = periodNanos;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private static class HeldPacket {
+        final Vehicle vehicle;
+        final byte[] bytes;
+        final long stamp;
+        final long releaseAfter;
+
+        HeldPacket(Vehicle vehicle, byte[] bytes, long stamp, long releaseAfter) {
+            this.vehicle = vehicle;
+            this.bytes = bytes;
+            this.stamp = stamp;
+            this.releaseAfter = releaseAfter;
+        }
+    }
+
+    private final Config config;
+    private final Vehicle[] vehicles;
+    private final EventLoopGroup workerGroup = new NioEventLoopGroup(1);
+    private final MavlinkPayloadSerializer serializer = new ReflectionPayloadSerializer();
+    private final Random random;
+    private final Queue<HeldPacket> heldPackets = new ArrayDeque<>();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong reorderedCount = new AtomicLong();
+    private final InetSocketAddress udpTarget;
+    private ChannelGroup tcpClients;
+    private Channel channel;
+    private Thread emitterThread;
+    private volatile boolean running;
+    private long startNanos;
+    private int unflushedPackets;
+
+    private VehicleEmulator(Config config, InetSocketAddress udpTarget) {
+        this.config = config;
+        this.udpTarget = udpTarget;
+        this.random = new Random(config.seed);
+        this.vehicles = new Vehicle[config.vehicleCount];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i] = new Vehicle(config.getSystemId(i), random.nextDouble() * 2 * Math.PI);
+        }
+    }
+
+    /** Creates an emulator that sends UDP datagrams from an ephemeral loopback port to the given address. */
+    public static VehicleEmulator udp(Config config, InetSocketAddress target) throws InterruptedException {
+        VehicleEmulator emulator = new VehicleEmulator(config, target);
+        emulator.channel =
+            new Bootstrap()
+                .group(emulator.workerGroup)
+                .channel(NioDatagramChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .bind(InetAddress.getLoopbackAddress(), 0)
+                .sync()
+                .channel();
+        return emulator;
+    }
+
+    /**
+     * Creates an emulator that listens on an ephemeral loopback port for TCP connections and sends the telemetry of
+     * all vehicles to every connected client, like a MAVLink router would.
+     */
+    public static VehicleEmulator tcpServer(Config config) throws InterruptedException {
+        VehicleEmulator emulator = new VehicleEmulator(config, null);
+        emulator.tcpClients = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        emulator.channel =
+            new ServerBootstrap()
+                .group(emulator.workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(
+                    new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel socketChannel) {
+                            emulator.tcpClients.add(socketChannel);
+                        }
+                    })
+                .bind(InetAddress.getLoopbackAddress(), 0)
+                .sync()
+                .channel();
+        return emulator;
+    }
+
+    /** The address packets are sent from (UDP) or clients connect to (TCP). */
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress)channel.localAddress();
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /** Starts streaming telemetry. */
+    public synchronized void start() {
+        if (emitterThread != null) {
+            throw new IllegalStateException("emulator already started");
+        }
+
+        running = true;
+        emitterThread = new Thread(this::emitLoop, "Vehicle emulator " + getLocalAddress().getPort());
+        emitterThread.setDaemon(true);
+        emitterThread.start();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        Thread thread;
+        synchronized (this) {
+            thread = emitterThread;
+        }
+
+        if (thread != null) {
+            thread.join();
+        }
+
+        if (tcpClients != null) {
+            tcpClients.close().await();
+        }
+
+        channel.close().await();
+        workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).await();
+    }
+
+    /** Returns the system ids of all vehicles. */
+    public List<Integer> getSystemIds() {
+        List<Integer> systemIds = new ArrayList<>(vehicles.length);
+        for (Vehicle vehicle : vehicles) {
+            systemIds.add(vehicle.systemId);
+        }
+
+        return systemIds;
+    }
+
+    /** Returns the number of packets written to the channel. */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getReorderedCount() {
+        return reorderedCount.get();
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at which the packet with the given stamp of the given vehicle was written,
+     * or 0 if it was not written (yet). Only the most recent stamps of a vehicle are retained.
+     */
+    public long getSendNanos(int systemId, long stamp) {
+        int index = systemId - config.firstSystemId;
+        if (index < 0 || index >= vehicles.length) {
+            return 0;
+        }
+
+        return vehicles[index].sendNanos.get((int)(stamp & STAMP_RING_MASK));
+    }
+
+    private void emitLoop() {
+        startNanos = System.nanoTime();
+        PriorityQueue<ScheduledStream> schedule =
+            new PriorityQueue<>(Comparator.comparingLong((ScheduledStream s) -> s.dueNanos));
+        for (Vehicle vehicle : vehicles) {
+            for (Map.Entry<Stream, Double> entry : config.ratesHz.entrySet()) {
+                long periodNanos = (long)(1e9 / entry.getValue());
+                // spread the first packets over one period, so the vehicles don't send in lockstep
+                long offsetNanos = (long)(random.nextDouble() * periodNanos);
+                schedule.add(new ScheduledStream(vehicle, entry.getKey(), periodNanos, startNanos + offsetNanos));
+            }
+        }
+
+        while (running && !schedule.isEmpty()) {
+            long now = System.nanoTime();
+            ScheduledStream next = schedule.peek();
+            if (next.dueNanos > now) {
+                flush();
+                LockSupport.parkNanos(Math.min(next.dueNanos - now, MAX_PARK_NANOS));
+                continue;
+            }
+
+            schedule.poll();
+            emit(next.vehicle, next.stream, now);
+            next.dueNanos += next.periodNanos;
+            schedule.add(next);
+        }
+
+        flush();
+    }
+
+    private void emit(Vehicle vehicle, Stream stream, long nowNanos) {
+        long elapsedNanos = nowNanos - startNanos;
+        long stamp = stream.isStamped() ? (vehicle.stamp++ & 0xFFFFFFFFL) : 0;
+        byte[] bytes = serialize(vehicle, createPayload(vehicle, stream, elapsedNanos, stamp));
+
+        if (random.nextDouble() < config.impairment.getLossProbability(elapsedNanos)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        if (random.nextDouble() < config.impairment.getReorderProbability(elapsedNanos)) {
+            reorderedCount.incrementAndGet();
+            long releaseAfter = sentCount.get() + config.impairment.getReorderDistance();
+            heldPackets.add(new HeldPacket(vehicle, bytes, stream.isStamped() ? stamp : -1, releaseAfter));
+            return;
+        }
+
+        write(vehicle, bytes, stream.isStamped() ? stamp : -1);
+
+        while (!heldPackets.isEmpty() && heldPackets.peek().releaseAfter <= sentCount.get()) {
+            HeldPacket held = heldPackets.poll();
+            write(held.vehicle, held.bytes, held.stamp);
+        }
+    }
+
+    private Object createPayload(Vehicle vehicle, Stream stream, long elapsedNanos, long stamp) {
+        // every vehicle flies a circle of about 200 m radius within two minutes
+        double t = elapsedNanos / 1e9;
+        double angle = vehicle.phase + t * 2 * Math.PI / 120;
+        double lat = 47.3977 + 0.0018 * Math.sin(angle);
+        double lon = 8.5456 + 0.0026 * Math.cos(angle);
+        int headingCdeg = (int)Math.round(Math.toDegrees(angle + Math.PI) % 360 * 100);
+
+        switch (stream) {
+        case HEARTBEAT:
+            return new Heartbeat.Builder()
+                .type(MavType.MAV_TYPE_QUADROTOR)
+                .autopilot(MavAutopilot.MAV_AUTOPILOT_PX4)
+                .baseMode(MavModeFlag.MAV_MODE_FLAG_CUSTOM_MODE_ENABLED)
+                .customMode(0)
+                .systemStatus(MavState.MAV_STATE_ACTIVE)
+                .mavlinkVersion(3)
+                .build();
+        case ATTITUDE:
+            return Attitude.builder()
+                .timeBootMs(stamp)
+                .roll((float)(0.1 * Math.sin(t)))
+                .pitch((float)(0.05 * Math.cos(t)))
+                .yaw((float)(angle % (2 * Math.PI) - Math.PI))
+                .rollspeed((float)(0.1 * Math.cos(t)))
+                .pitchspeed((float)(-0.05 * Math.sin(t)))
+                .yawspeed((float)(2 * Math.PI / 120))
+                .build();
+        case GLOBAL_POSITION_INT:
+            return GlobalPositionInt.builder()
+                .timeBootMs(stamp)
+                .lat((int)Math.round(lat * 1e7))
+                .lon((int)Math.round(lon * 1e7))
+                .alt(458000)
+                .relativeAlt(50000)
+                .vx((int)Math.round(1000 * Math.cos(angle)))
+                .vy((int)Math.round(-1000 * Math.sin(angle)))
+                .vz(0)
+                .hdg(headingCdeg)
+                .build();
+        case GPS_RAW_INT:
+            return GpsRawInt.builder()
+                .timeUsec(BigInteger.valueOf(elapsedNanos / 1000))
+                .fixType(GpsFixType.GPS_FIX_TYPE_3D_FIX)
+                .lat((int)Math.round(lat * 1e7))
+                .lon((int)Math.round(lon * 1e7))
+                .alt(458000)
+                .eph(80)
+                .epv(120)
+                .vel(1000)
+                .cog(headingCdeg)
+                .satellitesVisible(14)
+                .build();
+        case VFR_HUD:
+            return VfrHud.builder()
+                .airspeed(10)
+                .groundspeed(10)
+                .heading(headingCdeg / 100)
+                .throttle(45)
+                .alt(458)
+                .climb(0)
+                .build();
+        default:
+            throw new IllegalArgumentException("unknown stream " + stream);
+        }
+    }
+
+    private byte[] serialize(Vehicle vehicle, Object payload) {
+        Mavlink2Message<Object> message = new Mavlink2Message<>(0, 0, vehicle.systemId, COMPONENT_ID, payload);
+        MavlinkMessageInfo messageInfo = payload.getClass().getAnnotation(MavlinkMessageInfo.class);
+        return MavlinkPacket.create(
+                message.getIncompatibleFlags(),
+                message.getCompatibleFlags(),
+                vehicle.sequence++ & 0xFF,
+                message.getOriginSystemId(),
+                message.getOriginComponentId(),
+                messageInfo.id(),
+                messageInfo.crc(),
+                serializer.serialize(payload))
+            .getRawBytes();
+    }
+
+    private void write(Vehicle vehicle, byte[] bytes, long stamp) {
+        if (stamp >= 0) {
+            vehicle.sendNanos.set((int)(stamp & STAMP_RING_MASK), System.nanoTime());
+        }
+
+        if (udpTarget != null) {
+            channel.write(new DatagramPacket(Unpooled.wrappedBuffer(bytes), udpTarget));
+        } else {
+            tcpClients.write(Unpooled.wrappedBuffer(bytes));
+        }
+
+        sentCount.incrementAndGet();
+        if (++unflushedPackets >= MAX_UNFLUSHED_PACKETS) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        unflushedPackets = 0;
+        if (udpTarget != null) {
+            channel.flush();
+        } else {
+            tcpClients.flush();
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.hardware;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DescriptionCatalogTest {
+
+    private static void writeDescription(Path file, String id, String... compatibleIds) throws Exception {
+        StringBuilder json = new StringBuilder("{\"id\":\"" + id + "\",\"airplaneType\":\"FALCON8PLUS\"");
+        json.append(",\"compatibleCameraIds\":[");
+        for (int i = 0; i < compatibleIds.length; i++) {
+            json.append(i > 0 ? "," : "").append('"').append(compatibleIds[i]).append('"');
+        }
+
+        json.append("]}");
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void catalog_IndexesIdsAndFilterFields(@TempDir Path directory) throws Exception {
+        Path descriptions = Files.createDirectory(directory.resolve("descriptions"));
+        writeDescription(descriptions.resolve("a.json"), "A", "cam1", "cam2");
+        writeDescription(descriptions.resolve("b.json"), "B", "cam2");
+        Files.write(descriptions.resolve("readme.txt"), new byte[0]);
+
+        DescriptionCatalog catalog =
+            DescriptionCatalog.open(descriptions, "compatibleCameraIds", directory.resolve("index.json"));
+
+        Assertions.assertEquals(List.of("A", "B"), catalog.getIds());
+        Assertions.assertEquals("A", catalog.findIdByAirplaneType("FALCON8PLUS"));
+        Assertions.assertEquals(List.of("A", "B"), catalog.findIdsCompatibleWith("cam2"));
+        Assertions.assertEquals(List.of("A"), catalog.findIdsCompatibleWith("cam1"));
+        Assertions.assertEquals(descriptions.resolve("b.json"), catalog.getFile(catalog.getEntry("B")));
+    }
+
+    @Test
+    void catalog_RescansOnlyChangedFiles(@TempDir Path directory) throws Exception {
+        Path descriptions = Files.createDirectory(directory.resolve("descriptions"));
+        Path indexFile = directory.resolve("index.json");
+        Path fileA = descriptions.resolve("a.json");
+        writeDescription(fileA, "A");
+        writeDescription(descriptions.resolve("b.json"), "B");
+        DescriptionCatalog.open(descriptions, "compatibleCameraIds", indexFile);
+        Assertions.assertTrue(Files.isRegularFile(indexFile));
+
+        // an unchanged file is served from the index even if its content could not be parsed any more
+        FileTime lastModified = Files.getLastModifiedTime(fileA);
+        byte[] content = Files.readAllBytes(fileA);
+        Files.write(fileA, new byte[content.length]);
+        Files.setLastModifiedTime(fileA, lastModified);
+        Assertions.assertEquals(List.of("A", "B"), DescriptionCatalog.open(descriptions, null, indexFile).getIds());
+
+        writeDescription(fileA, "C", "cam1");
+        Files.setLastModifiedTime(fileA, FileTime.fromMillis(lastModified.toMillis() + 2000));
+        DescriptionCatalog catalog = DescriptionCatalog.open(descriptions, "compatibleCameraIds", indexFile);
+        Assertions.assertEquals(List.of("C", "B"), catalog.getIds());
+        Assertions.assertEquals(List.of("C"), catalog.findIdsCompatibleWith("cam1"));
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.livevideo;
+
+import eu.mavinci.desktop.main.debug.profiling.metrics.LatencyHistogram;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures decoder-to-screen latency and the dropped frame rate of the live video frame exchange without a camera. A
+ * {@link SyntheticFrameSource} produces frames at the decoder frame rate, and a consumer thread emulates the FX pulse:
+ * at the screen refresh rate it acquires the latest frame and copies its pixels, like
+ * {@link com.intel.missioncontrol.ui.livevideo.LiveVideoScreenViewModel} does. An optional stall per pulse emulates a
+ * busy FX thread.
+ *
+ * <p>Usage: {@code FrameExchangeBenchmark [width] [height] [decoderFps] [screenFps] [stallMs] [seconds]}
+ */
+public final class FrameExchangeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 1920;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 1080;
+        double decoderFps = args.length > 2 ? Double.parseDouble(args[2]) : 60;
+        double screenFps = args.length > 3 ? Double.parseDouble(args[3]) : 60;
+        long stallMillis = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        int seconds = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+
+        TripleBuffer<LiveVideoStream.FrameBuffer> frames =
+            new TripleBuffer<>(() -> new LiveVideoStream.FrameBuffer(width, height));
+        LatencyHistogram latency = new MetricsRegistry().histogram("frameLatency");
+        SyntheticFrameSource source = new SyntheticFrameSource(frames, width, height, decoderFps);
+
+        byte[] screen = new byte[width * height * 4];
+        long periodNanos = (long)(1e9 / screenFps);
+        long displayed = 0;
+
+        source.start();
+        long producerAllocatedStart = getAllocatedBytes(source.getThread());
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(seconds);
+        long dueNanos = startNanos;
+        while (System.nanoTime() < endNanos) {
+            LiveVideoStream.FrameBuffer frameBuffer = frames.acquire();
+            if (frameBuffer != null) {
+                frameBuffer.memory.read(0, screen, 0, screen.length);
+                latency.recordSince(frameBuffer.decodedNanos);
+                displayed++;
+            }
+
+            if (stallMillis > 0) {
+                Thread.sleep(stallMillis);
+            }
+
+            dueNanos += periodNanos;
+            LockSupport.parkNanos(dueNanos - System.nanoTime());
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        long producerAllocated = getAllocatedBytes(source.getThread()) - producerAllocatedStart;
+        source.stop();
+
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        System.out.println(
+            String.format(
+                "%dx%d, decoder %.0f fps, screen %.0f fps, stall %d ms%n"
+                    + "decoded %.1f fps, displayed %.1f fps, dropped %.1f%%%n"
+                    + "latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n"
+                    + "decoder thread allocated %d bytes",
+                width,
+                height,
+                decoderFps,
+                screenFps,
+                stallMillis,
+                frames.getPublishedCount() / elapsedSeconds,
+                displayed / elapsedSeconds,
+                100.0 * frames.getDroppedCount() / Math.max(1, frames.getPublishedCount()),
+                snapshot.getValueAtPercentile(50) / 1e6,
+                snapshot.getValueAtPercentile(90) / 1e6,
+                snapshot.getValueAtPercentile(99) / 1e6,
+                snapshot.getMaxNanos() / 1e6,
+                producerAllocated));
+    }
+
+    private static long getAllocatedBytes(Thread thread) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(thread.getId());
+    }
+
+}
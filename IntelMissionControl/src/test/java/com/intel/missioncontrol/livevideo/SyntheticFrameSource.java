@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.livevideo;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for the MinAv decoder: renders a moving BGRA test pattern into the back buffer of a {@link TripleBuffer}
+ * at a fixed frame rate and publishes it, the way {@link LiveVideoService} does with decoded frames. Rendering copies
+ * one prerendered row per image row, so the cost is close to that of the native decoder writing a frame.
+ */
+class SyntheticFrameSource {
+
+    private final TripleBuffer<LiveVideoStream.FrameBuffer> frames;
+    private final int width;
+    private final int height;
+    private final double framesPerSecond;
+    private final byte[] pattern;
+    private volatile boolean running;
+    private Thread thread;
+    private long frameCount;
+
+    SyntheticFrameSource(
+            TripleBuffer<LiveVideoStream.FrameBuffer> frames, int width, int height, double framesPerSecond) {
+        this.frames = frames;
+        this.width = width;
+        this.height = height;
+        this.framesPerSecond = framesPerSecond;
+
+        // two rows of a horizontal gradient with a white bar, so any window of one row width is a shifted frame row
+        pattern = new byte[2 * width * 4];
+        for (int x = 0; x < 2 * width; x++) {
+            int column = x % width;
+            byte value = column < width / 16 ? (byte)255 : (byte)(column * 255 / width);
+            pattern[x * 4] = value;
+            pattern[x * 4 + 1] = value;
+            pattern[x * 4 + 2] = value;
+            pattern[x * 4 + 3] = (byte)255;
+        }
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "Synthetic frame source");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        thread.join();
+    }
+
+    Thread getThread() {
+        return thread;
+    }
+
+    private void run() {
+        long periodNanos = (long)(1e9 / framesPerSecond);
+        long dueNanos = System.nanoTime();
+        while (running) {
+            LiveVideoStream.FrameBuffer frameBuffer = frames.getBackBuffer();
+            int shift = (int)(frameCount % width) * 4;
+            for (int y = 0; y < height; y++) {
+                frameBuffer.memory.write((long)y * width * 4, pattern, shift, width * 4);
+            }
+
+            frameBuffer.decodedNanos = System.nanoTime();
+            frames.publish();
+            frameCount++;
+
+            dueNanos += periodNanos;
+            long sleepNanos = dueNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(sleepNanos);
+            } else {
+                // fell behind, don't try to catch up with a burst of frames
+                dueNanos = System.nanoTime();
+            }
+        }
+    }
+
+}
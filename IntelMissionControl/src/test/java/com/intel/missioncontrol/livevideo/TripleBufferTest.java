@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.livevideo;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TripleBufferTest {
+
+    @Test
+    void acquire_ReturnsLatestPublishedBuffer() {
+        TripleBuffer<int[]> buffer = new TripleBuffer<>(() -> new int[1]);
+        Assertions.assertNull(buffer.acquire());
+
+        buffer.getBackBuffer()[0] = 1;
+        Assertions.assertFalse(buffer.publish());
+        buffer.getBackBuffer()[0] = 2;
+        Assertions.assertTrue(buffer.publish());
+
+        Assertions.assertEquals(2, buffer.acquire()[0]);
+        Assertions.assertNull(buffer.acquire());
+        Assertions.assertEquals(2, buffer.getFrontBuffer()[0]);
+
+        Assertions.assertEquals(2, buffer.getPublishedCount());
+        Assertions.assertEquals(1, buffer.getDroppedCount());
+        Assertions.assertEquals(1, buffer.getAcquiredCount());
+    }
+
+    @Test
+    void buffers_AreNeverSharedBetweenProducerAndConsumer() throws Exception {
+        TripleBuffer<int[]> buffer = new TripleBuffer<>(() -> new int[256]);
+        final int frameCount = 200000;
+
+        Thread producer =
+            new Thread(
+                () -> {
+                    for (int frame = 1; frame <= frameCount; frame++) {
+                        int[] pixels = buffer.getBackBuffer();
+                        for (int i = 0; i < pixels.length; i++) {
+                            pixels[i] = frame;
+                        }
+
+                        buffer.publish();
+                    }
+                });
+        producer.start();
+
+        int lastFrame = 0;
+        while (lastFrame < frameCount) {
+            int[] pixels = buffer.acquire();
+            if (pixels == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            // a torn frame would contain pixels of different frames
+            for (int i = 1; i < pixels.length; i++) {
+                Assertions.assertEquals(pixels[0], pixels[i]);
+            }
+
+            Assertions.assertTrue(pixels[0] > lastFrame);
+            lastFrame = pixels[0];
+        }
+
+        producer.join();
+        Assertions.assertEquals(frameCount, buffer.getPublishedCount());
+        Assertions.assertEquals(buffer.getPublishedCount(), buffer.getAcquiredCount() + buffer.getDroppedCount());
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.elevation;
+
+import gov.nasa.worldwind.geom.Angle;
+import gov.nasa.worldwind.util.EGM96;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class Egm96GridTest {
+
+    private static final String PATH = "config/EGM96.dat";
+
+    private static EGM96 reference;
+    private static Egm96Grid grid;
+
+    @BeforeAll
+    static void load() throws Exception {
+        reference = new EGM96(PATH);
+        grid = Egm96Grid.load(PATH);
+    }
+
+    private static void assertSameOffset(double lat, double lon) {
+        double expected = reference.getOffset(Angle.fromDegrees(lat), Angle.fromDegrees(lon));
+        double actual = grid.getOffset(lat, lon);
+        Assertions.assertEquals(
+            Double.doubleToLongBits(expected),
+            Double.doubleToLongBits(actual),
+            () -> "offset differs at " + lat + "/" + lon + ": " + expected + " != " + actual);
+    }
+
+    @Test
+    void matchesReferenceAtGridPosts() {
+        for (int row = 0; row < Egm96Grid.NUM_ROWS; row += 7) {
+            for (int col = 0; col < Egm96Grid.NUM_COLS; col += 11) {
+                assertSameOffset(90 - row * Egm96Grid.INTERVAL, col * Egm96Grid.INTERVAL - 180);
+            }
+        }
+    }
+
+    @Test
+    void matchesReferenceAtEdges() {
+        double[] latitudes = {90, 89.9, 0, -89.9, -90};
+        double[] longitudes = {-180, -179.99, -0.01, 0, 0.01, 179.99, 180, 359.75, 359.9};
+        for (double lat : latitudes) {
+            for (double lon : longitudes) {
+                assertSameOffset(lat, lon);
+            }
+        }
+    }
+
+    @Test
+    void matchesReferenceAtRandomPositions() {
+        Random random = new Random(96);
+        for (int i = 0; i < 100000; i++) {
+            assertSameOffset(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+        }
+    }
+
+    @Test
+    void batchMatchesSingleLookups() {
+        Random random = new Random(1996);
+        double[] latitudes = new double[1000];
+        double[] longitudes = new double[1000];
+        for (int i = 0; i < latitudes.length; i++) {
+            latitudes[i] = random.nextDouble() * 180 - 90;
+            longitudes[i] = random.nextDouble() * 360 - 180;
+        }
+
+        double[] offsets = new double[latitudes.length];
+        grid.getOffsets(latitudes, longitudes, offsets);
+        for (int i = 0; i < latitudes.length; i++) {
+            Assertions.assertEquals(grid.getOffset(latitudes[i], longitudes[i]), offsets[i], 0.0);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.kml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ShapeGeometryTest {
+
+    @Test
+    void simplify_KeepsEveryRemovedPointWithinTolerance() {
+        Random random = new Random(3);
+        int count = 2000;
+        double[] lonLat = new double[2 * count];
+        for (int i = 0; i < count; i++) {
+            lonLat[2 * i] = 11 + i * 1e-5;
+            lonLat[2 * i + 1] = 48 + Math.sin(i * 0.01) * 1e-3 + random.nextGaussian() * 2e-5;
+        }
+
+        double tolerance = 1e-4;
+        boolean[] keep = new boolean[count];
+        ShapeGeometry.simplify(lonLat, 0, count - 1, tolerance, keep);
+
+        Assertions.assertTrue(keep[0]);
+        Assertions.assertTrue(keep[count - 1]);
+        int kept = 0;
+        int previous = 0;
+        double lonScale = Math.cos(Math.toRadians(lonLat[1]));
+        for (int i = 1; i < count; i++) {
+            if (!keep[i]) {
+                continue;
+            }
+
+            kept++;
+            for (int k = previous + 1; k < i; k++) {
+                Assertions.assertTrue(segmentDistance(lonLat, previous, i, k, lonScale) <= tolerance + 1e-12);
+            }
+
+            previous = i;
+        }
+
+        Assertions.assertTrue(kept < count / 10);
+    }
+
+    @Test
+    void build_SimplifiesCoarserLevels() {
+        ShapeGeometry geometry = createRings(new Random(5), 50, 400);
+
+        Assertions.assertEquals(ShapeGeometry.LEVEL_TOLERANCES.length, geometry.getLevelCount());
+        Assertions.assertEquals(50 * 400, geometry.getLevel(0).getPointCount());
+        for (int i = 1; i < geometry.getLevelCount(); i++) {
+            ShapeGeometry.Level level = geometry.getLevel(i);
+            Assertions.assertEquals(50, level.getRecordCount());
+            Assertions.assertTrue(level.getPointCount() < geometry.getLevel(i - 1).getPointCount());
+            for (int part = 0; part < level.getPartCount(); part++) {
+                Assertions.assertTrue(level.partStarts[part + 1] - level.partStarts[part] >= 4);
+                Assertions.assertTrue(level.getSignedArea(part) < 0);
+            }
+        }
+
+        Assertions.assertEquals(0, geometry.getLevelForAltitude(100));
+        Assertions.assertEquals(geometry.getLevelCount() - 1, geometry.getLevelForAltitude(1e7));
+    }
+
+    @Test
+    void build_DropsRingsBelowTolerance() {
+        ShapeGeometry.Builder builder = new ShapeGeometry.Builder(ShapeGeometry.Type.POLYGON);
+        builder.beginRecord();
+        builder.addPart(new double[] {10, 50, 10, 50.0005, 10.0005, 50.0005, 10.0005, 50, 10, 50}, 5);
+        builder.addPart(new double[] {10.001, 50.001, 10.001, 50.00101, 10.00101, 50.001, 10.001, 50.001}, 4);
+        ShapeGeometry geometry = builder.build();
+
+        Assertions.assertEquals(2, geometry.getLevel(0).getPartCount());
+        Assertions.assertEquals(1, geometry.getLevel(2).getPartCount());
+        Assertions.assertEquals(0, geometry.getLevel(3).getPartCount());
+        Assertions.assertEquals(1, geometry.getLevel(3).getRecordCount());
+    }
+
+    @Test
+    void writeAndRead_RestoresAllLevels() throws IOException {
+        ShapeGeometry geometry = createRings(new Random(7), 20, 300);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            geometry.write(out);
+        }
+
+        // deltas of neighbouring points take about two bytes per coordinate
+        Assertions.assertTrue(bytes.size() < 20 * 300 * 16 / 2);
+
+        ShapeGeometry read = ShapeGeometry.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assertions.assertEquals(geometry.getType(), read.getType());
+        Assertions.assertEquals(geometry.getLevelCount(), read.getLevelCount());
+        for (int i = 0; i < geometry.getLevelCount(); i++) {
+            Assertions.assertArrayEquals(geometry.getLevel(i).recordStarts, read.getLevel(i).recordStarts);
+            Assertions.assertArrayEquals(geometry.getLevel(i).partStarts, read.getLevel(i).partStarts);
+            Assertions.assertArrayEquals(geometry.getLevel(i).coordinates, read.getLevel(i).coordinates);
+        }
+    }
+
+    /** Noisy clockwise rings of about a kilometer, one per record. */
+    static ShapeGeometry createRings(Random random, int rings, int pointsPerRing) {
+        ShapeGeometry.Builder builder = new ShapeGeometry.Builder(ShapeGeometry.Type.POLYGON);
+        double[] lonLat = new double[2 * pointsPerRing];
+        for (int r = 0; r < rings; r++) {
+            double lon = 8 + random.nextDouble() * 4;
+            double lat = 47 + random.nextDouble() * 4;
+            for (int i = 0; i < pointsPerRing - 1; i++) {
+                double angle = -2 * Math.PI * i / (pointsPerRing - 1);
+                double radius = 0.01 * (1 + 0.1 * Math.sin(7 * angle)) + random.nextDouble() * 1e-5;
+                lonLat[2 * i] = lon + radius * Math.cos(angle);
+                lonLat[2 * i + 1] = lat + radius * Math.sin(angle);
+            }
+
+            lonLat[2 * pointsPerRing - 2] = lonLat[0];
+            lonLat[2 * pointsPerRing - 1] = lonLat[1];
+            builder.beginRecord();
+            builder.addPart(lonLat, pointsPerRing);
+        }
+
+        return builder.build();
+    }
+
+    private static double segmentDistance(double[] lonLat, int a, int b, int p, double lonScale) {
+        double ax = lonLat[2 * a] * lonScale;
+        double ay = lonLat[2 * a + 1];
+        double dx = lonLat[2 * b] * lonScale - ax;
+        double dy = lonLat[2 * b + 1] - ay;
+        double px = lonLat[2 * p] * lonScale - ax;
+        double py = lonLat[2 * p + 1] - ay;
+        double t = Math.max(0, Math.min(1, (px * dx + py * dy) / (dx * dx + dy * dy)));
+        return Math.hypot(px - t * dx, py - t * dy);
+    }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.map.kml;
+
+import gov.nasa.worldwind.formats.shapefile.Shapefile;
+import gov.nasa.worldwindx.examples.util.ShapefileLoader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures the import of a generated polygon shapefile, as loaded by {@link ShapefileLoader} before, and by {@link
+ * ShapefileImporter} with an empty and with a filled cache.
+ *
+ * <p>Usage: {@code ShapefileImportBenchmark [polygons] [pointsPerPolygon]}
+ */
+public final class ShapefileImportBenchmark {
+
+    private static final int POLYGON_TYPE = 5;
+
+    public static void main(String[] args) throws IOException {
+        int polygonCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int pointsPerPolygon = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        Path directory = Files.createTempDirectory("shapefile-benchmark");
+        try {
+            File shapefile = directory.resolve("polygons.shp").toFile();
+            writePolygonShapefile(shapefile, new Random(1), polygonCount, pointsPerPolygon);
+            System.out.println(
+                String.format(
+                    "%d polygons, %d points, %.1f MB",
+                    polygonCount,
+                    polygonCount * pointsPerPolygon,
+                    shapefile.length() / 1e6));
+
+            for (int run = 0; run < 3; run++) {
+                System.out.println("run " + run);
+
+                long start = System.nanoTime();
+                try (Shapefile shp = new Shapefile(shapefile)) {
+                    new ShapefileLoader().createLayerFromShapefile(shp);
+                }
+
+                report("  shapefile loader", start);
+
+                Path cacheDirectory = directory.resolve("cache" + run);
+                ShapefileImporter importer = new ShapefileImporter(cacheDirectory);
+                start = System.nanoTime();
+                ShapeGeometry geometry = importer.importShapefile(shapefile);
+                report("  import, empty cache", start);
+
+                start = System.nanoTime();
+                importer.importShapefile(shapefile);
+                report("  import, filled cache", start);
+
+                start = System.nanoTime();
+                new ShapeGeometryRenderable(geometry);
+                report("  creating the shapes", start);
+
+                if (run == 0) {
+                    try (Stream<Path> files = Files.list(cacheDirectory)) {
+                        System.out.println(
+                            String.format(
+                                "  cache file %.1f MB", files.mapToLong(p -> p.toFile().length()).sum() / 1e6));
+                    }
+
+                    for (int i = 0; i < geometry.getLevelCount(); i++) {
+                        System.out.println(
+                            String.format(
+                                "  level %d: tolerance %.0e deg, %d points",
+                                i,
+                                ShapeGeometry.LEVEL_TOLERANCES[i],
+                                geometry.getLevel(i).getPointCount()));
+                    }
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void report(String name, long startNanos) {
+        System.out.println(String.format("%s: %.1f ms", name, (System.nanoTime() - startNanos) / 1e6));
+    }
+
+    /** Writes noisy clockwise rings as a shapefile with its index and a minimal attribute table. */
+    private static void writePolygonShapefile(File file, Random random, int polygonCount, int pointsPerPolygon)
+            throws IOException {
+        int contentLength = 44 + 4 + 16 * pointsPerPolygon;
+        int recordLength = 8 + contentLength;
+        ByteBuffer shp = ByteBuffer.allocate(100 + polygonCount * recordLength);
+        ByteBuffer shx = ByteBuffer.allocate(100 + polygonCount * 8);
+        double[] bounds = {180, 90, -180, -90};
+
+        shp.position(100);
+        shx.position(100);
+        double[] lonLat = new double[2 * pointsPerPolygon];
+        for (int r = 0; r < polygonCount; r++) {
+            double lon = 5 + random.nextDouble() * 10;
+            double lat = 45 + random.nextDouble() * 10;
+            double minLon = 180;
+            double minLat = 90;
+            double maxLon = -180;
+            double maxLat = -90;
+            for (int i = 0; i < pointsPerPolygon - 1; i++) {
+                double angle = -2 * Math.PI * i / (pointsPerPolygon - 1);
+                double radius = 0.005 * (1 + 0.2 * Math.sin(5 * angle)) + random.nextDouble() * 2e-5;
+                lonLat[2 * i] = lon + radius * Math.cos(angle);
+                lonLat[2 * i + 1] = lat + radius * Math.sin(angle);
+                minLon = Math.min(minLon, lonLat[2 * i]);
+                minLat = Math.min(minLat, lonLat[2 * i + 1]);
+                maxLon = Math.max(maxLon, lonLat[2 * i]);
+                maxLat = Math.max(maxLat, lonLat[2 * i + 1]);
+            }
+
+            lonLat[2 * pointsPerPolygon - 2] = lonLat[0];
+            lonLat[2 * pointsPerPolygon - 1] = lonLat[1];
+            bounds[0] = Math.min(bounds[0], minLon);
+            bounds[1] = Math.min(bounds[1], minLat);
+            bounds[2] = Math.max(bounds[2], maxLon);
+            bounds[3] = Math.max(bounds[3], maxLat);
+
+            shx.order(ByteOrder.BIG_ENDIAN).putInt(shp.position() / 2).putInt(contentLength / 2);
+            shp.order(ByteOrder.BIG_ENDIAN).putInt(r + 1).putInt(contentLength / 2);
+            shp.order(ByteOrder.LITTLE_ENDIAN).putInt(POLYGON_TYPE);
+            shp.putDouble(minLon).putDouble(minLat).putDouble(maxLon).putDouble(maxLat);
+            shp.putInt(1).putInt(pointsPerPolygon).putInt(0);
+            for (double value : lonLat) {
+                shp.putDouble(value);
+            }
+        }
+
+        writeHeader(shp, bounds);
+        writeHeader(shx, bounds);
+        write(file.toPath(), shp);
+        write(new File(file.getPath().replace(".shp", ".shx")).toPath(), shx);
+        write(new File(file.getPath().replace(".shp", ".dbf")).toPath(), createAttributeTable(polygonCount));
+    }
+
+    private static void writeHeader(ByteBuffer buffer, double[] bounds) {
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(0, 9994).putInt(24, buffer.capacity() / 2);
+        buffer.order(ByteOrder.LITTLE_ENDIAN).putInt(28, 1000).putInt(32, POLYGON_TYPE);
+        for (int i = 0; i < 4; i++) {
+            buffer.putDouble(36 + 8 * i, bounds[i]);
+        }
+    }
+
+    /** A dBASE table with one numeric id column. */
+    private static ByteBuffer createAttributeTable(int recordCount) {
+        int fieldLength = 10;
+        ByteBuffer dbf = ByteBuffer.allocate(32 + 32 + 1 + recordCount * (1 + fieldLength) + 1);
+        dbf.order(ByteOrder.LITTLE_ENDIAN);
+        dbf.put((byte)3).put((byte)120).put((byte)1).put((byte)1);
+        dbf.putInt(recordCount).putShort((short)(32 + 32 + 1)).putShort((short)(1 + fieldLength));
+        dbf.position(32);
+        dbf.put("ID".getBytes()).position(32 + 11);
+        dbf.put((byte)'N').putInt(0).put((byte)fieldLength).put((byte)0);
+        dbf.position(64);
+        dbf.put((byte)0x0D);
+        for (int r = 0; r < recordCount; r++) {
+            dbf.put((byte)' ').put(String.format("%10d", r).getBytes());
+        }
+
+        dbf.put((byte)0x1A);
+        return dbf;
+    }
+
+    private static void write(Path path, ByteBuffer buffer) throws IOException {
+        buffer.position(0);
+        try (FileChannel channel =
+            FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+}
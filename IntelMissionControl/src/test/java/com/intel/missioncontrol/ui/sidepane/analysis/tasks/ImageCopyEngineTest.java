@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.ui.sidepane.analysis.tasks;
+
+import eu.mavinci.desktop.helper.InterruptedByUserException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageCopyEngineTest {
+
+    private static final String SOURCE_CONTENT = "source image";
+    private static final String STALE_CONTENT = "stale target";
+
+    @TempDir
+    Path directory;
+
+    private File sourceFolder;
+    private File targetFolder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sourceFolder = Files.createDirectory(directory.resolve("source")).toFile();
+        targetFolder = Files.createDirectory(directory.resolve("target")).toFile();
+    }
+
+    @Test
+    void copyAll_CopiesFilesAndRemovesStagingAndJournal() throws Exception {
+        List<ImageCopyEngine.CopyJob> jobs = jobs("a.jpg", "b.jpg", "c.jpg");
+
+        new ImageCopyEngine(targetFolder, () -> false, (source, done, total, speed) -> {}).copyAll(jobs);
+
+        for (ImageCopyEngine.CopyJob job : jobs) {
+            Assertions.assertEquals(SOURCE_CONTENT, read(job.target));
+        }
+
+        Assertions.assertEquals(
+            Arrays.asList("a.jpg", "b.jpg", "c.jpg"), listTargetFolder(), "no staging files or journal left behind");
+    }
+
+    @Test
+    void copyAll_ReportsFinalProgress() throws Exception {
+        List<ImageCopyEngine.CopyJob> jobs = jobs("a.jpg", "b.jpg", "c.jpg", "d.jpg");
+        AtomicInteger lastDone = new AtomicInteger();
+        AtomicInteger lastTotal = new AtomicInteger();
+
+        new ImageCopyEngine(
+                targetFolder,
+                () -> false,
+                (source, done, total, speed) -> {
+                    lastDone.set(done);
+                    lastTotal.set(total);
+                })
+            .copyAll(jobs);
+
+        Assertions.assertEquals(4, lastDone.get());
+        Assertions.assertEquals(4, lastTotal.get());
+    }
+
+    @Test
+    void resume_SkipsExactlyTheJournaledFiles() throws Exception {
+        List<ImageCopyEngine.CopyJob> jobs = jobs("a.jpg", "b.jpg", "c.jpg");
+        writeTarget("a.jpg", STALE_CONTENT);
+        writeTarget("b.jpg", STALE_CONTENT);
+        writeJournal("a.jpg\t" + SOURCE_CONTENT.length() + "\t0\n");
+
+        new ImageCopyEngine(targetFolder, () -> false, (source, done, total, speed) -> {}).copyAll(jobs);
+
+        Assertions.assertEquals(STALE_CONTENT, read(new File(targetFolder, "a.jpg")), "journaled file is skipped");
+        Assertions.assertEquals(SOURCE_CONTENT, read(new File(targetFolder, "b.jpg")), "unjournaled file is copied");
+        Assertions.assertEquals(SOURCE_CONTENT, read(new File(targetFolder, "c.jpg")));
+        Assertions.assertFalse(new File(targetFolder, ImageCopyEngine.JOURNAL_FILENAME).exists());
+    }
+
+    @Test
+    void resume_IgnoresCorruptAndTruncatedJournalLines() throws Exception {
+        List<ImageCopyEngine.CopyJob> jobs = jobs("a.jpg", "b.jpg", "c.jpg");
+        writeTarget("a.jpg", STALE_CONTENT);
+        writeTarget("b.jpg", STALE_CONTENT);
+        writeTarget("c.jpg", STALE_CONTENT);
+        writeJournal(
+            "a.jpg\t" + SOURCE_CONTENT.length() + "\t0\n" + "b.jpg\tnot a length\t0\n" + "c.jpg\t" + SOURCE_CONTENT
+                .length());
+
+        new ImageCopyEngine(targetFolder, () -> false, (source, done, total, speed) -> {}).copyAll(jobs);
+
+        Assertions.assertEquals(STALE_CONTENT, read(new File(targetFolder, "a.jpg")));
+        Assertions.assertEquals(SOURCE_CONTENT, read(new File(targetFolder, "b.jpg")), "corrupt line is ignored");
+        Assertions.assertEquals(SOURCE_CONTENT, read(new File(targetFolder, "c.jpg")), "truncated line is ignored");
+    }
+
+    @Test
+    void workerFailure_ReachesCaller() throws Exception {
+        List<ImageCopyEngine.CopyJob> jobs = jobs("a.jpg", "b.jpg");
+        jobs.add(new ImageCopyEngine.CopyJob(new File(sourceFolder, "missing.jpg"), new File(targetFolder, "x.jpg")));
+
+        IOException e =
+            Assertions.assertThrows(
+                IOException.class,
+                () ->
+                    new ImageCopyEngine(targetFolder, () -> false, (source, done, total, speed) -> {})
+                        .copyAll(jobs));
+
+        Assertions.assertTrue(e.getCause() instanceof FileNotFoundException);
+        Assertions.assertFalse(new File(targetFolder, "x.jpg").exists());
+        Assertions.assertTrue(
+            new File(targetFolder, ImageCopyEngine.JOURNAL_FILENAME).exists(), "journal is kept for resuming");
+    }
+
+    @Test
+    void cancellation_ReachesCaller() throws Exception {
+        List<ImageCopyEngine.CopyJob> jobs = jobs("a.jpg", "b.jpg");
+
+        Assertions.assertThrows(
+            InterruptedByUserException.class,
+            () -> new ImageCopyEngine(targetFolder, () -> true, (source, done, total, speed) -> {}).copyAll(jobs));
+
+        Assertions.assertFalse(new File(targetFolder, "a.jpg").exists());
+        Assertions.assertFalse(new File(targetFolder, "b.jpg").exists());
+    }
+
+    private List<ImageCopyEngine.CopyJob> jobs(String... names) throws IOException {
+        List<ImageCopyEngine.CopyJob> jobs = new ArrayList<>();
+        for (String name : names) {
+            File source = new File(sourceFolder, name);
+            Files.write(source.toPath(), SOURCE_CONTENT.getBytes(StandardCharsets.UTF_8));
+            jobs.add(new ImageCopyEngine.CopyJob(source, new File(targetFolder, name)));
+        }
+
+        return jobs;
+    }
+
+    /** stale targets have the same length as their sources, so only the journal tells them apart */
+    private void writeTarget(String name, String content) throws IOException {
+        Assertions.assertEquals(SOURCE_CONTENT.length(), content.length());
+        Files.write(new File(targetFolder, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeJournal(String content) throws IOException {
+        Files.write(
+            new File(targetFolder, ImageCopyEngine.JOURNAL_FILENAME).toPath(),
+            content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> listTargetFolder() throws IOException {
+        try (Stream<Path> files = Files.list(targetFolder.toPath())) {
+            List<String> names = new ArrayList<>();
+            files.forEach(file -> names.add(file.getFileName().toString()));
+            names.sort(null);
+            return names;
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.missioncontrol.ui.validation.flightplan;
+
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FlightplanValidationSchedulerTest {
+
+    private static class DelayedTask {
+        final Runnable runnable;
+        final long dueNanos;
+
+        DelayedTask(Runnable runnable, long dueNanos) {
+            this.runnable = runnable;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    private long nowNanos;
+    private int snapshotCount;
+    private int platformRunnableCount;
+    private final List<Runnable> background = new ArrayList<>();
+    private final List<Runnable> platform = new ArrayList<>();
+    private final List<DelayedTask> delayed = new ArrayList<>();
+    private final List<String> log = new ArrayList<>();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private final FlightplanValidationSnapshot snapshot =
+        new FlightplanValidationSnapshot(
+            null, null, List.of(), List.of(), List.of(), new double[0], null, null, null, null);
+
+    private final FlightplanValidationScheduler scheduler =
+        new FlightplanValidationScheduler(
+            () -> {
+                snapshotCount++;
+                return snapshot;
+            },
+            background::add,
+            runnable -> {
+                platformRunnableCount++;
+                platform.add(runnable);
+            },
+            (runnable, delay) -> delayed.add(new DelayedTask(runnable, nowNanos + delay.toNanos())),
+            () -> nowNanos,
+            metrics);
+
+    @Test
+    void requestValidation_CoalescesBurstIntoOneValidation() {
+        addValidator("a", FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        addValidator("b", FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+
+        for (int ms = 0; ms <= 90; ms += 10) {
+            advanceTo(ms);
+            scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        }
+
+        advanceTo(189);
+        Assertions.assertEquals(0, snapshotCount);
+        advanceTo(190);
+        Assertions.assertEquals(1, snapshotCount);
+        Assertions.assertEquals(List.of("compute a", "compute b", "apply a", "apply b"), log);
+
+        // capturing the snapshot and applying all results, no matter how many events and validators
+        Assertions.assertEquals(2, platformRunnableCount);
+        Assertions.assertEquals(10, metrics.counter("validation.flightplan.requests").get());
+        Assertions.assertEquals(1, metrics.counter("validation.flightplan.validations").get());
+    }
+
+    @Test
+    void requestValidation_ValidatesAtLatestAfterMaxDelay() {
+        addValidator("a", FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+
+        List<Long> validatedAt = new ArrayList<>();
+        for (int ms = 0; ms < 2000; ms += 20) {
+            advanceTo(ms);
+            if (log.size() > 2 * validatedAt.size()) {
+                validatedAt.add((long)ms);
+            }
+
+            scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        }
+
+        Assertions.assertEquals(List.of(500L, 1000L, 1500L), validatedAt);
+    }
+
+    @Test
+    void requestValidation_OnlyRunsValidatorsWithTrigger() {
+        addValidator("changed", FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        addValidator("recomputed", FlightplanValidationScheduler.Trigger.FLIGHTPLAN_RECOMPUTED);
+
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_RECOMPUTED);
+        advanceTo(1000);
+        Assertions.assertEquals(List.of("compute recomputed", "apply recomputed"), log);
+
+        log.clear();
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_RECOMPUTED);
+        advanceTo(2000);
+        Assertions.assertEquals(
+            List.of("compute changed", "compute recomputed", "apply changed", "apply recomputed"), log);
+    }
+
+    @Test
+    void requestValidation_WhileValidatingValidatesAgainAfterwards() {
+        addValidator("a", FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        nowNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        runDelayed();
+        runAll(platform);
+        Assertions.assertEquals(1, background.size());
+
+        // the flight plan changes while the validator is computing
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        runAll(background);
+        runAll(platform);
+        Assertions.assertEquals(List.of("compute a", "apply a"), log);
+
+        advanceTo(199);
+        Assertions.assertEquals(1, snapshotCount);
+        advanceTo(200);
+        Assertions.assertEquals(2, snapshotCount);
+        Assertions.assertEquals(List.of("compute a", "apply a", "compute a", "apply a"), log);
+    }
+
+    @Test
+    void failingValidator_DoesNotStopOtherValidators() {
+        scheduler.add(
+            FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED,
+            "failing",
+            s -> {
+                throw new IllegalStateException();
+            },
+            result -> log.add("apply failing " + result));
+        addValidator("a", FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        advanceTo(1000);
+        scheduler.requestValidation(FlightplanValidationScheduler.Trigger.FLIGHTPLAN_CHANGED);
+        advanceTo(2000);
+        Assertions.assertEquals(
+            List.of("compute a", "apply failing null", "apply a", "compute a", "apply failing null", "apply a"), log);
+        Assertions.assertEquals(2, metrics.histogram("validation.flightplan.failing.compute").snapshot().getCount());
+        Assertions.assertEquals(2, metrics.histogram("validation.flightplan.a.apply").snapshot().getCount());
+        Assertions.assertEquals(2, metrics.histogram("validation.flightplan.latency").snapshot().getCount());
+    }
+
+    private void addValidator(String name, FlightplanValidationScheduler.Trigger trigger) {
+        scheduler.add(
+            trigger,
+            name,
+            s -> {
+                Assertions.assertSame(snapshot, s);
+                log.add("compute " + name);
+                return name;
+            },
+            result -> {
+                Assertions.assertEquals(name, result);
+                log.add("apply " + name);
+            });
+    }
+
+    private void advanceTo(long millis) {
+        nowNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        while (runDelayed() || runAll(platform) || runAll(background)) {
+            // run until idle
+        }
+    }
+
+    private boolean runDelayed() {
+        List<DelayedTask> due = new ArrayList<>();
+        delayed.removeIf(
+            task -> {
+                if (task.dueNanos <= nowNanos) {
+                    due.add(task);
+                    return true;
+                }
+
+                return false;
+            });
+        due.forEach(task -> task.runnable.run());
+        return !due.isEmpty();
+    }
+
+    private static boolean runAll(List<Runnable> queue) {
+        List<Runnable> runnables = new ArrayList<>(queue);
+        queue.clear();
+        runnables.forEach(Runnable::run);
+        return !runnables.isEmpty();
+    }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.core.flightplan;
+
+import eu.mavinci.core.helper.XmlHashWriter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CFMLWriterTest {
+
+    private static final String PLACEHOLDER_DUMP = "<dump>FP-Hash:HASHPLACEHOLDER</dump>";
+
+    @Test
+    void insertHash_HashesDocumentWithoutDumps() throws Exception {
+        String withoutHash = FmlSerializationBenchmark.createDocument(200, null);
+        String withPlaceholders = FmlSerializationBenchmark.createDocument(200, PLACEHOLDER_DUMP);
+        Assertions.assertNotEquals(withoutHash, withPlaceholders);
+
+        XmlHashWriter hashWriter = new XmlHashWriter();
+        hashWriter.write(withoutHash);
+        String hash = hashWriter.getHash().toUpperCase();
+
+        String xml = CFMLWriter.insertHash(new StringBuffer(withPlaceholders), 2);
+        Assertions.assertEquals(withPlaceholders.replace(PLACEHOLDER_DUMP, "<dump>FP-Hash:" + hash + "</dump>"), xml);
+    }
+
+    @Test
+    void insertHash_ReturnsNull_WhenPlaceholdersAreMissing() throws Exception {
+        String withPlaceholders = FmlSerializationBenchmark.createDocument(10, PLACEHOLDER_DUMP);
+        Assertions.assertNull(CFMLWriter.insertHash(new StringBuffer(withPlaceholders), 3));
+    }
+
+}
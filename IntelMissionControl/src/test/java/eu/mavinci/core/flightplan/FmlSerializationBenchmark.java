@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.core.flightplan;
+
+import eu.mavinci.core.xml.SaxParserPool;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.regex.Matcher;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Measures hashing and parsing of generated flight plans with tens of thousands of waypoints.
+ *
+ * <p>Hashing compares hashing the serialized plan with the comment pattern and putting the hash into a second copy,
+ * as {@link CFlightplan#toXMLwithHash()} did with its second serialization, against hashing the single serialization
+ * while patching in the hash. Parsing compares a new SAX parser per document against the pooled parsers used by
+ * {@link FMLReader}.
+ *
+ * <p>Usage: {@code FmlSerializationBenchmark [waypoints] [iterations]}
+ */
+public final class FmlSerializationBenchmark {
+
+    private static final String PLACEHOLDER_DUMP = "<dump>FP-Hash:HASHPLACEHOLDER</dump>";
+    private static final EntityResolver NO_DTD = (publicId, systemId) -> new InputSource(new StringReader(""));
+
+    public static void main(String[] args) throws Exception {
+        int waypointCount = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        String withoutHash = createDocument(waypointCount, null);
+        String withPlaceholders = createDocument(waypointCount, PLACEHOLDER_DUMP);
+        String small = createDocument(100, null);
+        System.out.println(waypointCount + " waypoints, " + withoutHash.length() / 1024 + " KiB");
+
+        SaxParserPool pool = new SaxParserPool(true, false);
+        for (int run = 0; run < 3; run++) {
+            System.out.println("run " + run);
+
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                String hash = getHashXML(withoutHash).toUpperCase();
+                checksum += withPlaceholders.replace(PLACEHOLDER_DUMP, "<dump>FP-Hash:" + hash + "</dump>").length();
+            }
+
+            report("  hash and copy", start, iterations);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                checksum += CFMLWriter.insertHash(new StringBuffer(withPlaceholders), 2).length();
+            }
+
+            report("  single pass hash", start, iterations);
+
+            for (String document : new String[] {small, withoutHash}) {
+                byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+                int parses = document == small ? iterations * 100 : iterations;
+                String size = document == small ? "small plan" : "large plan";
+
+                start = System.nanoTime();
+                for (int i = 0; i < parses; i++) {
+                    SAXParserFactory factory = SAXParserFactory.newInstance();
+                    factory.setNamespaceAware(true);
+                    factory.setValidating(false);
+                    checksum += countElements(factory.newSAXParser().getXMLReader(), bytes);
+                }
+
+                report("  new parser, " + size, start, parses);
+
+                start = System.nanoTime();
+                for (int i = 0; i < parses; i++) {
+                    checksum += pool.parse(reader -> countElements(reader, bytes));
+                }
+
+                report("  pooled parser, " + size, start, parses);
+            }
+
+            System.out.println("  checksum " + checksum);
+        }
+    }
+
+    /**
+     * Generates a plan in the layout of {@link CFMLWriter}, with the hash dump in the head and behind the photo
+     * settings of the body if {@code hashDump} is set.
+     */
+    static String createDocument(int waypointCount, String hashDump) {
+        Random random = new Random(waypointCount);
+        StringBuilder xml = new StringBuilder(waypointCount * 200);
+        xml.append(CFMLWriter.Tokens.FLIGHTPLANML_HEADER);
+        xml.append("  <!-- generated plan -->\n");
+        xml.append("  <head>");
+        if (hashDump != null) {
+            xml.append("\n    ").append(hashDump);
+        }
+
+        xml.append("\n    <photosettings maxroll=\"10.0\" maxnick=\"10.0\" mintimeinterval=\"0.7\"/>\n");
+        xml.append("    <name name=\"generated\"/>\n");
+        xml.append("  </head>\n");
+        xml.append("  <body>\n");
+        xml.append("    <photo power=\"on\" distance=\"20.0\" distanceMax=\"30.0\" id=\"1\"/>");
+        if (hashDump != null) {
+            xml.append("\n    ").append(hashDump);
+        }
+
+        xml.append("\n");
+        double lat = 48.1;
+        double lon = 11.5;
+        for (int i = 0; i < waypointCount; i++) {
+            lat += (random.nextDouble() - 0.5) * 1e-4;
+            lon += (random.nextDouble() - 0.5) * 1e-4;
+            xml.append("    <waypoint lon=\"")
+                .append(lon)
+                .append("\" lat=\"")
+                .append(lat)
+                .append("\" alt=\"")
+                .append(5000 + random.nextInt(1000))
+                .append("\" assertAltitude=\"off\" radius=\"0\" camPitch=\"")
+                .append(-90.0)
+                .append("\" id=\"")
+                .append(i + 2)
+                .append("\"/>\n");
+        }
+
+        xml.append("  </body>\n");
+        xml.append("</flightplan>\n");
+        return xml.toString();
+    }
+
+    private static int countElements(XMLReader reader, byte[] document) throws SAXException, IOException {
+        int[] count = new int[1];
+        reader.setEntityResolver(NO_DTD);
+        reader.setContentHandler(
+            new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    count[0]++;
+                }
+            });
+        reader.parse(new InputSource(new ByteArrayInputStream(document)));
+        return count[0];
+    }
+
+    /** The computation of {@code StringHelper.getHashXML(String)}. */
+    private static String getHashXML(String xml) throws Exception {
+        xml = xml.replaceAll("[\\s]*<!--.*?-->", Matcher.quoteReplacement(""));
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        md.update(xml.getBytes());
+        String result = new BigInteger(1, md.digest()).toString(16);
+        return (result.length() % 2) != 0 ? "0" + result : result;
+    }
+
+    private static void report(String name, long startNanos, int operations) {
+        double millis = (System.nanoTime() - startNanos) / 1e6;
+        System.out.println(String.format("%s: %.1f ms, %.3f ms/op", name, millis, millis / operations));
+    }
+
+}
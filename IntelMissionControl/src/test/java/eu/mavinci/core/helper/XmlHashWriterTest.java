@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.core.helper;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.regex.Matcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class XmlHashWriterTest {
+
+    @Test
+    void getHash_MatchesHashOfCommentsRemovedByPattern() throws Exception {
+        String[] atoms = {" ", "\n", "\r", "\t", "<", "!", "-", "--", ">", "<!--", "-->", "a", "ä", "<x>"};
+        Random random = new Random(13);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder xml = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                xml.append(atoms[random.nextInt(atoms.length)]);
+            }
+
+            XmlHashWriter writer = new XmlHashWriter();
+            for (int start = 0; start < xml.length(); ) {
+                int end = Math.min(xml.length(), start + 1 + random.nextInt(5));
+                writer.write(xml.toString(), start, end - start);
+                start = end;
+            }
+
+            Assertions.assertEquals(getHashXML(xml.toString()), writer.getHash(), xml.toString());
+        }
+    }
+
+    @Test
+    void getHash_SkipsSingleLineCommentsOnly() throws Exception {
+        XmlHashWriter writer = new XmlHashWriter();
+        writer.write("<a>\n  <!-- licence -->\n  <b/>\n  <!-- multi\nline -->\n</a>\n");
+        Assertions.assertEquals(getHashXML("<a>\n  <b/>\n  <!-- multi\nline -->\n</a>\n"), writer.getHash());
+    }
+
+    /** The computation of {@link StringHelper#getHashXML(String)}. */
+    private static String getHashXML(String xml) throws Exception {
+        xml = xml.replaceAll("[\\s]*<!--.*?-->", Matcher.quoteReplacement(""));
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        md.update(xml.getBytes());
+        String result = new BigInteger(1, md.digest()).toString(16);
+        return (result.length() % 2) != 0 ? "0" + result : result;
+    }
+
+}
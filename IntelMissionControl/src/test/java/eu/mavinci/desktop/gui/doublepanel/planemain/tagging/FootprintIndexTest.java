@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.gui.doublepanel.planemain.tagging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FootprintIndexTest {
+
+    @Test
+    void forEachIntersecting_FindsSameFootprintsAsFullScan() {
+        Random random = new Random(11);
+        int count = 5000;
+        double[] minLat = new double[count];
+        double[] maxLat = new double[count];
+        double[] minLon = new double[count];
+        double[] maxLon = new double[count];
+        for (int i = 0; i < count; i++) {
+            if (i % 50 == 0) {
+                // no footprint
+                minLat[i] = maxLat[i] = minLon[i] = maxLon[i] = Double.NaN;
+                continue;
+            }
+
+            // a few far away outliers stretch the grid
+            double lat = i % 997 == 0 ? -30 : 47 + random.nextDouble() * 0.05;
+            double lon = 11 + random.nextDouble() * 0.08;
+            minLat[i] = lat;
+            maxLat[i] = lat + 2e-4 + random.nextDouble() * 4e-4;
+            minLon[i] = lon;
+            maxLon[i] = lon + 3e-4 + random.nextDouble() * 6e-4;
+        }
+
+        FootprintIndex index = new FootprintIndex(minLat, maxLat, minLon, maxLon, count);
+        for (int q = 0; q < 200; q++) {
+            double lat0 = 46.99 + random.nextDouble() * 0.07;
+            double lon0 = 10.99 + random.nextDouble() * 0.1;
+            double lat1 = lat0 + random.nextDouble() * 0.01;
+            double lon1 = lon0 + random.nextDouble() * 0.01;
+
+            List<Integer> found = new ArrayList<>();
+            index.forEachIntersecting(lat0, lat1, lon0, lon1, found::add);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (minLat[i] <= lat1 && maxLat[i] >= lat0 && minLon[i] <= lon1 && maxLon[i] >= lon0) {
+                    expected.add(i);
+                }
+            }
+
+            found.sort(null);
+            Assertions.assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    void forEachIntersecting_HandlesQueriesOutsideTheGrid() {
+        double[] minLat = {10, 10.5};
+        double[] maxLat = {10.1, 10.6};
+        double[] minLon = {20, 20.5};
+        double[] maxLon = {20.1, 20.6};
+        FootprintIndex index = new FootprintIndex(minLat, maxLat, minLon, maxLon, 2);
+
+        List<Integer> found = new ArrayList<>();
+        index.forEachIntersecting(0, 1, 0, 1, found::add);
+        index.forEachIntersecting(50, 60, 50, 60, found::add);
+        Assertions.assertTrue(found.isEmpty());
+
+        index.forEachIntersecting(0, 90, 0, 180, found::add);
+        Assertions.assertEquals(Arrays.asList(0, 1), found);
+    }
+
+    @Test
+    void markOutside_ComparesPeriodicValuesTheShortWay() {
+        int yawFailed = MatchAttributeTable.FAILED_YAW;
+        double[] yaw = {355, 5, 20, 180, -170};
+        int[] failed = new int[yaw.length];
+        MatchAttributeTable.markOutside(yaw, yaw.length, -10, 10, true, yawFailed, failed);
+        Assertions.assertArrayEquals(new int[] {0, 0, yawFailed, yawFailed, yawFailed}, failed);
+
+        int rangeFailed = MatchAttributeTable.FAILED_RANGE;
+        double[] altitude = {99, 100, 130, Double.NaN};
+        failed = new int[altitude.length];
+        MatchAttributeTable.markOutside(altitude, altitude.length, 100, 120, false, rangeFailed, failed);
+        Assertions.assertArrayEquals(new int[] {rangeFailed, 0, rangeFailed, rangeFailed}, failed);
+    }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.gui.doublepanel.planemain.wwd;
+
+import eu.mavinci.desktop.helper.ImageMask;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import gov.nasa.worldwind.geom.Sector;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GroundProjectedMosaicTest {
+
+    private static final int SIZE = 4 * GroundProjectedMosaic.BLOCK_SIZE;
+    private static final Sector SECTOR = Sector.fromDegrees(0, 1, 0, 1);
+
+    private final Map<File, BufferedImage> thumbnails = new HashMap<>();
+    private final BiFunction<File, ImageMask, BufferedImage> loader = (file, mask) -> thumbnails.get(file);
+
+    private final File fileA = thumbnail("a", Color.RED);
+    private final File fileB = thumbnail("b", Color.GREEN);
+    private final File fileC = thumbnail("c", Color.BLUE);
+    private final Object keyA = new Object();
+    private final Object keyB = new Object();
+    private final Object keyC = new Object();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compose_AfterMovingOneImage_RecomposesOnlyItsBlocks() throws Exception {
+        GroundProjectedMosaic mosaic = new GroundProjectedMosaic(loader);
+        List<Object> keys = List.of(keyA, keyB, keyC);
+
+        mosaic.compose(SECTOR, SIZE, SIZE, keys, placements(square(fileB, 0, 300, 300, 300)));
+        Assertions.assertEquals(16, mosaic.getLastComposedBlockCount());
+
+        // B covers the blocks 1 and 2 in both directions before and after the move
+        List<GroundProjectedMosaic.Placement> moved = placements(square(fileB, 0, 320, 300, 300));
+        BufferedImage incremental = mosaic.compose(SECTOR, SIZE, SIZE, keys, moved);
+        Assertions.assertEquals(4, mosaic.getLastComposedBlockCount());
+
+        BufferedImage full = new GroundProjectedMosaic(loader).compose(SECTOR, SIZE, SIZE, keys, moved);
+        Assertions.assertArrayEquals(pixels(full), pixels(incremental));
+    }
+
+    @Test
+    void compose_AfterThumbnailChanged_RecomposesItsBlocks() throws Exception {
+        GroundProjectedMosaic mosaic = new GroundProjectedMosaic(loader);
+        List<Object> keys = List.of(keyA, keyB, keyC);
+
+        mosaic.compose(SECTOR, SIZE, SIZE, keys, placements(square(fileB, 0, 300, 300, 300)));
+        mosaic.compose(SECTOR, SIZE, SIZE, keys, placements(square(fileB, 0, 300, 300, 300)));
+        Assertions.assertEquals(0, mosaic.getLastComposedBlockCount());
+
+        // the thumbnail is recreated at the same path
+        thumbnail("b", Color.YELLOW);
+        List<GroundProjectedMosaic.Placement> changed = placements(square(fileB, 1, 300, 300, 300));
+        BufferedImage incremental = mosaic.compose(SECTOR, SIZE, SIZE, keys, changed);
+        Assertions.assertEquals(4, mosaic.getLastComposedBlockCount());
+        Assertions.assertEquals(Color.YELLOW.getRGB(), incremental.getRGB(450, 450));
+
+        BufferedImage full = new GroundProjectedMosaic(loader).compose(SECTOR, SIZE, SIZE, keys, changed);
+        Assertions.assertArrayEquals(pixels(full), pixels(incremental));
+    }
+
+    @Test
+    void compose_ThroughImageCache_AfterMaskRecomputed_DrawsNewMask() throws Exception {
+        ImageCache cache = new ImageCache(16 * 1024 * 1024, null, 0, new MetricsRegistry());
+        GroundProjectedMosaic mosaic = new GroundProjectedMosaic(cache::getImage);
+        File file = directory.resolve("thumb.png").toFile();
+        ImageIO.write(filled(BufferedImage.TYPE_3BYTE_BGR, Color.GREEN), "png", file);
+        File maskFile = directory.resolve("maskWide.png").toFile();
+        ImageIO.write(filled(BufferedImage.TYPE_BYTE_GRAY, Color.WHITE), "png", maskFile);
+        List<Object> keys = List.of(keyB);
+
+        BufferedImage visible =
+            mosaic.compose(
+                SECTOR, SIZE, SIZE, keys, List.of(square(file, file.lastModified(), new ImageMask(maskFile))));
+        Assertions.assertEquals(Color.GREEN.getRGB(), visible.getRGB(450, 450));
+
+        // the mask is recomputed into the same file, and hides everything now
+        ImageIO.write(filled(BufferedImage.TYPE_BYTE_GRAY, Color.BLACK), "png", maskFile);
+        maskFile.setLastModified(maskFile.lastModified() + 2000);
+        List<GroundProjectedMosaic.Placement> recomputed =
+            List.of(square(file, file.lastModified(), new ImageMask(maskFile)));
+        BufferedImage hidden = mosaic.compose(SECTOR, SIZE, SIZE, keys, recomputed);
+        Assertions.assertEquals(4, mosaic.getLastComposedBlockCount());
+        Assertions.assertEquals(0, hidden.getRGB(450, 450) >>> 24);
+
+        BufferedImage full = new GroundProjectedMosaic(cache::getImage).compose(SECTOR, SIZE, SIZE, keys, recomputed);
+        Assertions.assertArrayEquals(pixels(full), pixels(hidden));
+    }
+
+    private List<GroundProjectedMosaic.Placement> placements(GroundProjectedMosaic.Placement b) {
+        List<GroundProjectedMosaic.Placement> placements = new ArrayList<>();
+        placements.add(square(fileA, 0, 10, 10, 200));
+        placements.add(b);
+        placements.add(square(fileC, 0, 700, 100, 200));
+        return placements;
+    }
+
+    /** An image projected onto an axis aligned square, in mosaic pixels. */
+    private static GroundProjectedMosaic.Placement square(File file, long lastModified, int x, int y, int size) {
+        return square(file, lastModified, null, x, y, size);
+    }
+
+    /** A masked image projected onto the blocks 1 and 2 in both directions. */
+    private static GroundProjectedMosaic.Placement square(File file, long lastModified, ImageMask mask) {
+        return square(file, lastModified, mask, 300, 300, 300);
+    }
+
+    private static GroundProjectedMosaic.Placement square(
+            File file, long lastModified, ImageMask mask, int x, int y, int size) {
+        double[] corners = {x, y + size, x + size, y + size, x + size, y, x, y};
+        return new GroundProjectedMosaic.Placement(
+            file, lastModified, mask, corners, x + size / 2.0, y + size / 2.0, x, y, x + size, y + size);
+    }
+
+    private static BufferedImage filled(int type, Color color) {
+        BufferedImage image = new BufferedImage(64, 64, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 64, 64);
+        g.dispose();
+        return image;
+    }
+
+    private File thumbnail(String name, Color color) {
+        File file = new File(name + ".jpg");
+        thumbnails.put(file, filled(BufferedImage.TYPE_3BYTE_BGR, color));
+        return file;
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+    }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.gui.doublepanel.planemain.wwd;
+
+import eu.mavinci.desktop.helper.ImageMask;
+import eu.mavinci.desktop.main.debug.profiling.metrics.MetricsRegistry;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageCacheTest {
+
+    private static final int IMAGE_SIZE = 64;
+    private static final long IMAGE_BYTES = IMAGE_SIZE * IMAGE_SIZE * 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentRequests_LoadImageOnce() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES, null, 0, metrics);
+        File file = writeImage("single");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<BufferedImage>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(
+                    executor.submit(
+                        () -> {
+                            start.await();
+                            return cache.getImage(file, null);
+                        }));
+            }
+
+            start.countDown();
+            BufferedImage first = results.get(0).get();
+            Assertions.assertNotNull(first);
+            for (Future<BufferedImage> result : results) {
+                Assertions.assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(1, metrics.histogram("imageCache.loadLatency").snapshot().getCount());
+    }
+
+    @Test
+    void weightedBytes_StayWithinBudget() throws Exception {
+        ImageCache cache = new ImageCache(4 * IMAGE_BYTES, null, 0, new MetricsRegistry());
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertNotNull(cache.getImage(writeImage("image" + i), null));
+            Assertions.assertTrue(cache.getWeightedBytes() <= cache.getMaxBytes());
+        }
+
+        Assertions.assertTrue(cache.getEvictionCount() > 0);
+        Assertions.assertTrue(cache.size() <= 4);
+    }
+
+    @Test
+    void frequentlyUsedImage_SurvivesScan() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        ImageCache cache = new ImageCache(4 * IMAGE_BYTES, null, 0, metrics);
+        File hot = writeImage("hot");
+        for (int i = 0; i < 5; i++) {
+            cache.getImage(hot, null);
+        }
+
+        for (int i = 0; i < 30; i++) {
+            cache.getImage(writeImage("scan" + i), null);
+        }
+
+        long hits = metrics.counter("imageCache.hits").get();
+        cache.getImage(hot, null);
+        Assertions.assertEquals(hits + 1, metrics.counter("imageCache.hits").get());
+    }
+
+    @Test
+    void invalidate_ForcesReload() throws Exception {
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES, null, 0, new MetricsRegistry());
+        File file = writeImage("invalidated");
+        BufferedImage first = cache.getImage(file, null);
+        Assertions.assertSame(first, cache.getImage(file, null));
+
+        cache.invalidate(file);
+        Assertions.assertEquals(0, cache.getWeightedBytes());
+        Assertions.assertNotSame(first, cache.getImage(file, null));
+    }
+
+    @Test
+    void maskedImage_AfterMaskRecomputed_IsMaskedAgain() throws Exception {
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES, null, 0, new MetricsRegistry());
+        File file = writeImage("masked");
+        File maskFile = writeMask("mask", 255);
+
+        BufferedImage visible = cache.getImage(file, new ImageMask(maskFile));
+        Assertions.assertEquals(255, visible.getRGB(0, 0) >>> 24);
+        Assertions.assertSame(visible, cache.getImage(file, new ImageMask(maskFile)));
+
+        writeMask("mask", 0);
+        maskFile.setLastModified(maskFile.lastModified() + 2000);
+        BufferedImage hidden = cache.getImage(file, new ImageMask(maskFile));
+        Assertions.assertEquals(0, hidden.getRGB(0, 0) >>> 24);
+    }
+
+    @Test
+    void image_AfterFileRewritten_IsLoadedAgain() throws Exception {
+        ImageCache cache = new ImageCache(10 * IMAGE_BYTES, null, 0, new MetricsRegistry());
+        File file = writeImage("rewritten");
+        BufferedImage first = cache.getImage(file, null);
+
+        writeImage("rewritten");
+        file.setLastModified(file.lastModified() + 2000);
+        Assertions.assertNotSame(first, cache.getImage(file, null));
+    }
+
+    @Test
+    void diskDirectory_IsPrunedToBoundOnCreation() throws Exception {
+        Path diskDirectory = directory.resolve("masked");
+        Files.createDirectories(diskDirectory);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            Path file = diskDirectory.resolve("cached" + i + ".png");
+            Files.write(file, new byte[1000]);
+            file.toFile().setLastModified(now - (10 - i) * 60_000L);
+        }
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        new ImageCache(10 * IMAGE_BYTES, diskDirectory, 5000, metrics);
+
+        // the oldest files are deleted until three quarters of the bound are left
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(i >= 7, Files.exists(diskDirectory.resolve("cached" + i + ".png")));
+        }
+
+        Assertions.assertEquals(7, metrics.counter("imageCache.diskEvictions").get());
+    }
+
+    /** A mask of the size of the images with the same value in every pixel, 0 hides a pixel. */
+    private File writeMask(String name, int value) throws Exception {
+        BufferedImage mask = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < IMAGE_SIZE; y++) {
+            for (int x = 0; x < IMAGE_SIZE; x++) {
+                mask.getRaster().setSample(x, y, 0, value);
+            }
+        }
+
+        File file = directory.resolve(name + ".png").toFile();
+        ImageIO.write(mask, "png", file);
+        return file;
+    }
+
+    private File writeImage(String name) throws Exception {
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        image.setRGB(0, 0, name.hashCode());
+        File file = directory.resolve(name + ".png").toFile();
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+}
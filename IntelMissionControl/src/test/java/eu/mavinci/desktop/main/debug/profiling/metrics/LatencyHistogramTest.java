@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.desktop.main.debug.profiling.metrics;
+
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketBounds_CoverEveryValue() {
+        Random random = new Random(31);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> random.nextInt(64);
+            int index = LatencyHistogram.bucketIndex(value);
+            Assertions.assertTrue(index >= 0 && index < LatencyHistogram.BUCKET_COUNT);
+            Assertions.assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            Assertions.assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+        }
+
+        Assertions.assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            Assertions.assertEquals(
+                LatencyHistogram.bucketUpperBound(i - 1) + 1, LatencyHistogram.bucketLowerBound(i));
+        }
+    }
+
+    @Test
+    void percentiles_AreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assertions.assertEquals(10000, snapshot.getCount());
+        Assertions.assertEquals(10000000, snapshot.getMaxNanos());
+        Assertions.assertEquals(5000500, snapshot.getMeanNanos(), 1e-6);
+
+        double precision = 1.0 / LatencyHistogram.SUB_BUCKET_COUNT;
+        Assertions.assertEquals(5000000, snapshot.getValueAtPercentile(50), 5000000 * precision);
+        Assertions.assertEquals(9900000, snapshot.getValueAtPercentile(99), 9900000 * precision);
+        Assertions.assertEquals(10000000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void registry_ReturnsSameMetricForName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Assertions.assertSame(registry.histogram("a"), registry.histogram("a"));
+        registry.counter("c").add(3);
+        registry.counter("c").increment();
+        registry.gauge("g", () -> 1.5);
+
+        MetricsSnapshot snapshot = registry.snapshot();
+        Assertions.assertEquals(4L, snapshot.getCounters().get("c"));
+        Assertions.assertEquals(1.5, snapshot.getGauges().get("g"));
+        Assertions.assertTrue(snapshot.toJson().contains("\"a\""));
+    }
+
+}
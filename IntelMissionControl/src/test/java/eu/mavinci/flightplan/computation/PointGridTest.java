@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PointGridTest {
+
+    @Test
+    void forEachWithin_MatchesBruteForce() {
+        Random random = new Random(3);
+        double[] coordinates = randomPoints(random, 2000, 50);
+        PointGrid grid = new PointGrid(coordinates, 2);
+        for (double radius : new double[] {0.5, 2, 7}) {
+            for (int q = 0; q < 200; q++) {
+                double x = random.nextDouble() * 60 - 5;
+                double y = random.nextDouble() * 60 - 5;
+                double z = random.nextDouble() * 60 - 5;
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < coordinates.length / 3; i++) {
+                    double dx = coordinates[3 * i] - x;
+                    double dy = coordinates[3 * i + 1] - y;
+                    double dz = coordinates[3 * i + 2] - z;
+                    if (dx * dx + dy * dy + dz * dz <= radius * radius) {
+                        expected.add(i);
+                    }
+                }
+
+                List<Integer> found = new ArrayList<>();
+                grid.forEachWithin(x, y, z, radius, found::add);
+                Collections.sort(found);
+                Assertions.assertEquals(expected, found);
+            }
+        }
+    }
+
+    @Test
+    void forEachNeighbour_SkipsThePointItself() {
+        PointGrid grid = new PointGrid(new double[] {0, 0, 0, 1, 0, 0, 3, 0, 0}, 1);
+        List<Integer> found = new ArrayList<>();
+        grid.forEachNeighbour(0, 1, found::add);
+        Assertions.assertEquals(List.of(1), found);
+    }
+
+    @Test
+    void clusters_MatchFloodFill() {
+        Random random = new Random(7);
+        double[] coordinates = randomPoints(random, 1500, 40);
+        double maxDistance = 1.5;
+        int[] clusters = new PointGrid(coordinates, maxDistance).clusters(maxDistance);
+
+        int pointCount = coordinates.length / 3;
+        int[] expected = new int[pointCount];
+        Arrays.fill(expected, -1);
+        int clusterCount = 0;
+        for (int start = 0; start < pointCount; start++) {
+            if (expected[start] >= 0) {
+                continue;
+            }
+
+            List<Integer> probe = new ArrayList<>(List.of(start));
+            expected[start] = clusterCount;
+            while (!probe.isEmpty()) {
+                int i = probe.remove(probe.size() - 1);
+                for (int j = 0; j < pointCount; j++) {
+                    double dx = coordinates[3 * i] - coordinates[3 * j];
+                    double dy = coordinates[3 * i + 1] - coordinates[3 * j + 1];
+                    double dz = coordinates[3 * i + 2] - coordinates[3 * j + 2];
+                    if (expected[j] < 0 && dx * dx + dy * dy + dz * dz <= maxDistance * maxDistance) {
+                        expected[j] = clusterCount;
+                        probe.add(j);
+                    }
+                }
+            }
+
+            clusterCount++;
+        }
+
+        Assertions.assertTrue(clusterCount > 1 && clusterCount < pointCount);
+        Assertions.assertArrayEquals(expected, clusters);
+    }
+
+    @Test
+    void clusters_OfIdenticalPoints_WithZeroDistance() {
+        double[] coordinates = {1, 1, 1, 2, 2, 2, 1, 1, 1};
+        Assertions.assertArrayEquals(new int[] {0, 1, 0}, new PointGrid(coordinates, 1).clusters(0));
+        Assertions.assertArrayEquals(new int[0], new PointGrid(new double[0], 1).clusters(1));
+    }
+
+    static double[] randomPoints(Random random, int count, double extent) {
+        double[] coordinates = new double[count * 3];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = random.nextDouble() * extent;
+        }
+
+        return coordinates;
+    }
+
+}
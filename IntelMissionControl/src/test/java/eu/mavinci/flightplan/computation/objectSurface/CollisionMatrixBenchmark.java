@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation.objectSurface;
+
+import gov.nasa.worldwind.geom.Vec4;
+import java.util.Random;
+
+/**
+ * Measures the collision cost matrix of the object surface planning on a synthetic object: a dilated sphere with a box
+ * on top, and waypoints on a shell around it at camera distance.
+ *
+ * <p>The fixed step march samples every edge in steps of the flight line spacing, allocating a {@link Vec4} per step
+ * and reading the {@link PlanVoxel} raster, on one thread. It is compared against the voxel traversal of {@link
+ * VoxelOccupancy} run by {@link CollisionCostMatrix}. The march can step over voxels, so it usually finds fewer
+ * colliding edges.
+ *
+ * <p>Usage: {@code CollisionMatrixBenchmark [waypoints] [voxelsPerSide]}
+ */
+public final class CollisionMatrixBenchmark {
+
+    private static final double RASTER_SIZE = 0.2;
+    private static final double STEP_XYZ = 5 * RASTER_SIZE;
+    private static final double COLLISION_PENALTY = 1000;
+    private static final double CAMERA_CHANGE_PENALTY = 2;
+
+    public static void main(String[] args) {
+        int waypointCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int voxelsPerSide = args.length > 1 ? Integer.parseInt(args[1]) : 150;
+
+        double extent = voxelsPerSide * RASTER_SIZE;
+        double center = extent / 2;
+        double radius = extent / 4;
+        PlanVoxel[][][] voxels = new PlanVoxel[voxelsPerSide][voxelsPerSide][voxelsPerSide];
+        VoxelOccupancy occupancy =
+            new VoxelOccupancy(voxelsPerSide, voxelsPerSide, voxelsPerSide, 0, 0, 0, RASTER_SIZE);
+        for (int x = 0; x < voxelsPerSide; x++) {
+            for (int y = 0; y < voxelsPerSide; y++) {
+                for (int z = 0; z < voxelsPerSide; z++) {
+                    double dx = (x + 0.5) * RASTER_SIZE - center;
+                    double dy = (y + 0.5) * RASTER_SIZE - center;
+                    double dz = (z + 0.5) * RASTER_SIZE - center;
+                    boolean inSphere = dx * dx + dy * dy + dz * dz <= radius * radius;
+                    boolean inBox =
+                        Math.abs(dx) < radius / 3 && Math.abs(dy) < radius / 3 && dz > 0 && dz < 1.4 * radius;
+                    voxels[x][y][z] = new PlanVoxel();
+                    if (inSphere || inBox) {
+                        voxels[x][y][z].dilatedModelCollisionCheck = true;
+                        occupancy.set(x, y, z);
+                    }
+                }
+            }
+        }
+
+        Random random = new Random(1);
+        Vec4[] points = new Vec4[waypointCount];
+        Vec4[] normals = new Vec4[waypointCount];
+        for (int i = 0; i < waypointCount; i++) {
+            Vec4 normal =
+                new Vec4(random.nextGaussian(), random.nextGaussian(), Math.abs(random.nextGaussian())).normalize3();
+            normals[i] = normal.getNegative3();
+            points[i] = new Vec4(center, center, center).add3(normal.multiply3(radius * 1.6));
+        }
+
+        System.out.println(
+            waypointCount + " waypoints, " + voxelsPerSide + "^3 voxels, " + Runtime.getRuntime().availableProcessors()
+                + " cores");
+        for (int run = 0; run < 3; run++) {
+            System.out.println("run " + run);
+
+            double[][] costs = new double[waypointCount][waypointCount];
+            Vec4[][] directions = new Vec4[waypointCount][waypointCount];
+            long start = System.nanoTime();
+            int collisions = march(points, normals, voxels, costs, directions);
+            report("  fixed step march", start, collisions);
+
+            costs = new double[waypointCount][waypointCount];
+            directions = new Vec4[waypointCount][waypointCount];
+            start = System.nanoTime();
+            new CollisionCostMatrix(
+                    points, normals, occupancy, COLLISION_PENALTY, CAMERA_CHANGE_PENALTY, costs, directions)
+                .compute(() -> false, progress -> {});
+            report("  voxel traversal", start, countCollisions(costs));
+        }
+    }
+
+    /** The matrix as it was computed in {@code ObjectFlightplanAlg.solveTsp}, marching along the whole edge. */
+    private static int march(
+            Vec4[] points, Vec4[] normals, PlanVoxel[][][] voxels, double[][] costs, Vec4[][] directions) {
+        int steps = voxels.length;
+        for (int i = 0; i < points.length; i++) {
+            Vec4 a = points[i];
+            for (int j = 0; j < i; j++) {
+                Vec4 b = points[j];
+                Vec4 diff = a.subtract3(b);
+                directions[i][j] = diff.normalize3();
+                directions[j][i] = directions[i][j].getNegative3();
+
+                double cost = 0;
+                Vec4 pos = a;
+                Vec4 step = diff.normalize3().multiply3(-STEP_XYZ);
+                int stepCount = (int)Math.ceil(diff.getLength3() / STEP_XYZ);
+                for (int s = 0; s < stepCount; s++) {
+                    pos = pos.add3(step);
+                    int x = (int)Math.floor(pos.x / RASTER_SIZE);
+                    int y = (int)Math.floor(pos.y / RASTER_SIZE);
+                    int z = (int)Math.floor(pos.z / RASTER_SIZE);
+                    if (x < 0 || x >= steps || y < 0 || y >= steps || z < 0 || z >= steps) {
+                        break;
+                    }
+
+                    if (voxels[x][y][z].dilatedModelCollisionCheck) {
+                        cost = COLLISION_PENALTY;
+                        break;
+                    }
+                }
+
+                cost += a.distanceTo3(b);
+                cost += normals[i].angleBetween3(normals[j]).getRadians() * CAMERA_CHANGE_PENALTY;
+                costs[i][j] = cost;
+                costs[j][i] = cost;
+            }
+        }
+
+        return countCollisions(costs);
+    }
+
+    private static int countCollisions(double[][] costs) {
+        int collisions = 0;
+        for (int i = 0; i < costs.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (costs[i][j] >= COLLISION_PENALTY) {
+                    collisions++;
+                }
+            }
+        }
+
+        return collisions;
+    }
+
+    private static void report(String name, long startNanos, int collisions) {
+        double millis = (System.nanoTime() - startNanos) / 1e6;
+        System.out.println(String.format("%s: %.1f ms, %d colliding edges", name, millis, collisions));
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation.objectSurface;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures segment distance queries against a synthetic height field mesh, as done by the collision checks of the
+ * object surface planning: every triangle tested per segment against the bounding volume hierarchy, one segment at a
+ * time and as a batch on all cores.
+ *
+ * <p>Usage: {@code MeshBvhBenchmark [triangles] [segments]}
+ */
+public final class MeshBvhBenchmark {
+
+    private static final double SAFETY_DISTANCE = 3;
+
+    public static void main(String[] args) {
+        int triangleCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int segmentCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        Random random = new Random(1);
+        List<MTriangle> triangles = MeshBvhTest.createSurface(random, triangleCount);
+        double[] vertices = MeshBvhTest.toArray(triangles);
+
+        // flight segments a few meters above the surface, some of them dipping into it
+        double[] segments = new double[segmentCount * 6];
+        for (int i = 0; i < segmentCount; i++) {
+            for (int k = 0; k < 6; k += 3) {
+                segments[6 * i + k] = random.nextDouble() * 100;
+                segments[6 * i + k + 1] = random.nextDouble() * 100;
+                segments[6 * i + k + 2] = 10 + random.nextDouble() * 20;
+            }
+        }
+
+        long start = System.nanoTime();
+        MeshBvh bvh = new MeshBvh(triangles);
+        System.out.println(
+            String.format(
+                "%d triangles, %d nodes, built in %.1f ms",
+                bvh.getTriangleCount(),
+                bvh.getNodeCount(),
+                (System.nanoTime() - start) / 1e6));
+
+        for (int run = 0; run < 3; run++) {
+            System.out.println("run " + run);
+
+            // the brute force scan is slow, so it only runs over a part of the segments
+            int bruteForceCount = Math.max(1, segmentCount / 20);
+            int hits = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < bruteForceCount; i++) {
+                double distance2 = Double.POSITIVE_INFINITY;
+                for (int k = 0; k < triangles.size(); k++) {
+                    distance2 =
+                        Math.min(
+                            distance2,
+                            MeshBvh.segmentTriangleDistance2(
+                                vertices,
+                                9 * k,
+                                segments[6 * i],
+                                segments[6 * i + 1],
+                                segments[6 * i + 2],
+                                segments[6 * i + 3],
+                                segments[6 * i + 4],
+                                segments[6 * i + 5]));
+                }
+
+                hits += distance2 < SAFETY_DISTANCE * SAFETY_DISTANCE ? 1 : 0;
+            }
+
+            report("  brute force", start, bruteForceCount, hits);
+
+            hits = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < segmentCount; i++) {
+                double distance =
+                    bvh.distanceToSegment(
+                        segments[6 * i],
+                        segments[6 * i + 1],
+                        segments[6 * i + 2],
+                        segments[6 * i + 3],
+                        segments[6 * i + 4],
+                        segments[6 * i + 5],
+                        SAFETY_DISTANCE);
+                hits += distance < SAFETY_DISTANCE ? 1 : 0;
+            }
+
+            report("  hierarchy", start, segmentCount, hits);
+
+            hits = 0;
+            start = System.nanoTime();
+            for (boolean hit : bvh.anyWithin(segments, SAFETY_DISTANCE)) {
+                hits += hit ? 1 : 0;
+            }
+
+            report("  hierarchy, any hit, batch", start, segmentCount, hits);
+        }
+    }
+
+    private static void report(String name, long startNanos, int segments, int hits) {
+        double micros = (System.nanoTime() - startNanos) / 1e3;
+        System.out.println(
+            String.format("%s: %.1f us/segment, %d of %d segments collide", name, micros / segments, hits, segments));
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation.objectSurface;
+
+import gov.nasa.worldwind.geom.Vec4;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MeshBvhTest {
+
+    @Test
+    void segmentTriangleDistance_MatchesSampledDistance() {
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            double[] triangle = new double[9];
+            for (int k = 0; k < 9; k++) {
+                triangle[k] = random.nextDouble() * 4;
+            }
+
+            double[] segment = new double[6];
+            for (int k = 0; k < 6; k++) {
+                segment[k] = random.nextDouble() * 6 - 1;
+            }
+
+            double exact = Math.sqrt(segmentTriangleDistance2(triangle, 0, segment, 0));
+
+            // the distance changes by at most the step length between the sampled points of the segment
+            double sampled = Double.POSITIVE_INFINITY;
+            int steps = 60;
+            for (int s = 0; s <= steps; s++) {
+                double t = s / (double)steps;
+                double px = segment[0] + t * (segment[3] - segment[0]);
+                double py = segment[1] + t * (segment[4] - segment[1]);
+                double pz = segment[2] + t * (segment[5] - segment[2]);
+                sampled = Math.min(sampled, Math.sqrt(MeshBvh.pointTriangleDistance2(triangle, 0, px, py, pz)));
+            }
+
+            Assertions.assertTrue(exact <= sampled + 1e-9);
+            Assertions.assertTrue(sampled - exact <= 6.0 / steps);
+        }
+    }
+
+    @Test
+    void pointTriangleDistance_IsDistanceToPlane_AboveTheTriangle() {
+        double[] triangle = {0, 0, 0, 4, 0, 0, 0, 4, 0};
+        Assertions.assertEquals(9, MeshBvh.pointTriangleDistance2(triangle, 0, 1, 1, 3), 1e-12);
+        Assertions.assertEquals(1 + 4, MeshBvh.pointTriangleDistance2(triangle, 0, -1, 1, 2), 1e-12);
+        Assertions.assertEquals(2 + 1, MeshBvh.pointTriangleDistance2(triangle, 0, 3, 3, 1), 1e-12);
+    }
+
+    @Test
+    void queries_MatchBruteForce() {
+        Random random = new Random(11);
+        List<MTriangle> triangles = createSurface(random, 3000);
+        double[] vertices = toArray(triangles);
+        MeshBvh bvh = new MeshBvh(triangles);
+        Assertions.assertEquals(triangles.size(), bvh.getTriangleCount());
+
+        double[] segments = new double[6 * 500];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = random.nextDouble() * 120 - 10;
+        }
+
+        double radius = 3;
+        double[] batchDistances = bvh.distancesToSegments(segments, radius);
+        boolean[] batchHits = bvh.anyWithin(segments, radius);
+        for (int i = 0; i < segments.length / 6; i++) {
+            int o = 6 * i;
+            double expected = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < triangles.size(); k++) {
+                expected = Math.min(expected, segmentTriangleDistance2(vertices, 9 * k, segments, o));
+            }
+
+            expected = Math.sqrt(expected);
+            double distance =
+                bvh.distanceToSegment(
+                    segments[o],
+                    segments[o + 1],
+                    segments[o + 2],
+                    segments[o + 3],
+                    segments[o + 4],
+                    segments[o + 5],
+                    Double.POSITIVE_INFINITY);
+            Assertions.assertEquals(expected, distance, 1e-9);
+            Assertions.assertEquals(expected < radius ? expected : Double.POSITIVE_INFINITY, batchDistances[i], 1e-9);
+            Assertions.assertEquals(expected < radius, batchHits[i]);
+
+            Vec4 origin = new Vec4(segments[o], segments[o + 1], segments[o + 2]);
+            Vec4 direction = new Vec4(segments[o + 3], segments[o + 4], segments[o + 5]).subtract3(origin);
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < triangles.size(); k++) {
+                double t =
+                    MeshBvh.rayTriangleIntersection(
+                        vertices, 9 * k, origin.x, origin.y, origin.z, direction.x, direction.y, direction.z);
+                if (t >= 0 && t <= 1) {
+                    nearest = Math.min(nearest, t);
+                }
+            }
+
+            Assertions.assertEquals(nearest, bvh.intersectRay(origin, direction, 1), 1e-12);
+        }
+    }
+
+    @Test
+    void queries_OnEmptyMesh_FindNothing() {
+        MeshBvh bvh = new MeshBvh(new ArrayList<>());
+        Assertions.assertEquals(
+            Double.POSITIVE_INFINITY, bvh.distanceToSegment(Vec4.ZERO, Vec4.UNIT_X, Double.POSITIVE_INFINITY));
+        Assertions.assertFalse(bvh.anyWithin(Vec4.ZERO, Vec4.UNIT_X, 10));
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, bvh.intersectRay(Vec4.ZERO, Vec4.UNIT_X, 10));
+    }
+
+    private static double segmentTriangleDistance2(double[] vertices, int o, double[] segments, int s) {
+        return MeshBvh.segmentTriangleDistance2(
+            vertices,
+            o,
+            segments[s],
+            segments[s + 1],
+            segments[s + 2],
+            segments[s + 3],
+            segments[s + 4],
+            segments[s + 5]);
+    }
+
+    /** A bumpy height field of about the given number of triangles over 100 x 100 meters. */
+    static List<MTriangle> createSurface(Random random, int triangleCount) {
+        int cells = (int)Math.ceil(Math.sqrt(triangleCount / 2.0));
+        double cellSize = 100.0 / cells;
+        double[][] heights = new double[cells + 1][cells + 1];
+        for (int x = 0; x <= cells; x++) {
+            for (int y = 0; y <= cells; y++) {
+                heights[x][y] = 20 * Math.sin(x * 0.3) * Math.cos(y * 0.2) + random.nextDouble() * 2;
+            }
+        }
+
+        List<MTriangle> triangles = new ArrayList<>();
+        for (int x = 0; x < cells; x++) {
+            for (int y = 0; y < cells; y++) {
+                Vec4 a = new Vec4(x * cellSize, y * cellSize, heights[x][y]);
+                Vec4 b = new Vec4((x + 1) * cellSize, y * cellSize, heights[x + 1][y]);
+                Vec4 c = new Vec4(x * cellSize, (y + 1) * cellSize, heights[x][y + 1]);
+                Vec4 d = new Vec4((x + 1) * cellSize, (y + 1) * cellSize, heights[x + 1][y + 1]);
+                triangles.add(new MTriangle(a, b, c));
+                triangles.add(new MTriangle(b, d, c));
+            }
+        }
+
+        return triangles;
+    }
+
+    static double[] toArray(List<MTriangle> triangles) {
+        double[] vertices = new double[triangles.size() * 9];
+        for (int k = 0; k < triangles.size(); k++) {
+            Vec4[] corners = {triangles.get(k).getA(), triangles.get(k).getB(), triangles.get(k).getC()};
+            for (int c = 0; c < 3; c++) {
+                vertices[9 * k + 3 * c] = corners[c].x;
+                vertices[9 * k + 3 * c + 1] = corners[c].y;
+                vertices[9 * k + 3 * c + 2] = corners[c].z;
+            }
+        }
+
+        return vertices;
+    }
+
+}
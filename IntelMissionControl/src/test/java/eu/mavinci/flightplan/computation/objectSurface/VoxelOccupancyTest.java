@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.flightplan.computation.objectSurface;
+
+import gov.nasa.worldwind.geom.Vec4;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class VoxelOccupancyTest {
+
+    @Test
+    void intersects_MatchesBoxIntersection_ForSingleVoxel() {
+        Random random = new Random(7);
+        double rasterSize = 0.37;
+        for (int i = 0; i < 20000; i++) {
+            VoxelOccupancy occupancy = new VoxelOccupancy(6, 5, 4, -1, 2, 0.5, rasterSize);
+            int x = random.nextInt(6);
+            int y = random.nextInt(5);
+            int z = random.nextInt(4);
+            occupancy.set(x, y, z);
+
+            double[] a = randomPoint(random, rasterSize);
+            double[] b = randomPoint(random, rasterSize);
+            boolean expected =
+                segmentIntersectsBox(
+                    a,
+                    b,
+                    new double[] {-1 + x * rasterSize, 2 + y * rasterSize, 0.5 + z * rasterSize},
+                    rasterSize);
+            Assertions.assertEquals(expected, occupancy.intersects(a[0], a[1], a[2], b[0], b[1], b[2]));
+        }
+    }
+
+    @Test
+    void intersects_IgnoresSegmentsOutsideOfRaster() {
+        VoxelOccupancy occupancy = new VoxelOccupancy(2, 2, 2, 0, 0, 0, 1);
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 2; y++) {
+                for (int z = 0; z < 2; z++) {
+                    occupancy.set(x, y, z);
+                }
+            }
+        }
+
+        Assertions.assertFalse(occupancy.intersects(-5, 3, 1, 5, 3, 1));
+        Assertions.assertFalse(occupancy.intersects(-5, -5, -5, -1, -1, -1));
+        Assertions.assertTrue(occupancy.intersects(-5, -5, -5, 5, 5, 5));
+        Assertions.assertTrue(occupancy.intersects(1.5, 1.5, 1.5, 1.5, 1.5, 1.5));
+    }
+
+    @Test
+    void compute_FillsSymmetricMatrices_AndKeepsTourCosts() {
+        int count = 150;
+        Random random = new Random(3);
+        Vec4[] points = new Vec4[count];
+        Vec4[] normals = new Vec4[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = new Vec4(random.nextDouble() * 20, random.nextDouble() * 20, random.nextDouble() * 20);
+            normals[i] = new Vec4(random.nextDouble() - 0.5, random.nextDouble() - 0.5, 1).normalize3();
+        }
+
+        VoxelOccupancy occupancy = new VoxelOccupancy(20, 20, 20, 0, 0, 0, 1);
+        occupancy.set(10, 10, 10);
+
+        double[][] costs = new double[count][count];
+        costs[5][4] = costs[4][5] = 0.5;
+        Vec4[][] directions = new Vec4[count][count];
+        AtomicReference<Double> lastProgress = new AtomicReference<>(0.0);
+        CollisionCostMatrix matrix = new CollisionCostMatrix(points, normals, occupancy, 1000, 2, costs, directions);
+        Assertions.assertTrue(matrix.compute(() -> false, lastProgress::set));
+        Assertions.assertEquals(1.0, lastProgress.get(), 1e-9);
+
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < i; j++) {
+                Assertions.assertEquals(costs[i][j], costs[j][i]);
+                Assertions.assertNotNull(directions[i][j]);
+                Assertions.assertEquals(-directions[i][j].x, directions[j][i].x, 1e-12);
+                if (i == 5 && j == 4) {
+                    Assertions.assertEquals(0.5, costs[i][j]);
+                    continue;
+                }
+
+                Vec4 a = points[i];
+                Vec4 b = points[j];
+                double cosAngle = normals[i].dot3(normals[j]);
+                double expected =
+                    a.distanceTo3(b)
+                        + 2 * Math.acos(Math.max(-1, Math.min(1, cosAngle)))
+                        + (occupancy.intersects(a.x, a.y, a.z, b.x, b.y, b.z) ? 1000 : 0);
+                Assertions.assertEquals(expected, costs[i][j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void compute_ReturnsFalse_WhenCancelled() {
+        Vec4[] points = new Vec4[200];
+        Vec4[] normals = new Vec4[200];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Vec4(i, 0, 0);
+            normals[i] = Vec4.UNIT_Z;
+        }
+
+        CollisionCostMatrix matrix =
+            new CollisionCostMatrix(
+                points,
+                normals,
+                new VoxelOccupancy(1, 1, 1, 0, 0, 0, 1),
+                1000,
+                2,
+                new double[200][200],
+                new Vec4[200][200]);
+        Assertions.assertFalse(matrix.compute(() -> true, progress -> {}));
+    }
+
+    private static double[] randomPoint(Random random, double rasterSize) {
+        return new double[] {
+            -1 + (random.nextDouble() * 8 - 1) * rasterSize,
+            2 + (random.nextDouble() * 7 - 1) * rasterSize,
+            0.5 + (random.nextDouble() * 6 - 1) * rasterSize
+        };
+    }
+
+    private static boolean segmentIntersectsBox(double[] a, double[] b, double[] min, double size) {
+        double tEnter = 0;
+        double tExit = 1;
+        for (int axis = 0; axis < 3; axis++) {
+            double d = b[axis] - a[axis];
+            if (d == 0) {
+                if (a[axis] < min[axis] || a[axis] >= min[axis] + size) {
+                    return false;
+                }
+            } else {
+                double t0 = (min[axis] - a[axis]) / d;
+                double t1 = (min[axis] + size - a[axis]) / d;
+                tEnter = Math.max(tEnter, Math.min(t0, t1));
+                tExit = Math.min(tExit, Math.max(t0, t1));
+            }
+        }
+
+        return tEnter <= tExit;
+    }
+
+}
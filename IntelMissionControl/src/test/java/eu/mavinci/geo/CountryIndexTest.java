@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.geo;
+
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Sector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CountryIndexTest {
+
+    private static final int QUERY_COUNT = 1000;
+
+    private final Random random = new Random(42);
+    private final TreeMap<String, Country> countries = createCountries();
+    private final CountryIndex index = new CountryIndex(countries.values());
+
+    @Test
+    void getFirstCountry_MatchesLinearScan() {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            LatLon latLon = randomLatLon();
+            Assertions.assertSame(firstCountry(latLon, false), index.getFirstCountry(latLon, false));
+            Assertions.assertSame(firstCountry(latLon, true), index.getFirstCountry(latLon, true));
+        }
+    }
+
+    @Test
+    void getFirstCountry_OfSector_MatchesLinearScan() {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            Sector sector = randomSector();
+            Country expected = null;
+            for (Country c : countries.values()) {
+                if (c.withinSafetyDistance(sector)) {
+                    expected = c;
+                    break;
+                }
+            }
+
+            Assertions.assertSame(expected, index.getFirstCountry(sector, false));
+        }
+    }
+
+    @Test
+    void getAllCountries_MatchesLinearScan() {
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            LatLon latLon = randomLatLon();
+            double distance = random.nextDouble() * 100000;
+            Sector sector = randomSector();
+            List<Country> expected = new ArrayList<>();
+            List<Country> expectedWithinDistance = new ArrayList<>();
+            List<Country> expectedOfSector = new ArrayList<>();
+            for (Country c : countries.values()) {
+                if (c.withinSafetyDistance(latLon)) {
+                    expected.add(c);
+                }
+
+                if (c.withinSafetyDistance(latLon, distance)) {
+                    expectedWithinDistance.add(c);
+                }
+
+                if (c.withinSafetyDistance(sector)) {
+                    expectedOfSector.add(c);
+                }
+            }
+
+            Assertions.assertEquals(expected, index.getAllCountries(latLon));
+            Assertions.assertEquals(expectedWithinDistance, index.getAllCountries(latLon, distance));
+            Assertions.assertEquals(expectedOfSector, index.getAllCountries(sector));
+        }
+    }
+
+    @Test
+    void getFirstCountry_FindsBordersAcrossAntimeridian() {
+        Country country = new Country("AM", "Antimeridian");
+        ArrayList<LatLon> border = new ArrayList<>();
+        border.add(LatLon.fromDegrees(-0.5, 179.5));
+        border.add(LatLon.fromDegrees(-0.5, 179.98));
+        border.add(LatLon.fromDegrees(0.5, 179.98));
+        border.add(LatLon.fromDegrees(0.5, 179.5));
+        country.borders.add(border);
+        TreeMap<String, Country> countries = new TreeMap<>();
+        countries.put(country.iso2, country);
+        CountryIndex index = new CountryIndex(countries.values());
+
+        Assertions.assertSame(country, index.getFirstCountry(LatLon.fromDegrees(0, 179.95), false));
+        Assertions.assertSame(country, index.getFirstCountry(LatLon.fromDegrees(0, -179.95), false));
+        Assertions.assertNull(index.getFirstCountry(LatLon.fromDegrees(0, -179), false));
+        Assertions.assertNull(index.getFirstCountry(LatLon.fromDegrees(0, 178.8), false));
+    }
+
+    private Country firstCountry(LatLon latLon, boolean restrictedOnly) {
+        for (Country c : countries.values()) {
+            if ((!restrictedOnly || c.isRestricted) && c.withinSafetyDistance(latLon)) {
+                return c;
+            }
+        }
+
+        return null;
+    }
+
+    /** Countries of one to three star shaped rings, which may overlap each other. */
+    private TreeMap<String, Country> createCountries() {
+        TreeMap<String, Country> countries = new TreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            Country country = new Country(String.format("C%03d", i), "Country " + i);
+            country.isRestricted = random.nextInt(4) == 0;
+            int ringCount = 1 + random.nextInt(3);
+            double lat = -70 + 140 * random.nextDouble();
+            double lon = -170 + 340 * random.nextDouble();
+            for (int r = 0; r < ringCount; r++) {
+                country.borders.add(
+                    ring(
+                        lat + 4 * random.nextGaussian(),
+                        lon + 4 * random.nextGaussian(),
+                        0.1 + 2 * random.nextDouble(),
+                        3 + random.nextInt(60)));
+            }
+
+            countries.put(country.iso2, country);
+        }
+
+        return countries;
+    }
+
+    private ArrayList<LatLon> ring(double lat, double lon, double radius, int vertexCount) {
+        ArrayList<LatLon> ring = new ArrayList<>();
+        for (int i = 0; i < vertexCount; i++) {
+            double angle = 2 * Math.PI * i / vertexCount;
+            double r = radius * (0.3 + 0.7 * random.nextDouble());
+            ring.add(LatLon.fromDegrees(lat + r * Math.sin(angle), lon + r * Math.cos(angle)));
+        }
+
+        return ring;
+    }
+
+    /** A location close to one of the countries, or anywhere. */
+    private LatLon randomLatLon() {
+        if (random.nextInt(4) == 0) {
+            return LatLon.fromDegrees(-85 + 170 * random.nextDouble(), -180 + 360 * random.nextDouble());
+        }
+
+        List<LatLon> border = randomBorder();
+        LatLon vertex = border.get(random.nextInt(border.size()));
+        return LatLon.fromDegrees(
+            vertex.latitude.degrees + 0.5 * random.nextGaussian(),
+            vertex.longitude.degrees + 0.5 * random.nextGaussian());
+    }
+
+    private Sector randomSector() {
+        LatLon latLon = randomLatLon();
+        double height = 2 * random.nextDouble();
+        double width = 2 * random.nextDouble();
+        return Sector.fromDegrees(
+            latLon.latitude.degrees,
+            latLon.latitude.degrees + height,
+            latLon.longitude.degrees,
+            latLon.longitude.degrees + width);
+    }
+
+    private List<LatLon> randomBorder() {
+        List<Country> list = new ArrayList<>(countries.values());
+        Country country = list.get(random.nextInt(list.size()));
+        return country.borders.get(random.nextInt(country.borders.size()));
+    }
+
+}
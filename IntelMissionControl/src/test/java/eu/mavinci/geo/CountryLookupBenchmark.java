@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.geo;
+
+import gov.nasa.worldwind.geom.LatLon;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Looks up the first country within the safety margin of random locations on the globe, like the country detector does
+ * for map clicks and telemetry updates: with a linear scan over all countries, as before, and with the {@link
+ * CountryIndex}. The country borders are read from the classpath like the {@link CountryDetector} does; if they are
+ * not available, random countries are generated.
+ *
+ * <p>Reports lookups per second, the bytes allocated per lookup, and the number of locations close to a country, which
+ * must be the same for both.
+ *
+ * <p>Usage: {@code CountryLookupBenchmark [locations] [seconds]}
+ */
+public final class CountryLookupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int locationCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+
+        TreeMap<String, Country> countries = loadCountries();
+        long startNanos = System.nanoTime();
+        CountryIndex index = new CountryIndex(countries.values());
+        System.out.println(
+            String.format(
+                "countries: %d, building the index: %.1f ms, locations: %d",
+                countries.size(),
+                (System.nanoTime() - startNanos) / 1e6,
+                locationCount));
+
+        // uniformly distributed on the sphere
+        Random random = new Random(0);
+        LatLon[] locations = new LatLon[locationCount];
+        for (int i = 0; i < locationCount; i++) {
+            locations[i] =
+                LatLon.fromRadians(Math.asin(2 * random.nextDouble() - 1), Math.PI * (2 * random.nextDouble() - 1));
+        }
+
+        Function<LatLon, Country> linearScan =
+            latLon -> {
+                for (Country c : countries.values()) {
+                    if (c.withinSafetyDistance(latLon)) {
+                        return c;
+                    }
+                }
+
+                return null;
+            };
+
+        for (int round = 0; round < 2; round++) {
+            // the first round is warmup
+            run("linear", locations, seconds, linearScan, round > 0);
+            run("index", locations, seconds, latLon -> index.getFirstCountry(latLon, false), round > 0);
+        }
+    }
+
+    private static void run(
+            String name, LatLon[] locations, double seconds, Function<LatLon, Country> lookup, boolean print) {
+        long endNanos = System.nanoTime() + (long)(seconds * 1e9);
+        long allocatedStart = getAllocatedBytes();
+        long startNanos = System.nanoTime();
+        long count = 0;
+        long hits = 0;
+        do {
+            // always complete the locations, so the hits can be compared
+            hits = 0;
+            for (LatLon latLon : locations) {
+                if (lookup.apply(latLon) != null) {
+                    hits++;
+                }
+            }
+
+            count += locations.length;
+        } while (System.nanoTime() < endNanos);
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocated = getAllocatedBytes() - allocatedStart;
+        if (print) {
+            System.out.println(
+                String.format(
+                    "%-8s %12.0f lookups/s %10s bytes/lookup %8d close to a country",
+                    name,
+                    count / (elapsedNanos / 1e9),
+                    allocatedStart < 0 ? "n/a" : String.format("%.1f", (double)allocated / count),
+                    hits));
+        }
+    }
+
+    private static TreeMap<String, Country> loadCountries() throws Exception {
+        TreeMap<String, Country> countries = new TreeMap<>();
+        try (InputStream is = ClassLoader.getSystemResourceAsStream("eu/mavinci/other/WorldCountryBoundaries.txt")) {
+            if (is != null) {
+                BufferedReader br = new BufferedReader(new InputStreamReader(is));
+                String line;
+                while ((line = br.readLine()) != null) {
+                    Country c = Country.fromInternal(line);
+                    countries.put(c.iso2, c);
+                }
+
+                return countries;
+            }
+        }
+
+        System.out.println("country borders not found, generating random countries");
+        Random random = new Random(0);
+        for (int i = 0; i < 250; i++) {
+            Country country = new Country(String.format("C%03d", i), "Country " + i);
+            for (int r = 0, ringCount = 1 + random.nextInt(20); r < ringCount; r++) {
+                double lat = -60 + 130 * random.nextDouble();
+                double lon = -180 + 360 * random.nextDouble();
+                double radius = 0.1 + 5 * random.nextDouble() * random.nextDouble();
+                int vertexCount = 10 + random.nextInt(500);
+                ArrayList<LatLon> border = new ArrayList<>();
+                for (int v = 0; v < vertexCount; v++) {
+                    double angle = 2 * Math.PI * v / vertexCount;
+                    double distance = radius * (0.7 + 0.3 * random.nextDouble());
+                    border.add(
+                        LatLon.fromDegrees(lat + distance * Math.sin(angle), lon + distance * Math.cos(angle)));
+                }
+
+                country.borders.add(border);
+            }
+
+            countries.put(country.iso2, country);
+        }
+
+        return countries;
+    }
+
+    /** The bytes allocated by the current thread, or -1 if unknown. */
+    private static long getAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package eu.mavinci.plane.simjava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SimulationKernelTest {
+
+    private static final double EPOCH = 1.5e9;
+
+    /** Corners of a survey pattern in meters, flown by every vehicle from its own start point. */
+    private static final double[][] FLIGHT_PLAN = {{0, 0}, {400, 0}, {400, 50}, {0, 50}, {0, 100}, {400, 100}, {0, 0}};
+
+    @Test
+    void run_WithSameSeed_YieldsIdenticalOutputs() throws Exception {
+        List<List<String>> first = simulate(42, 8, 4);
+        List<List<String>> second = simulate(42, 8, 4);
+        List<List<String>> sequential = simulate(42, 8, 1);
+
+        Assertions.assertFalse(first.get(0).isEmpty());
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first, sequential);
+        Assertions.assertNotEquals(first, simulate(43, 8, 4));
+    }
+
+    @Test
+    void run_AsFastAsPossible_AdvancesFasterThanWallTime() throws Exception {
+        SimulationKernel kernel = new SimulationKernel(0, EPOCH, SimulationKernel.AS_FAST_AS_POSSIBLE, 4);
+        for (int i = 0; i < 4; i++) {
+            kernel.add(new PatternVehicle(i * 1000, Integer.MAX_VALUE));
+        }
+
+        long startNanos = System.nanoTime();
+        kernel.run(600);
+        double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+        double virtualSeconds = kernel.getVirtualTimeSeconds() - EPOCH;
+
+        Assertions.assertEquals(600, virtualSeconds, 1e-9);
+        Assertions.assertTrue(
+            wallSeconds < virtualSeconds / 10, "took " + wallSeconds + " s for " + virtualSeconds + " virtual s");
+    }
+
+    @Test
+    void run_WithSpeedFactor_KeepsPace() throws Exception {
+        SimulationKernel kernel = new SimulationKernel(0, EPOCH, 10, 4);
+        kernel.add(new PatternVehicle(0, Integer.MAX_VALUE));
+
+        long startNanos = System.nanoTime();
+        kernel.run(3);
+
+        Assertions.assertTrue(System.nanoTime() - startNanos >= 290_000_000L);
+        Assertions.assertEquals(3, kernel.getVirtualTimeSeconds() - EPOCH, 1e-9);
+    }
+
+    private static List<List<String>> simulate(long seed, int vehicleCount, int parallelism) throws Exception {
+        SimulationKernel kernel = new SimulationKernel(seed, EPOCH, SimulationKernel.AS_FAST_AS_POSSIBLE, parallelism);
+        List<PatternVehicle> vehicles = new ArrayList<>();
+        for (int i = 0; i < vehicleCount; i++) {
+            PatternVehicle vehicle = new PatternVehicle(i * 1000, 2);
+            vehicles.add(vehicle);
+            kernel.add(vehicle);
+        }
+
+        Assertions.assertTrue(kernel.run(3600));
+        List<List<String>> outputs = new ArrayList<>();
+        for (PatternVehicle vehicle : vehicles) {
+            Assertions.assertTrue(vehicle.finished);
+            outputs.add(vehicle.output);
+        }
+
+        return outputs;
+    }
+
+    /**
+     * Flies the flight plan the given number of times, reporting a noisy position every second of virtual time.
+     */
+    private static final class PatternVehicle extends SimulationKernel.Vehicle {
+        static final double STEP = 0.1;
+        static final double SPEED = 12;
+
+        final double offsetX;
+        final int laps;
+        final List<String> output = new ArrayList<>();
+        SimulationKernel kernel;
+        Random random;
+        double time;
+        double x;
+        double y;
+        int waypoint;
+        int lap;
+        double nextReport;
+        boolean finished;
+
+        PatternVehicle(double offsetX, int laps) {
+            this.offsetX = offsetX;
+            this.laps = laps;
+        }
+
+        @Override
+        void attach(SimulationKernel kernel, Random random) {
+            this.kernel = kernel;
+            this.random = random;
+        }
+
+        @Override
+        void start() {
+            time = nextReport = kernel.getVirtualTimeSeconds();
+            x = offsetX;
+        }
+
+        @Override
+        boolean step() {
+            time += STEP;
+            double dx = FLIGHT_PLAN[waypoint][0] + offsetX - x;
+            double dy = FLIGHT_PLAN[waypoint][1] - y;
+            double distance = Math.hypot(dx, dy);
+            if (distance <= SPEED * STEP) {
+                x += dx;
+                y += dy;
+                if (++waypoint == FLIGHT_PLAN.length) {
+                    if (++lap == laps) {
+                        return false;
+                    }
+
+                    waypoint = 0;
+                }
+            } else {
+                x += dx / distance * SPEED * STEP;
+                y += dy / distance * SPEED * STEP;
+            }
+
+            if (time >= nextReport) {
+                nextReport += 1;
+                output.add(
+                    String.format(
+                        "%.1f %.3f %.3f", time, x + random.nextGaussian() * 0.5, y + random.nextGaussian() * 0.5));
+            }
+
+            return true;
+        }
+
+        @Override
+        double getTime() {
+            return time;
+        }
+
+        @Override
+        void finish() {
+            finished = true;
+        }
+    }
+
+}
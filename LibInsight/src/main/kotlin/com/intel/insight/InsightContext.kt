@@ -14,7 +14,6 @@ import org.apache.http.impl.client.HttpClientBuilder
 import unirest.HttpResponse
 import unirest.Unirest
 import java.io.File
-import java.io.InputStream
 import java.math.BigInteger
 import java.security.MessageDigest
 import java.security.SecureRandom
@@ -233,11 +232,11 @@ class InsightContext {
 
     fun preparePhotoUpload(gson: Gson, photoUpload: PhotoUpload, progressCallback: IUploadProgress?, continueIfPreviousUpload: Boolean = false): List<Photo> {
 
-        var startIndex = 0
         var photoResponse: PhotoPrep = PhotoPrep()
         var headers = prepareHeaders(this.oauthResponse.accessToken.orEmpty())
         var directory: String = "."
         var continuePossibleFromPreviousUpload = false
+        var journal: UploadJournal? = null
 
         if (continueIfPreviousUpload) {
             try {
@@ -247,9 +246,8 @@ class InsightContext {
                 var fileContent = File("$directory/upload_project_template").readText()
                 photoResponse = gson.fromJson(fileContent, PhotoPrep::class.java)
                 println("[InsightCLI]:\tCreated Photo-Upload-Request succesfully")
-                var progressLog = File("$directory/upload_project_progress").readLines()
-                startIndex = progressLog[0].split(",")[1].toInt()
-                println("[InsightCLI]:\tContinuing from previous upload at image $startIndex")
+                journal = openUploadJournal(directory, photoResponse)
+                println("[InsightCLI]:\tContinuing from previous upload, ${journal.completedCount()} images are uploaded already")
                 continuePossibleFromPreviousUpload = true
             } catch (e: Exception) {
                 println("[InsightCLI]:\tContinuing from previous upload not possible, $e")
@@ -275,73 +273,17 @@ class InsightContext {
             photoResponse = gson.fromJson(crResp, PhotoPrep::class.java)
             directory = File(photoResponse?.photos!![0].seq).getParentFile().absolutePath
             File("$directory/upload_project_template").writeText(crResp)
+            // the new request has new photo ids, nothing of an earlier upload applies
+            journal = UploadJournal(File("$directory/upload_project_journal"))
+            journal.clear()
         }
 
-
-//        println("succ")
-
-        val N = photoResponse?.photos?.size
-        var i = 0
-        var progressLog = File("$directory/upload_project_progress")
-        progressLog.writeText("")
-
-        for (photo in photoResponse?.photos!!) {
-            if (i < startIndex) {
-                i = i + 1
-                continue;
-            }
-
-            i = i + 1
-
-            var id = photo.id
-            var seq = photo.seq
-            val myFile = File(photo.seq)
-            println("[InsightCLI]:\t Currently uploading id:$id,\t seq:$seq")
-
-            progressCallback?.progressMessage("uploading:" + myFile.name, i.toDouble() / N?.toDouble()!!)
-            var ins: InputStream = myFile.inputStream()
-
-            var content = ins.readBytes()
-
-            //headers = prepareHeaders(this.oauthResponse.accessToken.orEmpty())
-            //headers.put("Content-MD5",md5(content))
-            headers = HashMap<String, String>();
-            headers.put("Content-Type", "application/octet-stream");
-            headers.put("Authorization", "Bearer " + this.oauthResponse.accessToken.orEmpty());
-            headers.put("Pragma", "no-cache");
-            headers.put("Referer", "$targetHost/app/browse/projects");
-            headers.put("Origin", "$targetHost");
-            headers.put("host", "newdev.ixstack.net");
-            headers.put("Cache-Control", "no-cache");
-            headers.put("Accept", "*/*");
-            headers.put("Accept-Encoding", "gzip, deflate, br")
-            headers.put("Expires", "Sat, 01 Jan 2000 00:00:00 GMT")
-            headers.put("Accept-Language", "en-US,en;q=0.9")
-            headers.put("Connection", "keep-alive")
-            headers.put("Content-MD5", md5(content))
-            var size = content.size
-//            println(size)
-//            println(md5(content))
-            //headers.put("Content-Length","$size")
-//            headers.put(
-//                    "User-Agent",
-//                    "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/71.0.3578.98 Safari/537.36"
-//            )
-
-
-            var target = "$targetHost/dxds/" +
-                    "photos/jpg/$id"
-            var createProjectResponse = Unirest.put(target)
-                    .headers(headers)
-                    .body(content).asString()
-            if (createProjectResponse.status == 200) {
-                println("[InsightCLI]:\tCreated Photo Upload  succesfull\t Progress ${i}/${N}")
-                progressLog.writeText("")
-                progressLog.appendText("$id,${i},${N}")
-            } else {
-                System.err.println("[InsightCLI]:\t Photo Upload ${i}/${N} failed, Reason: ${createProjectResponse.status}, ${createProjectResponse.statusText}, ${createProjectResponse.body}")
-            }
-
+        val result = PhotoUploader(targetHost, this.oauthResponse.accessToken.orEmpty(), journal!!)
+                .upload(photoResponse.photos, progressCallback)
+        if (!result.failed.isEmpty()) {
+            // don't mark the flight as complete, the missing photos are uploaded when continuing the upload
+            System.err.println("[InsightCLI]:\t Uploading Project failed, ${result.failed.size} of ${photoResponse.photos.size} photos could not be uploaded")
+            return photoResponse.photos
         }
 
         var fid = photoUpload.flight?.orEmpty()
@@ -361,7 +303,25 @@ class InsightContext {
         }
 //        println(gson.toJson(photoUpload))
 
-        return photoResponse?.photos
+        return photoResponse.photos
+    }
+
+    /**
+     * Opens the journal of a previous upload. Uploads of older versions only left the index of the last uploaded
+     * photo in upload_project_progress, the photos up to that index are taken over into the journal.
+     */
+    private fun openUploadJournal(directory: String, photoResponse: PhotoPrep): UploadJournal {
+        val journalFile = File("$directory/upload_project_journal")
+        val progressFile = File("$directory/upload_project_progress")
+        val journalExists = journalFile.isFile
+        val journal = UploadJournal(journalFile)
+        if (!journalExists && progressFile.isFile) {
+            val lastIndex = progressFile.readLines()[0].split(",")[1].toInt()
+            photoResponse.photos.take(lastIndex).forEach { journal.markCompleted(it.id.orEmpty()) }
+            progressFile.delete()
+        }
+
+        return journal
     }
 
 
@@ -456,4 +416,18 @@ fun String.md5(): String {
 fun md5(foo: ByteArray): String {
     val md = MessageDigest.getInstance("MD5")
     return BigInteger(1, md.digest(foo)).toString(16).padStart(32, '0')
+}
+
+fun md5(file: File): String {
+    val md = MessageDigest.getInstance("MD5")
+    file.inputStream().use { input ->
+        val buffer = ByteArray(PhotoUploader.CHUNK_SIZE)
+        var count = input.read(buffer)
+        while (count >= 0) {
+            md.update(buffer, 0, count)
+            count = input.read(buffer)
+        }
+    }
+
+    return BigInteger(1, md.digest()).toString(16).padStart(32, '0')
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.insight
+
+import com.intel.insight.datastructures.IUploadProgress
+import com.intel.insight.datastructures.Photo
+import java.io.File
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.URL
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Uploads the photo files of a prepared photo upload, several at a time.
+ *
+ * Every file is streamed from disk in chunks, so no photo is ever loaded into memory as a whole. Its digest is computed
+ * once before the first attempt, since the header has to be sent before the content. A failed upload is retried with an
+ * exponentially growing, randomized delay as long as the failure may be temporary, i.e. a connection problem, a timeout
+ * or a 5xx response. Photos accepted by the server are recorded in the journal, photos already in the journal are
+ * skipped.
+ */
+class PhotoUploader(
+        private val targetHost: String,
+        private val accessToken: String,
+        private val journal: UploadJournal,
+        private val parallelism: Int = DEFAULT_PARALLELISM,
+        private val maxAttempts: Int = DEFAULT_MAX_ATTEMPTS,
+        private val initialBackoffMillis: Long = DEFAULT_INITIAL_BACKOFF_MILLIS
+) {
+
+    companion object {
+        const val DEFAULT_PARALLELISM = 4
+        const val DEFAULT_MAX_ATTEMPTS = 5
+        const val DEFAULT_INITIAL_BACKOFF_MILLIS = 1000L
+        const val MAX_BACKOFF_MILLIS = 30000L
+        const val CHUNK_SIZE = 64 * 1024
+        const val CONNECT_TIMEOUT_MILLIS = 30000
+        const val READ_TIMEOUT_MILLIS = 120000
+    }
+
+    class Result(val uploaded: Int, val skipped: Int, val failed: List<Photo>)
+
+    fun upload(photos: List<Photo>, progressCallback: IUploadProgress?): Result {
+        val pending = photos.filter { !journal.isCompleted(it.id.orEmpty()) }
+        val skipped = photos.size - pending.size
+        if (skipped > 0) {
+            println("[InsightCLI]:\tContinuing from previous upload, $skipped of ${photos.size} photos are uploaded already")
+        }
+
+        if (pending.isEmpty()) {
+            return Result(0, skipped, emptyList())
+        }
+
+        val progress = Progress(photos.size, skipped, pending.map { File(it.seq).length() }.sum(), progressCallback)
+        val threadCount = AtomicInteger()
+        val executor = Executors.newFixedThreadPool(Math.min(parallelism, pending.size)) { runnable ->
+            val thread = Thread(runnable, "Insight upload ${threadCount.incrementAndGet()}")
+            thread.isDaemon = true
+            thread
+        }
+
+        try {
+            val uploads = pending.map { photo -> executor.submit(Callable { uploadWithRetry(photo, progress) }) }
+            val failed = ArrayList<Photo>()
+            for ((i, upload) in uploads.withIndex()) {
+                val uploaded = try {
+                    upload.get()
+                } catch (e: ExecutionException) {
+                    System.err.println("[InsightCLI]:\t Photo Upload of ${pending[i].seq} failed, Reason: ${e.cause}")
+                    false
+                }
+
+                if (!uploaded) {
+                    failed.add(pending[i])
+                }
+            }
+
+            return Result(pending.size - failed.size, skipped, failed)
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun uploadWithRetry(photo: Photo, progress: Progress): Boolean {
+        val id = photo.id
+        val file = File(photo.seq)
+        if (id == null || !file.isFile) {
+            System.err.println("[InsightCLI]:\t Photo Upload of ${photo.seq} failed, Reason: file not found")
+            return false
+        }
+
+        println("[InsightCLI]:\t Currently uploading id:$id,\t seq:${photo.seq}")
+        val digest = try {
+            md5(file)
+        } catch (e: IOException) {
+            System.err.println("[InsightCLI]:\t Photo Upload of ${file.name} failed, Reason: $e")
+            return false
+        }
+
+        var backoffMillis = initialBackoffMillis
+        for (attempt in 1..maxAttempts) {
+            var reason: String
+            var retry: Boolean
+            try {
+                val status = uploadOnce(id, file, digest)
+                if (status in 200..299) {
+                    journal.markCompleted(id)
+                    progress.photoUploaded(file)
+                    return true
+                }
+
+                reason = "HTTP $status"
+                retry = status >= 500 || status == 408 || status == 429
+            } catch (e: IOException) {
+                reason = e.toString()
+                retry = true
+            }
+
+            if (!retry || attempt == maxAttempts) {
+                System.err.println("[InsightCLI]:\t Photo Upload of ${file.name} failed after $attempt attempts, Reason: $reason")
+                return false
+            }
+
+            System.err.println("[InsightCLI]:\t Photo Upload of ${file.name} failed, retrying in $backoffMillis ms, Reason: $reason")
+            // a random part of the delay keeps the parallel uploads from retrying in lockstep
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis / 2, backoffMillis + 1))
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS)
+        }
+
+        return false
+    }
+
+    /** Streams the file with the given MD5 digest to the server and returns the response status. */
+    private fun uploadOnce(id: String, file: File, digest: String): Int {
+        val connection = URL("$targetHost/dxds/photos/jpg/$id").openConnection() as HttpURLConnection
+        connection.requestMethod = "PUT"
+        connection.doOutput = true
+        connection.connectTimeout = CONNECT_TIMEOUT_MILLIS
+        connection.readTimeout = READ_TIMEOUT_MILLIS
+        connection.setFixedLengthStreamingMode(file.length())
+        connection.setRequestProperty("Content-Type", "application/octet-stream")
+        connection.setRequestProperty("Authorization", "Bearer $accessToken")
+        connection.setRequestProperty("Pragma", "no-cache")
+        connection.setRequestProperty("Referer", "$targetHost/app/browse/projects")
+        connection.setRequestProperty("Origin", targetHost)
+        connection.setRequestProperty("Cache-Control", "no-cache")
+        connection.setRequestProperty("Accept", "*/*")
+        connection.setRequestProperty("Expires", "Sat, 01 Jan 2000 00:00:00 GMT")
+        connection.setRequestProperty("Accept-Language", "en-US,en;q=0.9")
+        connection.setRequestProperty("Content-MD5", digest)
+
+        connection.outputStream.use { output -> file.inputStream().use { it.copyTo(output, CHUNK_SIZE) } }
+
+        val status = connection.responseCode
+        // read the response to the end, so the connection can be reused by the next upload
+        val response = if (status >= 400) connection.errorStream else connection.inputStream
+        response?.use { it.readBytes() }
+        return status
+    }
+
+    /** Reports progress, throughput and the remaining time after every uploaded photo. */
+    private class Progress(
+            private val total: Int,
+            private val skipped: Int,
+            private val pendingBytes: Long,
+            private val callback: IUploadProgress?
+    ) {
+
+        private val startNanos = System.nanoTime()
+        private var uploaded = 0
+        private var uploadedBytes = 0L
+
+        init {
+            callback?.progressMessage("uploading", skipped.toDouble() / total)
+        }
+
+        @Synchronized
+        fun photoUploaded(file: File) {
+            uploaded++
+            uploadedBytes += file.length()
+
+            val count = skipped + uploaded
+            val seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9)
+            val bytesPerSecond = uploadedBytes / seconds
+            val remainingSeconds = if (bytesPerSecond > 0) (pendingBytes - uploadedBytes) / bytesPerSecond else 0.0
+            val message = String.format(
+                    "uploaded:%s (%d/%d, %.1f MB/s, %d:%02d left)",
+                    file.name,
+                    count,
+                    total,
+                    bytesPerSecond / 1e6,
+                    remainingSeconds.toLong() / 60,
+                    remainingSeconds.toLong() % 60)
+
+            println("[InsightCLI]:\tCreated Photo Upload  succesfull\t Progress $count/$total")
+            callback?.progressMessage(message, count.toDouble() / total)
+        }
+
+    }
+
+}
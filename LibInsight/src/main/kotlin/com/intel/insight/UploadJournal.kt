@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.insight
+
+import java.io.File
+import java.io.FileOutputStream
+
+/**
+ * Append-only record of the photos of an upload which were accepted by the server, one photo id per line.
+ *
+ * Every completed photo appends one line, so the journal stays exact no matter in which order the parallel uploads
+ * finish, and an interrupted upload can be resumed with exactly the missing photos. A line cut off by a crash can't
+ * match a photo id, so that photo is uploaded again.
+ */
+class UploadJournal(private val file: File) {
+
+    private val completed = HashSet<String>()
+
+    init {
+        if (file.isFile) {
+            val content = file.readText()
+            content.lineSequence().map { it.trim() }.filter { it.isNotEmpty() }.forEach { completed.add(it) }
+            if (content.isNotEmpty() && !content.endsWith("\n")) {
+                // start the next record on a new line, not behind the cut off one
+                file.appendText("\n")
+            }
+        }
+    }
+
+    @Synchronized
+    fun isCompleted(photoId: String): Boolean {
+        return completed.contains(photoId)
+    }
+
+    @Synchronized
+    fun completedCount(): Int {
+        return completed.size
+    }
+
+    @Synchronized
+    fun markCompleted(photoId: String) {
+        if (completed.add(photoId)) {
+            FileOutputStream(file, true).use { it.write("$photoId\n".toByteArray()) }
+        }
+    }
+
+    /** Forgets all photos, used when a new upload request was created and the photo ids changed. */
+    @Synchronized
+    fun clear() {
+        completed.clear()
+        file.delete()
+    }
+
+}
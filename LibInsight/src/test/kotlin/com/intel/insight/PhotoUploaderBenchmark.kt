@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.insight
+
+import java.io.File
+import java.nio.file.Files
+
+/**
+ * Measures the upload of a survey to the in-process stand-in server with a round trip latency per request, one photo
+ * at a time as uploaded before and with several parallel uploads.
+ *
+ * Usage: PhotoUploaderBenchmark [photos] [photoSizeBytes] [latencyMillis]
+ */
+fun main(args: Array<String>) {
+    val photoCount = if (args.size > 0) args[0].toInt() else 100
+    val photoSize = if (args.size > 1) args[1].toInt() else 4000000
+    val latencyMillis = if (args.size > 2) args[2].toLong() else 50L
+
+    val directory = Files.createTempDirectory("upload-benchmark").toFile()
+    try {
+        val photos = PhotoUploaderTest.createPhotos(directory, photoCount, photoSize)
+        val bytes = photos.map { File(it.seq).length() }.sum()
+        for (run in 0 until 3) {
+            println("run $run")
+            for (parallelism in listOf(1, 2, 4, 8)) {
+                StandInServer(latencyMillis = latencyMillis).use { server ->
+                    val journal = UploadJournal(File(directory, "journal"))
+                    journal.clear()
+                    val start = System.nanoTime()
+                    val result = PhotoUploader(server.targetHost, "token", journal, parallelism).upload(photos, null)
+                    val seconds = (System.nanoTime() - start) / 1e9
+                    println(
+                        String.format(
+                            "  %d parallel: %.2f s, %.1f MB/s, %d uploaded",
+                            parallelism,
+                            seconds,
+                            bytes / seconds / 1e6,
+                            result.uploaded))
+                }
+            }
+        }
+    } finally {
+        directory.deleteRecursively()
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.insight
+
+import com.intel.insight.datastructures.IUploadProgress
+import com.intel.insight.datastructures.Photo
+import java.io.File
+import java.nio.file.Path
+import java.util.Random
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+
+class PhotoUploaderTest {
+
+    @TempDir
+    lateinit var directory: Path
+
+    @Test
+    fun upload_SendsAllPhotos_InParallel() {
+        val photos = createPhotos(directory.toFile(), 12, 100000)
+        StandInServer(latencyMillis = 50).use { server ->
+            val journal = UploadJournal(directory.resolve("journal").toFile())
+            val fractions = ArrayList<Double>()
+            val progress = object : IUploadProgress {
+                override fun progressMessage(msg: String, progress: Double) {
+                    fractions.add(progress)
+                }
+            }
+
+            val result = PhotoUploader(server.targetHost, "token", journal, parallelism = 4).upload(photos, progress)
+
+            Assertions.assertEquals(12, result.uploaded)
+            Assertions.assertTrue(result.failed.isEmpty())
+            for (photo in photos) {
+                Assertions.assertEquals(File(photo.seq).length(), server.received[photo.id])
+                Assertions.assertTrue(journal.isCompleted(photo.id!!))
+            }
+
+            Assertions.assertTrue(server.maxActiveRequests.get() in 2..4)
+            Assertions.assertEquals(fractions.sorted(), fractions)
+            Assertions.assertEquals(1.0, fractions.last())
+        }
+    }
+
+    @Test
+    fun upload_RetriesTemporaryFailures() {
+        val photos = createPhotos(directory.toFile(), 5, 1000)
+        StandInServer(failuresPerPhoto = 2).use { server ->
+            val journal = UploadJournal(directory.resolve("journal").toFile())
+            val uploader =
+                PhotoUploader(server.targetHost, "token", journal, maxAttempts = 3, initialBackoffMillis = 2)
+
+            val result = uploader.upload(photos, null)
+
+            Assertions.assertEquals(5, result.uploaded)
+            for (photo in photos) {
+                Assertions.assertEquals(3, server.attempts[photo.id]!!.get())
+            }
+        }
+    }
+
+    @Test
+    fun upload_GivesUp_AfterMaxAttempts() {
+        val photos = createPhotos(directory.toFile(), 3, 1000)
+        StandInServer(failuresPerPhoto = 5).use { server ->
+            val journal = UploadJournal(directory.resolve("journal").toFile())
+            val uploader =
+                PhotoUploader(server.targetHost, "token", journal, maxAttempts = 2, initialBackoffMillis = 2)
+
+            val result = uploader.upload(photos, null)
+
+            Assertions.assertEquals(0, result.uploaded)
+            Assertions.assertEquals(3, result.failed.size)
+            Assertions.assertEquals(0, journal.completedCount())
+            Assertions.assertTrue(server.received.isEmpty())
+        }
+    }
+
+    @Test
+    fun upload_CountsUnexpectedFailures_AsFailedPhotos() {
+        val photos = createPhotos(directory.toFile(), 3, 1000)
+        val journal = UploadJournal(directory.resolve("journal").toFile())
+
+        // a file URL doesn't open an HTTP connection, which fails the upload with a ClassCastException
+        val result = PhotoUploader(directory.toUri().toString(), "token", journal).upload(photos, null)
+
+        Assertions.assertEquals(0, result.uploaded)
+        Assertions.assertEquals(photos, result.failed)
+        Assertions.assertEquals(0, journal.completedCount())
+    }
+
+    @Test
+    fun upload_ResumesFromJournal() {
+        val photos = createPhotos(directory.toFile(), 10, 1000)
+        val journalFile = directory.resolve("journal").toFile()
+        val journal = UploadJournal(journalFile)
+        for (i in 0 until 10 step 2) {
+            journal.markCompleted(photos[i].id!!)
+        }
+
+        StandInServer().use { server ->
+            val result = PhotoUploader(server.targetHost, "token", UploadJournal(journalFile)).upload(photos, null)
+
+            Assertions.assertEquals(5, result.uploaded)
+            Assertions.assertEquals(5, result.skipped)
+            Assertions.assertEquals(photos.filterIndexed { i, _ -> i % 2 == 1 }.map { it.id }.toSet(), server.received.keys)
+            Assertions.assertEquals(10, UploadJournal(journalFile).completedCount())
+        }
+    }
+
+    @Test
+    fun journal_IgnoresCutOffLine() {
+        val journalFile = directory.resolve("journal").toFile()
+        journalFile.writeText("first\nsec")
+
+        UploadJournal(journalFile).markCompleted("third")
+
+        val journal = UploadJournal(journalFile)
+        Assertions.assertTrue(journal.isCompleted("first"))
+        Assertions.assertFalse(journal.isCompleted("second"))
+        Assertions.assertTrue(journal.isCompleted("third"))
+        Assertions.assertEquals(3, journal.completedCount())
+    }
+
+    companion object {
+        /** Writes photo files of random content, about the given size each. */
+        fun createPhotos(directory: File, count: Int, size: Int): List<Photo> {
+            val random = Random(count.toLong())
+            return (0 until count).map { i ->
+                val file = File(directory, "IMG_$i.JPG")
+                val content = ByteArray(size + random.nextInt(size / 2 + 1))
+                random.nextBytes(content)
+                file.writeBytes(content)
+
+                val photo = Photo()
+                photo.id = "photo$i"
+                photo.seq = file.absolutePath
+                photo
+            }
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package com.intel.insight
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import java.math.BigInteger
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * In-process stand-in for the photo upload endpoint of Insight. Every request waits for the given latency, and the
+ * first failuresPerPhoto requests of every photo are answered with 503.
+ */
+class StandInServer(private val latencyMillis: Long = 0, private val failuresPerPhoto: Int = 0) : AutoCloseable {
+
+    private val executor: ExecutorService = Executors.newCachedThreadPool()
+    private val server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+    private val activeRequests = AtomicInteger()
+
+    /** The number of bytes received for every accepted photo id. */
+    val received = ConcurrentHashMap<String, Long>()
+    val attempts = ConcurrentHashMap<String, AtomicInteger>()
+    val maxActiveRequests = AtomicInteger()
+
+    val targetHost: String
+        get() = "http://localhost:${server.address.port}"
+
+    init {
+        server.executor = executor
+        server.createContext("/dxds/photos/jpg/") { exchange -> exchange.use { handleUpload(it) } }
+        server.start()
+    }
+
+    private fun handleUpload(exchange: HttpExchange) {
+        val active = activeRequests.incrementAndGet()
+        maxActiveRequests.accumulateAndGet(active, Math::max)
+        try {
+            val id = exchange.requestURI.path.substringAfterLast('/')
+            val attempt = attempts.computeIfAbsent(id) { AtomicInteger() }.incrementAndGet()
+
+            val md = MessageDigest.getInstance("MD5")
+            var size = 0L
+            val buffer = ByteArray(64 * 1024)
+            var count = exchange.requestBody.read(buffer)
+            while (count >= 0) {
+                md.update(buffer, 0, count)
+                size += count
+                count = exchange.requestBody.read(buffer)
+            }
+
+            Thread.sleep(latencyMillis)
+
+            val md5 = BigInteger(1, md.digest()).toString(16).padStart(32, '0')
+            val status = when {
+                exchange.requestMethod != "PUT" -> 405
+                attempt <= failuresPerPhoto -> 503
+                md5 != exchange.requestHeaders.getFirst("Content-MD5") -> 400
+                else -> 200
+            }
+
+            if (status == 200) {
+                received[id] = size
+            }
+
+            exchange.sendResponseHeaders(status, -1)
+        } finally {
+            activeRequests.decrementAndGet()
+        }
+    }
+
+    override fun close() {
+        server.stop(0)
+        executor.shutdownNow()
+    }
+
+}
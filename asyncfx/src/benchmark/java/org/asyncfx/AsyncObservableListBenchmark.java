@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.asyncfx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javafx.collections.ListChangeListener;
+import org.asyncfx.collections.AsyncObservableList;
+import org.asyncfx.collections.FXAsyncCollections;
+import org.asyncfx.collections.LockedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link org.asyncfx.collections.AsyncObservableListWrapper}: bulk changes through a {@link LockedList}
+ * against single changes, fan-out to list change listeners, and readers contending with a writer for the
+ * {@link org.asyncfx.concurrent.ReentrantStampedLock} of the list. Iterating requires the list to be locked, so the
+ * iterating readers contend for the exclusive lock with a bulk writer.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class AsyncObservableListBenchmark {
+
+    private static final int LIST_SIZE = 1000;
+    private static final int CHANGE_SIZE = 100;
+
+    @State(Scope.Thread)
+    public static class ListenerState {
+        @Param({"0", "1", "16"})
+        int listenerCount;
+
+        final AsyncObservableList<Integer> list = FXAsyncCollections.observableArrayList();
+        final List<Integer> items = new ArrayList<>();
+        Blackhole blackhole;
+
+        @Setup
+        public void setup(Blackhole blackhole) {
+            this.blackhole = blackhole;
+            for (int i = 0; i < LIST_SIZE; i++) {
+                list.add(i);
+            }
+
+            for (int i = 0; i < CHANGE_SIZE; i++) {
+                items.add(-i);
+            }
+
+            for (int i = 0; i < listenerCount; i++) {
+                list.addListener(this::changed);
+            }
+        }
+
+        void changed(ListChangeListener.Change<? extends Integer> change) {
+            while (change.next()) {
+                blackhole.consume(change.getAddedSize());
+            }
+        }
+    }
+
+    @State(Scope.Group)
+    public static class SharedState {
+        final AsyncObservableList<Integer> list = FXAsyncCollections.observableArrayList();
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < LIST_SIZE; i++) {
+                list.add(i);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void singleChanges(ListenerState state) {
+        for (int i = 0; i < CHANGE_SIZE; i++) {
+            state.list.add(i);
+        }
+
+        for (int i = 0; i < CHANGE_SIZE; i++) {
+            state.list.remove(state.list.size() - 1);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void bulkChange(ListenerState state) {
+        state.list.addAll(state.items);
+        state.list.remove(LIST_SIZE, LIST_SIZE + CHANGE_SIZE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void lockedBulkChange(ListenerState state) {
+        try (LockedList<Integer> lockedList = state.list.lock()) {
+            for (int i = 0; i < CHANGE_SIZE; i++) {
+                lockedList.add(i);
+            }
+
+            lockedList.subList(LIST_SIZE, LIST_SIZE + CHANGE_SIZE).clear();
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    @BenchmarkMode(Mode.Throughput)
+    public void reader(SharedState state, Blackhole blackhole) {
+        blackhole.consume(state.list.get(ThreadLocalRandom.current().nextInt(LIST_SIZE)));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.Throughput)
+    public void writer(SharedState state) {
+        int index = ThreadLocalRandom.current().nextInt(LIST_SIZE);
+        state.list.set(index, index);
+    }
+
+    @Benchmark
+    @Group("iterateWrite")
+    @GroupThreads(3)
+    @BenchmarkMode(Mode.Throughput)
+    public void lockedIteration(SharedState state, Blackhole blackhole) {
+        try (LockedList<Integer> lockedList = state.list.lock()) {
+            long sum = 0;
+            for (Integer value : lockedList) {
+                sum += value;
+            }
+
+            blackhole.consume(sum);
+        }
+    }
+
+    @Benchmark
+    @Group("iterateWrite")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.Throughput)
+    public void bulkWriter(SharedState state) {
+        try (LockedList<Integer> lockedList = state.list.lock()) {
+            for (int i = 0; i < CHANGE_SIZE; i++) {
+                lockedList.set(i, -lockedList.get(i));
+            }
+        }
+    }
+
+}
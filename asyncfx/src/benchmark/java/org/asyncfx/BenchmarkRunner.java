@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.asyncfx;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the asyncfx benchmarks with the GC profiler, which reports the allocation rate and the collections per
+ * operation next to the scores. A pattern can be passed to select a subset of the benchmarks.
+ */
+public final class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options =
+            new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + "\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
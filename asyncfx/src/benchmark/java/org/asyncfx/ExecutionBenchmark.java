@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.asyncfx;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.asyncfx.concurrent.Dispatcher;
+import org.asyncfx.concurrent.Future;
+import org.asyncfx.concurrent.FutureExecutorService;
+import org.asyncfx.concurrent.Futures;
+import org.asyncfx.concurrent.SequentialExecutors;
+import org.asyncfx.concurrent.Strand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of getting work onto the background threads of {@link FutureExecutorService}: continuation chains
+ * of a given depth, operations serialized by a {@link Strand}, and the sequential executors. Every invocation waits
+ * for its work to complete, so the scores include the hand-off between threads.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecutionBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class ChainState {
+        @Param({"1", "8", "64"})
+        int depth;
+    }
+
+    @State(Scope.Benchmark)
+    public static class StrandState {
+        final Strand strand = new Strand();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void thenApplyChain(ChainState state, Blackhole blackhole) {
+        Future<Integer> future = Dispatcher.background().getLaterAsync(() -> 0);
+        for (int i = 0; i < state.depth; i++) {
+            future = future.thenApply(value -> value + 1);
+        }
+
+        blackhole.consume(future.getUnchecked());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void thenApplyAsyncChain(ChainState state, Blackhole blackhole) {
+        Future<Integer> future = Dispatcher.background().getLaterAsync(() -> 0);
+        for (int i = 0; i < state.depth; i++) {
+            future = future.thenApplyAsync(value -> Dispatcher.background().getLaterAsync(() -> value + 1));
+        }
+
+        blackhole.consume(future.getUnchecked());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void completedContinuation(Blackhole blackhole) {
+        blackhole.consume(Futures.successful(1).thenApply(value -> value + 1).getUnchecked());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(BATCH_SIZE)
+    @Threads(4)
+    public void strandRunLater(StrandState state) {
+        Future<Void> future = null;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            future = state.strand.runLater(() -> {});
+        }
+
+        future.getUnchecked();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(BATCH_SIZE)
+    @Threads(4)
+    public void dispatcherRunLater() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Dispatcher.background().runLater(latch::countDown);
+        }
+
+        latch.await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(BATCH_SIZE)
+    @Threads(4)
+    public void sequentialDirectExecutor() throws InterruptedException {
+        execute(SequentialExecutors.sequentialDirectExecutor());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(BATCH_SIZE)
+    @Threads(4)
+    public void sequentialBackgroundExecutor() throws InterruptedException {
+        execute(SequentialExecutors.sequentialBackgroundExecutor());
+    }
+
+    private static void execute(Executor executor) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            executor.execute(latch::countDown);
+        }
+
+        latch.await();
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.asyncfx;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import org.asyncfx.beans.value.RateControlledChangeListenerWrapper;
+import org.asyncfx.concurrent.Dispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link RateControlledChangeListenerWrapper} receiving bursts of change events from several background
+ * threads. Throttled events are scheduled on the dispatcher of the calling thread, so the events are raised from
+ * within the background dispatcher.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RateControlledChangeListenerBenchmark {
+
+    private static final int BURST_SIZE = 1000;
+
+    @State(Scope.Benchmark)
+    public static class ListenerState {
+        @Param({"0", "1", "16"})
+        long minPeriodMillis;
+
+        ChangeListener<Integer> listener;
+        Blackhole blackhole;
+
+        @Setup
+        public void setup(Blackhole blackhole) {
+            this.blackhole = blackhole;
+            listener = new RateControlledChangeListenerWrapper<>(this::changed, Duration.ofMillis(minPeriodMillis));
+        }
+
+        void changed(ObservableValue<? extends Integer> observable, Integer oldValue, Integer newValue) {
+            blackhole.consume(newValue);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(BURST_SIZE)
+    @Threads(4)
+    public void burst(ListenerState state) {
+        Dispatcher.background()
+            .runLaterAsync(
+                () -> {
+                    for (int i = 0; i < BURST_SIZE; i++) {
+                        state.listener.changed(null, i, i + 1);
+                    }
+                })
+            .getUnchecked();
+    }
+
+}
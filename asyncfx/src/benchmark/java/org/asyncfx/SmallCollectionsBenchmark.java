@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2020 Intel Corporation
+ *
+ * SPDX-License-Identifier: GPL-3.0-or-later
+ */
+
+package org.asyncfx;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.asyncfx.collections.ArrayMap;
+import org.asyncfx.collections.RingQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link ArrayMap} and {@link RingQueue} with their JDK counterparts at the sizes they are used with. Both
+ * are confined to a single thread, so they are measured per thread.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class SmallCollectionsBenchmark {
+
+    @State(Scope.Thread)
+    public static class MapState {
+        @Param({"4", "16", "64"})
+        int size;
+
+        final Map<String, Integer> arrayMap = new ArrayMap<>();
+        final Map<String, Integer> hashMap = new HashMap<>();
+        String[] keys;
+        int next;
+
+        @Setup
+        public void setup() {
+            keys = new String[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = "key" + i;
+                arrayMap.put(keys[i], i);
+                hashMap.put(keys[i], i);
+            }
+        }
+
+        String nextKey() {
+            next = next + 1 < keys.length ? next + 1 : 0;
+            return keys[next];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class QueueState {
+        @Param({"16", "256"})
+        int capacity;
+
+        RingQueue<Integer> ringQueue;
+        ArrayDeque<Integer> arrayDeque;
+        final Integer item = 42;
+
+        @Setup
+        public void setup() {
+            ringQueue = new RingQueue<>(capacity);
+            arrayDeque = new ArrayDeque<>(capacity);
+            for (int i = 0; i < capacity; i++) {
+                ringQueue.offer(i);
+                arrayDeque.offer(i);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void arrayMapGet(MapState state, Blackhole blackhole) {
+        blackhole.consume(state.arrayMap.get(state.nextKey()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void hashMapGet(MapState state, Blackhole blackhole) {
+        blackhole.consume(state.hashMap.get(state.nextKey()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void arrayMapPut(MapState state, Blackhole blackhole) {
+        String key = state.nextKey();
+        blackhole.consume(state.arrayMap.put(key, key.length()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void hashMapPut(MapState state, Blackhole blackhole) {
+        String key = state.nextKey();
+        blackhole.consume(state.hashMap.put(key, key.length()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void arrayMapIterate(MapState state, Blackhole blackhole) {
+        for (Map.Entry<String, Integer> entry : state.arrayMap.entrySet()) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void hashMapIterate(MapState state, Blackhole blackhole) {
+        for (Map.Entry<String, Integer> entry : state.hashMap.entrySet()) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    /** A full ring queue drops its oldest item on offer. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void ringQueueOverwrite(QueueState state, Blackhole blackhole) {
+        blackhole.consume(state.ringQueue.offer(state.item));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void arrayDequeOverwrite(QueueState state, Blackhole blackhole) {
+        state.arrayDeque.poll();
+        blackhole.consume(state.arrayDeque.offer(state.item));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void ringQueueIterate(QueueState state, Blackhole blackhole) {
+        for (Integer value : state.ringQueue) {
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void arrayDequeIterate(QueueState state, Blackhole blackhole) {
+        for (Integer value : state.arrayDeque) {
+            blackhole.consume(value);
+        }
+    }
+
+}